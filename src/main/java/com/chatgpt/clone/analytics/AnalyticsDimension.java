@@ -0,0 +1,48 @@
+package com.chatgpt.clone.analytics;
+
+/**
+ * The ways calls are grouped in an {@link AnalyticsReport}.
+ */
+public enum AnalyticsDimension {
+    MODEL("model"),
+    PROMPT_SIZE("prompt tokens"),
+    HOUR("hour of day"),
+    MODEL_PROMPT_SIZE("model, prompt tokens");
+    
+    private final String description;
+    
+    AnalyticsDimension(String description) {
+        this.description = description;
+    }
+    
+    /**
+     * Gets the column heading of the groups.
+     * 
+     * @return The description, e.g. "hour of day"
+     */
+    public String getDescription() {
+        return description;
+    }
+    
+    /**
+     * Gets the prompt size class of a call, so short and long prompts can be compared.
+     * 
+     * @param promptTokens The prompt tokens of the call
+     * @return The label, e.g. "1k-4k"
+     */
+    static String promptSize(int promptTokens) {
+        if (promptTokens < 1024) {
+            return "0-1k";
+        }
+        if (promptTokens < 4096) {
+            return "1k-4k";
+        }
+        if (promptTokens < 16384) {
+            return "4k-16k";
+        }
+        if (promptTokens < 65536) {
+            return "16k-64k";
+        }
+        return "64k+";
+    }
+}
\ No newline at end of file
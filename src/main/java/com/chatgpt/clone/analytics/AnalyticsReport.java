@@ -0,0 +1,83 @@
+package com.chatgpt.clone.analytics;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The result of a {@link UsageAnalytics} run.
+ */
+@Value
+public class AnalyticsReport {
+    /**
+     * The first day included.
+     */
+    LocalDate from;
+    
+    /**
+     * The last day included.
+     */
+    LocalDate to;
+    
+    /**
+     * One report per source that had files.
+     */
+    List<SourceReport> sources;
+    
+    /**
+     * Wall-clock time of the run, in milliseconds.
+     */
+    long elapsedMillis;
+    
+    /**
+     * Number of threads the run used.
+     */
+    int parallelism;
+    
+    /**
+     * Gets the number of bytes scanned in all sources.
+     * 
+     * @return The bytes
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (SourceReport source : sources) {
+            bytes += source.getBytes();
+        }
+        return bytes;
+    }
+    
+    /**
+     * Formats the report as plain-text tables, one per source and dimension.
+     * 
+     * @return The text
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Usage from %s to %s: %.1f MB scanned in %d ms on %d threads%n", from, to,
+                getBytes() / 1e6, elapsedMillis, parallelism));
+        for (SourceReport source : sources) {
+            text.append(String.format("%n=== %s: %d calls in %d files ===%n", source.getSource(), source.getCalls(),
+                    source.getFiles()));
+            source.getStats().forEach((dimension, groups) -> {
+                if (groups.isEmpty()) {
+                    return;
+                }
+                text.append(String.format("%n%-24s %8s %9s %9s %9s %9s %9s %9s%n", dimension.getDescription(), "calls",
+                        "lat p50", "lat p90", "lat p99", "prompt p50", "prompt p99", "compl p50"));
+                for (CallStats group : groups) {
+                    Distribution latency = group.getLatencyMillis();
+                    text.append(String.format("%-24s %8d %9s %9s %9s %9d %9d %9d%n", group.getGroup(),
+                            group.getPromptTokens().getCount(),
+                            latency != null ? latency.getP50() : "-",
+                            latency != null ? latency.getP90() : "-",
+                            latency != null ? latency.getP99() : "-",
+                            group.getPromptTokens().getP50(), group.getPromptTokens().getP99(),
+                            group.getCompletionTokens().getP50()));
+                }
+            });
+        }
+        return text.toString();
+    }
+}
\ No newline at end of file
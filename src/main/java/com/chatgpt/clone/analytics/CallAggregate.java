@@ -0,0 +1,143 @@
+package com.chatgpt.clone.analytics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mutable per-group histograms, built by one scanning task and then merged
+ * with the aggregates of the other tasks. Not thread-safe.
+ */
+final class CallAggregate {
+    private final Map<AnalyticsDimension, Map<String, Group>> dimensions = new EnumMap<>(AnalyticsDimension.class);
+    private long calls;
+    
+    CallAggregate() {
+        for (AnalyticsDimension dimension : AnalyticsDimension.values()) {
+            dimensions.put(dimension, new HashMap<>());
+        }
+    }
+    
+    /**
+     * Adds a call.
+     * 
+     * @param model The model
+     * @param hour The hour of day the call completed, 0 to 23
+     * @param promptTokens The prompt tokens
+     * @param completionTokens The completion tokens
+     * @param latencyMillis The latency, or -1 if it is not known
+     */
+    void add(String model, int hour, int promptTokens, int completionTokens, int latencyMillis) {
+        String size = AnalyticsDimension.promptSize(promptTokens);
+        group(AnalyticsDimension.MODEL, model).add(promptTokens, completionTokens, latencyMillis);
+        group(AnalyticsDimension.PROMPT_SIZE, size).add(promptTokens, completionTokens, latencyMillis);
+        group(AnalyticsDimension.HOUR, hour < 10 ? "0" + hour : String.valueOf(hour))
+                .add(promptTokens, completionTokens, latencyMillis);
+        group(AnalyticsDimension.MODEL_PROMPT_SIZE, model + " " + size)
+                .add(promptTokens, completionTokens, latencyMillis);
+        calls++;
+    }
+    
+    /**
+     * Adds the calls of another aggregate to this one.
+     * 
+     * @param other The other aggregate, which must not be used afterwards
+     * @return This aggregate
+     */
+    CallAggregate merge(CallAggregate other) {
+        other.dimensions.forEach((dimension, groups) -> {
+            Map<String, Group> mine = dimensions.get(dimension);
+            groups.forEach((key, group) -> mine.merge(key, group, Group::merge));
+        });
+        calls += other.calls;
+        return this;
+    }
+    
+    long getCalls() {
+        return calls;
+    }
+    
+    /**
+     * Summarizes the groups of every dimension, sorted by group name with
+     * numbers compared by value, so "4k-16k" comes before "16k-64k".
+     * 
+     * @return The statistics per dimension
+     */
+    Map<AnalyticsDimension, List<CallStats>> toStats() {
+        Map<AnalyticsDimension, List<CallStats>> stats = new EnumMap<>(AnalyticsDimension.class);
+        dimensions.forEach((dimension, groups) -> {
+            List<CallStats> list = new ArrayList<>();
+            Map<String, Group> sorted = new TreeMap<>(CallAggregate::compareNames);
+            sorted.putAll(groups);
+            sorted.forEach((key, group) -> list.add(group.toStats(key)));
+            stats.put(dimension, list);
+        });
+        return stats;
+    }
+    
+    private static int compareNames(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            char x = a.charAt(i);
+            char y = b.charAt(j);
+            if (Character.isDigit(x) && Character.isDigit(y)) {
+                int numberEndA = i;
+                while (numberEndA < a.length() && Character.isDigit(a.charAt(numberEndA))) {
+                    numberEndA++;
+                }
+                int numberEndB = j;
+                while (numberEndB < b.length() && Character.isDigit(b.charAt(numberEndB))) {
+                    numberEndB++;
+                }
+                int compared = Long.compare(Long.parseLong(a.substring(i, numberEndA)),
+                        Long.parseLong(b.substring(j, numberEndB)));
+                if (compared != 0) {
+                    return compared;
+                }
+                i = numberEndA;
+                j = numberEndB;
+            } else {
+                if (x != y) {
+                    return Character.compare(x, y);
+                }
+                i++;
+                j++;
+            }
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+    
+    private Group group(AnalyticsDimension dimension, String key) {
+        return dimensions.get(dimension).computeIfAbsent(key, k -> new Group());
+    }
+    
+    private static final class Group {
+        final Histogram latency = new Histogram();
+        final Histogram prompt = new Histogram();
+        final Histogram completion = new Histogram();
+        
+        void add(int promptTokens, int completionTokens, int latencyMillis) {
+            prompt.record(promptTokens);
+            completion.record(completionTokens);
+            if (latencyMillis >= 0) {
+                latency.record(latencyMillis);
+            }
+        }
+        
+        Group merge(Group other) {
+            latency.merge(other.latency);
+            prompt.merge(other.prompt);
+            completion.merge(other.completion);
+            return this;
+        }
+        
+        CallStats toStats(String key) {
+            return new CallStats(key, latency.getCount() == 0 ? null : latency.toDistribution(),
+                    prompt.toDistribution(), completion.toDistribution());
+        }
+    }
+}
\ No newline at end of file
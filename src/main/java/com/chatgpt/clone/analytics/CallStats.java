@@ -0,0 +1,30 @@
+package com.chatgpt.clone.analytics;
+
+import lombok.Value;
+
+/**
+ * The latency and token distributions of one group of calls.
+ */
+@Value
+public class CallStats {
+    /**
+     * The group, e.g. "gpt-4" or "14" for the hour from 14:00.
+     */
+    String group;
+    
+    /**
+     * Time from sending the request until the response was complete, in
+     * milliseconds, or null if the source has no latencies.
+     */
+    Distribution latencyMillis;
+    
+    /**
+     * Prompt tokens per call.
+     */
+    Distribution promptTokens;
+    
+    /**
+     * Completion tokens per call.
+     */
+    Distribution completionTokens;
+}
\ No newline at end of file
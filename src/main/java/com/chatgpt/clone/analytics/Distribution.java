@@ -0,0 +1,17 @@
+package com.chatgpt.clone.analytics;
+
+import lombok.Value;
+
+/**
+ * Summary of the values of one measure in a group, e.g. the latencies of all calls to one model.
+ * Percentiles are accurate to about 6%.
+ */
+@Value
+public class Distribution {
+    long count;
+    double mean;
+    long p50;
+    long p90;
+    long p99;
+    long max;
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.chatgpt.clone.analytics;
+
+/**
+ * A mergeable histogram of non-negative values with log-linear buckets:
+ * values below 16 are counted exactly, larger ones in 16 buckets per power of
+ * two, so percentiles are within about 6% whatever the range. Partial
+ * histograms built on different threads are combined with {@link #merge}.
+ * Not thread-safe.
+ */
+final class Histogram {
+    private static final int SUB_BUCKETS = 16;
+    private static final int MAX_EXPONENT = 40;
+    
+    private final long[] counts = new long[(MAX_EXPONENT - 2) * SUB_BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+    
+    void record(long value) {
+        long clamped = Math.min(Math.max(0, value), (1L << MAX_EXPONENT) - 1);
+        counts[index(clamped)]++;
+        count++;
+        sum += clamped;
+        max = Math.max(max, clamped);
+    }
+    
+    void merge(Histogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+    
+    long getCount() {
+        return count;
+    }
+    
+    /**
+     * Gets the value below which a share of the recorded values fall.
+     * 
+     * @param quantile The share, from 0 to 1
+     * @return The middle of the bucket holding the quantile, or 0 if nothing was recorded
+     */
+    long percentile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, lowerBound(i) + width(i) / 2);
+            }
+        }
+        return max;
+    }
+    
+    Distribution toDistribution() {
+        return new Distribution(count, count == 0 ? 0 : (double) sum / count, percentile(0.5), percentile(0.9),
+                percentile(0.99), max);
+    }
+    
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) ((value >>> (exponent - 4)) & (SUB_BUCKETS - 1));
+        return (exponent - 3) * SUB_BUCKETS + sub;
+    }
+    
+    private static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + 3;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - 4);
+    }
+    
+    private static long width(int index) {
+        return index < SUB_BUCKETS ? 1 : 1L << (index / SUB_BUCKETS - 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,251 @@
+package com.chatgpt.clone.analytics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the call lines that GPTService logs, e.g.
+ * {@code 2024-05-01 14:03:12.345 INFO com.chatgpt.clone.service.GPTService: Call completed model=gpt-4
+ * prompt_tokens=812 completion_tokens=240 latency_ms=5310}, in a log file.
+ * <p>
+ * The file is memory-mapped and split into ranges that are scanned as
+ * fork/join tasks. Bytes are matched in place and only call lines are
+ * decoded, so scanning runs at close to memory bandwidth. A range owns the
+ * lines that start in it; its mapping reaches a little past its end to
+ * finish the last line. Lines longer than that are skipped wherever they
+ * are, so the counts do not depend on where the file is split.
+ */
+final class LogScanner extends RecursiveTask<CallAggregate> {
+    /**
+     * Ranges larger than this are split in two.
+     */
+    static final long SPLIT_BYTES = 32L * 1024 * 1024;
+    
+    /**
+     * How far a range may read past its end to finish its last line.
+     */
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    
+    private static final byte[] MARKER = "Call completed model=".getBytes(StandardCharsets.US_ASCII);
+    
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long start;
+    private final long end;
+    private final int fromDate;
+    private final int toDate;
+    private final long splitBytes;
+    
+    /**
+     * Creates the task for a whole file.
+     * 
+     * @param channel The open file
+     * @param fileSize The size of the file
+     * @param fromDate The first day to include, as yyyymmdd
+     * @param toDate The last day to include, as yyyymmdd
+     */
+    LogScanner(FileChannel channel, long fileSize, int fromDate, int toDate) {
+        this(channel, fileSize, fromDate, toDate, SPLIT_BYTES);
+    }
+    
+    /**
+     * Creates the task for a whole file with a custom split size, so small
+     * files can be scanned as many ranges.
+     * 
+     * @param channel The open file
+     * @param fileSize The size of the file
+     * @param fromDate The first day to include, as yyyymmdd
+     * @param toDate The last day to include, as yyyymmdd
+     * @param splitBytes Ranges larger than this are split in two
+     */
+    LogScanner(FileChannel channel, long fileSize, int fromDate, int toDate, long splitBytes) {
+        this(channel, fileSize, 0, fileSize, fromDate, toDate, splitBytes);
+    }
+    
+    private LogScanner(FileChannel channel, long fileSize, long start, long end, int fromDate, int toDate,
+            long splitBytes) {
+        this.channel = channel;
+        this.fileSize = fileSize;
+        this.start = start;
+        this.end = end;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.splitBytes = splitBytes;
+    }
+    
+    /**
+     * Opens a log file for scanning.
+     * 
+     * @param file The log file
+     * @return The channel; the caller closes it once the task is done
+     * @throws IOException if the file cannot be opened
+     */
+    static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.READ);
+    }
+    
+    @Override
+    protected CallAggregate compute() {
+        if (end - start > splitBytes) {
+            long middle = start + (end - start) / 2;
+            LogScanner left = new LogScanner(channel, fileSize, start, middle, fromDate, toDate, splitBytes);
+            LogScanner right = new LogScanner(channel, fileSize, middle, end, fromDate, toDate, splitBytes);
+            right.fork();
+            CallAggregate aggregate = left.compute();
+            return aggregate.merge(right.join());
+        }
+        try {
+            return scan();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private CallAggregate scan() throws IOException {
+        CallAggregate aggregate = new CallAggregate();
+        if (start >= end) {
+            return aggregate;
+        }
+        // One byte before the range tells whether the range starts at a line
+        long mapStart = Math.max(0, start - 1);
+        long mapEnd = Math.min(fileSize, end + MAX_LINE_BYTES);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int ownedEnd = (int) (end - mapStart);
+        int limit = buffer.limit();
+        
+        int position = start == 0 ? 0 : 1;
+        if (start > 0 && buffer.get(0) != '\n') {
+            // The first line started in the previous range
+            position = indexOf(buffer, (byte) '\n', 1, limit) + 1;
+            if (position == 0) {
+                return aggregate;
+            }
+        }
+        while (position < ownedEnd) {
+            int lineEnd = indexOf(buffer, (byte) '\n', position, limit);
+            if (lineEnd < 0) {
+                if (mapEnd < fileSize) {
+                    // Longer than any call line, and no other line starts in the range
+                    break;
+                }
+                lineEnd = limit;
+            }
+            if (lineEnd - position <= MAX_LINE_BYTES) {
+                parseLine(buffer, position, lineEnd, aggregate);
+            }
+            position = lineEnd + 1;
+        }
+        return aggregate;
+    }
+    
+    private void parseLine(MappedByteBuffer buffer, int lineStart, int lineEnd, CallAggregate aggregate) {
+        // "yyyy-mm-dd hh:" and the marker must both be there
+        if (lineEnd - lineStart < 14 + MARKER.length || buffer.get(lineStart + 4) != '-'
+                || buffer.get(lineStart + 10) != ' ' || buffer.get(lineStart + 13) != ':') {
+            return;
+        }
+        int marker = find(buffer, lineStart + 14, lineEnd);
+        if (marker < 0) {
+            return;
+        }
+        int date = digits(buffer, lineStart, 4) * 10000 + digits(buffer, lineStart + 5, 2) * 100
+                + digits(buffer, lineStart + 8, 2);
+        int hour = digits(buffer, lineStart + 11, 2);
+        if (date < fromDate || date > toDate || hour < 0 || hour > 23) {
+            return;
+        }
+        
+        int modelStart = marker + MARKER.length;
+        int modelEnd = indexOf(buffer, (byte) ' ', modelStart, lineEnd);
+        if (modelEnd < 0) {
+            return;
+        }
+        byte[] model = new byte[modelEnd - modelStart];
+        buffer.get(modelStart, model);
+        
+        int prompt = -1;
+        int completion = -1;
+        int latency = -1;
+        int position = modelEnd;
+        while (position < lineEnd) {
+            while (position < lineEnd && buffer.get(position) == ' ') {
+                position++;
+            }
+            int equals = indexOf(buffer, (byte) '=', position, lineEnd);
+            if (equals < 0) {
+                break;
+            }
+            byte key = buffer.get(position);
+            int value = 0;
+            position = equals + 1;
+            while (position < lineEnd) {
+                byte b = buffer.get(position);
+                if (b < '0' || b > '9') {
+                    break;
+                }
+                value = value * 10 + (b - '0');
+                position++;
+            }
+            switch (key) {
+                case 'p':
+                    prompt = value;
+                    break;
+                case 'c':
+                    completion = value;
+                    break;
+                case 'l':
+                    latency = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (prompt >= 0 && completion >= 0) {
+            aggregate.add(new String(model, StandardCharsets.UTF_8), hour, prompt, completion, latency);
+        }
+    }
+    
+    private static int find(MappedByteBuffer buffer, int from, int to) {
+        byte first = MARKER[0];
+        for (int i = from; i <= to - MARKER.length; i++) {
+            if (buffer.get(i) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < MARKER.length && buffer.get(i + j) == MARKER[j]) {
+                j++;
+            }
+            if (j == MARKER.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static int indexOf(MappedByteBuffer buffer, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static int digits(MappedByteBuffer buffer, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+}
\ No newline at end of file
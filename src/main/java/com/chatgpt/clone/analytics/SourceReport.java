@@ -0,0 +1,37 @@
+package com.chatgpt.clone.analytics;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The calls found in one kind of source, grouped every way.
+ */
+@Value
+public class SourceReport {
+    /**
+     * The source, e.g. "usage ledger".
+     */
+    String source;
+    
+    /**
+     * Number of files scanned.
+     */
+    int files;
+    
+    /**
+     * Number of bytes scanned.
+     */
+    long bytes;
+    
+    /**
+     * Number of calls found.
+     */
+    long calls;
+    
+    /**
+     * The statistics of every group, per dimension.
+     */
+    Map<AnalyticsDimension, List<CallStats>> stats;
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+package com.chatgpt.clone.analytics;
+
+import com.chatgpt.clone.history.ConversationStore;
+import com.chatgpt.clone.history.StoredConversation;
+import com.chatgpt.clone.model.Message;
+import com.chatgpt.clone.usage.UsageLedger;
+import com.chatgpt.clone.util.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Computes latency and token distributions from everything the application
+ * keeps on disk, grouped by model, prompt size and hour of day:
+ * <ul>
+ * <li>the usage ledger, one binary file per day;</li>
+ * <li>the log files, which have one line per call;</li>
+ * <li>the stored conversations, which have no latencies or models; each
+ * question counts as a call whose prompt is the conversation up to it,
+ * with tokens estimated at four characters per token.</li>
+ * </ul>
+ * All work runs in one fork/join pool. Log files are memory-mapped and split
+ * into ranges scanned in parallel (see {@link LogScanner}); ledger and
+ * conversation files are parsed as parallel streams. Every task fills its own
+ * histograms, which are merged at the end, so threads never share state.
+ */
+public class UsageAnalytics {
+    private static final Logger logger = new Logger(UsageAnalytics.class);
+    
+    private final Path historyDirectory;
+    private final Path usageDirectory;
+    private final Path logDirectory;
+    private final int parallelism;
+    private final ZoneId zone;
+    
+    /**
+     * Creates an analytics run over the given directories. Missing directories are skipped.
+     * 
+     * @param historyDirectory The directory of the stored conversations
+     * @param usageDirectory The directory of the usage ledger
+     * @param logDirectory The directory of the log files
+     * @param parallelism The number of threads
+     * @param zone The time zone for days and hours of the ledger and conversations
+     */
+    public UsageAnalytics(Path historyDirectory, Path usageDirectory, Path logDirectory, int parallelism, ZoneId zone) {
+        this.historyDirectory = historyDirectory;
+        this.usageDirectory = usageDirectory;
+        this.logDirectory = logDirectory;
+        this.parallelism = Math.max(1, parallelism);
+        this.zone = zone;
+    }
+    
+    /**
+     * Analyzes the calls between two days, inclusive.
+     * 
+     * @param from The first day
+     * @param to The last day
+     * @return The report
+     * @throws IOException if a directory cannot be listed or a file cannot be read
+     */
+    public AnalyticsReport run(LocalDate from, LocalDate to) throws IOException {
+        long started = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<SourceReport> sources = new ArrayList<>();
+            List<Path> ledgerFiles = list(usageDirectory, "usage-\\d{4}-\\d{2}-\\d{2}\\.bin");
+            if (!ledgerFiles.isEmpty()) {
+                sources.add(scanLedger(pool, ledgerFiles, from, to));
+            }
+            // The file handler adds a generation number after ".log" when it rotates
+            List<Path> logFiles = list(logDirectory, "chatgpt-clone-.*\\.log(\\.\\d+)?");
+            if (!logFiles.isEmpty()) {
+                sources.add(scanLogs(pool, logFiles, from, to));
+            }
+            List<Path> conversations = list(historyDirectory, "[A-Za-z0-9-]+\\.(json|smile|cbor)");
+            if (!conversations.isEmpty()) {
+                sources.add(scanConversations(pool, conversations, from, to));
+            }
+            long elapsed = (System.nanoTime() - started) / 1_000_000;
+            AnalyticsReport report = new AnalyticsReport(from, to, sources, elapsed, parallelism);
+            logger.info(String.format("Analyzed %.1f MB in %d ms", report.getBytes() / 1e6, elapsed));
+            return report;
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    private SourceReport scanLedger(ForkJoinPool pool, List<Path> files, LocalDate from, LocalDate to)
+            throws IOException {
+        // The day is in the file name, so files outside the range are not read
+        List<Path> selected = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            LocalDate day = LocalDate.parse(name.substring("usage-".length(), name.length() - ".bin".length()));
+            if (!day.isBefore(from) && !day.isAfter(to)) {
+                selected.add(file);
+            }
+        }
+        CallAggregate aggregate = invoke(pool, () -> selected.parallelStream()
+                .map(file -> {
+                    CallAggregate partial = new CallAggregate();
+                    try {
+                        UsageLedger.read(file, record -> {
+                            ZonedDateTime time = Instant.ofEpochMilli(record.getTimestampMillis()).atZone(zone);
+                            partial.add(record.getModel(), time.getHour(), record.getPromptTokens(),
+                                    record.getCompletionTokens(), record.getLatencyMillis());
+                        });
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return partial;
+                })
+                .reduce(CallAggregate::merge)
+                .orElseGet(CallAggregate::new));
+        return report("usage ledger", selected, aggregate);
+    }
+    
+    private SourceReport scanLogs(ForkJoinPool pool, List<Path> files, LocalDate from, LocalDate to)
+            throws IOException {
+        int fromDate = from.getYear() * 10000 + from.getMonthValue() * 100 + from.getDayOfMonth();
+        int toDate = to.getYear() * 10000 + to.getMonthValue() * 100 + to.getDayOfMonth();
+        List<FileChannel> channels = new ArrayList<>();
+        try {
+            List<LogScanner> tasks = new ArrayList<>();
+            for (Path file : files) {
+                FileChannel channel = LogScanner.open(file);
+                channels.add(channel);
+                tasks.add(new LogScanner(channel, channel.size(), fromDate, toDate));
+            }
+            CallAggregate aggregate = invoke(pool, () -> tasks.parallelStream()
+                    .map(LogScanner::invoke)
+                    .reduce(CallAggregate::merge)
+                    .orElseGet(CallAggregate::new));
+            return report("logs", files, aggregate);
+        } finally {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+    
+    private SourceReport scanConversations(ForkJoinPool pool, List<Path> files, LocalDate from, LocalDate to)
+            throws IOException {
+        long fromMillis = from.atStartOfDay(zone).toInstant().toEpochMilli();
+        long toMillis = to.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        CallAggregate aggregate = invoke(pool, () -> files.parallelStream()
+                .map(file -> {
+                    CallAggregate partial = new CallAggregate();
+                    StoredConversation conversation;
+                    try {
+                        conversation = ConversationStore.read(file);
+                    } catch (IOException e) {
+                        logger.warning("Skipping unreadable conversation " + file + ": " + e.getMessage());
+                        return partial;
+                    }
+                    long updated = conversation.getUpdatedMillis();
+                    if (conversation.getMessages() == null || updated < fromMillis || updated >= toMillis) {
+                        return partial;
+                    }
+                    addConversation(partial, conversation.getMessages(),
+                            Instant.ofEpochMilli(updated).atZone(zone).getHour());
+                    return partial;
+                })
+                .reduce(CallAggregate::merge)
+                .orElseGet(CallAggregate::new));
+        return report("conversations", files, aggregate);
+    }
+    
+    /**
+     * Counts every answered question as a call that sent the conversation up to it.
+     */
+    private static void addConversation(CallAggregate aggregate, List<Message> messages, int hour) {
+        int promptTokens = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            int tokens = estimateTokens(message);
+            if ("assistant".equals(message.getRole()) && i > 0 && "user".equals(messages.get(i - 1).getRole())) {
+                aggregate.add("conversations", hour, promptTokens, tokens, -1);
+            }
+            promptTokens += tokens;
+        }
+    }
+    
+    private static int estimateTokens(Message message) {
+        return (message.getContent() != null ? (message.getContent().length() + 3) / 4 : 0) + 4;
+    }
+    
+    private static SourceReport report(String source, List<Path> files, CallAggregate aggregate) throws IOException {
+        long bytes = 0;
+        for (Path file : files) {
+            bytes += Files.size(file);
+        }
+        return new SourceReport(source, files.size(), bytes, aggregate.getCalls(), aggregate.toStats());
+    }
+    
+    /**
+     * Runs a parallel stream in the pool, so it uses the pool's threads instead of the common pool.
+     */
+    private static CallAggregate invoke(ForkJoinPool pool, Callable<CallAggregate> work)
+            throws IOException {
+        try {
+            return pool.submit(work).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Analytics interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Analytics failed", e.getCause());
+        }
+    }
+    
+    private static List<Path> list(Path directory, String pattern) throws IOException {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches(pattern) && Files.isRegularFile(file))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
\ No newline at end of file
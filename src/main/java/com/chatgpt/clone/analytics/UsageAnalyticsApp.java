@@ -0,0 +1,61 @@
+package com.chatgpt.clone.analytics;
+
+import com.chatgpt.clone.config.OpenAIConfig;
+import com.chatgpt.clone.util.Logger;
+
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Prints latency and token distributions from the stored conversations, the
+ * usage ledger and the log files. The directories come from config.properties
+ * (history.dir, usage.ledger.dir, analytics.log.dir).
+ * Usage: {@code UsageAnalyticsApp [--days N | --from YYYY-MM-DD --to YYYY-MM-DD] [--threads N]},
+ * by default the last 7 days on all cores.
+ */
+public class UsageAnalyticsApp {
+    private static final Logger logger = new Logger(UsageAnalyticsApp.class);
+    
+    public static void main(String[] args) throws Exception {
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(6);
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--days":
+                    from = to.minusDays(Integer.parseInt(args[i + 1]) - 1);
+                    break;
+                case "--from":
+                    from = LocalDate.parse(args[i + 1]);
+                    break;
+                case "--to":
+                    to = LocalDate.parse(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+        
+        String historyDir = "history";
+        String usageDir = "usage";
+        String logDir = "logs";
+        try {
+            OpenAIConfig config = new OpenAIConfig();
+            historyDir = config.getProperty("history.dir", historyDir);
+            usageDir = config.getProperty("usage.ledger.dir", usageDir);
+            logDir = config.getProperty("analytics.log.dir", logDir);
+        } catch (RuntimeException e) {
+            // No API key is needed to read local files
+            logger.warning("Using the default directories: " + e.getMessage());
+        }
+        
+        UsageAnalytics analytics = new UsageAnalytics(Paths.get(historyDir), Paths.get(usageDir), Paths.get(logDir),
+                threads, ZoneId.systemDefault());
+        System.out.print(analytics.run(from, to).format());
+    }
+}
\ No newline at end of file
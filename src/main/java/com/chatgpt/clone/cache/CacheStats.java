@@ -0,0 +1,79 @@
+package com.chatgpt.clone.cache;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the counters of a {@link SemanticResponseCache}.
+ */
+@Value
+public class CacheStats {
+    /**
+     * Number of lookups performed.
+     */
+    long lookups;
+    
+    /**
+     * Number of lookups answered from the cache.
+     */
+    long hits;
+    
+    /**
+     * Number of LSH candidates that shared a bucket but fell below the similarity threshold.
+     */
+    long rejectedCandidates;
+    
+    /**
+     * Number of cached answers reported as wrong for the prompt they were served for.
+     */
+    long falseHits;
+    
+    /**
+     * Number of entries removed to stay within the memory bounds.
+     */
+    long evictions;
+    
+    /**
+     * Number of entries currently cached.
+     */
+    int entries;
+    
+    /**
+     * Estimated heap used by the cached entries, in bytes.
+     */
+    long bytes;
+    
+    /**
+     * Gets the number of lookups that missed the cache.
+     * 
+     * @return The miss count
+     */
+    public long getMisses() {
+        return lookups - hits;
+    }
+    
+    /**
+     * Gets the fraction of lookups answered from the cache.
+     * 
+     * @return The hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+    
+    /**
+     * Gets the fraction of hits that were reported as wrong.
+     * 
+     * @return The false hit rate between 0 and 1
+     */
+    public double getFalseHitRate() {
+        return hits == 0 ? 0.0 : (double) falseHits / hits;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("CacheStats[lookups=%d, hits=%d, hitRate=%.3f, falseHits=%d, falseHitRate=%.3f, " +
+                        "rejectedCandidates=%d, evictions=%d, entries=%d, bytes=%d]",
+                lookups, hits, getHitRate(), falseHits, getFalseHitRate(),
+                rejectedCandidates, evictions, entries, bytes);
+    }
+}
\ No newline at end of file
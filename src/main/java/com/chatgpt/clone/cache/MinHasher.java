@@ -0,0 +1,121 @@
+package com.chatgpt.clone.cache;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Computes MinHash signatures of shingle sets and splits them into
+ * locality-sensitive hashing bands.
+ * Two sets agree on a signature position with probability equal to their
+ * Jaccard similarity, so similar prompts share at least one band with high
+ * probability while unrelated prompts rarely do.
+ */
+public final class MinHasher {
+    private final int bands;
+    private final int rowsPerBand;
+    private final long[] seeds;
+    
+    /**
+     * Creates a new MinHasher.
+     * 
+     * @param bands The number of LSH bands
+     * @param rowsPerBand The number of signature positions per band
+     */
+    public MinHasher(int bands, int rowsPerBand) {
+        if (bands <= 0 || rowsPerBand <= 0) {
+            throw new IllegalArgumentException("bands and rowsPerBand must be positive");
+        }
+        this.bands = bands;
+        this.rowsPerBand = rowsPerBand;
+        this.seeds = new long[bands * rowsPerBand];
+        
+        // Fixed seeds keep signatures stable between runs
+        long state = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < seeds.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix(state);
+        }
+    }
+    
+    /**
+     * Computes the MinHash signature of a shingle set.
+     * 
+     * @param shingles The shingle set
+     * @return The signature, one minimum per hash function
+     */
+    public long[] signature(Set<String> shingles) {
+        long[] signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        
+        for (String shingle : shingles) {
+            long base = fnv1a(shingle);
+            for (int i = 0; i < seeds.length; i++) {
+                long h = mix(base ^ seeds[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+    
+    /**
+     * Hashes each band of a signature into a single bucket key.
+     * 
+     * @param signature The signature from {@link #signature(Set)}
+     * @return One bucket key per band
+     */
+    public long[] bandKeys(long[] signature) {
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long h = band;
+            int offset = band * rowsPerBand;
+            for (int row = 0; row < rowsPerBand; row++) {
+                h = mix(h * 31 + signature[offset + row]);
+            }
+            keys[band] = h;
+        }
+        return keys;
+    }
+    
+    /**
+     * Estimates the Jaccard similarity of two sets from their signatures.
+     * 
+     * @param a The first signature
+     * @param b The second signature
+     * @return The fraction of matching signature positions
+     */
+    public static double similarity(long[] a, long[] b) {
+        int matches = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                matches++;
+            }
+        }
+        return (double) matches / a.length;
+    }
+    
+    /**
+     * Gets the number of LSH bands.
+     * 
+     * @return The number of bands
+     */
+    public int getBands() {
+        return bands;
+    }
+    
+    private static long fnv1a(String s) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+    
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.chatgpt.clone.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Normalizes prompts into shingle sets so that differently worded
+ * versions of the same question end up with overlapping sets.
+ */
+public final class PromptNormalizer {
+    private static final int CHAR_SHINGLE_SIZE = 3;
+    
+    /**
+     * Filler words that carry little meaning for matching questions.
+     */
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "the", "is", "are", "was", "were", "be", "been", "am",
+            "what", "whats", "how", "do", "does", "did", "can", "could", "would", "should", "will",
+            "i", "me", "my", "we", "our", "us", "you", "your", "it", "its", "this", "that", "there",
+            "to", "of", "in", "on", "for", "with", "about", "at", "by", "from", "and", "or",
+            "please", "tell", "explain", "show", "give", "know", "want", "need"));
+    
+    private PromptNormalizer() {
+    }
+    
+    /**
+     * Splits a prompt into lower-case, stemmed content words.
+     * Punctuation and stop words are dropped.
+     * 
+     * @param prompt The prompt text
+     * @return The content words in their original order
+     */
+    public static List<String> tokens(String prompt) {
+        List<String> tokens = new ArrayList<>();
+        if (prompt == null) {
+            return tokens;
+        }
+        
+        String cleaned = prompt.toLowerCase(Locale.ROOT)
+                .replace("'", "")
+                .replace("’", "");
+        for (String raw : cleaned.split("[^\\p{L}\\p{N}]+")) {
+            if (raw.isEmpty() || STOP_WORDS.contains(raw)) {
+                continue;
+            }
+            tokens.add(stem(raw));
+        }
+        return tokens;
+    }
+    
+    /**
+     * Builds the shingle set of a prompt.
+     * The set holds every content word plus the character trigrams of the
+     * sorted words glued together, which makes matching independent of word
+     * order and of compounds such as "setup" versus "set up".
+     * 
+     * @param prompt The prompt text
+     * @return The shingle set, empty if the prompt has no content words
+     */
+    public static Set<String> shingles(String prompt) {
+        List<String> tokens = tokens(prompt);
+        Set<String> shingles = new LinkedHashSet<>();
+        if (tokens.isEmpty()) {
+            return shingles;
+        }
+        
+        shingles.addAll(tokens);
+        
+        List<String> sorted = new ArrayList<>(tokens);
+        Collections.sort(sorted);
+        String joined = String.join("", sorted);
+        if (joined.length() <= CHAR_SHINGLE_SIZE) {
+            shingles.add("#" + joined);
+        } else {
+            for (int i = 0; i + CHAR_SHINGLE_SIZE <= joined.length(); i++) {
+                shingles.add("#" + joined.substring(i, i + CHAR_SHINGLE_SIZE));
+            }
+        }
+        return shingles;
+    }
+    
+    /**
+     * Strips a few common English suffixes.
+     * 
+     * @param word A lower-case word
+     * @return The stemmed word
+     */
+    private static String stem(String word) {
+        if (word.length() > 5 && word.endsWith("ing")) {
+            return word.substring(0, word.length() - 3);
+        }
+        if (word.length() > 4 && word.endsWith("ed")) {
+            return word.substring(0, word.length() - 2);
+        }
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+}
\ No newline at end of file
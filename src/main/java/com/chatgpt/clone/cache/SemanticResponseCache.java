@@ -0,0 +1,261 @@
+package com.chatgpt.clone.cache;
+
+import com.chatgpt.clone.util.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Near-duplicate response cache for single-turn questions.
+ * Prompts are normalized into shingle sets and indexed by MinHash/LSH band
+ * keys, so a reworded question finds the cached answer of an earlier one
+ * without calling an embedding API. Entries are kept per model and evicted
+ * in least-recently-used order once the entry or byte limit is reached.
+ */
+public class SemanticResponseCache {
+    private static final Logger logger = new Logger(SemanticResponseCache.class);
+    
+    /**
+     * Rough per-entry overhead: signature, band keys, bucket slots and object headers.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    
+    private final MinHasher hasher;
+    private final double threshold;
+    private final int maxEntries;
+    private final long maxBytes;
+    
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, List<Entry>> buckets = new HashMap<>();
+    private long nextId;
+    private long bytes;
+    
+    private long lookups;
+    private long hits;
+    private long rejectedCandidates;
+    private long falseHits;
+    private long evictions;
+    
+    /**
+     * Creates a new SemanticResponseCache with 32 bands of 4 rows.
+     * 
+     * @param threshold The minimum estimated similarity for a cached answer to be returned
+     * @param maxEntries The maximum number of cached answers
+     * @param maxBytes The maximum estimated heap used by cached answers
+     */
+    public SemanticResponseCache(double threshold, int maxEntries, long maxBytes) {
+        this(new MinHasher(32, 4), threshold, maxEntries, maxBytes);
+    }
+    
+    /**
+     * Creates a new SemanticResponseCache with a custom hasher.
+     * 
+     * @param hasher The MinHash/LSH hasher
+     * @param threshold The minimum estimated similarity for a cached answer to be returned
+     * @param maxEntries The maximum number of cached answers
+     * @param maxBytes The maximum estimated heap used by cached answers
+     */
+    public SemanticResponseCache(MinHasher hasher, double threshold, int maxEntries, long maxBytes) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("threshold must be in (0, 1]");
+        }
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxBytes must be positive");
+        }
+        this.hasher = hasher;
+        this.threshold = threshold;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Looks up a cached answer for a prompt.
+     * 
+     * @param model The model the answer must come from
+     * @param prompt The user's prompt
+     * @return The cached answer, or null on a miss
+     */
+    public synchronized String get(String model, String prompt) {
+        lookups++;
+        Entry entry = findBest(model, prompt, true);
+        if (entry == null) {
+            return null;
+        }
+        hits++;
+        entries.get(entry.id); // refresh LRU position
+        return entry.response;
+    }
+    
+    /**
+     * Caches the answer to a prompt.
+     * An existing entry with an identical signature is replaced.
+     * 
+     * @param model The model that produced the answer
+     * @param prompt The user's prompt
+     * @param response The model's answer
+     */
+    public synchronized void put(String model, String prompt, String response) {
+        Set<String> shingles = PromptNormalizer.shingles(prompt);
+        if (shingles.isEmpty() || response == null) {
+            return;
+        }
+        
+        long[] signature = hasher.signature(shingles);
+        long[] bandKeys = bucketKeys(model, signature);
+        
+        for (Entry existing : candidates(bandKeys)) {
+            if (existing.model.equals(model) && MinHasher.similarity(existing.signature, signature) == 1.0) {
+                remove(existing);
+                break;
+            }
+        }
+        
+        Entry entry = new Entry(nextId++, model, signature, bandKeys, response,
+                ENTRY_OVERHEAD_BYTES + 2L * response.length());
+        entries.put(entry.id, entry);
+        for (long key : bandKeys) {
+            buckets.computeIfAbsent(key, k -> new ArrayList<>(1)).add(entry);
+        }
+        bytes += entry.sizeBytes;
+        
+        evictIfNeeded();
+    }
+    
+    /**
+     * Reports that the answer served for a prompt did not fit it.
+     * The matching entry is dropped so it is not served again.
+     * 
+     * @param model The model the answer was served for
+     * @param prompt The prompt the answer was served for
+     * @return true if a cached entry was found and removed
+     */
+    public synchronized boolean reportFalseHit(String model, String prompt) {
+        Entry entry = findBest(model, prompt, false);
+        if (entry == null) {
+            return false;
+        }
+        falseHits++;
+        remove(entry);
+        logger.info("Semantic cache false hit reported, entry removed");
+        return true;
+    }
+    
+    /**
+     * Removes all cached entries. Counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        buckets.clear();
+        bytes = 0;
+    }
+    
+    /**
+     * Gets a snapshot of the cache counters.
+     * 
+     * @return The current statistics
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(lookups, hits, rejectedCandidates, falseHits, evictions, entries.size(), bytes);
+    }
+    
+    private Entry findBest(String model, String prompt, boolean countRejections) {
+        Set<String> shingles = PromptNormalizer.shingles(prompt);
+        if (shingles.isEmpty()) {
+            return null;
+        }
+        
+        long[] signature = hasher.signature(shingles);
+        Entry best = null;
+        double bestSimilarity = 0;
+        for (Entry candidate : candidates(bucketKeys(model, signature))) {
+            if (!candidate.model.equals(model)) {
+                continue;
+            }
+            double similarity = MinHasher.similarity(candidate.signature, signature);
+            if (similarity >= threshold && similarity > bestSimilarity) {
+                best = candidate;
+                bestSimilarity = similarity;
+            } else if (similarity < threshold && countRejections) {
+                rejectedCandidates++;
+            }
+        }
+        return best;
+    }
+    
+    private List<Entry> candidates(long[] bandKeys) {
+        List<Entry> candidates = new ArrayList<>();
+        for (long key : bandKeys) {
+            List<Entry> bucket = buckets.get(key);
+            if (bucket == null) {
+                continue;
+            }
+            for (Entry entry : bucket) {
+                // Buckets are tiny, so a linear duplicate check beats a hash set
+                if (!candidates.contains(entry)) {
+                    candidates.add(entry);
+                }
+            }
+        }
+        return candidates;
+    }
+    
+    private long[] bucketKeys(String model, long[] signature) {
+        long[] keys = hasher.bandKeys(signature);
+        long modelHash = model.hashCode() * 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] ^= modelHash;
+        }
+        return keys;
+    }
+    
+    private void evictIfNeeded() {
+        Iterator<Entry> lru = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && lru.hasNext()) {
+            Entry eldest = lru.next();
+            lru.remove();
+            unlink(eldest);
+            evictions++;
+        }
+    }
+    
+    private void remove(Entry entry) {
+        entries.remove(entry.id);
+        unlink(entry);
+    }
+    
+    private void unlink(Entry entry) {
+        for (long key : entry.bandKeys) {
+            List<Entry> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+        bytes -= entry.sizeBytes;
+    }
+    
+    private static final class Entry {
+        final long id;
+        final String model;
+        final long[] signature;
+        final long[] bandKeys;
+        final String response;
+        final long sizeBytes;
+        
+        Entry(long id, String model, long[] signature, long[] bandKeys, String response, long sizeBytes) {
+            this.id = id;
+            this.model = model;
+            this.signature = signature;
+            this.bandKeys = bandKeys;
+            this.response = response;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+}
\ No newline at end of file
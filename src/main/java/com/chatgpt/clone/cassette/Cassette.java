@@ -0,0 +1,69 @@
+package com.chatgpt.clone.cassette;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A recorded cassette loaded for replay.
+ * Exchanges are looked up by request hash. When the same request was
+ * recorded several times, its recordings are served in order and then
+ * from the start again.
+ */
+public final class Cassette {
+    private final List<CassetteExchange> exchanges;
+    private final Map<String, List<CassetteExchange>> byHash = new HashMap<>();
+    private final Map<String, Integer> nextIndex = new HashMap<>();
+    
+    /**
+     * Creates a cassette from exchanges.
+     * 
+     * @param exchanges The exchanges in recording order
+     */
+    public Cassette(List<CassetteExchange> exchanges) {
+        this.exchanges = Collections.unmodifiableList(new ArrayList<>(exchanges));
+        for (CassetteExchange exchange : exchanges) {
+            byHash.computeIfAbsent(exchange.getRequestHash(), hash -> new ArrayList<>()).add(exchange);
+        }
+    }
+    
+    /**
+     * Loads a cassette file.
+     * 
+     * @param path The file
+     * @return The cassette
+     * @throws IOException if the file cannot be read or is not a cassette
+     */
+    public static Cassette load(Path path) throws IOException {
+        return new Cassette(CassetteFile.read(path));
+    }
+    
+    /**
+     * Takes the next recording of a request.
+     * 
+     * @param requestHash The canonical request hash
+     * @return The exchange, or null if the request was never recorded
+     */
+    public synchronized CassetteExchange next(String requestHash) {
+        List<CassetteExchange> recorded = byHash.get(requestHash);
+        if (recorded == null) {
+            return null;
+        }
+        int index = nextIndex.getOrDefault(requestHash, 0);
+        nextIndex.put(requestHash, (index + 1) % recorded.size());
+        return recorded.get(index);
+    }
+    
+    /**
+     * Gets all exchanges.
+     * 
+     * @return The exchanges in recording order
+     */
+    public List<CassetteExchange> getExchanges() {
+        return exchanges;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.chatgpt.clone.cassette;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One recorded request/response exchange with its timing.
+ */
+@Value
+public class CassetteExchange {
+    /**
+     * The canonical hash of the request, see {@link RequestHash}.
+     */
+    String requestHash;
+    
+    /**
+     * The model the request was sent to, for listing cassettes.
+     */
+    String model;
+    
+    /**
+     * The HTTP status code of the response.
+     */
+    int statusCode;
+    
+    /**
+     * Time from starting the call until the response headers arrived, in microseconds.
+     */
+    long firstByteMicros;
+    
+    /**
+     * The decoded response body in the pieces it arrived in.
+     */
+    List<Chunk> chunks;
+    
+    /**
+     * Gets the total size of the response body.
+     * 
+     * @return The size in bytes
+     */
+    public long getBodySize() {
+        long size = 0;
+        for (Chunk chunk : chunks) {
+            size += chunk.getData().length;
+        }
+        return size;
+    }
+    
+    /**
+     * A piece of the response body as it was read from the connection.
+     */
+    @Value
+    public static class Chunk {
+        /**
+         * Time from starting the call until this piece arrived, in microseconds.
+         */
+        long offsetMicros;
+        
+        /**
+         * The bytes of this piece.
+         */
+        byte[] data;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.chatgpt.clone.cassette;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Append-only binary file of recorded exchanges.
+ * Every exchange is deflated on its own and written with its length, so a
+ * recording can be appended to across runs and an exchange cut off by a
+ * crash is detected and truncated. Chunk times are stored as deltas.
+ */
+final class CassetteFile {
+    private static final byte[] MAGIC = {'C', 'A', 'S', '1'};
+    
+    private CassetteFile() {
+    }
+    
+    /**
+     * Reads all complete exchanges of a file.
+     * 
+     * @param path The file
+     * @return The exchanges in recording order
+     * @throws IOException if the file cannot be read or is not a cassette
+     */
+    static List<CassetteExchange> read(Path path) throws IOException {
+        List<CassetteExchange> exchanges = new ArrayList<>();
+        parse(Files.readAllBytes(path), exchanges);
+        return exchanges;
+    }
+    
+    /**
+     * Prepares a file for appending: creates its directory and cuts off an
+     * exchange that a crash left incomplete.
+     * 
+     * @param path The file
+     * @return The number of complete exchanges already in the file
+     * @throws IOException if the file cannot be read or is not a cassette
+     */
+    static int openForAppend(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        
+        byte[] data = Files.readAllBytes(path);
+        List<CassetteExchange> existing = new ArrayList<>();
+        int valid = parse(data, existing);
+        if (valid < data.length) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        return existing.size();
+    }
+    
+    /**
+     * Appends an exchange to a file prepared with {@link #openForAppend(Path)}.
+     * 
+     * @param path The file
+     * @param exchange The exchange to append
+     * @throws IOException if the file cannot be written
+     */
+    static void append(Path path, CassetteExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!Files.exists(path) || Files.size(path) < MAGIC.length) {
+            out.write(MAGIC);
+        }
+        byte[] payload = encode(exchange);
+        new DataOutputStream(out).writeInt(payload.length);
+        out.write(payload);
+        Files.write(path, out.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+    
+    /**
+     * Parses the exchanges of a file.
+     * 
+     * @param data The file contents
+     * @param sink Receives the exchanges, or null
+     * @return The length of the valid part of the data
+     * @throws IOException if the data is not a cassette
+     */
+    private static int parse(byte[] data, List<CassetteExchange> sink) throws IOException {
+        if (data.length < MAGIC.length) {
+            return 0;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                throw new IOException("Not a cassette file");
+            }
+        }
+        
+        int position = MAGIC.length;
+        while (position + 4 <= data.length) {
+            int length = ByteBuffer.wrap(data, position, 4).getInt();
+            if (length < 0 || position + 4 + length > data.length) {
+                break;
+            }
+            try {
+                CassetteExchange exchange = decode(data, position + 4, length);
+                if (sink != null) {
+                    sink.add(exchange);
+                }
+            } catch (IOException e) {
+                break;
+            }
+            position += 4 + length;
+        }
+        return position;
+    }
+    
+    private static byte[] encode(CassetteExchange exchange) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeUTF(exchange.getRequestHash());
+            out.writeUTF(exchange.getModel() != null ? exchange.getModel() : "");
+            out.writeShort(exchange.getStatusCode());
+            out.writeLong(exchange.getFirstByteMicros());
+            out.writeInt(exchange.getChunks().size());
+            long previous = exchange.getFirstByteMicros();
+            for (CassetteExchange.Chunk chunk : exchange.getChunks()) {
+                out.writeInt((int) Math.min(Integer.MAX_VALUE, chunk.getOffsetMicros() - previous));
+                out.writeInt(chunk.getData().length);
+                out.write(chunk.getData());
+                previous = chunk.getOffsetMicros();
+            }
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static CassetteExchange decode(byte[] data, int offset, int length) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(data, offset, length)))) {
+            String hash = in.readUTF();
+            String model = in.readUTF();
+            int status = in.readUnsignedShort();
+            long firstByteMicros = in.readLong();
+            int count = in.readInt();
+            List<CassetteExchange.Chunk> chunks = new ArrayList<>(count);
+            long time = firstByteMicros;
+            for (int i = 0; i < count; i++) {
+                time += in.readInt();
+                byte[] chunk = new byte[in.readInt()];
+                in.readFully(chunk);
+                chunks.add(new CassetteExchange.Chunk(time, chunk));
+            }
+            return new CassetteExchange(hash, model, status, firstByteMicros, chunks);
+        } catch (EOFException | ZipException e) {
+            throw new IOException("Damaged exchange", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+package com.chatgpt.clone.cassette;
+
+import com.chatgpt.clone.transport.HttpTransport;
+import com.chatgpt.clone.transport.TransportCall;
+import com.chatgpt.clone.transport.TransportRequest;
+import com.chatgpt.clone.transport.TransportResponse;
+import com.chatgpt.clone.util.Logger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes calls on to another transport and records every exchange to a
+ * cassette file: the response status, when the headers arrived, and each
+ * piece of the body with the time it was read, so streamed answers keep
+ * their chunk boundaries and pacing. An exchange is written when its
+ * response is closed. Calls that fail before a response arrives are not recorded.
+ */
+public class RecordingTransport implements HttpTransport {
+    private static final Logger logger = new Logger(RecordingTransport.class);
+    
+    private final HttpTransport delegate;
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    /**
+     * Creates a recording transport.
+     * 
+     * @param delegate The transport that performs the calls
+     * @param file The cassette file to append to
+     * @throws IOException if the cassette file cannot be prepared
+     */
+    public RecordingTransport(HttpTransport delegate, Path file) throws IOException {
+        this.delegate = delegate;
+        this.file = file;
+        int existing = CassetteFile.openForAppend(file);
+        logger.info("Recording API exchanges to " + file + " (" + existing + " already recorded)");
+    }
+    
+    @Override
+    public TransportCall newCall(TransportRequest request) {
+        TransportCall call = delegate.newCall(request);
+        return new TransportCall() {
+            @Override
+            public TransportResponse execute() throws IOException {
+                JsonNode body = objectMapper.readTree(request.decodedBody());
+                String hash = RequestHash.of(body);
+                String model = body.path("model").asText("");
+                
+                long started = System.nanoTime();
+                TransportResponse response = call.execute();
+                long firstByteMicros = micros(started);
+                
+                RecordingStream recording = new RecordingStream(response.getBody(), started);
+                return new TransportResponse(response.getStatusCode(), recording, () -> {
+                    try {
+                        response.close();
+                    } finally {
+                        write(new CassetteExchange(hash, model, response.getStatusCode(), firstByteMicros,
+                                recording.chunks()));
+                    }
+                });
+            }
+            
+            @Override
+            public void cancel() {
+                call.cancel();
+            }
+        };
+    }
+    
+    @Override
+    public void warmUp(String url) {
+        delegate.warmUp(url);
+    }
+    
+    @Override
+    public String getName() {
+        return delegate.getName() + "+recording";
+    }
+    
+    @Override
+    public void close() {
+        delegate.close();
+    }
+    
+    private synchronized void write(CassetteExchange exchange) {
+        try {
+            CassetteFile.append(file, exchange);
+        } catch (IOException e) {
+            logger.error("Could not record exchange to " + file, e);
+        }
+    }
+    
+    private static long micros(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedNanos);
+    }
+    
+    /**
+     * Remembers every piece of the body in the size and at the time it was read.
+     */
+    private static final class RecordingStream extends FilterInputStream {
+        private final long startedNanos;
+        private final List<CassetteExchange.Chunk> chunks = new ArrayList<>();
+        
+        RecordingStream(InputStream in, long startedNanos) {
+            super(in);
+            this.startedNanos = startedNanos;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                record(new byte[] {(byte) b}, 0, 1);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                record(b, off, n);
+            }
+            return n;
+        }
+        
+        synchronized List<CassetteExchange.Chunk> chunks() {
+            return new ArrayList<>(chunks);
+        }
+        
+        private synchronized void record(byte[] b, int off, int n) {
+            chunks.add(new CassetteExchange.Chunk(micros(startedNanos), Arrays.copyOfRange(b, off, off + n)));
+        }
+    }
+}
\ No newline at end of file
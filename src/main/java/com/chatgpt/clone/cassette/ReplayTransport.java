@@ -0,0 +1,140 @@
+package com.chatgpt.clone.cassette;
+
+import com.chatgpt.clone.transport.HttpTransport;
+import com.chatgpt.clone.transport.TransportCall;
+import com.chatgpt.clone.transport.TransportRequest;
+import com.chatgpt.clone.transport.TransportResponse;
+import com.chatgpt.clone.util.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves calls from a {@link Cassette} without a network.
+ * Requests are matched by their canonical hash, and responses are played
+ * back in the recorded chunks at the recorded times, optionally faster or
+ * slower, so load tests see the traffic shape of the recording.
+ */
+public class ReplayTransport implements HttpTransport {
+    private static final Logger logger = new Logger(ReplayTransport.class);
+    
+    private final Cassette cassette;
+    private final double speed;
+    
+    /**
+     * Creates a replay transport.
+     * 
+     * @param cassette The recorded exchanges
+     * @param speed Playback speed: 1 for the original timing, 2 for twice as fast, 0 for no delays
+     */
+    public ReplayTransport(Cassette cassette, double speed) {
+        this.cassette = cassette;
+        this.speed = Math.max(0, speed);
+    }
+    
+    @Override
+    public TransportCall newCall(TransportRequest request) {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        return new TransportCall() {
+            @Override
+            public TransportResponse execute() throws IOException {
+                String hash = RequestHash.of(request.decodedBody());
+                CassetteExchange exchange = cassette.next(hash);
+                if (exchange == null) {
+                    throw new IOException("No recorded exchange for request " + hash);
+                }
+                logger.debug("Replaying exchange " + hash);
+                
+                long started = System.nanoTime();
+                waitUntil(started, exchange.getFirstByteMicros(), cancelled);
+                return new TransportResponse(exchange.getStatusCode(),
+                        new PlaybackStream(exchange.getChunks(), started, cancelled), cancelled::countDown);
+            }
+            
+            @Override
+            public void cancel() {
+                cancelled.countDown();
+            }
+        };
+    }
+    
+    @Override
+    public String getName() {
+        return "replay";
+    }
+    
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+    
+    /**
+     * Waits until a recorded moment of the call has come at the playback speed.
+     * 
+     * @param startedNanos When the call started
+     * @param offsetMicros The recorded time since the start of the call
+     * @param cancelled Released when the call is cancelled
+     * @throws IOException if the call is cancelled or the thread interrupted
+     */
+    private void waitUntil(long startedNanos, long offsetMicros, CountDownLatch cancelled) throws IOException {
+        long waitNanos = speed == 0 ? 0
+                : (long) (offsetMicros * 1000 / speed) - (System.nanoTime() - startedNanos);
+        try {
+            if (cancelled.getCount() == 0 || (waitNanos > 0 && cancelled.await(waitNanos, TimeUnit.NANOSECONDS))) {
+                throw new IOException("Canceled");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+    
+    /**
+     * Hands out the recorded chunks, each no earlier than it arrived in the recording.
+     */
+    private final class PlaybackStream extends InputStream {
+        private final List<CassetteExchange.Chunk> chunks;
+        private final long startedNanos;
+        private final CountDownLatch cancelled;
+        private int next;
+        private byte[] current = new byte[0];
+        private int position;
+        
+        PlaybackStream(List<CassetteExchange.Chunk> chunks, long startedNanos, CountDownLatch cancelled) {
+            this.chunks = chunks;
+            this.startedNanos = startedNanos;
+            this.cancelled = cancelled;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position == current.length) {
+                if (next == chunks.size()) {
+                    return -1;
+                }
+                CassetteExchange.Chunk chunk = chunks.get(next++);
+                waitUntil(startedNanos, chunk.getOffsetMicros(), cancelled);
+                current = chunk.getData();
+                position = 0;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+        
+        @Override
+        public void close() {
+            cancelled.countDown();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.chatgpt.clone.cassette;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Computes a hash of a JSON request that does not depend on how it was
+ * written: object keys are sorted and whitespace is dropped before hashing,
+ * so equal requests match even if the serializer changes field order.
+ */
+public final class RequestHash {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private RequestHash() {
+    }
+    
+    /**
+     * Hashes a JSON request body.
+     * 
+     * @param json The uncompressed request body
+     * @return The SHA-256 of the canonical form, as lowercase hex
+     * @throws IOException if the body is not valid JSON
+     */
+    public static String of(byte[] json) throws IOException {
+        return of(MAPPER.readTree(json));
+    }
+    
+    /**
+     * Hashes a parsed JSON request.
+     * 
+     * @param tree The request
+     * @return The SHA-256 of the canonical form, as lowercase hex
+     * @throws IOException if the tree cannot be written
+     */
+    public static String of(JsonNode tree) throws IOException {
+        ByteArrayOutputStream canonical = new ByteArrayOutputStream();
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(canonical)) {
+            write(tree, generator);
+        }
+        
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toByteArray());
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private static void write(JsonNode node, JsonGenerator generator) throws IOException {
+        if (node.isObject()) {
+            List<String> names = new ArrayList<>();
+            Iterator<String> fields = node.fieldNames();
+            while (fields.hasNext()) {
+                names.add(fields.next());
+            }
+            Collections.sort(names);
+            
+            generator.writeStartObject();
+            for (String name : names) {
+                generator.writeFieldName(name);
+                write(node.get(name), generator);
+            }
+            generator.writeEndObject();
+        } else if (node.isArray()) {
+            generator.writeStartArray();
+            for (JsonNode element : node) {
+                write(element, generator);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeTree(node);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+package com.chatgpt.clone.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+import java.nio.file.Path;
+
+/**
+ * The encodings a {@link ModelCodec} can read and write. All of them carry
+ * the same data model as JSON, so a document can be converted between them
+ * without loss.
+ */
+public enum CodecFormat {
+    /**
+     * Text JSON, readable and the format of the OpenAI API.
+     */
+    JSON("json"),
+    
+    /**
+     * Smile, a binary JSON that refers back to repeated field names and short values.
+     */
+    SMILE("smile"),
+    
+    /**
+     * CBOR (RFC 8949), a binary JSON with length-prefixed strings.
+     */
+    CBOR("cbor");
+    
+    private final String name;
+    
+    CodecFormat(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Gets the setting value, which is also the file extension without the dot.
+     * 
+     * @return The name, e.g. "smile"
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Gets the file extension for documents in this format.
+     * 
+     * @return The extension, e.g. ".smile"
+     */
+    public String getExtension() {
+        return "." + name;
+    }
+    
+    /**
+     * Creates the Jackson factory for this format.
+     * 
+     * @return A new factory
+     */
+    JsonFactory createFactory() {
+        switch (this) {
+            case SMILE:
+                // Roles and models repeat in every message, so short values are shared too
+                return SmileFactory.builder()
+                        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                        .build();
+            case CBOR:
+                return new CBORFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+    
+    /**
+     * Parses a setting such as "smile".
+     * 
+     * @param value The setting, case-insensitive
+     * @return The format, or JSON for null or unknown values
+     */
+    public static CodecFormat of(String value) {
+        for (CodecFormat format : values()) {
+            if (format.name.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        return JSON;
+    }
+    
+    /**
+     * Finds the format of a file from its extension.
+     * 
+     * @param file The file
+     * @return The format, or null if the extension is not one of the formats
+     */
+    public static CodecFormat forFile(Path file) {
+        String fileName = file.getFileName().toString();
+        for (CodecFormat format : values()) {
+            if (fileName.endsWith(format.getExtension())) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.chatgpt.clone.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Reads and writes the model classes, e.g. {@code Message},
+ * {@code ChatCompletionRequest} and {@code ChatCompletionResponse}, in one
+ * {@link CodecFormat}. Codecs are thread-safe and shared per format.
+ * <p>
+ * A document is an envelope {@code {"version": 1, "value": {...}}}, so the
+ * layout can change later without guessing what a file contains. A document
+ * without the envelope is read as version 0, the bare JSON written before
+ * the codec existed. Documents from a newer version are rejected; unknown
+ * properties are ignored, so fields added within a version stay readable.
+ * <p>
+ * Long sequences, such as the messages of a conversation, are written and
+ * read one record at a time with {@link #openWriter(OutputStream, Object)} and
+ * {@link #openReader(InputStream, Class)}, without holding them all in memory.
+ * A sequence is {@code {"version": 1, "header": {...}, "records": [...]}},
+ * where the optional header describes the records.
+ */
+public final class ModelCodec {
+    /**
+     * The envelope version this build writes and the newest it reads.
+     */
+    public static final int VERSION = 1;
+    
+    static final String VERSION_FIELD = "version";
+    static final String VALUE_FIELD = "value";
+    static final String HEADER_FIELD = "header";
+    static final String RECORDS_FIELD = "records";
+    
+    private static final Map<CodecFormat, ModelCodec> CODECS = new EnumMap<>(CodecFormat.class);
+    
+    static {
+        for (CodecFormat format : CodecFormat.values()) {
+            CODECS.put(format, new ModelCodec(format));
+        }
+    }
+    
+    private final CodecFormat format;
+    private final ObjectMapper objectMapper;
+    
+    private ModelCodec(CodecFormat format) {
+        this.format = format;
+        this.objectMapper = new ObjectMapper(format.createFactory())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+    
+    /**
+     * Gets the codec for a format.
+     * 
+     * @param format The format
+     * @return The shared codec
+     */
+    public static ModelCodec of(CodecFormat format) {
+        return CODECS.get(format);
+    }
+    
+    /**
+     * Gets the format this codec reads and writes.
+     * 
+     * @return The format
+     */
+    public CodecFormat getFormat() {
+        return format;
+    }
+    
+    /**
+     * Writes a document. The stream is left open.
+     * 
+     * @param out The stream to write to
+     * @param value The value
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(OutputStream out, Object value) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeNumberField(VERSION_FIELD, VERSION);
+            generator.writeFieldName(VALUE_FIELD);
+            objectMapper.writeValue(generator, value);
+            generator.writeEndObject();
+        }
+    }
+    
+    /**
+     * Encodes a document.
+     * 
+     * @param value The value
+     * @return The encoded document
+     * @throws IOException if the value cannot be serialized
+     */
+    public byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, value);
+        return out.toByteArray();
+    }
+    
+    /**
+     * Reads a document. The stream is left open.
+     * 
+     * @param in The stream to read from
+     * @param type The class of the value
+     * @param <T> The type of the value
+     * @return The value
+     * @throws IOException if the stream cannot be read, is not a document of
+     *         this format or was written by a newer version
+     */
+    public <T> T read(InputStream in, Class<T> type) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            expect(parser, JsonToken.START_OBJECT);
+            if (parser.nextToken() != JsonToken.FIELD_NAME || !VERSION_FIELD.equals(parser.getCurrentName())) {
+                // Version 0: the value itself, already positioned at its first field
+                return checkValue(objectMapper.readValue(parser, type));
+            }
+            readVersion(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (VALUE_FIELD.equals(field)) {
+                    return checkValue(objectMapper.readValue(parser, type));
+                }
+                parser.skipChildren();
+            }
+            throw new IOException("Document has no value");
+        }
+    }
+    
+    private static <T> T checkValue(T value) throws IOException {
+        // An empty object or a null value is not a document anyone wrote
+        if (value == null) {
+            throw new IOException("Document has no value");
+        }
+        return value;
+    }
+    
+    /**
+     * Decodes a document.
+     * 
+     * @param data The encoded document
+     * @param type The class of the value
+     * @param <T> The type of the value
+     * @return The value
+     * @throws IOException if the data is not a document of this format or was
+     *         written by a newer version
+     */
+    public <T> T decode(byte[] data, Class<T> type) throws IOException {
+        return read(new ByteArrayInputStream(data), type);
+    }
+    
+    /**
+     * Starts writing a sequence of records without a header. Closing the
+     * writer finishes the sequence and closes the stream.
+     * 
+     * @param out The stream to write to
+     * @param <T> The type of the records
+     * @return The writer
+     * @throws IOException if the stream cannot be written
+     */
+    public <T> RecordWriter<T> openWriter(OutputStream out) throws IOException {
+        return openWriter(out, null);
+    }
+    
+    /**
+     * Starts writing a sequence of records. Closing the writer finishes the
+     * sequence and closes the stream.
+     * 
+     * @param out The stream to write to
+     * @param header The value written before the records, or null for none
+     * @param <T> The type of the records
+     * @return The writer
+     * @throws IOException if the stream cannot be written
+     */
+    public <T> RecordWriter<T> openWriter(OutputStream out, Object header) throws IOException {
+        return new RecordWriter<>(objectMapper, objectMapper.getFactory().createGenerator(out), header);
+    }
+    
+    /**
+     * Starts reading a sequence of records written by {@link #openWriter(OutputStream, Object)}.
+     * Closing the reader closes the stream.
+     * 
+     * @param in The stream to read from
+     * @param type The class of the records
+     * @param <T> The type of the records
+     * @return The reader, positioned before the first record
+     * @throws NotASequenceException if the stream holds a single document
+     * @throws IOException if the stream cannot be read, is not in this format
+     *         or was written by a newer version
+     */
+    public <T> RecordReader<T> openReader(InputStream in, Class<T> type) throws IOException {
+        return new RecordReader<>(objectMapper, objectMapper.getFactory().createParser(in), type);
+    }
+    
+    /**
+     * Reads the version number at the parser's current field and checks that it can be read.
+     */
+    static int readVersion(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+            throw new IOException("Document version is not a number");
+        }
+        int version = parser.getIntValue();
+        if (version > VERSION) {
+            throw new IOException("Document version " + version + " is newer than this build reads (" + VERSION + ")");
+        }
+        return version;
+    }
+    
+    static void expect(JsonParser parser, JsonToken token) throws IOException {
+        JsonToken found = parser.nextToken();
+        if (found != token) {
+            throw new IOException("Expected " + token + " but found " + found);
+        }
+    }
+}
\ No newline at end of file
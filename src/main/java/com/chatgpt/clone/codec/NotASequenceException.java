@@ -0,0 +1,17 @@
+package com.chatgpt.clone.codec;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a stream opened as a record sequence holds a single document
+ * instead, e.g. a file written before its contents were streamed.
+ */
+public class NotASequenceException extends IOException {
+    
+    /**
+     * Creates a new NotASequenceException.
+     */
+    public NotASequenceException() {
+        super("Not a record sequence");
+    }
+}
\ No newline at end of file
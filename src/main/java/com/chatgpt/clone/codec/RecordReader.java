@@ -0,0 +1,110 @@
+package com.chatgpt.clone.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads a sequence written by a {@link RecordWriter} one record at a time.
+ * Not thread-safe.
+ * 
+ * @param <T> The type of the records
+ */
+public final class RecordReader<T> implements Closeable {
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final Class<T> type;
+    private final int version;
+    private final JsonNode header;
+    private boolean ended;
+    
+    RecordReader(ObjectMapper objectMapper, JsonParser parser, Class<T> type) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = parser;
+        this.type = type;
+        try {
+            ModelCodec.expect(parser, JsonToken.START_OBJECT);
+            int found = -1;
+            JsonNode foundHeader = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                if (ModelCodec.VERSION_FIELD.equals(field)) {
+                    found = ModelCodec.readVersion(parser);
+                } else if (ModelCodec.HEADER_FIELD.equals(field)) {
+                    parser.nextToken();
+                    foundHeader = objectMapper.readTree(parser);
+                } else if (ModelCodec.RECORDS_FIELD.equals(field)) {
+                    ModelCodec.expect(parser, JsonToken.START_ARRAY);
+                    break;
+                } else {
+                    parser.nextToken();
+                    parser.skipChildren();
+                }
+            }
+            if (found < 0 || parser.currentToken() != JsonToken.START_ARRAY) {
+                throw new NotASequenceException();
+            }
+            this.version = found;
+            this.header = foundHeader;
+        } catch (IOException e) {
+            parser.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Reads the next record.
+     * 
+     * @return The record, or null after the last one
+     * @throws IOException if the stream cannot be read or a record is malformed
+     */
+    public T next() throws IOException {
+        if (ended) {
+            return null;
+        }
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            ended = true;
+            return null;
+        }
+        if (token == null) {
+            throw new IOException("Record sequence ends early");
+        }
+        return objectMapper.readValue(parser, type);
+    }
+    
+    /**
+     * Gets the header written before the records.
+     * 
+     * @param type The class of the header
+     * @param <H> The type of the header
+     * @return The header, or null if the sequence has none
+     * @throws IOException if the header does not match the class
+     */
+    public <H> H getHeader(Class<H> type) throws IOException {
+        return header == null ? null : objectMapper.treeToValue(header, type);
+    }
+    
+    /**
+     * Gets the version the sequence was written with.
+     * 
+     * @return The version
+     */
+    public int getVersion() {
+        return version;
+    }
+    
+    /**
+     * Closes the stream.
+     * 
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
\ No newline at end of file
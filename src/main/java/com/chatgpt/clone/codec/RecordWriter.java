@@ -0,0 +1,80 @@
+package com.chatgpt.clone.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes a sequence of records, e.g. {@code {"version": 1, "header": {...}, "records": [...]}}
+ * in JSON, one record at a time. Not thread-safe.
+ * 
+ * @param <T> The type of the records
+ */
+public final class RecordWriter<T> implements Closeable {
+    private final ObjectMapper objectMapper;
+    private final JsonGenerator generator;
+    private long count;
+    private boolean closed;
+    
+    RecordWriter(ObjectMapper objectMapper, JsonGenerator generator, Object header) throws IOException {
+        this.objectMapper = objectMapper;
+        this.generator = generator;
+        generator.writeStartObject();
+        generator.writeNumberField(ModelCodec.VERSION_FIELD, ModelCodec.VERSION);
+        if (header != null) {
+            generator.writeFieldName(ModelCodec.HEADER_FIELD);
+            objectMapper.writeValue(generator, header);
+        }
+        generator.writeArrayFieldStart(ModelCodec.RECORDS_FIELD);
+    }
+    
+    /**
+     * Writes the next record.
+     * 
+     * @param record The record
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(T record) throws IOException {
+        objectMapper.writeValue(generator, record);
+        count++;
+    }
+    
+    /**
+     * Writes buffered records to the stream.
+     * 
+     * @throws IOException if the stream cannot be written
+     */
+    public void flush() throws IOException {
+        generator.flush();
+    }
+    
+    /**
+     * Gets the number of records written so far.
+     * 
+     * @return The count
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * Ends the sequence and closes the stream.
+     * 
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } finally {
+            generator.close();
+        }
+    }
+}
\ No newline at end of file
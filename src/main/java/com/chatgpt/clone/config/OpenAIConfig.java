@@ -1,7 +1,9 @@
 package com.chatgpt.clone.config;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,6 +19,9 @@ public class OpenAIConfig {
     private static final String ENV_API_KEY = "OPENAI_API_KEY";
     private static final String PROP_API_KEY = "openai.api.key";
     
+    @Getter(AccessLevel.NONE)
+    private final Properties properties;
+    
     private final String apiKey;
     private final String apiUrl;
     
@@ -24,8 +29,7 @@ public class OpenAIConfig {
      * Creates a new OpenAIConfig instance with default API URL.
      */
     public OpenAIConfig() {
-        this.apiKey = loadApiKey();
-        this.apiUrl = "https://api.openai.com/v1/chat/completions";
+        this("https://api.openai.com/v1/chat/completions");
     }
     
     /**
@@ -34,10 +38,105 @@ public class OpenAIConfig {
      * @param apiUrl The custom API URL to use
      */
     public OpenAIConfig(String apiUrl) {
+        this(apiUrl, loadProperties());
+    }
+    
+    /**
+     * Creates a new OpenAIConfig instance with custom API URL and settings
+     * instead of the properties file, e.g. for benchmarks against a local stub.
+     * 
+     * @param apiUrl The custom API URL to use
+     * @param properties The settings, including the API key unless it is set in the environment
+     */
+    public OpenAIConfig(String apiUrl, Properties properties) {
+        this.properties = properties;
         this.apiKey = loadApiKey();
         this.apiUrl = apiUrl;
     }
     
+    /**
+     * Gets an optional setting from the properties file.
+     * 
+     * @param key The property key
+     * @param defaultValue The value to return if the property is not set
+     * @return The property value, or the default value
+     */
+    public String getProperty(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null && !value.trim().isEmpty() ? value.trim() : defaultValue;
+    }
+    
+    /**
+     * Gets an optional integer setting from the properties file.
+     * 
+     * @param key The property key
+     * @param defaultValue The value to return if the property is not set
+     * @return The property value, or the default value
+     * @throws RuntimeException if the property is not a valid integer
+     */
+    public int getIntProperty(String key, int defaultValue) {
+        String value = getProperty(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid integer for property " + key + ": " + value, e);
+        }
+    }
+    
+    /**
+     * Gets an optional decimal setting from the properties file.
+     * 
+     * @param key The property key
+     * @param defaultValue The value to return if the property is not set
+     * @return The property value, or the default value
+     * @throws RuntimeException if the property is not a valid number
+     */
+    public double getDoubleProperty(String key, double defaultValue) {
+        String value = getProperty(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid number for property " + key + ": " + value, e);
+        }
+    }
+    
+    /**
+     * Gets an optional boolean setting from the properties file.
+     * 
+     * @param key The property key
+     * @param defaultValue The value to return if the property is not set
+     * @return The property value, or the default value
+     */
+    public boolean getBooleanProperty(String key, boolean defaultValue) {
+        String value = getProperty(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+    
+    /**
+     * Loads the properties file if it exists.
+     * 
+     * @return The loaded properties, empty if there is no properties file
+     * @throws RuntimeException if the properties file cannot be read
+     */
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+        Path configPath = Paths.get(CONFIG_FILE);
+        if (Files.exists(configPath)) {
+            try (Reader reader = Files.newBufferedReader(configPath)) {
+                props.load(reader);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to load API key from properties file", e);
+            }
+        }
+        return props;
+    }
+    
     /**
      * Loads the API key from environment variables or properties file.
      * Environment variables take precedence over the properties file.
@@ -53,26 +152,17 @@ public class OpenAIConfig {
         }
         
         // Then try to load from properties file
-        try {
-            Path configPath = Paths.get(CONFIG_FILE);
-            if (Files.exists(configPath)) {
-                Properties props = new Properties();
-                props.load(Files.newBufferedReader(configPath));
-                apiKey = props.getProperty(PROP_API_KEY);
-                if (apiKey != null && !apiKey.isEmpty()) {
-                    // For testing purposes, accept placeholder keys
-                    if (apiKey.equals("sk-your-api-key-here")) {
-                        System.out.println("WARNING: Using placeholder API key for testing purposes");
-                        return apiKey;
-                    }
-                    return apiKey;
-                }
+        apiKey = properties.getProperty(PROP_API_KEY);
+        if (apiKey != null && !apiKey.isEmpty()) {
+            // For testing purposes, accept placeholder keys
+            if (apiKey.equals("sk-your-api-key-here")) {
+                System.out.println("WARNING: Using placeholder API key for testing purposes");
+                return apiKey;
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load API key from properties file", e);
+            return apiKey;
         }
         
-        throw new RuntimeException("API key not found. Please set it in environment variable " + 
+        throw new RuntimeException("API key not found. Please set it in environment variable " +
                 ENV_API_KEY + " or in properties file " + CONFIG_FILE);
     }
 }
\ No newline at end of file
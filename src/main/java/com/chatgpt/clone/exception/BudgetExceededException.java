@@ -0,0 +1,16 @@
+package com.chatgpt.clone.exception;
+
+/**
+ * Thrown when a request is refused because a token budget is used up.
+ */
+public class BudgetExceededException extends OpenAIException {
+
+    /**
+     * Creates a new BudgetExceededException.
+     * 
+     * @param message A description of the budget that was exceeded
+     */
+    public BudgetExceededException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
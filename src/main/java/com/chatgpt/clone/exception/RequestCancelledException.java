@@ -0,0 +1,23 @@
+package com.chatgpt.clone.exception;
+
+/**
+ * Thrown when a request is abandoned because its caller cancelled it.
+ */
+public class RequestCancelledException extends OpenAIException {
+
+    /**
+     * Creates a new RequestCancelledException.
+     */
+    public RequestCancelledException() {
+        super("Request cancelled");
+    }
+
+    /**
+     * Creates a new RequestCancelledException with the specified cause.
+     * 
+     * @param cause The exception raised by the interrupted operation
+     */
+    public RequestCancelledException(Throwable cause) {
+        super("Request cancelled", cause);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.chatgpt.clone.exception;
+
+/**
+ * Thrown when a request is aborted because it missed one of its deadlines.
+ */
+public class RequestTimeoutException extends OpenAIException {
+
+    private final String deadline;
+    private final long limitMillis;
+
+    /**
+     * Creates a new RequestTimeoutException.
+     * 
+     * @param deadline What the request was waiting for, e.g. "first byte"
+     * @param limitMillis The deadline that passed, in milliseconds
+     * @param cause The exception raised by the aborted call, or null
+     */
+    public RequestTimeoutException(String deadline, long limitMillis, Throwable cause) {
+        super(String.format("Timed out waiting for the %s after %.1f s", deadline, limitMillis / 1000.0), cause);
+        this.deadline = deadline;
+        this.limitMillis = limitMillis;
+    }
+
+    /**
+     * Gets what the request was waiting for.
+     * 
+     * @return The deadline, e.g. "first byte"
+     */
+    public String getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Gets the deadline that passed.
+     * 
+     * @return The limit in milliseconds
+     */
+    public long getLimitMillis() {
+        return limitMillis;
+    }
+}
\ No newline at end of file
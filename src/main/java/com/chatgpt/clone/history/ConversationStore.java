@@ -0,0 +1,363 @@
+package com.chatgpt.clone.history;
+
+import com.chatgpt.clone.codec.CodecFormat;
+import com.chatgpt.clone.codec.ModelCodec;
+import com.chatgpt.clone.codec.NotASequenceException;
+import com.chatgpt.clone.codec.RecordReader;
+import com.chatgpt.clone.codec.RecordWriter;
+import com.chatgpt.clone.model.Message;
+import com.chatgpt.clone.util.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps conversations on disk so threads survive a restart, one file per
+ * conversation in a {@link CodecFormat}. Files in the other formats are still
+ * read and are replaced when the conversation is next saved. The messages are
+ * streamed one at a time after a header with the title and times, so a long
+ * conversation is never encoded as one value in memory. A file is written
+ * to a temporary name and moved into place, so a crash while saving leaves
+ * the previous version intact.
+ * Saves are done on a background thread and coalesced per conversation,
+ * so the UI can save after every turn without waiting for the disk; a
+ * conversation can also be read on a background thread.
+ */
+public class ConversationStore implements AutoCloseable {
+    private static final Logger logger = new Logger(ConversationStore.class);
+    
+    private final Path directory;
+    private final CodecFormat format;
+    private final Map<String, StoredConversation> pendingSaves = new ConcurrentHashMap<>();
+    private final Set<String> failedSaves = ConcurrentHashMap.newKeySet();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "history-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService reader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "history-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * Opens a store of JSON files in the given directory, creating it if necessary.
+     * 
+     * @param directory The directory holding the conversation files
+     * @throws IOException if the directory cannot be created
+     */
+    public ConversationStore(Path directory) throws IOException {
+        this(directory, CodecFormat.JSON);
+    }
+    
+    /**
+     * Opens a store in the given directory, creating it if necessary.
+     * 
+     * @param directory The directory holding the conversation files
+     * @param format The format conversations are saved in
+     * @throws IOException if the directory cannot be created
+     */
+    public ConversationStore(Path directory, CodecFormat format) throws IOException {
+        this.directory = directory;
+        this.format = format;
+        Files.createDirectories(directory);
+    }
+    
+    /**
+     * Creates an ID for a new conversation.
+     * 
+     * @return The ID
+     */
+    public static String newId() {
+        return UUID.randomUUID().toString();
+    }
+    
+    /**
+     * Checks whether a file is named like a stored conversation.
+     * 
+     * @param file The file
+     * @return true if the name is an ID with the extension of one of the formats
+     */
+    public static boolean isConversationFile(Path file) {
+        CodecFormat fileFormat = CodecFormat.forFile(file);
+        if (fileFormat == null) {
+            return false;
+        }
+        String fileName = file.getFileName().toString();
+        return fileName.substring(0, fileName.length() - fileFormat.getExtension().length()).matches("[A-Za-z0-9-]+");
+    }
+    
+    /**
+     * Reads a conversation file in any of the formats.
+     * 
+     * @param file The file
+     * @return The conversation
+     * @throws IOException if the file cannot be read or its extension is not one of the formats
+     */
+    public static StoredConversation read(Path file) throws IOException {
+        CodecFormat fileFormat = CodecFormat.forFile(file);
+        if (fileFormat == null) {
+            throw new IOException("Not a conversation file: " + file);
+        }
+        ModelCodec codec = ModelCodec.of(fileFormat);
+        StoredConversation conversation;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+                RecordReader<Message> reader = codec.openReader(in, Message.class)) {
+            conversation = reader.getHeader(StoredConversation.class);
+            if (conversation == null) {
+                throw new IOException("Conversation file has no header: " + file);
+            }
+            List<Message> messages = new ArrayList<>();
+            Message message;
+            while ((message = reader.next()) != null) {
+                messages.add(message);
+            }
+            conversation.setMessages(messages);
+        } catch (NotASequenceException e) {
+            // Saved as a single value before messages were streamed
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                conversation = codec.read(in, StoredConversation.class);
+            }
+        }
+        if (conversation.getId() == null) {
+            throw new IOException("Conversation file has no ID: " + file);
+        }
+        return conversation;
+    }
+    
+    /**
+     * Reads all stored conversations. Files that cannot be read are skipped.
+     * 
+     * @return The conversations, most recently updated first
+     * @throws IOException if the directory cannot be listed
+     */
+    public List<StoredConversation> loadAll() throws IOException {
+        // After a format change a conversation may be on disk twice until it is saved again
+        Map<String, StoredConversation> latest = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, ConversationStore::isConversationFile)) {
+            for (Path file : files) {
+                try {
+                    StoredConversation conversation = read(file);
+                    latest.merge(conversation.getId(), conversation,
+                            (a, b) -> a.getUpdatedMillis() >= b.getUpdatedMillis() ? a : b);
+                } catch (IOException e) {
+                    logger.warning("Skipping unreadable conversation " + file.getFileName() + ": " + e.getMessage());
+                }
+            }
+        }
+        List<StoredConversation> conversations = new ArrayList<>(latest.values());
+        conversations.sort(Comparator.comparingLong(StoredConversation::getUpdatedMillis).reversed());
+        return conversations;
+    }
+    
+    /**
+     * Reads one stored conversation, including a version still waiting to be written.
+     * 
+     * @param id The conversation ID
+     * @return The conversation
+     * @throws IOException if the file cannot be read
+     */
+    public StoredConversation load(String id) throws IOException {
+        StoredConversation pending = pendingSaves.get(id);
+        if (pending != null) {
+            return pending;
+        }
+        for (Path file : filesFor(id)) {
+            if (Files.exists(file)) {
+                return read(file);
+            }
+        }
+        throw new NoSuchFileException(fileFor(id, format).toString());
+    }
+    
+    /**
+     * Reads one stored conversation in the background.
+     * 
+     * @param id The conversation ID
+     * @return A future completed with the conversation, or with an
+     *         {@link UncheckedIOException} if the file cannot be read
+     */
+    public CompletableFuture<StoredConversation> loadLater(String id) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return load(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, reader);
+    }
+    
+    /**
+     * Writes a conversation now, replacing an earlier version.
+     * 
+     * @param conversation The conversation
+     * @throws IOException if the file cannot be written
+     */
+    public void save(StoredConversation conversation) throws IOException {
+        Path file = fileFor(conversation.getId(), format);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        StoredConversation header = StoredConversation.builder()
+                .id(conversation.getId())
+                .title(conversation.getTitle())
+                .createdMillis(conversation.getCreatedMillis())
+                .updatedMillis(conversation.getUpdatedMillis())
+                .build();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary));
+                RecordWriter<Message> writer = ModelCodec.of(format).openWriter(out, header)) {
+            if (conversation.getMessages() != null) {
+                for (Message message : conversation.getMessages()) {
+                    writer.write(message);
+                }
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (Path other : filesFor(conversation.getId())) {
+            if (!other.equals(file)) {
+                Files.deleteIfExists(other);
+            }
+        }
+        failedSaves.remove(conversation.getId());
+    }
+    
+    /**
+     * Queues a conversation to be written in the background. If an earlier
+     * version of it is still waiting, only the latest one is written.
+     * 
+     * @param conversation The conversation
+     */
+    public void saveLater(StoredConversation conversation) {
+        if (pendingSaves.put(conversation.getId(), conversation) == null) {
+            writer.execute(() -> writePending(conversation.getId()));
+        }
+    }
+    
+    /**
+     * Writes the queued version of a conversation. It stays queued until it
+     * is on disk, so {@link #load(String)} always finds one of the two.
+     */
+    private void writePending(String id) {
+        StoredConversation latest;
+        while ((latest = pendingSaves.get(id)) != null) {
+            try {
+                save(latest);
+            } catch (IOException e) {
+                logger.error("Could not save conversation " + id, e);
+                failedSaves.add(id);
+            }
+            if (pendingSaves.remove(id, latest)) {
+                return;
+            }
+            // Replaced by a newer version while writing, or deleted
+        }
+        // Deleted before or while it was written
+        for (Path file : filesFor(id)) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.error("Could not delete conversation " + id, e);
+            }
+        }
+    }
+    
+    /**
+     * Checks whether the latest version of a conversation is on disk: no save
+     * of it is still queued or being written, and the last one did not fail.
+     * 
+     * @param id The conversation ID
+     * @return Whether the conversation can be read back as it was last saved
+     */
+    public boolean isWritten(String id) {
+        return !pendingSaves.containsKey(id) && !failedSaves.contains(id);
+    }
+    
+    /**
+     * Deletes a stored conversation.
+     * 
+     * @param id The conversation ID
+     * @throws IOException if the file cannot be deleted
+     */
+    public void delete(String id) throws IOException {
+        pendingSaves.remove(id);
+        failedSaves.remove(id);
+        for (Path file : filesFor(id)) {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    /**
+     * Gets the format conversations are saved in.
+     * 
+     * @return The format
+     */
+    public CodecFormat getFormat() {
+        return format;
+    }
+    
+    /**
+     * Gets the directory holding the conversation files.
+     * 
+     * @return The directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Writes the queued conversations and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        reader.shutdown();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Conversations still being saved were abandoned");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private Path fileFor(String id, CodecFormat fileFormat) {
+        if (!id.matches("[A-Za-z0-9-]+")) {
+            throw new IllegalArgumentException("Invalid conversation ID: " + id);
+        }
+        return directory.resolve(id + fileFormat.getExtension());
+    }
+    
+    /**
+     * Gets the files a conversation may be stored in, the one in the current format first.
+     */
+    private List<Path> filesFor(String id) {
+        List<Path> files = new ArrayList<>();
+        files.add(fileFor(id, format));
+        for (CodecFormat other : CodecFormat.values()) {
+            if (other != format) {
+                files.add(fileFor(id, other));
+            }
+        }
+        return files;
+    }
+}
\ No newline at end of file
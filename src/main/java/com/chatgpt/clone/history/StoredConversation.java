@@ -0,0 +1,56 @@
+package com.chatgpt.clone.history;
+
+import com.chatgpt.clone.model.Conversation;
+import com.chatgpt.clone.model.Message;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A conversation as it is kept in the {@link ConversationStore}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredConversation {
+    /**
+     * The unique ID, also the file name.
+     */
+    private String id;
+    
+    /**
+     * A short title, usually the start of the first question.
+     */
+    private String title;
+    
+    /**
+     * When the conversation was started, in epoch milliseconds.
+     */
+    private long createdMillis;
+    
+    /**
+     * When the conversation last changed, in epoch milliseconds.
+     */
+    private long updatedMillis;
+    
+    /**
+     * The messages in order, without the system message.
+     * Omitted in the header of a stored file, which streams them separately.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Message> messages;
+    
+    /**
+     * Rebuilds the conversation from the stored messages.
+     * 
+     * @return The conversation
+     */
+    public Conversation toConversation() {
+        return messages == null ? Conversation.empty() : Conversation.of(messages);
+    }
+}
\ No newline at end of file
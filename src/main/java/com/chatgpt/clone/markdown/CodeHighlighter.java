@@ -0,0 +1,109 @@
+package com.chatgpt.clone.markdown;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Lightweight single-pass syntax highlighter for fenced code blocks.
+ * It recognizes comments, strings, numbers and keywords of common languages
+ * and emits HTML 3.2 {@code <font>} tags, which Swing's HTML renderer supports.
+ */
+public final class CodeHighlighter {
+    private static final String KEYWORD_COLOR = "#0033b3";
+    private static final String STRING_COLOR = "#067d17";
+    private static final String COMMENT_COLOR = "#8c8c8c";
+    private static final String NUMBER_COLOR = "#1750eb";
+    
+    private static final Set<String> C_LIKE_KEYWORDS = new HashSet<>(Arrays.asList(
+            "abstract", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+            "default", "do", "double", "else", "enum", "export", "extends", "false", "final", "finally",
+            "float", "for", "function", "if", "implements", "import", "instanceof", "int", "interface",
+            "let", "long", "new", "null", "package", "private", "protected", "public", "return", "short",
+            "static", "struct", "super", "switch", "this", "throw", "throws", "true", "try", "typeof",
+            "var", "void", "volatile", "while", "async", "await", "fn", "func", "go", "impl",
+            "match", "mut", "pub", "use", "val", "when", "yield", "undefined", "string", "number"));
+    
+    private static final Set<String> SCRIPT_KEYWORDS = new HashSet<>(Arrays.asList(
+            "and", "as", "assert", "async", "await", "break", "class", "continue", "def", "del", "elif",
+            "else", "except", "False", "finally", "for", "from", "global", "if", "import", "in", "is",
+            "lambda", "None", "nonlocal", "not", "or", "pass", "raise", "return", "True", "try", "while",
+            "with", "yield", "then", "fi", "done", "esac", "echo", "export", "function", "local", "end",
+            "begin", "rescue", "module", "require", "unless", "until", "nil", "self"));
+    
+    private static final Set<String> HASH_COMMENT_LANGUAGES = new HashSet<>(Arrays.asList(
+            "python", "py", "bash", "sh", "shell", "zsh", "ruby", "rb", "yaml", "yml", "toml", "perl",
+            "r", "properties", "dockerfile", "makefile", "powershell", "ps1"));
+    
+    private CodeHighlighter() {
+    }
+    
+    /**
+     * Highlights a block of code.
+     * 
+     * @param code The source code
+     * @param language The language from the code fence, may be empty
+     * @return Escaped HTML with highlighting tags
+     */
+    public static String highlight(String code, String language) {
+        String lang = language == null ? "" : language.trim().toLowerCase(Locale.ROOT);
+        boolean hashComments = HASH_COMMENT_LANGUAGES.contains(lang);
+        Set<String> keywords = hashComments ? SCRIPT_KEYWORDS : C_LIKE_KEYWORDS;
+        
+        StringBuilder html = new StringBuilder(code.length() + code.length() / 4);
+        int length = code.length();
+        int i = 0;
+        while (i < length) {
+            char c = code.charAt(i);
+            
+            if (hashComments ? c == '#' : c == '/' && i + 1 < length && code.charAt(i + 1) == '/') {
+                int end = code.indexOf('\n', i);
+                end = end < 0 ? length : end;
+                appendColored(html, code, i, end, COMMENT_COLOR);
+                i = end;
+            } else if (!hashComments && c == '/' && i + 1 < length && code.charAt(i + 1) == '*') {
+                int end = code.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+                appendColored(html, code, i, end, COMMENT_COLOR);
+                i = end;
+            } else if (c == '"' || c == '\'' || c == '`') {
+                int end = i + 1;
+                while (end < length && code.charAt(end) != c && code.charAt(end) != '\n') {
+                    end += code.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(length, end + 1);
+                appendColored(html, code, i, end, STRING_COLOR);
+                i = end;
+            } else if (Character.isDigit(c)) {
+                int end = i + 1;
+                while (end < length && (Character.isLetterOrDigit(code.charAt(end)) || code.charAt(end) == '.')) {
+                    end++;
+                }
+                appendColored(html, code, i, end, NUMBER_COLOR);
+                i = end;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int end = i + 1;
+                while (end < length && Character.isJavaIdentifierPart(code.charAt(end))) {
+                    end++;
+                }
+                if (keywords.contains(code.substring(i, end))) {
+                    appendColored(html, code, i, end, KEYWORD_COLOR);
+                } else {
+                    Html.escape(html, code, i, end);
+                }
+                i = end;
+            } else {
+                Html.escape(html, code, i, i + 1);
+                i++;
+            }
+        }
+        return html.toString();
+    }
+    
+    private static void appendColored(StringBuilder html, String code, int start, int end, String color) {
+        html.append("<font color=\"").append(color).append("\">");
+        Html.escape(html, code, start, end);
+        html.append("</font>");
+    }
+}
@@ -0,0 +1,51 @@
+package com.chatgpt.clone.markdown;
+
+/**
+ * HTML escaping helpers.
+ */
+public final class Html {
+    private Html() {
+    }
+    
+    /**
+     * Escapes text for use in HTML content or attributes.
+     * 
+     * @param text The text to escape
+     * @return The escaped text
+     */
+    public static String escape(String text) {
+        StringBuilder out = new StringBuilder(text.length() + 16);
+        escape(out, text, 0, text.length());
+        return out.toString();
+    }
+    
+    /**
+     * Appends an escaped range of text.
+     * 
+     * @param out The destination
+     * @param text The source text
+     * @param start The first character to escape
+     * @param end The end of the range, exclusive
+     */
+    static void escape(StringBuilder out, String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+}
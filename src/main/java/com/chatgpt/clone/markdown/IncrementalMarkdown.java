@@ -0,0 +1,101 @@
+package com.chatgpt.clone.markdown;
+
+/**
+ * Renders Markdown that arrives in chunks.
+ * Blocks that can no longer change (everything before a blank line or a
+ * closing code fence) are rendered once and kept; each update only
+ * re-renders the trailing block that is still growing, so the cost of an
+ * update does not grow with the length of the answer.
+ * Not thread-safe.
+ */
+public class IncrementalMarkdown {
+    private final StringBuilder source = new StringBuilder();
+    private final StringBuilder stableHtml = new StringBuilder();
+    private int stableEnd;
+    private int scanned;
+    private boolean inFence;
+    
+    /**
+     * Appends the next chunk of Markdown.
+     * 
+     * @param chunk The text chunk
+     */
+    public void append(CharSequence chunk) {
+        source.append(chunk);
+        
+        // Look at each newly completed line for block boundaries
+        int lineStart = scanned;
+        int newline;
+        while ((newline = source.indexOf("\n", lineStart)) >= 0) {
+            String trimmed = source.substring(lineStart, newline).trim();
+            if (MarkdownRenderer.isFence(trimmed)) {
+                inFence = !inFence;
+                if (!inFence) {
+                    commit(newline + 1);
+                }
+            } else if (!inFence && trimmed.isEmpty()) {
+                commit(newline + 1);
+            }
+            lineStart = newline + 1;
+        }
+        scanned = lineStart;
+    }
+    
+    /**
+     * Renders the Markdown received so far.
+     * 
+     * @return The HTML fragment
+     */
+    public String toHtml() {
+        if (stableEnd == source.length()) {
+            return stableHtml.toString();
+        }
+        return stableHtml + tailHtml();
+    }
+    
+    /**
+     * Gets the HTML of the blocks that can no longer change, starting at an
+     * offset, e.g. the blocks completed since an earlier call.
+     * 
+     * @param from An offset into the stable HTML, at most {@link #getStableHtmlLength()}
+     * @return The HTML fragment
+     */
+    public String getStableHtml(int from) {
+        return stableHtml.substring(from);
+    }
+    
+    /**
+     * Gets the length of the HTML of the blocks that can no longer change.
+     * It only grows as chunks are appended.
+     * 
+     * @return The number of characters
+     */
+    public int getStableHtmlLength() {
+        return stableHtml.length();
+    }
+    
+    /**
+     * Renders the trailing block that is still growing.
+     * 
+     * @return The HTML fragment, empty if every block is complete
+     */
+    public String tailHtml() {
+        return stableEnd == source.length() ? "" : MarkdownRenderer.render(source.substring(stableEnd));
+    }
+    
+    /**
+     * Gets the Markdown received so far.
+     * 
+     * @return The source text
+     */
+    public String getSource() {
+        return source.toString();
+    }
+    
+    private void commit(int end) {
+        if (end > stableEnd) {
+            stableHtml.append(MarkdownRenderer.render(source.substring(stableEnd, end)));
+            stableEnd = end;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,186 @@
+package com.chatgpt.clone.markdown;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converts the Markdown subset used in model answers to HTML 3.2 that
+ * Swing's HTML renderer can display: headings, paragraphs, lists, block
+ * quotes, rules, fenced code with highlighting, and inline code, bold,
+ * italic and links. All text is escaped.
+ */
+public final class MarkdownRenderer {
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.*?)\\s*#*\\s*$");
+    private static final Pattern BULLET_ITEM = Pattern.compile("^\\s*[-*+]\\s+(.*)$");
+    private static final Pattern ORDERED_ITEM = Pattern.compile("^\\s*(\\d{1,9})[.)]\\s+(.*)$");
+    private static final Pattern RULE = Pattern.compile("^\\s*([-*_])(\\s*\\1){2,}\\s*$");
+    
+    private MarkdownRenderer() {
+    }
+    
+    /**
+     * Renders a Markdown document.
+     * An unterminated code fence runs to the end of the text, which is what
+     * a partially streamed answer needs.
+     * 
+     * @param markdown The Markdown source
+     * @return The HTML fragment
+     */
+    public static String render(String markdown) {
+        StringBuilder html = new StringBuilder(markdown.length() + markdown.length() / 2);
+        String[] lines = markdown.split("\n", -1);
+        int i = 0;
+        while (i < lines.length) {
+            String line = lines[i];
+            String trimmed = line.trim();
+            Matcher matcher;
+            
+            if (isFence(trimmed)) {
+                String language = trimmed.substring(3).trim();
+                StringBuilder code = new StringBuilder();
+                i++;
+                while (i < lines.length && !isFence(lines[i].trim())) {
+                    if (code.length() > 0) {
+                        code.append('\n');
+                    }
+                    code.append(lines[i]);
+                    i++;
+                }
+                i++; // skip the closing fence
+                html.append("<pre>").append(CodeHighlighter.highlight(code.toString(), language)).append("</pre>");
+            } else if (trimmed.isEmpty()) {
+                i++;
+            } else if ((matcher = HEADING.matcher(trimmed)).matches()) {
+                int level = matcher.group(1).length();
+                html.append("<h").append(level).append('>')
+                        .append(renderInline(matcher.group(2)))
+                        .append("</h").append(level).append('>');
+                i++;
+            } else if (RULE.matcher(line).matches()) {
+                html.append("<hr>");
+                i++;
+            } else if (trimmed.startsWith(">")) {
+                StringBuilder quote = new StringBuilder();
+                while (i < lines.length && lines[i].trim().startsWith(">")) {
+                    String inner = lines[i].trim().substring(1);
+                    quote.append(inner.startsWith(" ") ? inner.substring(1) : inner).append('\n');
+                    i++;
+                }
+                html.append("<blockquote>").append(render(quote.toString())).append("</blockquote>");
+            } else if (BULLET_ITEM.matcher(line).matches() || ORDERED_ITEM.matcher(line).matches()) {
+                i = renderList(lines, i, html);
+            } else {
+                html.append("<p>");
+                boolean first = true;
+                while (i < lines.length && !lines[i].trim().isEmpty() && !startsBlock(lines[i])) {
+                    if (!first) {
+                        html.append("<br>");
+                    }
+                    html.append(renderInline(lines[i].trim()));
+                    first = false;
+                    i++;
+                }
+                html.append("</p>");
+            }
+        }
+        return html.toString();
+    }
+    
+    /**
+     * Renders inline Markdown: code spans, bold, italic and links.
+     * 
+     * @param text A single line of text
+     * @return The escaped HTML
+     */
+    public static String renderInline(String text) {
+        StringBuilder out = new StringBuilder(text.length() + 16);
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            int end;
+            
+            if (c == '`' && (end = text.indexOf('`', i + 1)) > i) {
+                out.append("<code>");
+                Html.escape(out, text, i + 1, end);
+                out.append("</code>");
+                i = end + 1;
+            } else if ((text.startsWith("**", i) || text.startsWith("__", i))
+                    && (end = text.indexOf(text.substring(i, i + 2), i + 2)) > i + 2) {
+                out.append("<b>").append(renderInline(text.substring(i + 2, end))).append("</b>");
+                i = end + 2;
+            } else if ((c == '*' || c == '_') && i + 1 < length && !Character.isWhitespace(text.charAt(i + 1))
+                    && (c == '*' || i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))
+                    && (end = text.indexOf(c, i + 1)) > i + 1) {
+                out.append("<i>").append(renderInline(text.substring(i + 1, end))).append("</i>");
+                i = end + 1;
+            } else if (c == '[' && (end = text.indexOf("](", i)) > i) {
+                int close = text.indexOf(')', end + 2);
+                if (close < 0) {
+                    Html.escape(out, text, i, i + 1);
+                    i++;
+                    continue;
+                }
+                out.append("<a href=\"");
+                Html.escape(out, text, end + 2, close);
+                out.append("\">").append(renderInline(text.substring(i + 1, end))).append("</a>");
+                i = close + 1;
+            } else {
+                Html.escape(out, text, i, i + 1);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Checks whether a trimmed line opens or closes a code fence.
+     * 
+     * @param trimmed The trimmed line
+     * @return true for a fence line
+     */
+    static boolean isFence(String trimmed) {
+        return trimmed.startsWith("```") || trimmed.startsWith("~~~");
+    }
+    
+    private static boolean startsBlock(String line) {
+        String trimmed = line.trim();
+        return isFence(trimmed)
+                || trimmed.startsWith(">")
+                || HEADING.matcher(trimmed).matches()
+                || BULLET_ITEM.matcher(line).matches()
+                || ORDERED_ITEM.matcher(line).matches()
+                || RULE.matcher(line).matches();
+    }
+    
+    private static int renderList(String[] lines, int start, StringBuilder html) {
+        Matcher ordered = ORDERED_ITEM.matcher(lines[start]);
+        boolean isOrdered = ordered.matches();
+        if (isOrdered) {
+            html.append("<ol start=\"").append(Integer.parseInt(ordered.group(1))).append("\">");
+        } else {
+            html.append("<ul>");
+        }
+        
+        int i = start;
+        while (i < lines.length) {
+            Matcher item = (isOrdered ? ORDERED_ITEM : BULLET_ITEM).matcher(lines[i]);
+            if (!item.matches()) {
+                break;
+            }
+            StringBuilder text = new StringBuilder(item.group(isOrdered ? 2 : 1).trim());
+            i++;
+            
+            // Indented lines continue the current item
+            while (i < lines.length && !lines[i].trim().isEmpty()
+                    && Character.isWhitespace(lines[i].charAt(0)) && !startsBlock(lines[i])) {
+                text.append(' ').append(lines[i].trim());
+                i++;
+            }
+            html.append("<li>").append(renderInline(text.toString())).append("</li>");
+        }
+        
+        html.append(isOrdered ? "</ol>" : "</ul>");
+        return i;
+    }
+}
@@ -0,0 +1,83 @@
+package com.chatgpt.clone.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Represents one server-sent event of a streamed chat completion.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ChatCompletionChunk {
+    /**
+     * The ID of the chat completion. Every chunk of a stream has the same ID.
+     */
+    private String id;
+    
+    /**
+     * The object type, which is always "chat.completion.chunk".
+     */
+    private String object;
+    
+    /**
+     * The Unix timestamp (in seconds) of when the chat completion was created.
+     */
+    private long created;
+    
+    /**
+     * The model used for the chat completion.
+     */
+    private String model;
+    
+    /**
+     * The list of partial choices in this chunk.
+     */
+    private List<Choice> choices;
+    
+    /**
+     * The token usage, sent in the last chunk when the request asked for it.
+     */
+    private ChatCompletionResponse.Usage usage;
+    
+    /**
+     * Gets the content delta of the first choice.
+     * 
+     * @return The new content, or null if this chunk carries none
+     */
+    public String getFirstChoiceDelta() {
+        if (choices != null && !choices.isEmpty() && choices.get(0).getDelta() != null) {
+            return choices.get(0).getDelta().getContent();
+        }
+        return null;
+    }
+    
+    /**
+     * Represents a partial chat completion choice.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Choice {
+        /**
+         * The index of this choice.
+         */
+        private int index;
+        
+        /**
+         * The part of the message generated since the previous chunk.
+         */
+        private Message delta;
+        
+        /**
+         * The reason why the model stopped generating text, set on the last chunk.
+         */
+        private String finish_reason;
+    }
+}
\ No newline at end of file
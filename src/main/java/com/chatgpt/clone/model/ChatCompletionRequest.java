@@ -1,5 +1,6 @@
 package com.chatgpt.clone.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -45,4 +46,23 @@ public class ChatCompletionRequest {
      */
     @Builder.Default
     private boolean stream = false;
+    
+    /**
+     * Options for streamed responses, omitted when null.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private StreamOptions stream_options;
+    
+    /**
+     * Options for streamed responses.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StreamOptions {
+        /**
+         * Whether the last chunk of the stream reports the token usage.
+         */
+        private boolean include_usage;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.chatgpt.clone.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +15,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class ChatCompletionResponse {
     /**
      * The ID of the chat completion.
@@ -48,6 +52,7 @@ public class ChatCompletionResponse {
      * 
      * @return The content as a String, or null if there are no choices
      */
+    @JsonIgnore
     public String getFirstChoiceContent() {
         if (choices != null && !choices.isEmpty() && choices.get(0).getMessage() != null) {
             return choices.get(0).getMessage().getContent();
@@ -61,6 +66,7 @@ public class ChatCompletionResponse {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Choice {
         /**
          * The index of this choice.
@@ -84,6 +90,7 @@ public class ChatCompletionResponse {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Usage {
         /**
          * The number of tokens used in the prompt.
@@ -99,5 +106,47 @@ public class ChatCompletionResponse {
          * The total number of tokens used (prompt + completion).
          */
         private int total_tokens;
+        
+        /**
+         * The breakdown of the prompt tokens, or null if the API did not report it.
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private PromptTokensDetails prompt_tokens_details;
+        
+        /**
+         * Creates usage statistics without a breakdown of the prompt tokens.
+         * 
+         * @param prompt_tokens The number of tokens used in the prompt
+         * @param completion_tokens The number of tokens used in the completion
+         * @param total_tokens The total number of tokens used
+         */
+        public Usage(int prompt_tokens, int completion_tokens, int total_tokens) {
+            this(prompt_tokens, completion_tokens, total_tokens, null);
+        }
+        
+        /**
+         * Gets the number of prompt tokens that were served from the provider's prompt cache.
+         * 
+         * @return The cached tokens, or 0 if none were reported
+         */
+        @JsonIgnore
+        public int getCachedTokens() {
+            return prompt_tokens_details != null ? prompt_tokens_details.getCached_tokens() : 0;
+        }
+    }
+    
+    /**
+     * Represents the breakdown of the prompt tokens.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class PromptTokensDetails {
+        /**
+         * The number of prompt tokens that repeated the prefix of an earlier
+         * request and were read from the provider's prompt cache.
+         */
+        private int cached_tokens;
     }
 }
\ No newline at end of file
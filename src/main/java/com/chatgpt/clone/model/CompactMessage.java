@@ -0,0 +1,165 @@
+package com.chatgpt.clone.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Space-efficient, immutable form of a {@link Message}.
+ * The role is kept as a byte code and the content as UTF-8. Longer content
+ * is deflated with a preset dictionary of common chat words, which helps
+ * even for messages of a few hundred bytes; compression is only kept when
+ * it actually saves space.
+ */
+public final class CompactMessage {
+    /**
+     * Content shorter than this is stored as plain UTF-8.
+     */
+    private static final int COMPRESSION_THRESHOLD = 96;
+    
+    private static final byte[] DICTIONARY = (
+            " the of and to in is that for it with as on be this are by or can you your not an from at "
+            + "which will have if has was we but use using example function value return data code file "
+            + "class method public private static void String int new null true false import "
+            + "I'm sorry, Here is an example of how you can Let me know if you have any other questions. "
+            + "For example, However, Note that In this case, Yes, No, Please ")
+            .getBytes(StandardCharsets.UTF_8);
+    
+    private final byte role;
+    private final byte[] data;
+    
+    /**
+     * The length of the UTF-8 content, or -1 if {@link #data} is not compressed.
+     */
+    private final int contentLength;
+    
+    private CompactMessage(byte role, byte[] data, int contentLength) {
+        this.role = role;
+        this.data = data;
+        this.contentLength = contentLength;
+    }
+    
+    /**
+     * Encodes a message.
+     * 
+     * @param message The message to encode
+     * @return The compact message, or null if the role cannot be encoded
+     */
+    public static CompactMessage of(Message message) {
+        MessageRole role = MessageRole.of(message.getRole());
+        if (role == null || message.getContent() == null) {
+            return null;
+        }
+        
+        byte[] utf8 = message.getContent().getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= COMPRESSION_THRESHOLD) {
+            byte[] deflated = deflate(utf8);
+            if (deflated.length < utf8.length) {
+                return new CompactMessage(role.getCode(), deflated, utf8.length);
+            }
+        }
+        return new CompactMessage(role.getCode(), utf8, -1);
+    }
+    
+    /**
+     * Decodes the message. Each call returns a new {@link Message}.
+     * 
+     * @return The decoded message
+     */
+    public Message toMessage() {
+        byte[] utf8 = contentLength < 0 ? data : inflate(data, contentLength);
+        return Message.builder()
+                .role(getRole().getValue())
+                .content(new String(utf8, StandardCharsets.UTF_8))
+                .build();
+    }
+    
+    /**
+     * Gets the role of the message.
+     * 
+     * @return The role
+     */
+    public MessageRole getRole() {
+        return MessageRole.ofCode(role);
+    }
+    
+    /**
+     * Gets the number of bytes stored for the content.
+     * 
+     * @return The stored size in bytes
+     */
+    public int getStoredBytes() {
+        return data.length;
+    }
+    
+    /**
+     * Checks whether the content is stored deflated.
+     * 
+     * @return true if the content is compressed
+     */
+    public boolean isCompressed() {
+        return contentLength >= 0;
+    }
+    
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2 + 16);
+            byte[] buffer = new byte[Math.max(64, input.length)];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static byte[] inflate(byte[] input, int length) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(DICTIONARY);
+            inflater.setInput(input);
+            byte[] output = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(output, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != length) {
+                throw new IllegalStateException("Corrupt compact message: expected " + length + " bytes, got " + read);
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compact message", e);
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactMessage)) {
+            return false;
+        }
+        CompactMessage other = (CompactMessage) o;
+        return role == other.role && contentLength == other.contentLength && Arrays.equals(data, other.data);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * (31 * role + contentLength) + Arrays.hashCode(data);
+    }
+}
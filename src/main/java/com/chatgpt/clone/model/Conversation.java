@@ -0,0 +1,365 @@
+package com.chatgpt.clone.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable chat history with structural sharing.
+ * Appending returns a new conversation that points at this one, so taking a
+ * snapshot is free, appending is O(1), and forking at an earlier message
+ * shares the whole prefix with the original instead of copying it. The
+ * system message is kept apart from the turns, so changing it never touches
+ * the history.
+ * Conversations can be handed to other threads without copying. The
+ * {@link Message} objects are shared between snapshots and branches and
+ * must not be modified once they are part of a conversation.
+ * In compact mode (see {@link #compacted(int)}) only a small window of
+ * recent turns is kept as {@link Message} objects; older turns are stored
+ * as {@link CompactMessage} and decoded again when they are read.
+ */
+public final class Conversation implements Iterable<Message> {
+    private static final Conversation EMPTY = new Conversation(null, null, -1);
+    
+    private final Message systemMessage;
+    private final Turn last;
+    
+    /**
+     * The number of recent turns kept decoded, or -1 if compaction is off.
+     */
+    private final int hotWindow;
+    
+    private Conversation(Message systemMessage, Turn last, int hotWindow) {
+        this.systemMessage = systemMessage;
+        this.last = last;
+        this.hotWindow = hotWindow;
+    }
+    
+    /**
+     * Gets the empty conversation.
+     * 
+     * @return A conversation without messages
+     */
+    public static Conversation empty() {
+        return EMPTY;
+    }
+    
+    /**
+     * Creates a conversation from a list of messages.
+     * A leading system message becomes the system message of the conversation.
+     * 
+     * @param messages The messages in order
+     * @return The conversation
+     */
+    public static Conversation of(List<Message> messages) {
+        Conversation conversation = EMPTY;
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            if (i == 0 && "system".equals(message.getRole())) {
+                conversation = new Conversation(message, null, -1);
+            } else {
+                conversation = conversation.append(message);
+            }
+        }
+        return conversation;
+    }
+    
+    /**
+     * Returns this conversation with another message at the end.
+     * 
+     * @param message The message to append
+     * @return The extended conversation
+     */
+    public Conversation append(Message message) {
+        if (message == null) {
+            throw new IllegalArgumentException("Message must not be null");
+        }
+        Turn turn = new Turn(last, message);
+        if (hotWindow >= 0) {
+            // Only the turn that just left the hot window needs compacting
+            Turn leaving = turn;
+            for (int i = 0; i < hotWindow && leaving != null; i++) {
+                leaving = leaving.previous;
+            }
+            if (leaving != null) {
+                leaving.compact();
+            }
+        }
+        return new Conversation(systemMessage, turn, hotWindow);
+    }
+    
+    /**
+     * Returns this conversation with a user message at the end.
+     * 
+     * @param content The message content
+     * @return The extended conversation
+     */
+    public Conversation appendUser(String content) {
+        return append(Message.userMessage(content));
+    }
+    
+    /**
+     * Returns this conversation with an assistant message at the end.
+     * 
+     * @param content The message content
+     * @return The extended conversation
+     */
+    public Conversation appendAssistant(String content) {
+        return append(Message.builder()
+                .role("assistant")
+                .content(content)
+                .build());
+    }
+    
+    /**
+     * Returns this conversation with a different system message.
+     * 
+     * @param content The system message content, or null or empty to remove it
+     * @return The conversation with the same turns and the new system message
+     */
+    public Conversation withSystemMessage(String content) {
+        Message message = content == null || content.isEmpty() ? null : Message.systemMessage(content);
+        return new Conversation(message, last, hotWindow);
+    }
+    
+    /**
+     * Returns this conversation in compact mode.
+     * All but the most recent turns are stored as compressed UTF-8, which
+     * cuts the heap needed for long histories; turns that are read are
+     * decoded on the fly. Appending keeps compacting turns as they leave
+     * the hot window. Compacted turns are shared with every snapshot and
+     * branch of this conversation.
+     * 
+     * @param hotWindow The number of recent turns to keep decoded
+     * @return The conversation in compact mode
+     */
+    public Conversation compacted(int hotWindow) {
+        if (hotWindow < 0) {
+            throw new IllegalArgumentException("Hot window must not be negative: " + hotWindow);
+        }
+        Turn turn = last;
+        for (int i = 0; i < hotWindow && turn != null; i++) {
+            turn = turn.previous;
+        }
+        for (; turn != null && !turn.isCompact(); turn = turn.previous) {
+            turn.compact();
+        }
+        return new Conversation(systemMessage, last, hotWindow);
+    }
+    
+    /**
+     * Checks whether this conversation compacts older turns.
+     * 
+     * @return true in compact mode
+     */
+    public boolean isCompact() {
+        return hotWindow >= 0;
+    }
+    
+    /**
+     * Returns this conversation without any turns, keeping the system message.
+     * 
+     * @return The cleared conversation
+     */
+    public Conversation clearTurns() {
+        return systemMessage == null && hotWindow < 0 ? EMPTY : new Conversation(systemMessage, null, hotWindow);
+    }
+    
+    /**
+     * Forks the conversation after the given number of turns.
+     * The result shares those turns with this conversation, so both can be
+     * extended independently. Finding the fork point takes O(log n).
+     * 
+     * @param turnCount The number of turns to keep
+     * @return The forked conversation
+     * @throws IndexOutOfBoundsException if turnCount is negative or larger than the number of turns
+     */
+    public Conversation fork(int turnCount) {
+        int turns = getTurnCount();
+        if (turnCount < 0 || turnCount > turns) {
+            throw new IndexOutOfBoundsException("Turn count: " + turnCount + ", turns: " + turns);
+        }
+        return turnCount == turns ? this : new Conversation(systemMessage, ancestor(turnCount), hotWindow);
+    }
+    
+    /**
+     * Gets the system message.
+     * 
+     * @return The system message, or null if there is none
+     */
+    public Message getSystemMessage() {
+        return systemMessage;
+    }
+    
+    /**
+     * Gets the number of user and assistant turns, not counting the system message.
+     * 
+     * @return The number of turns
+     */
+    public int getTurnCount() {
+        return last == null ? 0 : last.count;
+    }
+    
+    /**
+     * Gets a turn by position.
+     * 
+     * @param index The turn index, starting at 0
+     * @return The message
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public Message getTurn(int index) {
+        if (index < 0 || index >= getTurnCount()) {
+            throw new IndexOutOfBoundsException("Turn: " + index + ", turns: " + getTurnCount());
+        }
+        return ancestor(index + 1).message();
+    }
+    
+    /**
+     * Gets the most recent turn.
+     * 
+     * @return The last message, or null if there are no turns
+     */
+    public Message getLastTurn() {
+        return last == null ? null : last.message();
+    }
+    
+    /**
+     * Gets the number of messages, including the system message.
+     * 
+     * @return The number of messages
+     */
+    public int size() {
+        return getTurnCount() + (systemMessage != null ? 1 : 0);
+    }
+    
+    /**
+     * Checks whether the conversation has no messages.
+     * 
+     * @return true if there is neither a system message nor a turn
+     */
+    public boolean isEmpty() {
+        return systemMessage == null && last == null;
+    }
+    
+    /**
+     * Checks whether another conversation has exactly the same turns, e.g.
+     * because it only differs in its system message. This is an O(1)
+     * identity check on the shared structure.
+     * 
+     * @param other The other conversation
+     * @return true if both conversations share their last turn
+     */
+    public boolean hasSameTurns(Conversation other) {
+        return other != null && last == other.last;
+    }
+    
+    /**
+     * Copies the messages into a new mutable list, system message first.
+     * 
+     * @return The messages in order
+     */
+    public List<Message> toList() {
+        return new ArrayList<>(Arrays.asList(toArray()));
+    }
+    
+    /**
+     * Iterates over the messages in order, system message first.
+     */
+    @Override
+    public Iterator<Message> iterator() {
+        Message[] messages = toArray();
+        return new Iterator<Message>() {
+            private int next;
+            
+            @Override
+            public boolean hasNext() {
+                return next < messages.length;
+            }
+            
+            @Override
+            public Message next() {
+                if (next >= messages.length) {
+                    throw new NoSuchElementException();
+                }
+                return messages[next++];
+            }
+        };
+    }
+    
+    @Override
+    public String toString() {
+        return "Conversation(turns=" + getTurnCount() + ", system=" + (systemMessage != null) + ")";
+    }
+    
+    private Message[] toArray() {
+        Message[] messages = new Message[size()];
+        int i = messages.length;
+        for (Turn turn = last; turn != null; turn = turn.previous) {
+            messages[--i] = turn.message();
+        }
+        if (systemMessage != null) {
+            messages[0] = systemMessage;
+        }
+        return messages;
+    }
+    
+    /**
+     * Finds the turn at which the conversation had the given number of turns.
+     */
+    private Turn ancestor(int count) {
+        Turn turn = last;
+        while (turn != null && turn.count > count) {
+            turn = turn.jump != null && turn.jump.count >= count ? turn.jump : turn.previous;
+        }
+        return turn;
+    }
+    
+    /**
+     * One node of the shared history.
+     * Besides its predecessor, each turn keeps a jump pointer laid out as in
+     * a skew-binary random access list, which makes ancestor lookups take
+     * O(log n) steps while adding only one reference per turn.
+     * The payload is either a {@link Message} or, once compacted, a
+     * {@link CompactMessage}; both represent the same content, so replacing
+     * one with the other does not change the shared history.
+     */
+    private static final class Turn {
+        final Turn previous;
+        final Turn jump;
+        final int count;
+        private volatile Object payload;
+        
+        Turn(Turn previous, Message message) {
+            this.previous = previous;
+            this.payload = message;
+            this.count = previous == null ? 1 : previous.count + 1;
+            if (previous != null && previous.jump != null && previous.jump.jump != null
+                    && previous.count - previous.jump.count == previous.jump.count - previous.jump.jump.count) {
+                this.jump = previous.jump.jump;
+            } else {
+                this.jump = previous;
+            }
+        }
+        
+        Message message() {
+            Object current = payload;
+            return current instanceof Message ? (Message) current : ((CompactMessage) current).toMessage();
+        }
+        
+        boolean isCompact() {
+            return payload instanceof CompactMessage;
+        }
+        
+        void compact() {
+            Object current = payload;
+            if (current instanceof Message) {
+                CompactMessage compact = CompactMessage.of((Message) current);
+                if (compact != null) {
+                    payload = compact;
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.chatgpt.clone.model;
+
+/**
+ * The roles a chat message can have, with a one-byte code for compact storage.
+ */
+public enum MessageRole {
+    SYSTEM("system"),
+    USER("user"),
+    ASSISTANT("assistant");
+    
+    private static final MessageRole[] VALUES = values();
+    
+    private final String value;
+    
+    MessageRole(String value) {
+        this.value = value;
+    }
+    
+    /**
+     * Gets the role name used by the API.
+     * 
+     * @return The role name, e.g. "user"
+     */
+    public String getValue() {
+        return value;
+    }
+    
+    /**
+     * Gets the one-byte code of this role.
+     * 
+     * @return The code
+     */
+    public byte getCode() {
+        return (byte) ordinal();
+    }
+    
+    /**
+     * Looks up a role by its API name.
+     * 
+     * @param value The role name
+     * @return The role, or null if the name is not known
+     */
+    public static MessageRole of(String value) {
+        for (MessageRole role : VALUES) {
+            if (role.value.equals(value)) {
+                return role;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Looks up a role by its code.
+     * 
+     * @param code The code returned by {@link #getCode()}
+     * @return The role
+     * @throws IllegalArgumentException if the code is not valid
+     */
+    public static MessageRole ofCode(byte code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalArgumentException("Invalid role code: " + code);
+        }
+        return VALUES[code];
+    }
+}
@@ -0,0 +1,59 @@
+package com.chatgpt.clone.recognition;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * A source of captured PCM audio for voice input.
+ * Reads block until audio is available, so a source is only read
+ * from the dedicated capture thread of a {@link VoiceInput}.
+ */
+public interface AudioSource extends AutoCloseable {
+    /**
+     * The format voice input works in: 16 kHz, 16-bit signed little-endian mono.
+     */
+    AudioFormat FORMAT = new AudioFormat(16000f, 16, 1, true, false);
+    
+    /**
+     * Gets the format of the audio this source delivers.
+     * 
+     * @return The format, always 16-bit signed little-endian mono
+     */
+    AudioFormat getFormat();
+    
+    /**
+     * Starts delivering audio. Audio before this call is discarded.
+     * 
+     * @throws IOException if the source cannot be opened
+     */
+    void start() throws IOException;
+    
+    /**
+     * Reads captured audio, blocking until at least one sample is available.
+     * 
+     * @param buffer The buffer to read into
+     * @param offset The offset in the buffer
+     * @param length The maximum number of bytes to read
+     * @return The number of bytes read, or -1 at the end of the audio
+     * @throws IOException if reading fails
+     */
+    int read(byte[] buffer, int offset, int length) throws IOException;
+    
+    /**
+     * Stops delivering audio and unblocks a pending read.
+     */
+    void stop();
+    
+    /**
+     * Gets a short description of this source for logs.
+     * 
+     * @return The description
+     */
+    String getName();
+    
+    /**
+     * Releases the underlying device or file.
+     */
+    @Override
+    void close();
+}
\ No newline at end of file
@@ -0,0 +1,115 @@
+package com.chatgpt.clone.recognition;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays an audio file into voice input in place of a microphone, for
+ * headless runs and benchmarks. Any format the audio system can decode is
+ * converted to the voice input format. In real-time mode reads are paced to
+ * the playing time of the audio, so latencies measured against it are the
+ * same as with a live microphone.
+ */
+public class FileAudioSource implements AudioSource {
+    private final Path file;
+    private final boolean realTime;
+    private AudioInputStream stream;
+    private long startedNanos;
+    private long delivered;
+    private volatile boolean stopped;
+    
+    /**
+     * Creates a source that plays a file.
+     * 
+     * @param file The audio file, e.g. a WAV file
+     * @param realTime Whether to deliver audio no faster than it would be captured
+     */
+    public FileAudioSource(Path file, boolean realTime) {
+        this.file = file;
+        this.realTime = realTime;
+    }
+    
+    @Override
+    public AudioFormat getFormat() {
+        return FORMAT;
+    }
+    
+    @Override
+    public synchronized void start() throws IOException {
+        if (stream == null) {
+            try {
+                stream = convert(AudioSystem.getAudioInputStream(file.toFile()));
+            } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+                throw new IOException("Unsupported audio file " + file + ": " + e.getMessage(), e);
+            }
+        }
+        stopped = false;
+        startedNanos = System.nanoTime();
+        delivered = 0;
+    }
+    
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        AudioInputStream current = stream;
+        if (current == null || stopped) {
+            return -1;
+        }
+        int read = current.read(buffer, offset, length - length % FORMAT.getFrameSize());
+        if (read <= 0) {
+            return -1;
+        }
+        delivered += read;
+        if (realTime) {
+            // Hand the audio over when its last sample would have been captured
+            long due = startedNanos + (long) (delivered * 1e9 / (FORMAT.getFrameRate() * FORMAT.getFrameSize()));
+            long wait;
+            while (!stopped && (wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        return stopped ? -1 : read;
+    }
+    
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+    
+    @Override
+    public String getName() {
+        return "file " + file.getFileName();
+    }
+    
+    @Override
+    public synchronized void close() {
+        stopped = true;
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+            stream = null;
+        }
+    }
+    
+    /**
+     * Converts decoded audio to the voice input format in the steps the audio
+     * system supports: encoding and sample size first, then rate and channels.
+     */
+    private static AudioInputStream convert(AudioInputStream in) {
+        AudioFormat source = in.getFormat();
+        if (source.matches(FORMAT)) {
+            return in;
+        }
+        AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+                source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+        AudioInputStream converted = source.matches(pcm) ? in : AudioSystem.getAudioInputStream(pcm, in);
+        return AudioSystem.getAudioInputStream(FORMAT, converted);
+    }
+}
\ No newline at end of file
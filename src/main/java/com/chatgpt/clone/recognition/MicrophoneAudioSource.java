@@ -0,0 +1,98 @@
+package com.chatgpt.clone.recognition;
+
+import com.chatgpt.clone.util.Logger;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.TargetDataLine;
+import java.io.IOException;
+
+/**
+ * Captures audio from the default microphone through javax.sound.sampled.
+ * The line buffer is kept small so frames reach the detector with little delay.
+ */
+public class MicrophoneAudioSource implements AudioSource {
+    private static final Logger logger = new Logger(MicrophoneAudioSource.class);
+    
+    private final int bufferMillis;
+    private TargetDataLine line;
+    
+    /**
+     * Creates a microphone source.
+     * 
+     * @param bufferMillis The size of the capture line buffer in milliseconds
+     */
+    public MicrophoneAudioSource(int bufferMillis) {
+        this.bufferMillis = bufferMillis;
+    }
+    
+    /**
+     * Checks whether the audio system offers a capture line in the voice input format.
+     * 
+     * @return true if a microphone can be opened
+     */
+    public static boolean isAvailable() {
+        try {
+            return AudioSystem.isLineSupported(new DataLine.Info(TargetDataLine.class, FORMAT));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+    
+    @Override
+    public AudioFormat getFormat() {
+        return FORMAT;
+    }
+    
+    @Override
+    public synchronized void start() throws IOException {
+        if (line == null) {
+            try {
+                line = AudioSystem.getTargetDataLine(FORMAT);
+                int bytesPerMilli = (int) (FORMAT.getFrameRate() * FORMAT.getFrameSize() / 1000);
+                line.open(FORMAT, Math.max(bufferMillis, 20) * bytesPerMilli);
+            } catch (LineUnavailableException | IllegalArgumentException e) {
+                line = null;
+                throw new IOException("Microphone unavailable: " + e.getMessage(), e);
+            }
+            logger.debug("Microphone opened with a " + line.getBufferSize() + " byte buffer");
+        }
+        line.flush();
+        line.start();
+    }
+    
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        TargetDataLine current = line;
+        if (current == null) {
+            return -1;
+        }
+        // A stopped line returns what it has instead of blocking forever
+        int read = current.read(buffer, offset, length - length % FORMAT.getFrameSize());
+        return read == 0 && !current.isActive() ? -1 : read;
+    }
+    
+    @Override
+    public synchronized void stop() {
+        if (line != null) {
+            line.stop();
+            line.flush();
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return "microphone";
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (line != null) {
+            line.stop();
+            line.close();
+            line = null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.chatgpt.clone.recognition;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * A local, streaming speech recognizer. Audio of one utterance is fed frame
+ * by frame as it is captured, so a hypothesis is ready as soon as the
+ * detector reports the end of speech. Implementations are called from a
+ * single recognition thread and need to keep up with real time; a
+ * recognizer that falls behind delays the final result, not the capture.
+ * Implementations are loaded by class name and need a public no-argument
+ * constructor.
+ */
+public interface SpeechRecognizer extends AutoCloseable {
+    /**
+     * Starts recognizing a new utterance.
+     * 
+     * @param format The format of the audio that follows
+     */
+    void startUtterance(AudioFormat format);
+    
+    /**
+     * Feeds the next piece of audio of the current utterance.
+     * 
+     * @param pcm The buffer holding the audio
+     * @param offset The offset of the audio in the buffer
+     * @param length The length of the audio in bytes
+     * @return The current partial hypothesis, or null if it has not changed
+     */
+    String acceptAudio(byte[] pcm, int offset, int length);
+    
+    /**
+     * Ends the current utterance.
+     * 
+     * @return The final text, empty if nothing was recognized
+     */
+    String finishUtterance();
+    
+    /**
+     * Gets a short description of this recognizer for logs.
+     * 
+     * @return The description
+     */
+    String getName();
+    
+    /**
+     * Releases models and native resources.
+     */
+    @Override
+    default void close() {
+    }
+}
\ No newline at end of file
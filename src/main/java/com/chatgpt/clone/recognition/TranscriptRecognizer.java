@@ -0,0 +1,101 @@
+package com.chatgpt.clone.recognition;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A deterministic stand-in for a real recognizer. It does not analyze the
+ * audio: it returns known transcripts, one per utterance in order, and
+ * reveals their words as partial results in proportion to the audio fed.
+ * That is enough to exercise endpointing, partial updates and the latency
+ * from capture to send without a speech model.
+ */
+public class TranscriptRecognizer implements SpeechRecognizer {
+    private final List<String> transcripts;
+    private final double wordsPerSecond;
+    private int next;
+    private String[] words = new String[0];
+    private double bytesPerSecond;
+    private long received;
+    private int revealed;
+    
+    /**
+     * Creates a recognizer for the given transcripts.
+     * 
+     * @param transcripts The text of each utterance, in order
+     * @param wordsPerSecond The speaking rate used to reveal partial results
+     */
+    public TranscriptRecognizer(List<String> transcripts, double wordsPerSecond) {
+        this.transcripts = new ArrayList<>(transcripts);
+        this.wordsPerSecond = wordsPerSecond;
+    }
+    
+    /**
+     * Loads the transcripts that accompany an audio file: a text file with
+     * the same name and a .txt extension, holding one utterance per line.
+     * 
+     * @param audioFile The audio file
+     * @return The recognizer
+     * @throws IOException if the transcript cannot be read
+     */
+    public static TranscriptRecognizer forAudioFile(Path audioFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(transcriptFile(audioFile), StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                lines.add(line.trim());
+            }
+        }
+        return new TranscriptRecognizer(lines, 2.5);
+    }
+    
+    /**
+     * Gets the transcript file that accompanies an audio file.
+     * 
+     * @param audioFile The audio file
+     * @return The path of the transcript
+     */
+    public static Path transcriptFile(Path audioFile) {
+        String name = audioFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return audioFile.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".txt");
+    }
+    
+    @Override
+    public void startUtterance(AudioFormat format) {
+        String text = next < transcripts.size() ? transcripts.get(next) : "";
+        next++;
+        words = text.isEmpty() ? new String[0] : text.split("\\s+");
+        bytesPerSecond = format.getFrameRate() * format.getFrameSize();
+        received = 0;
+        revealed = 0;
+    }
+    
+    @Override
+    public String acceptAudio(byte[] pcm, int offset, int length) {
+        received += length;
+        int due = Math.min(words.length, (int) (received / bytesPerSecond * wordsPerSecond));
+        if (due == revealed) {
+            return null;
+        }
+        revealed = due;
+        return String.join(" ", Arrays.copyOf(words, due));
+    }
+    
+    @Override
+    public String finishUtterance() {
+        String text = String.join(" ", words);
+        words = new String[0];
+        return text;
+    }
+    
+    @Override
+    public String getName() {
+        return "transcript (" + transcripts.size() + " utterances)";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.chatgpt.clone.recognition;
+
+/**
+ * Energy-based voice activity detector for 16-bit signed little-endian mono frames.
+ * The noise floor follows the quietest recent frames, so the detector adapts
+ * to a fan or a noisy room without a calibration step. Speech starts after a
+ * few consecutive voiced frames and ends after a stretch of silence; the length
+ * of that stretch trades endpointing latency against cutting off slow speakers.
+ * A detector is used by one capture thread and is not thread-safe.
+ */
+public class VoiceActivityDetector {
+    /**
+     * The classification of a frame.
+     */
+    public enum Event {
+        /**
+         * No speech in progress.
+         */
+        SILENCE,
+        
+        /**
+         * Speech has just started with this frame.
+         */
+        SPEECH_START,
+        
+        /**
+         * Speech continues; the frame may be a short pause inside it.
+         */
+        SPEECH,
+        
+        /**
+         * Speech ended; the silence after it has lasted the endpoint delay.
+         */
+        SPEECH_END
+    }
+    
+    /**
+     * Lowest level the noise floor may fall to, as a mean absolute sample value.
+     */
+    private static final double MIN_NOISE_FLOOR = 30;
+    
+    /**
+     * How fast the noise floor rises towards louder frames, per frame.
+     */
+    private static final double FLOOR_RISE = 0.002;
+    
+    private final int startFrames;
+    private final int endFrames;
+    private final double threshold;
+    private final double minimumLevel;
+    private double noiseFloor = MIN_NOISE_FLOOR;
+    private boolean inSpeech;
+    private boolean lastVoiced;
+    private int voicedRun;
+    private int silentRun;
+    
+    /**
+     * Creates a detector.
+     * 
+     * @param frameMillis The length of the frames passed to {@link #process}
+     * @param startMillis Voiced audio needed before speech is reported
+     * @param endpointMillis Silence needed before the end of speech is reported
+     * @param threshold How many times louder than the noise floor a voiced frame is
+     * @param minimumLevel The mean absolute sample value below which a frame is never voiced
+     */
+    public VoiceActivityDetector(int frameMillis, int startMillis, int endpointMillis,
+                                 double threshold, double minimumLevel) {
+        this.startFrames = Math.max(1, (startMillis + frameMillis - 1) / frameMillis);
+        this.endFrames = Math.max(1, (endpointMillis + frameMillis - 1) / frameMillis);
+        this.threshold = threshold;
+        this.minimumLevel = minimumLevel;
+    }
+    
+    /**
+     * Classifies the next frame.
+     * 
+     * @param frame The buffer holding the frame
+     * @param offset The offset of the frame in the buffer
+     * @param length The length of the frame in bytes
+     * @return The event for this frame
+     */
+    public Event process(byte[] frame, int offset, int length) {
+        double level = level(frame, offset, length);
+        lastVoiced = level > Math.max(noiseFloor * threshold, minimumLevel);
+        
+        // Track the floor down at once and up slowly, only while nobody speaks
+        if (level < noiseFloor) {
+            noiseFloor = Math.max(level, MIN_NOISE_FLOOR);
+        } else if (!lastVoiced) {
+            noiseFloor += (level - noiseFloor) * FLOOR_RISE;
+        }
+        
+        if (lastVoiced) {
+            voicedRun++;
+            silentRun = 0;
+        } else {
+            voicedRun = 0;
+            silentRun++;
+        }
+        
+        if (!inSpeech) {
+            if (voicedRun >= startFrames) {
+                inSpeech = true;
+                return Event.SPEECH_START;
+            }
+            return Event.SILENCE;
+        }
+        if (silentRun >= endFrames) {
+            inSpeech = false;
+            return Event.SPEECH_END;
+        }
+        return Event.SPEECH;
+    }
+    
+    /**
+     * Checks whether the last frame passed to {@link #process} was voiced.
+     * 
+     * @return true if the frame was louder than the voicing threshold
+     */
+    public boolean isLastFrameVoiced() {
+        return lastVoiced;
+    }
+    
+    /**
+     * Checks whether speech is in progress.
+     * 
+     * @return true between {@link Event#SPEECH_START} and {@link Event#SPEECH_END}
+     */
+    public boolean isInSpeech() {
+        return inSpeech;
+    }
+    
+    /**
+     * Gets the number of voiced frames needed to report the start of speech.
+     * 
+     * @return The number of frames
+     */
+    public int getStartFrames() {
+        return startFrames;
+    }
+    
+    /**
+     * Gets the current noise floor.
+     * 
+     * @return The mean absolute sample value of background noise
+     */
+    public double getNoiseFloor() {
+        return noiseFloor;
+    }
+    
+    /**
+     * Forgets the current utterance, keeping the learned noise floor.
+     */
+    public void reset() {
+        inSpeech = false;
+        lastVoiced = false;
+        voicedRun = 0;
+        silentRun = 0;
+    }
+    
+    /**
+     * Computes the mean absolute sample value of a frame.
+     */
+    private static double level(byte[] frame, int offset, int length) {
+        int samples = length / 2;
+        if (samples == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = offset, end = offset + samples * 2; i < end; i += 2) {
+            int sample = (short) ((frame[i] & 0xff) | (frame[i + 1] << 8));
+            sum += Math.abs(sample);
+        }
+        return (double) sum / samples;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,304 @@
+package com.chatgpt.clone.recognition;
+
+import com.chatgpt.clone.util.Logger;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns captured audio into text, fully offline. A dedicated capture thread
+ * reads fixed-size frames from an {@link AudioSource} and runs voice activity
+ * detection on them; frames that belong to speech are handed to a
+ * {@link SpeechRecognizer} on a second thread, so a slow recognizer never
+ * makes the capture fall behind. A short pre-roll of the audio before the
+ * detector fired is included, so the first syllable is not clipped.
+ * Listener callbacks arrive on the recognition thread, in order.
+ */
+public class VoiceInput implements AutoCloseable {
+    private static final Logger logger = new Logger(VoiceInput.class);
+    
+    /**
+     * Receives the results of voice input.
+     */
+    public interface Listener {
+        /**
+         * Called when speech starts.
+         */
+        void onSpeechStart();
+        
+        /**
+         * Called when the partial hypothesis of the current utterance changes.
+         * 
+         * @param text The text recognized so far
+         */
+        void onPartial(String text);
+        
+        /**
+         * Called when an utterance has ended and was recognized.
+         * 
+         * @param utterance The final result
+         */
+        void onUtterance(VoiceUtterance utterance);
+    }
+    
+    private final AudioSource source;
+    private final SpeechRecognizer recognizer;
+    private final VoiceActivityDetector detector;
+    private final Listener listener;
+    private final AudioFormat format;
+    private final int frameBytes;
+    private final long frameNanos;
+    private final int preRollFrames;
+    private final ExecutorService recognition = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "voice-recognition");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Thread captureThread;
+    private volatile boolean listening;
+    private volatile boolean closed;
+    
+    private volatile long frames;
+    private long utterances;
+    private long sent;
+    private double endpointMillis;
+    private double recognitionMillis;
+    private double captureToSendMillis;
+    private double maxCaptureToSendMillis;
+    
+    /**
+     * Creates a voice input pipeline. Nothing is captured until {@link #start()}.
+     * 
+     * @param source The audio source
+     * @param recognizer The recognizer, owned and closed by this pipeline
+     * @param detector The voice activity detector, configured for the frame length
+     * @param frameMillis The length of a frame in milliseconds
+     * @param preRollMillis Audio before the start of speech passed to the recognizer
+     * @param listener The receiver of results
+     */
+    public VoiceInput(AudioSource source, SpeechRecognizer recognizer, VoiceActivityDetector detector,
+                      int frameMillis, int preRollMillis, Listener listener) {
+        this.source = source;
+        this.recognizer = recognizer;
+        this.detector = detector;
+        this.listener = listener;
+        this.format = source.getFormat();
+        this.frameBytes = (int) (format.getFrameRate() * frameMillis / 1000) * format.getFrameSize();
+        this.frameNanos = TimeUnit.MILLISECONDS.toNanos(frameMillis);
+        this.preRollFrames = detector.getStartFrames() + preRollMillis / frameMillis;
+    }
+    
+    /**
+     * Starts listening. Does nothing if already listening.
+     * 
+     * @throws IOException if the audio source cannot be started
+     * @throws IllegalStateException if the pipeline was closed
+     */
+    public synchronized void start() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Voice input is closed");
+        }
+        if (listening) {
+            return;
+        }
+        source.start();
+        detector.reset();
+        listening = true;
+        captureThread = new Thread(this::captureLoop, "voice-capture");
+        captureThread.setDaemon(true);
+        // Capture is the only stage that loses audio when it is late
+        captureThread.setPriority(Thread.MAX_PRIORITY);
+        captureThread.start();
+        logger.info("Listening on " + source.getName() + " with recognizer " + recognizer.getName());
+    }
+    
+    /**
+     * Stops listening. An utterance in progress is ended and recognized.
+     */
+    public synchronized void stop() {
+        if (!listening) {
+            return;
+        }
+        listening = false;
+        source.stop();
+        try {
+            captureThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        captureThread = null;
+    }
+    
+    /**
+     * Checks whether audio is being captured.
+     * 
+     * @return true between {@link #start()} and {@link #stop()} or the end of the audio
+     */
+    public boolean isListening() {
+        return listening;
+    }
+    
+    /**
+     * Records that an utterance was sent as a message, for the capture-to-send latency.
+     * 
+     * @param utterance The utterance that was sent
+     * @return The time from its last captured speech until now, in milliseconds
+     */
+    public synchronized double recordSend(VoiceUtterance utterance) {
+        double latency = (System.nanoTime() - utterance.getLastVoiceNanos()) / 1e6;
+        sent++;
+        captureToSendMillis += latency;
+        maxCaptureToSendMillis = Math.max(maxCaptureToSendMillis, latency);
+        return latency;
+    }
+    
+    /**
+     * Gets a snapshot of the voice input metrics.
+     * 
+     * @return The current stats
+     */
+    public synchronized VoiceInputStats getStats() {
+        return new VoiceInputStats(utterances, sent, frames,
+                utterances == 0 ? 0 : endpointMillis / utterances,
+                utterances == 0 ? 0 : recognitionMillis / utterances,
+                sent == 0 ? 0 : captureToSendMillis / sent,
+                maxCaptureToSendMillis);
+    }
+    
+    /**
+     * Stops listening and releases the source and the recognizer.
+     */
+    @Override
+    public void close() {
+        stop();
+        closed = true;
+        recognition.shutdown();
+        try {
+            recognition.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+        recognizer.close();
+    }
+    
+    private void captureLoop() {
+        byte[] frame = new byte[frameBytes];
+        ArrayDeque<byte[]> preRoll = new ArrayDeque<>(preRollFrames + 1);
+        long speechStart = 0;
+        long lastVoice = 0;
+        try {
+            while (listening) {
+                int read = readFrame(frame);
+                long captured = System.nanoTime();
+                if (read < frameBytes) {
+                    break;
+                }
+                // Only this thread writes the counter
+                frames++;
+                
+                byte[] audio = frame.clone();
+                switch (detector.process(audio, 0, audio.length)) {
+                    case SILENCE:
+                        preRoll.addLast(audio);
+                        if (preRoll.size() > preRollFrames) {
+                            preRoll.removeFirst();
+                        }
+                        break;
+                    case SPEECH_START:
+                        // The detector fired after the voiced frames it needed to be sure
+                        speechStart = captured - detector.getStartFrames() * frameNanos;
+                        lastVoice = captured;
+                        List<byte[]> opening = new ArrayList<>(preRoll);
+                        opening.add(audio);
+                        preRoll.clear();
+                        recognition.execute(() -> beginUtterance(opening));
+                        break;
+                    case SPEECH:
+                        if (detector.isLastFrameVoiced()) {
+                            lastVoice = captured;
+                        }
+                        recognition.execute(() -> feed(audio));
+                        break;
+                    case SPEECH_END:
+                        endUtterance(speechStart, lastVoice, captured);
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Audio capture failed on " + source.getName(), e);
+        } finally {
+            // The end of the audio or a stop ends the utterance in progress
+            if (detector.isInSpeech()) {
+                detector.reset();
+                endUtterance(speechStart, lastVoice, System.nanoTime());
+            }
+            listening = false;
+        }
+    }
+    
+    /**
+     * Reads a whole frame, or less at the end of the audio.
+     */
+    private int readFrame(byte[] frame) throws IOException {
+        int filled = 0;
+        while (filled < frame.length) {
+            int read = source.read(frame, filled, frame.length - filled);
+            if (read < 0) {
+                break;
+            }
+            filled += read;
+        }
+        return filled;
+    }
+    
+    private void endUtterance(long speechStart, long lastVoice, long endpoint) {
+        recognition.execute(() -> finishUtterance(speechStart, lastVoice, endpoint));
+    }
+    
+    private void beginUtterance(List<byte[]> opening) {
+        try {
+            recognizer.startUtterance(format);
+            listener.onSpeechStart();
+        } catch (RuntimeException e) {
+            logger.error("Voice input listener failed", e);
+        }
+        for (byte[] audio : opening) {
+            feed(audio);
+        }
+    }
+    
+    private void feed(byte[] audio) {
+        try {
+            String partial = recognizer.acceptAudio(audio, 0, audio.length);
+            if (partial != null) {
+                listener.onPartial(partial);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Speech recognition failed", e);
+        }
+    }
+    
+    private void finishUtterance(long speechStart, long lastVoice, long endpoint) {
+        try {
+            String text = recognizer.finishUtterance();
+            VoiceUtterance utterance = new VoiceUtterance(text == null ? "" : text.trim(),
+                    speechStart, lastVoice, endpoint, System.nanoTime());
+            synchronized (this) {
+                utterances++;
+                endpointMillis += utterance.getEndpointMillis();
+                recognitionMillis += utterance.getRecognitionMillis();
+            }
+            logger.debug("Utterance of " + utterance.getSpeechMillis() + " ms recognized: " + utterance.getText());
+            listener.onUtterance(utterance);
+        } catch (RuntimeException e) {
+            logger.error("Speech recognition failed", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.chatgpt.clone.recognition;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the metrics of a {@link VoiceInput}.
+ */
+@Value
+public class VoiceInputStats {
+    /**
+     * Number of utterances recognized.
+     */
+    long utterances;
+    
+    /**
+     * Number of utterances that were sent as a message.
+     */
+    long sent;
+    
+    /**
+     * Number of frames the capture thread read.
+     */
+    long frames;
+    
+    /**
+     * Average silence waited for before an utterance was ended, in milliseconds.
+     */
+    double averageEndpointMillis;
+    
+    /**
+     * Average time from the end of speech until the final text was ready, in milliseconds.
+     */
+    double averageRecognitionMillis;
+    
+    /**
+     * Average time from the last captured speech until the message was sent, in milliseconds.
+     */
+    double averageCaptureToSendMillis;
+    
+    /**
+     * Longest time from the last captured speech until the message was sent, in milliseconds.
+     */
+    double maxCaptureToSendMillis;
+    
+    @Override
+    public String toString() {
+        return String.format("voice input: %d utterances, %d sent, %d frames, endpoint %.0f ms, "
+                        + "recognition %.1f ms, capture-to-send avg %.1f ms, max %.1f ms",
+                utterances, sent, frames, averageEndpointMillis, averageRecognitionMillis,
+                averageCaptureToSendMillis, maxCaptureToSendMillis);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.chatgpt.clone.recognition;
+
+import lombok.Value;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The final result of one spoken utterance with the timestamps of its
+ * stages, all taken from {@link System#nanoTime()}.
+ */
+@Value
+public class VoiceUtterance {
+    /**
+     * The recognized text, empty if nothing was recognized.
+     */
+    String text;
+    
+    /**
+     * When the first voiced audio was captured.
+     */
+    long speechStartNanos;
+    
+    /**
+     * When the last voiced audio was captured, i.e. when the speaker stopped.
+     */
+    long lastVoiceNanos;
+    
+    /**
+     * When the detector reported the end of speech.
+     */
+    long endpointNanos;
+    
+    /**
+     * When the recognizer returned the final text.
+     */
+    long recognizedNanos;
+    
+    /**
+     * Gets the length of the utterance.
+     * 
+     * @return The time from the start to the end of speech in milliseconds
+     */
+    public long getSpeechMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastVoiceNanos - speechStartNanos);
+    }
+    
+    /**
+     * Gets the time the detector waited in silence before ending the utterance.
+     * 
+     * @return The endpointing delay in milliseconds
+     */
+    public double getEndpointMillis() {
+        return (endpointNanos - lastVoiceNanos) / 1e6;
+    }
+    
+    /**
+     * Gets the time the recognizer needed after the end of speech to finish.
+     * 
+     * @return The recognition delay in milliseconds
+     */
+    public double getRecognitionMillis() {
+        return (recognizedNanos - endpointNanos) / 1e6;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,351 @@
+package com.chatgpt.clone.retrieval;
+
+import com.chatgpt.clone.model.Message;
+import com.chatgpt.clone.util.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds exchanges from earlier conversations that relate to a new question and
+ * adds them to the request, so the model can draw on what was discussed before.
+ * <p>
+ * Every question with its answer is embedded and added to an {@link HnswIndex}
+ * as the conversation is saved; only exchanges that are not in the index yet are
+ * embedded. Deleted conversations are remembered in a list and skipped, since the
+ * index is append-only.
+ */
+public class ConversationRetriever implements AutoCloseable {
+    private static final Logger logger = new Logger(ConversationRetriever.class);
+    
+    /**
+     * Longest text embedded for one exchange; the start carries the topic.
+     */
+    private static final int MAX_EMBEDDED_CHARS = 4000;
+    
+    private static final String HEADER = "Relevant excerpts from earlier conversations. "
+            + "Use them only if they help with the next message:";
+    
+    private final EmbeddingProvider embeddings;
+    private final HnswIndex index;
+    private final Path forgottenFile;
+    private final int topK;
+    private final float minScore;
+    private final int efSearch;
+    private final int maxSnippetChars;
+    private final Map<String, Integer> indexedTurns = new ConcurrentHashMap<>();
+    private final Set<String> forgotten = ConcurrentHashMap.newKeySet();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong snippets = new AtomicLong();
+    private final AtomicLong queryNanos = new AtomicLong();
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "retrieval-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * Creates a retriever over an index. The index is closed with the retriever.
+     * 
+     * @param embeddings The embedding provider the index was built with
+     * @param index The index
+     * @param topK The maximum number of snippets added to a request
+     * @param minScore The lowest similarity a snippet needs
+     * @param efSearch The candidate list size of a search
+     * @param maxSnippetChars The longest snippet added to a request
+     * @throws IOException if the index cannot be read
+     */
+    public ConversationRetriever(EmbeddingProvider embeddings, HnswIndex index, int topK, float minScore,
+            int efSearch, int maxSnippetChars) throws IOException {
+        this.embeddings = embeddings;
+        this.index = index;
+        this.forgottenFile = index.getDirectory().resolve("forgotten.txt");
+        this.topK = topK;
+        this.minScore = minScore;
+        this.efSearch = efSearch;
+        this.maxSnippetChars = maxSnippetChars;
+        
+        if (Files.exists(forgottenFile)) {
+            forgotten.addAll(Files.readAllLines(forgottenFile, StandardCharsets.UTF_8));
+        }
+        // Find out how far each conversation was indexed
+        index.forEachPayload((id, payload) -> {
+            Exchange exchange = Exchange.decode(payload);
+            indexedTurns.merge(exchange.conversationId, exchange.nextTurn, Math::max);
+        });
+    }
+    
+    /**
+     * Indexes the new exchanges of a conversation in the background.
+     * 
+     * @param conversationId The conversation ID
+     * @param turns The turns of the conversation, without the system message
+     */
+    public void indexLater(String conversationId, List<Message> turns) {
+        List<Message> copy = new ArrayList<>(turns);
+        indexer.execute(() -> {
+            try {
+                index(conversationId, copy);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Could not index conversation " + conversationId, e);
+            }
+        });
+    }
+    
+    /**
+     * Indexes the exchanges of a conversation that are not in the index yet.
+     * 
+     * @param conversationId The conversation ID
+     * @param turns The turns of the conversation, without the system message
+     * @return The number of exchanges added
+     * @throws IOException if the index cannot be written
+     */
+    public int index(String conversationId, List<Message> turns) throws IOException {
+        if (forgotten.contains(conversationId)) {
+            return 0;
+        }
+        int start = indexedTurns.getOrDefault(conversationId, 0);
+        List<Exchange> exchanges = new ArrayList<>();
+        int turn = start;
+        while (turn + 1 < turns.size()) {
+            Message question = turns.get(turn);
+            Message answer = turns.get(turn + 1);
+            if ("user".equals(question.getRole()) && "assistant".equals(answer.getRole())
+                    && !answer.getContent().startsWith("Error: ")) {
+                String text = "Q: " + question.getContent().strip() + "\nA: " + answer.getContent().strip();
+                exchanges.add(new Exchange(conversationId, turn, turn + 2, text));
+                turn += 2;
+            } else {
+                turn++;
+            }
+        }
+        if (exchanges.isEmpty()) {
+            return 0;
+        }
+        
+        List<String> texts = new ArrayList<>(exchanges.size());
+        for (Exchange exchange : exchanges) {
+            String text = exchange.text;
+            texts.add(text.length() > MAX_EMBEDDED_CHARS ? text.substring(0, MAX_EMBEDDED_CHARS) : text);
+        }
+        List<float[]> vectors = embeddings.embedAll(texts);
+        for (int i = 0; i < exchanges.size(); i++) {
+            index.add(vectors.get(i), exchanges.get(i).encode());
+        }
+        index.flush();
+        indexedTurns.put(conversationId, turn);
+        indexed.addAndGet(exchanges.size());
+        logger.debug("Indexed " + exchanges.size() + " exchanges of conversation " + conversationId);
+        return exchanges.size();
+    }
+    
+    /**
+     * Stops returning a conversation, e.g. after it was deleted.
+     * 
+     * @param conversationId The conversation ID
+     */
+    public void forget(String conversationId) {
+        if (!forgotten.add(conversationId)) {
+            return;
+        }
+        indexedTurns.remove(conversationId);
+        try {
+            Files.writeString(forgottenFile, conversationId + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.error("Could not record deleted conversation " + conversationId, e);
+        }
+    }
+    
+    /**
+     * Finds the exchanges most related to a text.
+     * 
+     * @param text The text, usually the new question
+     * @param excludeId A conversation to leave out, usually the current one, or null
+     * @return Up to topK snippets, most similar first
+     * @throws com.chatgpt.clone.exception.OpenAIException If a remote embedding provider fails
+     */
+    public List<RetrievedSnippet> retrieve(String text, String excludeId) {
+        long started = System.nanoTime();
+        List<RetrievedSnippet> found = new ArrayList<>();
+        float[] query = embeddings.embed(text);
+        
+        // Ask for more than needed, since hits from the excluded or deleted conversations are dropped
+        Set<String> seen = new HashSet<>();
+        for (SearchHit hit : index.search(query, topK * 4, efSearch)) {
+            if (found.size() == topK || hit.getScore() < minScore) {
+                break;
+            }
+            Exchange exchange;
+            try {
+                exchange = Exchange.decode(index.getPayload(hit.getId()));
+            } catch (IOException e) {
+                logger.error("Could not read indexed exchange " + hit.getId(), e);
+                continue;
+            }
+            if (exchange.conversationId.equals(excludeId) || forgotten.contains(exchange.conversationId)
+                    || !seen.add(exchange.text)) {
+                continue;
+            }
+            found.add(new RetrievedSnippet(exchange.conversationId, exchange.turn, exchange.text, hit.getScore()));
+        }
+        queries.incrementAndGet();
+        queryNanos.addAndGet(System.nanoTime() - started);
+        return found;
+    }
+    
+    /**
+     * Adds the exchanges related to the last question to a request. They go in a
+     * system message right before that question, so the messages before it stay
+     * the same from request to request.
+     * 
+     * @param messages The request messages
+     * @param conversationId The ID of the conversation, whose own exchanges are already in the request
+     * @return The messages with the snippets, or the same list if nothing related was found
+     */
+    public List<Message> augment(List<Message> messages, String conversationId) {
+        int last = messages.size() - 1;
+        while (last >= 0 && !"user".equals(messages.get(last).getRole())) {
+            last--;
+        }
+        if (last < 0) {
+            return messages;
+        }
+        List<Message> context = contextFor(messages.get(last).getContent(), conversationId);
+        if (context.isEmpty()) {
+            return messages;
+        }
+        List<Message> augmented = new ArrayList<>(messages.size() + 1);
+        augmented.addAll(messages.subList(0, last));
+        augmented.addAll(context);
+        augmented.addAll(messages.subList(last, messages.size()));
+        return augmented;
+    }
+    
+    /**
+     * Builds the context message for a question from the related exchanges.
+     * Failures are logged and give no context, since answering without it beats not answering.
+     * 
+     * @param question The question
+     * @param conversationId The ID of the conversation, whose own exchanges are already in the request
+     * @return A system message with the snippets, or an empty list if nothing related was found
+     */
+    public List<Message> contextFor(String question, String conversationId) {
+        List<RetrievedSnippet> found;
+        try {
+            found = retrieve(question, conversationId);
+        } catch (RuntimeException e) {
+            logger.warning("Retrieval failed, sending without earlier conversations: " + e.getMessage());
+            return List.of();
+        }
+        if (found.isEmpty()) {
+            return List.of();
+        }
+        
+        StringBuilder content = new StringBuilder(HEADER);
+        for (int i = 0; i < found.size(); i++) {
+            String text = found.get(i).getText();
+            if (text.length() > maxSnippetChars) {
+                text = text.substring(0, maxSnippetChars) + "...";
+            }
+            content.append("\n\n[").append(i + 1).append("] ").append(text);
+        }
+        snippets.addAndGet(found.size());
+        return List.of(Message.systemMessage(content.toString()));
+    }
+    
+    /**
+     * Gets a snapshot of the retrieval statistics.
+     * 
+     * @return The statistics
+     */
+    public RetrievalStats getStats() {
+        long count = queries.get();
+        return new RetrievalStats(embeddings.getName(), index.getKernel().getName(), index.size(), indexed.get(),
+                count, snippets.get(), count == 0 ? 0 : queryNanos.get() / 1e6 / count);
+    }
+    
+    /**
+     * Finishes the queued indexing and closes the index.
+     */
+    @Override
+    public void close() {
+        indexer.shutdown();
+        try {
+            if (!indexer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Conversations still being indexed were abandoned");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            index.close();
+        } catch (IOException e) {
+            logger.error("Could not close the vector index", e);
+        }
+    }
+    
+    /**
+     * An indexed question and answer, stored as the payload of its vector.
+     */
+    private static final class Exchange {
+        final String conversationId;
+        final int turn;
+        final int nextTurn;
+        final String text;
+        
+        Exchange(String conversationId, int turn, int nextTurn, String text) {
+            this.conversationId = conversationId;
+            this.turn = turn;
+            this.nextTurn = nextTurn;
+            this.text = text;
+        }
+        
+        byte[] encode() {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeUTF(conversationId);
+                out.writeInt(turn);
+                out.writeInt(nextTurn);
+                byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        
+        static Exchange decode(byte[] payload) {
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                String conversationId = in.readUTF();
+                int turn = in.readInt();
+                int nextTurn = in.readInt();
+                String text = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+                return new Exchange(conversationId, turn, nextTurn, text);
+            } catch (IOException e) {
+                throw new IllegalStateException("Corrupt indexed exchange", e);
+            }
+        }
+    }
+}
\ No newline at end of file
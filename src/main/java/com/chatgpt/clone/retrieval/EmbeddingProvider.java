@@ -0,0 +1,69 @@
+package com.chatgpt.clone.retrieval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns text into vectors whose dot product measures how related two texts are.
+ * Implementations return unit-length vectors of a fixed size and must be thread-safe.
+ */
+public interface EmbeddingProvider {
+    
+    /**
+     * Gets the size of the vectors.
+     * 
+     * @return The number of dimensions
+     */
+    int getDimensions();
+    
+    /**
+     * Embeds a text.
+     * 
+     * @param text The text
+     * @return The unit-length vector, or all zeros for text without content
+     * @throws com.chatgpt.clone.exception.OpenAIException If a remote provider fails
+     */
+    float[] embed(String text);
+    
+    /**
+     * Embeds several texts. Remote providers send them in one request.
+     * 
+     * @param texts The texts
+     * @return The vectors, in the order of the texts
+     * @throws com.chatgpt.clone.exception.OpenAIException If a remote provider fails
+     */
+    default List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+    
+    /**
+     * Gets a name that identifies the vectors; an index only holds vectors of one provider.
+     * 
+     * @return The name, e.g. "hashing-256"
+     */
+    String getName();
+    
+    /**
+     * Scales a vector to unit length in place.
+     * 
+     * @param vector The vector
+     * @return The same vector
+     */
+    static float[] normalize(float[] vector) {
+        double sum = 0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        if (sum > 0) {
+            float scale = (float) (1 / Math.sqrt(sum));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.chatgpt.clone.retrieval;
+
+import com.chatgpt.clone.cache.PromptNormalizer;
+
+import java.util.List;
+
+/**
+ * A local embedding that needs no model: content words, word pairs and the
+ * character trigrams of each word are hashed into a fixed number of
+ * dimensions with a random sign (the hashing trick), and the sum is scaled
+ * to unit length. Texts that share words and word stems end up close.
+ * It is deterministic, so it also serves as the stand-in for tests and benchmarks.
+ */
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float PAIR_WEIGHT = 0.5f;
+    private static final float TRIGRAM_WEIGHT = 0.25f;
+    
+    private final int dimensions;
+    
+    /**
+     * Creates the provider.
+     * 
+     * @param dimensions The size of the vectors
+     */
+    public HashingEmbeddingProvider(int dimensions) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("dimensions must be positive");
+        }
+        this.dimensions = dimensions;
+    }
+    
+    @Override
+    public int getDimensions() {
+        return dimensions;
+    }
+    
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        List<String> words = PromptNormalizer.tokens(text);
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            add(vector, hash(word, 0), WORD_WEIGHT);
+            if (i > 0) {
+                add(vector, hash(words.get(i - 1), hash(word, 1)), PAIR_WEIGHT);
+            }
+            String padded = "#" + word + "#";
+            for (int j = 0; j + 3 <= padded.length(); j++) {
+                add(vector, hash(padded.substring(j, j + 3), 2), TRIGRAM_WEIGHT);
+            }
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+    
+    @Override
+    public String getName() {
+        return "hashing-" + dimensions;
+    }
+    
+    private void add(float[] vector, long hash, float weight) {
+        int index = (int) ((hash >>> 1) % dimensions);
+        vector[index] += (hash & 1) == 0 ? weight : -weight;
+    }
+    
+    private static long hash(String s, long seed) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,772 @@
+package com.chatgpt.clone.retrieval;
+
+import com.chatgpt.clone.util.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * An approximate nearest-neighbour index over unit vectors, stored in a directory.
+ * <p>
+ * It is a hierarchical navigable small world graph (HNSW): every vector is a
+ * node linked to its closest neighbours, and a few nodes also appear on sparser
+ * upper levels. A search walks greedily from the top level down and then
+ * explores the bottom level with a bounded candidate list, so it visits a few
+ * thousand nodes whatever the size of the index.
+ * <p>
+ * The vectors, the bottom-level links and the node records are memory-mapped
+ * fixed-size records that are updated in place, so adding a vector writes only
+ * what changed. Payloads are appended to their own file. The small upper levels
+ * and the header are rewritten by {@link #flush()}; after a crash the index
+ * reopens at its last flush.
+ * <p>
+ * Searches run concurrently; adding takes an exclusive lock.
+ */
+public class HnswIndex implements AutoCloseable {
+    private static final Logger logger = new Logger(HnswIndex.class);
+    
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final int MAX_LEVEL = 16;
+    private static final int NODE_BYTES = 16;
+    
+    private final Path directory;
+    private final String embedding;
+    private final int dimensions;
+    private final int m;
+    private final int maxLinks0;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final VectorKernel kernel;
+    private final MappedRecords vectors;
+    private final MappedRecords links;
+    private final MappedRecords nodes;
+    private final FileChannel payloads;
+    private final List<Map<Integer, int[]>> upperLevels = new ArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+    private volatile int count;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private long payloadEnd;
+    private boolean dirty;
+    
+    private HnswIndex(Path directory, String embedding, int dimensions, int m, int efConstruction,
+            VectorKernel kernel) throws IOException {
+        this.directory = directory;
+        this.embedding = embedding;
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxLinks0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(m);
+        this.kernel = kernel;
+        this.vectors = new MappedRecords(directory.resolve("vectors.dat"), dimensions * Float.BYTES);
+        this.links = new MappedRecords(directory.resolve("links.dat"), (1 + maxLinks0) * Integer.BYTES);
+        this.nodes = new MappedRecords(directory.resolve("nodes.dat"), NODE_BYTES);
+        this.payloads = FileChannel.open(directory.resolve("payloads.dat"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    /**
+     * Opens the index in a directory, or creates an empty one.
+     * 
+     * @param directory The directory
+     * @param embedding The name of the embedding the vectors come from
+     * @param dimensions The size of the vectors
+     * @param m The number of links per node on the upper levels; the bottom level has twice as many
+     * @param efConstruction The candidate list size while linking a new node
+     * @param kernel The similarity kernel
+     * @return The index
+     * @throws IOException if the index cannot be read, or was built for other vectors
+     */
+    public static HnswIndex open(Path directory, String embedding, int dimensions, int m, int efConstruction,
+            VectorKernel kernel) throws IOException {
+        Files.createDirectories(directory);
+        HnswIndex index = new HnswIndex(directory, embedding, dimensions, m, efConstruction, kernel);
+        try {
+            index.load();
+        } catch (IOException | RuntimeException e) {
+            index.closeFiles();
+            throw e;
+        }
+        logger.info("Opened vector index " + directory + " with " + index.count + " vectors (" + kernel.getName() + ")");
+        return index;
+    }
+    
+    /**
+     * Adds a vector.
+     * 
+     * @param vector The unit-length vector
+     * @param payload Data to keep with the vector, e.g. the text it was made from
+     * @return The ID of the vector, which counts up from 0
+     * @throws IOException if the files cannot be grown
+     */
+    public int add(float[] vector, byte[] payload) throws IOException {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            int id = count;
+            int level = levelOf(id);
+            store(id, vector, payload, level);
+            if (entryPoint < 0) {
+                entryPoint = id;
+                maxLevel = level;
+                count = id + 1;
+                dirty = true;
+                return id;
+            }
+            
+            // Walk down to the node's top level, then link it on every level below
+            int best = entryPoint;
+            float bestScore = similarity(vector, best);
+            for (int l = maxLevel; l > level; l--) {
+                best = greedy(vector, best, bestScore, l, id);
+                bestScore = similarity(vector, best);
+            }
+            int[] entries = {best};
+            int entryCount = 1;
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                NodeHeap found = searchLevel(vector, entries, entryCount, efConstruction, l, id);
+                int[] sorted = found.drainDescending();
+                float[] scores = found.drainedScores();
+                int[] selected = selectNeighbors(sorted, scores, sorted.length, m);
+                setLinks(id, l, selected, selected.length);
+                for (int neighbour : selected) {
+                    link(neighbour, id, l);
+                }
+                entries = sorted;
+                entryCount = sorted.length;
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = id;
+            }
+            count = id + 1;
+            dirty = true;
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Finds the vectors most similar to a query.
+     * 
+     * @param query The unit-length query vector
+     * @param k The number of results
+     * @param ef The candidate list size; larger is more accurate and slower, at least k is used
+     * @return Up to k hits, most similar first
+     */
+    public List<SearchHit> search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            int limit = count;
+            List<SearchHit> hits = new ArrayList<>();
+            if (limit == 0 || k <= 0) {
+                return hits;
+            }
+            int best = entryPoint;
+            float bestScore = similarity(query, best);
+            for (int l = maxLevel; l > 0; l--) {
+                best = greedy(query, best, bestScore, l, limit);
+                bestScore = similarity(query, best);
+            }
+            NodeHeap found = searchLevel(query, new int[] {best}, 1, Math.max(ef, k), 0, limit);
+            int[] sorted = found.drainDescending();
+            float[] scores = found.drainedScores();
+            for (int i = 0; i < sorted.length && i < k; i++) {
+                hits.add(new SearchHit(sorted[i], scores[i]));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Reads the payload of a vector.
+     * 
+     * @param id The ID of the vector
+     * @return The payload
+     * @throws IOException if the payload cannot be read
+     */
+    public byte[] getPayload(int id) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (id < 0 || id >= count) {
+                throw new IllegalArgumentException("No vector " + id);
+            }
+            ByteBuffer node = nodes.buffer(id);
+            int at = nodes.offset(id);
+            ByteBuffer payload = ByteBuffer.allocate(node.getInt(at + 8));
+            long position = node.getLong(at);
+            while (payload.hasRemaining()) {
+                if (payloads.read(payload, position + payload.position()) < 0) {
+                    throw new EOFException("Payload " + id + " is cut off");
+                }
+            }
+            return payload.array();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Reads all payloads in ID order with one sequential pass over the payload file.
+     * 
+     * @param consumer Receives the ID and the payload of every vector
+     * @throws IOException if the payloads cannot be read
+     */
+    public void forEachPayload(BiConsumer<Integer, byte[]> consumer) throws IOException {
+        lock.readLock().lock();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(directory.resolve("payloads.dat")), 65536)) {
+            int limit = count;
+            for (int id = 0; id < limit; id++) {
+                byte[] payload = in.readNBytes(nodes.buffer(id).getInt(nodes.offset(id) + 8));
+                consumer.accept(id, payload);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Gets the number of vectors.
+     * 
+     * @return The count
+     */
+    public int size() {
+        return count;
+    }
+    
+    /**
+     * Gets the size of the vectors.
+     * 
+     * @return The number of dimensions
+     */
+    public int getDimensions() {
+        return dimensions;
+    }
+    
+    /**
+     * Gets the directory holding the index files.
+     * 
+     * @return The directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Gets the kernel the similarities are computed with.
+     * 
+     * @return The kernel
+     */
+    public VectorKernel getKernel() {
+        return kernel;
+    }
+    
+    /**
+     * Writes everything added so far to disk.
+     * 
+     * @throws IOException if the index cannot be written
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            vectors.force();
+            links.force();
+            nodes.force();
+            payloads.force(false);
+            
+            // The header is written last, so it never counts nodes that are not on disk
+            writeAtomically("upper.dat", out -> {
+                for (Map<Integer, int[]> level : upperLevels) {
+                    out.writeInt(level.size());
+                    for (Map.Entry<Integer, int[]> node : level.entrySet()) {
+                        int[] list = node.getValue();
+                        out.writeInt(node.getKey());
+                        out.writeInt(list[0]);
+                        for (int i = 1; i <= list[0]; i++) {
+                            out.writeInt(list[i]);
+                        }
+                    }
+                }
+            });
+            writeAtomically("index.meta", out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(embedding);
+                out.writeInt(dimensions);
+                out.writeInt(m);
+                out.writeInt(count);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                out.writeInt(upperLevels.size());
+            });
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Flushes and closes the index.
+     * 
+     * @throws IOException if the index cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            closeFiles();
+        }
+    }
+    
+    private void closeFiles() throws IOException {
+        vectors.close();
+        links.close();
+        nodes.close();
+        payloads.close();
+    }
+    
+    private void load() throws IOException {
+        Path meta = directory.resolve("index.meta");
+        if (!Files.exists(meta)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(meta)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a vector index: " + meta);
+            }
+            String storedEmbedding = in.readUTF();
+            int storedDimensions = in.readInt();
+            int storedM = in.readInt();
+            if (!storedEmbedding.equals(embedding) || storedDimensions != dimensions || storedM != m) {
+                throw new IOException("Index in " + directory + " was built for " + storedEmbedding + " with "
+                        + storedDimensions + " dimensions and m=" + storedM);
+            }
+            count = in.readInt();
+            entryPoint = in.readInt();
+            maxLevel = in.readInt();
+            int levels = in.readInt();
+            for (int l = 0; l < levels; l++) {
+                upperLevels.add(new HashMap<>());
+            }
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve("upper.dat"))))) {
+            for (Map<Integer, int[]> level : upperLevels) {
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    int node = in.readInt();
+                    int[] list = new int[m + 1];
+                    list[0] = in.readInt();
+                    for (int j = 1; j <= list[0]; j++) {
+                        list[j] = in.readInt();
+                    }
+                    level.put(node, list);
+                }
+            }
+        }
+        
+        vectors.ensureCapacity(count);
+        links.ensureCapacity(count);
+        nodes.ensureCapacity(count);
+        if (count > 0) {
+            ByteBuffer last = nodes.buffer(count - 1);
+            int at = nodes.offset(count - 1);
+            payloadEnd = last.getLong(at) + last.getInt(at + 8);
+        }
+    }
+    
+    /**
+     * Writes the vector, payload and empty link lists of a new node.
+     */
+    private void store(int id, float[] vector, byte[] payload, int level) throws IOException {
+        vectors.ensureCapacity(id + 1);
+        links.ensureCapacity(id + 1);
+        nodes.ensureCapacity(id + 1);
+        
+        ByteBuffer vectorBuffer = vectors.buffer(id);
+        int at = vectors.offset(id);
+        for (int i = 0; i < dimensions; i++) {
+            vectorBuffer.putFloat(at + i * Float.BYTES, vector[i]);
+        }
+        
+        ByteBuffer data = ByteBuffer.wrap(payload);
+        while (data.hasRemaining()) {
+            payloads.write(data, payloadEnd + data.position());
+        }
+        ByteBuffer node = nodes.buffer(id);
+        int nodeAt = nodes.offset(id);
+        node.putLong(nodeAt, payloadEnd);
+        node.putInt(nodeAt + 8, payload.length);
+        node.putInt(nodeAt + 12, level);
+        payloadEnd += payload.length;
+        
+        links.buffer(id).putInt(links.offset(id), 0);
+        for (int l = 1; l <= level; l++) {
+            if (upperLevels.size() < l) {
+                upperLevels.add(new HashMap<>());
+            }
+            upperLevels.get(l - 1).put(id, new int[m + 1]);
+        }
+    }
+    
+    /**
+     * Draws the top level of a node. The level depends only on the ID, so
+     * rebuilding an index gives the same graph.
+     */
+    private int levelOf(int id) {
+        long z = (id + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        double uniform = ((z >>> 11) + 1) * 0x1.0p-53;
+        return Math.min(MAX_LEVEL, (int) (-Math.log(uniform) * levelFactor));
+    }
+    
+    private float similarity(float[] query, int node) {
+        return kernel.dot(query, vectors.buffer(node), vectors.offset(node));
+    }
+    
+    private float[] readVector(int node, float[] into) {
+        ByteBuffer buffer = vectors.buffer(node);
+        int at = vectors.offset(node);
+        for (int i = 0; i < dimensions; i++) {
+            into[i] = buffer.getFloat(at + i * Float.BYTES);
+        }
+        return into;
+    }
+    
+    /**
+     * Copies the links of a node on a level.
+     * 
+     * @return The number of links
+     */
+    private int getLinks(int node, int level, int[] into) {
+        if (level == 0) {
+            ByteBuffer buffer = links.buffer(node);
+            int at = links.offset(node);
+            int size = buffer.getInt(at);
+            for (int i = 0; i < size; i++) {
+                into[i] = buffer.getInt(at + (i + 1) * Integer.BYTES);
+            }
+            return size;
+        }
+        int[] list = upperLevels.get(level - 1).get(node);
+        System.arraycopy(list, 1, into, 0, list[0]);
+        return list[0];
+    }
+    
+    private void setLinks(int node, int level, int[] ids, int size) {
+        if (level == 0) {
+            ByteBuffer buffer = links.buffer(node);
+            int at = links.offset(node);
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(at + (i + 1) * Integer.BYTES, ids[i]);
+            }
+            buffer.putInt(at, size);
+            return;
+        }
+        int[] list = upperLevels.get(level - 1).get(node);
+        System.arraycopy(ids, 0, list, 1, size);
+        list[0] = size;
+    }
+    
+    /**
+     * Adds a link from a node to a new node. A full list is pruned with the
+     * neighbour selection heuristic, so the node keeps links in all directions.
+     */
+    private void link(int node, int added, int level) {
+        int max = level == 0 ? maxLinks0 : m;
+        int[] current = new int[max + 1];
+        int size = getLinks(node, level, current);
+        if (size < max) {
+            current[size] = added;
+            setLinks(node, level, current, size + 1);
+            return;
+        }
+        
+        current[size] = added;
+        float[] base = readVector(node, new float[dimensions]);
+        NodeHeap candidates = new NodeHeap(true, size + 1);
+        for (int i = 0; i <= size; i++) {
+            candidates.push(current[i], similarity(base, current[i]));
+        }
+        int[] sorted = candidates.drainDescending();
+        float[] scores = candidates.drainedScores();
+        int[] selected = selectNeighbors(sorted, scores, sorted.length, max);
+        setLinks(node, level, selected, selected.length);
+    }
+    
+    /**
+     * Picks up to max neighbours from candidates sorted by similarity, skipping
+     * a candidate that is closer to an already picked neighbour than to the base.
+     * This keeps links spread out, which keeps the graph navigable in clustered data.
+     */
+    private int[] selectNeighbors(int[] candidates, float[] scores, int size, int max) {
+        int[] selected = new int[Math.min(size, max)];
+        int picked = 0;
+        float[] candidate = new float[dimensions];
+        for (int i = 0; i < size && picked < max; i++) {
+            readVector(candidates[i], candidate);
+            boolean diverse = true;
+            for (int j = 0; j < picked && diverse; j++) {
+                diverse = similarity(candidate, selected[j]) <= scores[i];
+            }
+            if (diverse) {
+                selected[picked++] = candidates[i];
+            }
+        }
+        return picked == selected.length ? selected : java.util.Arrays.copyOf(selected, picked);
+    }
+    
+    /**
+     * Moves to the most similar neighbour until there is no better one.
+     */
+    private int greedy(float[] query, int start, float startScore, int level, int limit) {
+        int best = start;
+        float bestScore = startScore;
+        int[] neighbours = new int[maxLinks0 + 1];
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int size = getLinks(best, level, neighbours);
+            for (int i = 0; i < size; i++) {
+                int candidate = neighbours[i];
+                if (candidate >= limit) {
+                    continue;
+                }
+                float score = similarity(query, candidate);
+                if (score > bestScore) {
+                    best = candidate;
+                    bestScore = score;
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Explores one level from the entry nodes, keeping the ef most similar nodes found.
+     * Nodes with an ID of limit or more are not committed yet and are skipped.
+     */
+    private NodeHeap searchLevel(float[] query, int[] entries, int entryCount, int ef, int level, int limit) {
+        Visited seen = visited.get();
+        seen.reset(limit);
+        NodeHeap candidates = new NodeHeap(true, ef * 2);
+        NodeHeap results = new NodeHeap(false, ef + 1);
+        for (int i = 0; i < entryCount; i++) {
+            int entry = entries[i];
+            if (entry < limit && seen.visit(entry)) {
+                float score = similarity(query, entry);
+                candidates.push(entry, score);
+                results.push(entry, score);
+                if (results.size() > ef) {
+                    results.pop();
+                }
+            }
+        }
+        
+        int[] neighbours = new int[maxLinks0 + 1];
+        while (candidates.size() > 0) {
+            int current = candidates.topId();
+            float currentScore = candidates.topScore();
+            candidates.pop();
+            if (results.size() >= ef && currentScore < results.topScore()) {
+                break;
+            }
+            int size = getLinks(current, level, neighbours);
+            for (int i = 0; i < size; i++) {
+                int neighbour = neighbours[i];
+                if (neighbour >= limit || !seen.visit(neighbour)) {
+                    continue;
+                }
+                float score = similarity(query, neighbour);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbour, score);
+                    results.push(neighbour, score);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+    
+    private void writeAtomically(String name, MetaWriter writer) throws IOException {
+        Path target = directory.resolve(name);
+        Path temp = directory.resolve(name + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            writer.write(out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private interface MetaWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+    
+    /**
+     * Marks visited nodes with a generation number, so clearing between searches is free.
+     */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int generation;
+        
+        void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                java.util.Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+        
+        /**
+         * Marks a node.
+         * 
+         * @return true if the node was not visited before
+         */
+        boolean visit(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+    
+    /**
+     * A binary heap of node IDs keyed by similarity, on primitive arrays.
+     * A max-heap has the most similar node on top, a min-heap the least similar.
+     */
+    private static final class NodeHeap {
+        private final boolean max;
+        private int[] ids;
+        private float[] scores;
+        private int size;
+        private float[] drained;
+        
+        NodeHeap(boolean max, int capacity) {
+            this.max = max;
+            this.ids = new int[Math.max(4, capacity)];
+            this.scores = new float[ids.length];
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        int topId() {
+            return ids[0];
+        }
+        
+        float topScore() {
+            return scores[0];
+        }
+        
+        void push(int id, float score) {
+            if (size == ids.length) {
+                ids = java.util.Arrays.copyOf(ids, size * 2);
+                scores = java.util.Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!above(score, scores[parent])) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        }
+        
+        void pop() {
+            int lastId = ids[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && above(scores[child + 1], scores[child])) {
+                    child++;
+                }
+                if (!above(scores[child], lastScore)) {
+                    break;
+                }
+                ids[i] = ids[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            ids[i] = lastId;
+            scores[i] = lastScore;
+        }
+        
+        /**
+         * Empties the heap into an array sorted from most to least similar.
+         * The matching scores are available from {@link #drainedScores()}.
+         */
+        int[] drainDescending() {
+            int[] sorted = new int[size];
+            drained = new float[size];
+            if (max) {
+                for (int i = 0; i < sorted.length; i++) {
+                    sorted[i] = topId();
+                    drained[i] = topScore();
+                    pop();
+                }
+            } else {
+                for (int i = sorted.length - 1; i >= 0; i--) {
+                    sorted[i] = topId();
+                    drained[i] = topScore();
+                    pop();
+                }
+            }
+            return sorted;
+        }
+        
+        float[] drainedScores() {
+            return drained;
+        }
+        
+        private boolean above(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package com.chatgpt.clone.retrieval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file of fixed-size records, memory-mapped in chunks so it can grow past
+ * the 2 GB limit of a single mapping. Records are read and written in place
+ * through the little-endian buffer of their chunk; the operating system pages
+ * them in and out, so the file can be larger than the heap.
+ */
+final class MappedRecords implements AutoCloseable {
+    /**
+     * Target size of one mapped chunk.
+     */
+    private static final int CHUNK_BYTES = 16 * 1024 * 1024;
+    
+    private final FileChannel channel;
+    private final int recordBytes;
+    private final int recordsPerChunk;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private volatile ByteBuffer[] chunkArray = new ByteBuffer[0];
+    
+    /**
+     * Opens or creates the file.
+     * 
+     * @param file The file
+     * @param recordBytes The size of a record
+     * @throws IOException if the file cannot be opened
+     */
+    MappedRecords(Path file, int recordBytes) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.recordBytes = recordBytes;
+        this.recordsPerChunk = Math.max(1, CHUNK_BYTES / recordBytes);
+    }
+    
+    /**
+     * Maps enough chunks for the given number of records, growing the file if needed.
+     * Not thread-safe; callers hold the index's write lock.
+     * 
+     * @param records The number of records
+     * @throws IOException if the file cannot be grown or mapped
+     */
+    void ensureCapacity(int records) throws IOException {
+        int needed = (records + recordsPerChunk - 1) / recordsPerChunk;
+        if (needed <= chunks.size()) {
+            return;
+        }
+        while (chunks.size() < needed) {
+            long position = (long) chunks.size() * recordsPerChunk * recordBytes;
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                    (long) recordsPerChunk * recordBytes);
+            chunk.order(ByteOrder.LITTLE_ENDIAN);
+            chunks.add(chunk);
+        }
+        chunkArray = chunks.toArray(new ByteBuffer[0]);
+    }
+    
+    /**
+     * Gets the buffer that holds a record.
+     * 
+     * @param record The record number
+     * @return The little-endian buffer of the record's chunk
+     */
+    ByteBuffer buffer(int record) {
+        return chunkArray[record / recordsPerChunk];
+    }
+    
+    /**
+     * Gets the position of a record within its buffer.
+     * 
+     * @param record The record number
+     * @return The byte offset
+     */
+    int offset(int record) {
+        return (record % recordsPerChunk) * recordBytes;
+    }
+    
+    /**
+     * Writes the changed pages to disk.
+     */
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        // The mappings stay valid until they are garbage collected
+        channel.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.chatgpt.clone.retrieval;
+
+import com.chatgpt.clone.exception.OpenAIException;
+import com.chatgpt.clone.transport.HttpTransport;
+import com.chatgpt.clone.transport.TransportRequest;
+import com.chatgpt.clone.transport.TransportResponse;
+import com.chatgpt.clone.util.Logger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Embeds text with the OpenAI embeddings endpoint.
+ * The vectors are shortened to the configured size by the API.
+ */
+public class OpenAIEmbeddingProvider implements EmbeddingProvider {
+    private static final Logger logger = new Logger(OpenAIEmbeddingProvider.class);
+    
+    private final HttpTransport transport;
+    private final String url;
+    private final String apiKey;
+    private final String model;
+    private final int dimensions;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    /**
+     * Creates the provider.
+     * 
+     * @param transport The HTTP client
+     * @param url The embeddings endpoint, e.g. "https://api.openai.com/v1/embeddings"
+     * @param apiKey The API key
+     * @param model The embedding model, e.g. "text-embedding-3-small"
+     * @param dimensions The size of the vectors
+     */
+    public OpenAIEmbeddingProvider(HttpTransport transport, String url, String apiKey, String model, int dimensions) {
+        this.transport = transport;
+        this.url = url;
+        this.apiKey = apiKey;
+        this.model = model;
+        this.dimensions = dimensions;
+    }
+    
+    @Override
+    public int getDimensions() {
+        return dimensions;
+    }
+    
+    @Override
+    public float[] embed(String text) {
+        return embedAll(List.of(text)).get(0);
+    }
+    
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("model", model);
+        body.put("dimensions", dimensions);
+        ArrayNode input = body.putArray("input");
+        for (String text : texts) {
+            // The endpoint rejects empty input
+            input.add(text.isEmpty() ? " " : text);
+        }
+        
+        try {
+            TransportRequest request = TransportRequest.builder()
+                    .url(url)
+                    .header("Authorization", "Bearer " + apiKey)
+                    .contentType("application/json; charset=utf-8")
+                    .body(objectMapper.writeValueAsBytes(body))
+                    .build();
+            try (TransportResponse response = transport.newCall(request).execute()) {
+                String responseBody = response.readBody();
+                if (!response.isSuccessful()) {
+                    logger.error("Embedding request failed: " + response.getStatusCode() + " - " + responseBody);
+                    throw new OpenAIException(response.getStatusCode(), "embedding_error", responseBody);
+                }
+                
+                // Results carry their input index and are not guaranteed to be in order
+                float[][] vectors = new float[texts.size()][];
+                for (JsonNode item : objectMapper.readTree(responseBody).path("data")) {
+                    JsonNode embedding = item.path("embedding");
+                    float[] vector = new float[dimensions];
+                    for (int i = 0; i < dimensions && i < embedding.size(); i++) {
+                        vector[i] = (float) embedding.get(i).asDouble();
+                    }
+                    vectors[item.path("index").asInt()] = EmbeddingProvider.normalize(vector);
+                }
+                List<float[]> result = new ArrayList<>(texts.size());
+                for (float[] vector : vectors) {
+                    if (vector == null) {
+                        throw new OpenAIException("Embedding response is missing vectors");
+                    }
+                    result.add(vector);
+                }
+                return result;
+            }
+        } catch (IOException e) {
+            throw new OpenAIException("Error communicating with the embeddings endpoint", e);
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return model + "-" + dimensions;
+    }
+}
\ No newline at end of file
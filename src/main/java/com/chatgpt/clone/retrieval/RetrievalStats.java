@@ -0,0 +1,44 @@
+package com.chatgpt.clone.retrieval;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the work of a {@link ConversationRetriever}.
+ */
+@Value
+public class RetrievalStats {
+    /**
+     * The name of the embedding provider.
+     */
+    String embedding;
+    
+    /**
+     * The name of the similarity kernel.
+     */
+    String kernel;
+    
+    /**
+     * Number of exchanges in the index.
+     */
+    int vectors;
+    
+    /**
+     * Number of exchanges indexed since startup.
+     */
+    long indexed;
+    
+    /**
+     * Number of questions looked up.
+     */
+    long queries;
+    
+    /**
+     * Number of snippets added to requests.
+     */
+    long snippets;
+    
+    /**
+     * Average time to embed a question and search the index, in milliseconds.
+     */
+    double averageQueryMillis;
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.chatgpt.clone.retrieval;
+
+import lombok.Value;
+
+/**
+ * An exchange from an earlier conversation that matches a question.
+ */
+@Value
+public class RetrievedSnippet {
+    /**
+     * The ID of the conversation the exchange is from.
+     */
+    String conversationId;
+    
+    /**
+     * The position of the exchange's question among the conversation's turns.
+     */
+    int turn;
+    
+    /**
+     * The question and answer, as "Q: ...\nA: ...".
+     */
+    String text;
+    
+    /**
+     * The cosine similarity to the question, from -1 to 1.
+     */
+    float score;
+}
\ No newline at end of file
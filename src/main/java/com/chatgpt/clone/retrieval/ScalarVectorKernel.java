@@ -0,0 +1,57 @@
+package com.chatgpt.clone.retrieval;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Plain Java loops, unrolled by four so the JIT keeps independent sums in flight.
+ */
+final class ScalarVectorKernel implements VectorKernel {
+    static final ScalarVectorKernel INSTANCE = new ScalarVectorKernel();
+    
+    private ScalarVectorKernel() {
+    }
+    
+    @Override
+    public float dot(float[] a, float[] b) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (; i + 3 < a.length; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+    
+    @Override
+    public float dot(float[] query, ByteBuffer vectors, int offset) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (; i + 3 < query.length; i += 4) {
+            int at = offset + i * Float.BYTES;
+            s0 += query[i] * vectors.getFloat(at);
+            s1 += query[i + 1] * vectors.getFloat(at + 4);
+            s2 += query[i + 2] * vectors.getFloat(at + 8);
+            s3 += query[i + 3] * vectors.getFloat(at + 12);
+        }
+        for (; i < query.length; i++) {
+            s0 += query[i] * vectors.getFloat(offset + i * Float.BYTES);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+    
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
\ No newline at end of file
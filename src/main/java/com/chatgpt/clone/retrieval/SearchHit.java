@@ -0,0 +1,19 @@
+package com.chatgpt.clone.retrieval;
+
+import lombok.Value;
+
+/**
+ * A vector found by {@link HnswIndex#search(float[], int, int)}.
+ */
+@Value
+public class SearchHit {
+    /**
+     * The ID the vector was given when it was added.
+     */
+    int id;
+    
+    /**
+     * The cosine similarity to the query, from -1 to 1.
+     */
+    float score;
+}
\ No newline at end of file
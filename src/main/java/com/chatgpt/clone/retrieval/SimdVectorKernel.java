@@ -0,0 +1,59 @@
+package com.chatgpt.clone.retrieval;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * SIMD loops on the JDK Vector API at the widest vector size of the CPU.
+ * Only loaded by {@link VectorKernel#best()} when the jdk.incubator.vector
+ * module is present, so the rest of the index never links against it.
+ */
+final class SimdVectorKernel implements VectorKernel {
+    static final SimdVectorKernel INSTANCE = new SimdVectorKernel();
+    
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    
+    private SimdVectorKernel() {
+    }
+    
+    @Override
+    public float dot(float[] a, float[] b) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            sum = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, b, i), sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            result += a[i] * b[i];
+        }
+        return result;
+    }
+    
+    @Override
+    public float dot(float[] query, ByteBuffer vectors, int offset) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(query.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector stored = FloatVector.fromByteBuffer(SPECIES, vectors, offset + i * Float.BYTES,
+                    ByteOrder.LITTLE_ENDIAN);
+            sum = FloatVector.fromArray(SPECIES, query, i).fma(stored, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < query.length; i++) {
+            result += query[i] * vectors.getFloat(offset + i * Float.BYTES);
+        }
+        return result;
+    }
+    
+    @Override
+    public String getName() {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+}
\ No newline at end of file
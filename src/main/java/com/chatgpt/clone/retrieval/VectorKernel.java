@@ -0,0 +1,68 @@
+package com.chatgpt.clone.retrieval;
+
+import com.chatgpt.clone.util.Logger;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The similarity computations of the vector index. Vectors are unit length,
+ * so the dot product is their cosine similarity.
+ * Stored vectors are read in place from little-endian buffers, such as
+ * the memory-mapped vector file of an {@link HnswIndex}.
+ */
+public interface VectorKernel {
+    
+    /**
+     * Computes the dot product of two vectors of the same length.
+     * 
+     * @param a The first vector
+     * @param b The second vector
+     * @return The dot product
+     */
+    float dot(float[] a, float[] b);
+    
+    /**
+     * Computes the dot product of a vector and a stored vector of the same length.
+     * 
+     * @param query The vector
+     * @param vectors The buffer holding the stored vector as little-endian floats
+     * @param offset The byte offset of the stored vector
+     * @return The dot product
+     */
+    float dot(float[] query, ByteBuffer vectors, int offset);
+    
+    /**
+     * Gets a short name for logs and benchmarks.
+     * 
+     * @return The name, e.g. "simd-256"
+     */
+    String getName();
+    
+    /**
+     * Gets the portable kernel, which runs everywhere.
+     * 
+     * @return The scalar kernel
+     */
+    static VectorKernel scalar() {
+        return ScalarVectorKernel.INSTANCE;
+    }
+    
+    /**
+     * Gets the fastest kernel this JVM supports. The SIMD kernel uses the
+     * incubating Vector API, which is only there when the JVM was started with
+     * {@code --add-modules jdk.incubator.vector}; otherwise the scalar kernel is used.
+     * 
+     * @return The kernel
+     */
+    static VectorKernel best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (VectorKernel) Class.forName("com.chatgpt.clone.retrieval.SimdVectorKernel")
+                        .getDeclaredField("INSTANCE").get(null);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                new Logger(VectorKernel.class).warning("Vector API not usable, using scalar kernel: " + e);
+            }
+        }
+        return scalar();
+    }
+}
\ No newline at end of file
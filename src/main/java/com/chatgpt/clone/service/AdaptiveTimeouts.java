@@ -0,0 +1,319 @@
+package com.chatgpt.clone.service;
+
+import com.chatgpt.clone.util.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses the deadlines of each request from the latencies recently observed
+ * for its model, and enforces them.
+ * <p>
+ * For every model a rolling window keeps the time to the first chunk, the
+ * longest gap between chunks and the generation time per completion token of
+ * the last completed requests. Once a window has enough samples, the deadlines are:
+ * <ul>
+ *   <li>first byte: the 99th percentile of the time to the first chunk, times the headroom</li>
+ *   <li>idle: the 99th percentile of the longest gap, times the headroom</li>
+ *   <li>total: the first-byte deadline plus max_tokens times the 95th percentile
+ *       of the time per token, times the headroom</li>
+ * </ul>
+ * Until then the configured defaults are used. Once several requests in a row
+ * miss a deadline, each further miss counts as a sample at the deadline, so a
+ * model that slows down gets longer deadlines instead of failing over and over,
+ * while a single stalled request does not stretch the deadlines of the next ones.
+ * <p>
+ * A single watchdog thread checks the running requests and aborts the ones that
+ * are late, independently of the HTTP transport.
+ */
+public class AdaptiveTimeouts implements AutoCloseable {
+    private static final Logger logger = new Logger(AdaptiveTimeouts.class);
+    
+    /**
+     * Number of missed deadlines in a row after which misses count as samples.
+     */
+    private static final int TIMEOUTS_BEFORE_LEARNING = 3;
+    
+    private final int window;
+    private final int minSamples;
+    private final double headroom;
+    private final long defaultFirstByteMillis;
+    private final long defaultIdleMillis;
+    private final double defaultMillisPerToken;
+    private final long minMillis;
+    private final long maxMillis;
+    private final Map<String, ModelLatency> models = new ConcurrentHashMap<>();
+    private final Set<RequestTimer> running = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService watchdog;
+    
+    /**
+     * Creates the timeouts and starts the watchdog.
+     * 
+     * @param window Number of recent requests per model the percentiles are taken over
+     * @param minSamples Number of samples a model needs before its own latencies are used
+     * @param headroom Factor applied to the observed percentiles
+     * @param defaultFirstByteMillis First-byte deadline while there are too few samples
+     * @param defaultIdleMillis Idle deadline while there are too few samples
+     * @param defaultMillisPerToken Generation time per token assumed while there are too few samples
+     * @param minMillis Lower bound of the first-byte and idle deadlines, however fast a model has been
+     * @param maxMillis Upper bound of every deadline
+     * @param checkMillis How often the watchdog checks the running requests
+     */
+    public AdaptiveTimeouts(int window, int minSamples, double headroom, long defaultFirstByteMillis,
+            long defaultIdleMillis, double defaultMillisPerToken, long minMillis, long maxMillis, long checkMillis) {
+        this.window = Math.max(1, window);
+        this.minSamples = Math.max(1, Math.min(minSamples, this.window));
+        this.headroom = Math.max(1.0, headroom);
+        this.defaultFirstByteMillis = defaultFirstByteMillis;
+        this.defaultIdleMillis = defaultIdleMillis;
+        this.defaultMillisPerToken = defaultMillisPerToken;
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "timeout-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::checkRunning, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Chooses the deadlines for a request.
+     * 
+     * @param model The model the request is sent to
+     * @param maxTokens The max_tokens of the request
+     * @param streaming Whether the answer is streamed
+     * @return The deadlines
+     */
+    public RequestDeadlines decide(String model, int maxTokens, boolean streaming) {
+        ModelLatency latency = latency(model);
+        RequestDeadlines deadlines;
+        synchronized (latency) {
+            boolean adaptive = latency.firstByte.size() >= minSamples;
+            long firstByte = adaptive
+                    ? bound((long) (latency.firstByte.percentile(0.99) * headroom), minMillis)
+                    : defaultFirstByteMillis;
+            long idle = latency.maxGap.size() >= minSamples
+                    ? bound((long) (latency.maxGap.percentile(0.99) * headroom), minMillis)
+                    : defaultIdleMillis;
+            double millisPerToken = latency.millisPerToken.size() >= minSamples
+                    ? latency.millisPerToken.percentile(0.95)
+                    : defaultMillisPerToken;
+            int tokens = Math.max(1, maxTokens);
+            long total = bound(firstByte + (long) (tokens * millisPerToken * headroom), firstByte);
+            deadlines = new RequestDeadlines(model, streaming, tokens, firstByte, idle, total, adaptive);
+            latency.decisions++;
+            if (adaptive) {
+                latency.adaptiveDecisions++;
+            }
+            latency.lastDeadlines = deadlines;
+        }
+        logger.debug("Deadlines for " + model + ": " + deadlines);
+        return deadlines;
+    }
+    
+    /**
+     * Starts enforcing deadlines on a request.
+     * 
+     * @param deadlines The deadlines from {@link #decide(String, int, boolean)}
+     * @param onExpired Aborts the request; called on the watchdog thread
+     * @return The timer, to be told about each chunk and closed when the request ends
+     */
+    public RequestTimer start(RequestDeadlines deadlines, Runnable onExpired) {
+        RequestTimer timer = new RequestTimer(this, deadlines, onExpired);
+        running.add(timer);
+        return timer;
+    }
+    
+    /**
+     * Adds a completed request to the window of its model.
+     * 
+     * @param timer The timer of the request
+     * @param completionTokens The number of generated tokens
+     */
+    public void recordCompleted(RequestTimer timer, int completionTokens) {
+        long total = timer.getElapsedMillis();
+        long firstByte = timer.getFirstByteMillis();
+        boolean chunked = timer.getDeadlines().isStreaming() && firstByte >= 0;
+        ModelLatency latency = latency(timer.getDeadlines().getModel());
+        synchronized (latency) {
+            latency.timeoutsInRow = 0;
+            if (chunked) {
+                latency.firstByte.add(firstByte);
+                latency.maxGap.add(timer.getMaxGapMillis());
+            }
+            // Without chunks the whole answer arrives at once, so all of it counts as generation time
+            latency.millisPerToken.add((double) (chunked ? total - firstByte : total) / Math.max(1, completionTokens));
+        }
+    }
+    
+    /**
+     * Gets the metrics of one model.
+     * 
+     * @param model The model
+     * @return The snapshot
+     */
+    public TimeoutStats getStats(String model) {
+        ModelLatency latency = latency(model);
+        synchronized (latency) {
+            return new TimeoutStats(model, latency.firstByte.size(), latency.decisions, latency.adaptiveDecisions,
+                    latency.timeouts[TimeoutKind.FIRST_BYTE.ordinal()],
+                    latency.timeouts[TimeoutKind.IDLE.ordinal()],
+                    latency.timeouts[TimeoutKind.TOTAL.ordinal()],
+                    (long) latency.firstByte.percentile(0.5),
+                    (long) latency.firstByte.percentile(0.99),
+                    (long) latency.maxGap.percentile(0.99),
+                    latency.millisPerToken.percentile(0.95),
+                    latency.lastDeadlines);
+        }
+    }
+    
+    /**
+     * Gets the metrics of every model that had requests.
+     * 
+     * @return The snapshots
+     */
+    public List<TimeoutStats> getStats() {
+        List<TimeoutStats> stats = new ArrayList<>();
+        for (String model : models.keySet()) {
+            stats.add(getStats(model));
+        }
+        return stats;
+    }
+    
+    /**
+     * Stops the watchdog. Running requests are no longer aborted.
+     */
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+    }
+    
+    void release(RequestTimer timer) {
+        running.remove(timer);
+    }
+    
+    private void checkRunning() {
+        long now = System.nanoTime();
+        for (RequestTimer timer : running) {
+            try {
+                if (timer.check(now) != null) {
+                    running.remove(timer);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Could not abort a late request", e);
+            }
+        }
+    }
+    
+    /**
+     * Counts a missed deadline. After several in a row, the deadline is added as a
+     * sample of what was late, since the real latency was at least that long.
+     * 
+     * @param timer The timer of the late request
+     * @param missed The deadline that was missed
+     */
+    void recordTimeout(RequestTimer timer, TimeoutKind missed) {
+        RequestDeadlines deadlines = timer.getDeadlines();
+        logger.warning("Request to " + deadlines.getModel() + " missed its " + missed.getDescription()
+                + " deadline of " + deadlines.getMillis(missed) + " ms");
+        ModelLatency latency = latency(deadlines.getModel());
+        synchronized (latency) {
+            latency.timeouts[missed.ordinal()]++;
+            if (++latency.timeoutsInRow < TIMEOUTS_BEFORE_LEARNING) {
+                return;
+            }
+            switch (missed) {
+                case FIRST_BYTE:
+                    latency.firstByte.add(deadlines.getFirstByteMillis());
+                    break;
+                case IDLE:
+                    latency.maxGap.add(deadlines.getIdleMillis());
+                    break;
+                default:
+                    long firstByte = Math.max(0, timer.getFirstByteMillis());
+                    latency.millisPerToken.add((double) (deadlines.getTotalMillis() - firstByte)
+                            / deadlines.getMaxTokens());
+                    break;
+            }
+        }
+    }
+    
+    private ModelLatency latency(String model) {
+        return models.computeIfAbsent(model, key -> new ModelLatency(window));
+    }
+    
+    private long bound(long millis, long min) {
+        return Math.min(maxMillis, Math.max(min, millis));
+    }
+    
+    /**
+     * The rolling windows and counters of one model. Guarded by its own monitor.
+     */
+    private static final class ModelLatency {
+        final Window firstByte;
+        final Window maxGap;
+        final Window millisPerToken;
+        final long[] timeouts = new long[TimeoutKind.values().length];
+        long decisions;
+        long adaptiveDecisions;
+        int timeoutsInRow;
+        RequestDeadlines lastDeadlines;
+        
+        ModelLatency(int size) {
+            firstByte = new Window(size);
+            maxGap = new Window(size);
+            millisPerToken = new Window(size);
+        }
+    }
+    
+    /**
+     * A ring buffer of the most recent values of one latency.
+     */
+    private static final class Window {
+        private final double[] values;
+        private int count;
+        private int next;
+        
+        Window(int size) {
+            values = new double[size];
+        }
+        
+        /**
+         * Adds a value, replacing the oldest one once the window is full.
+         * 
+         * @param value The value
+         */
+        void add(double value) {
+            values[next] = value;
+            next = (next + 1) % values.length;
+            count = Math.min(count + 1, values.length);
+        }
+        
+        int size() {
+            return count;
+        }
+        
+        /**
+         * Takes a percentile of the values in the window.
+         * 
+         * @param fraction The percentile, e.g. 0.99
+         * @return The value, or 0 if the window is empty
+         */
+        double percentile(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            double[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(fraction * count) - 1)];
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.chatgpt.clone.service;
+
+import com.chatgpt.clone.exception.RequestCancelledException;
+import com.chatgpt.clone.util.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets a caller cancel a request and everything attached to it.
+ * Whoever does work for the request registers a callback that stops it,
+ * e.g. cancelling the HTTP call or the speech stream; {@link #cancel()}
+ * runs all of them once, from whichever thread cancels. A token is meant
+ * for a single request.
+ */
+public final class CancellationToken {
+    private static final Logger logger = new Logger(CancellationToken.class);
+    
+    /**
+     * A token that is never cancelled.
+     */
+    public static final CancellationToken NONE = new CancellationToken(false);
+    
+    private final boolean cancellable;
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private volatile boolean cancelled;
+    
+    /**
+     * Creates a new token.
+     */
+    public CancellationToken() {
+        this(true);
+    }
+    
+    private CancellationToken(boolean cancellable) {
+        this.cancellable = cancellable;
+    }
+    
+    /**
+     * Cancels the request. Registered callbacks run on the calling thread;
+     * later calls have no effect.
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled || !cancellable) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (Runnable callback : toRun) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                logger.error("Error in cancellation callback", e);
+            }
+        }
+    }
+    
+    /**
+     * Checks whether the request was cancelled.
+     * 
+     * @return true after {@link #cancel()}
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Registers work to stop when the request is cancelled.
+     * If it already was, the callback runs immediately.
+     * 
+     * @param callback The callback
+     */
+    public void onCancel(Runnable callback) {
+        synchronized (this) {
+            if (!cancelled) {
+                if (cancellable) {
+                    callbacks.add(callback);
+                }
+                return;
+            }
+        }
+        callback.run();
+    }
+    
+    /**
+     * Throws if the request was cancelled.
+     * 
+     * @throws RequestCancelledException if {@link #cancel()} was called
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new RequestCancelledException();
+        }
+    }
+}
\ No newline at end of file
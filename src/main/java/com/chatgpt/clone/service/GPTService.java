@@ -1,31 +1,75 @@
 package com.chatgpt.clone.service;
 
+import com.chatgpt.clone.cache.SemanticResponseCache;
+import com.chatgpt.clone.cassette.Cassette;
+import com.chatgpt.clone.cassette.RecordingTransport;
+import com.chatgpt.clone.cassette.ReplayTransport;
 import com.chatgpt.clone.config.OpenAIConfig;
 import com.chatgpt.clone.exception.OpenAIException;
+import com.chatgpt.clone.exception.RequestCancelledException;
+import com.chatgpt.clone.exception.RequestTimeoutException;
+import com.chatgpt.clone.model.ChatCompletionChunk;
 import com.chatgpt.clone.model.ChatCompletionRequest;
 import com.chatgpt.clone.model.ChatCompletionResponse;
+import com.chatgpt.clone.model.Conversation;
 import com.chatgpt.clone.model.Message;
+import com.chatgpt.clone.simulation.SimulatedTransport;
+import com.chatgpt.clone.simulation.SimulationRules;
+import com.chatgpt.clone.usage.UsageLedger;
+import com.chatgpt.clone.usage.UsageRecord;
 import com.chatgpt.clone.util.Logger;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import okhttp3.*;
+import com.chatgpt.clone.transport.HttpTransport;
+import com.chatgpt.clone.transport.JdkHttpTransport;
+import com.chatgpt.clone.transport.OkHttpTransport;
+import com.chatgpt.clone.transport.TransportCall;
+import com.chatgpt.clone.transport.TransportRequest;
+import com.chatgpt.clone.transport.TransportResponse;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Service class for interacting with the OpenAI GPT API.
  * Handles sending requests and processing responses.
  */
-public class GPTService {
+public class GPTService implements AutoCloseable {
     private static final Logger logger = new Logger(GPTService.class);
     
     private final OpenAIConfig config;
-    private final OkHttpClient client;
+    private final HttpTransport transport;
     private final ObjectMapper objectMapper;
-    private final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private final SemanticResponseCache responseCache;
+    private final UsageLedger usageLedger;
+    private final RequestScheduler scheduler;
+    private final AdaptiveTimeouts timeouts;
+    private final PromptCacheTracker promptCache = new PromptCacheTracker();
+    private final int maxTokens;
+    private final RequestPriority defaultPriority;
+    private final RequestCompression requestCompression;
+    private final int compressionThreshold;
+    private final String sessionId;
+    private static final String JSON = "application/json; charset=utf-8";
+    
+    /**
+     * The API key of the example configuration, which selects the simulated backend.
+     */
+    private static final String PLACEHOLDER_API_KEY = "sk-your-api-key-here";
     
     /**
      * Default model to use for chat completions.
@@ -40,13 +84,19 @@ public class GPTService {
     public GPTService(OpenAIConfig config) {
         this.config = config;
         this.objectMapper = new ObjectMapper();
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this.transport = createTransport(config);
+        this.responseCache = createResponseCache(config);
+        this.usageLedger = createUsageLedger(config);
+        this.scheduler = createScheduler(config);
+        this.timeouts = createTimeouts(config);
+        this.maxTokens = config.getIntProperty("openai.max.tokens", 1000);
+        this.defaultPriority = RequestPriority.of(config.getProperty("scheduler.priority", "normal"));
+        this.requestCompression = RequestCompression.of(config.getProperty("http.compression", "none"));
+        this.compressionThreshold = config.getIntProperty("http.compression.threshold.bytes", 32 * 1024);
+        this.sessionId = config.getProperty("usage.session",
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
         
-        logger.info("GPTService initialized with API URL: " + config.getApiUrl());
+        logger.info("GPTService initialized with API URL: " + config.getApiUrl() + " (" + transport.getName() + " transport)");
     }
     
     /**
@@ -78,10 +128,76 @@ public class GPTService {
      */
     public String askQuestion(String question, String model) {
         logger.debug("Asking question using model: " + model);
+        if (responseCache != null) {
+            String cached = responseCache.get(model, question);
+            if (cached != null) {
+                logger.debug("Answered from semantic cache");
+                return cached;
+            }
+        }
+        
         List<Message> messages = new ArrayList<>();
         messages.add(Message.userMessage(question));
         
-        return sendChatCompletionRequest(messages, model);
+        String response = sendChatCompletionRequest(messages, model, defaultPriority, sessionId, CancellationToken.NONE);
+        if (responseCache != null) {
+            responseCache.put(model, question, response);
+        }
+        return response;
+    }
+    
+    /**
+     * Gets the semantic response cache used by {@link #askQuestion(String, String)}.
+     * 
+     * @return The cache, or null if caching is disabled in the configuration
+     */
+    public SemanticResponseCache getResponseCache() {
+        return responseCache;
+    }
+    
+    /**
+     * Gets the ledger recording the token usage and latency of every call.
+     * 
+     * @return The ledger, or null if it is disabled in the configuration
+     */
+    public UsageLedger getUsageLedger() {
+        return usageLedger;
+    }
+    
+    /**
+     * Gets the session name under which calls are recorded in the usage ledger.
+     * 
+     * @return The session name
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+    
+    /**
+     * Gets the scheduler that decides which request goes out next.
+     * 
+     * @return The request scheduler
+     */
+    public RequestScheduler getScheduler() {
+        return scheduler;
+    }
+    
+    /**
+     * Gets the per-model deadlines and their metrics.
+     * 
+     * @return The adaptive timeouts, or null if they are disabled in the configuration
+     */
+    public AdaptiveTimeouts getTimeouts() {
+        return timeouts;
+    }
+    
+    /**
+     * Gets the tracker of the cached prompt tokens the API reported.
+     * 
+     * @return The tracker
+     */
+    public PromptCacheTracker getPromptCache() {
+        return promptCache;
     }
     
     /**
@@ -93,7 +209,7 @@ public class GPTService {
      */
     public String sendConversation(List<Message> messages) {
         logger.debug("Sending conversation with " + messages.size() + " messages using default model: " + DEFAULT_MODEL);
-        return sendChatCompletionRequest(messages, DEFAULT_MODEL);
+        return sendChatCompletionRequest(messages, DEFAULT_MODEL, defaultPriority, sessionId, CancellationToken.NONE);
     }
     
     /**
@@ -105,8 +221,219 @@ public class GPTService {
      * @throws OpenAIException If an error occurs during the API call
      */
     public String sendConversation(List<Message> messages, String model) {
+        return sendConversation(messages, model, CancellationToken.NONE);
+    }
+    
+    /**
+     * Sends a conversation to the specified GPT model and returns the response.
+     * Cancelling the token aborts the HTTP call immediately.
+     * 
+     * @param messages The list of messages in the conversation
+     * @param model The model to use (e.g., "gpt-3.5-turbo", "gpt-4")
+     * @param cancellation The token that cancels the request
+     * @return The model's response as a String
+     * @throws RequestCancelledException If the request was cancelled
+     * @throws OpenAIException If an error occurs during the API call
+     */
+    public String sendConversation(List<Message> messages, String model, CancellationToken cancellation) {
+        return sendConversation(messages, model, defaultPriority, sessionId, cancellation);
+    }
+    
+    /**
+     * Sends a conversation to the specified GPT model with the given priority class,
+     * accounted to a tenant for fair queuing.
+     * 
+     * @param messages The list of messages in the conversation
+     * @param model The model to use (e.g., "gpt-3.5-turbo", "gpt-4")
+     * @param priority The priority class of the request
+     * @param tenant The tenant (e.g. session or job) that shares its class fairly with others
+     * @param cancellation The token that cancels the request, also while it is queued
+     * @return The model's response as a String
+     * @throws RequestCancelledException If the request was cancelled
+     * @throws OpenAIException If an error occurs during the API call
+     */
+    public String sendConversation(List<Message> messages, String model, RequestPriority priority, String tenant,
+            CancellationToken cancellation) {
         logger.debug("Sending conversation with " + messages.size() + " messages using model: " + model);
-        return sendChatCompletionRequest(messages, model);
+        return sendChatCompletionRequest(messages, model, priority, tenant, cancellation);
+    }
+    
+    /**
+     * Sends a conversation snapshot to the specified GPT model and returns the response.
+     * The snapshot is immutable, so the caller can keep extending or forking
+     * its conversation while the request is running.
+     * 
+     * @param conversation The conversation snapshot
+     * @param model The model to use (e.g., "gpt-3.5-turbo", "gpt-4")
+     * @return The model's response as a String
+     * @throws OpenAIException If an error occurs during the API call
+     */
+    public String sendConversation(Conversation conversation, String model) {
+        return sendConversation(conversation.toList(), model);
+    }
+    
+    /**
+     * Streams a conversation snapshot to the specified GPT model.
+     * 
+     * @param conversation The conversation snapshot
+     * @param model The model to use (e.g., "gpt-3.5-turbo", "gpt-4")
+     * @param onDelta Receives each content chunk on the calling thread
+     * @return The complete response as a String
+     * @throws OpenAIException If an error occurs during the API call
+     */
+    public String streamConversation(Conversation conversation, String model, Consumer<String> onDelta) {
+        return streamConversation(conversation.toList(), model, onDelta, CancellationToken.NONE);
+    }
+    
+    /**
+     * Streams a conversation snapshot to the specified GPT model until it
+     * completes or the token is cancelled.
+     * 
+     * @param conversation The conversation snapshot
+     * @param model The model to use (e.g., "gpt-3.5-turbo", "gpt-4")
+     * @param onDelta Receives each content chunk on the calling thread
+     * @param cancellation The token that cancels the request
+     * @return The complete response as a String
+     * @throws RequestCancelledException If the request was cancelled
+     * @throws OpenAIException If an error occurs during the API call
+     */
+    public String streamConversation(Conversation conversation, String model, Consumer<String> onDelta,
+            CancellationToken cancellation) {
+        return streamConversation(conversation.toList(), model, onDelta, cancellation);
+    }
+    
+    /**
+     * Streams a conversation to the specified GPT model.
+     * Each piece of content is passed to the callback as soon as it arrives,
+     * which lets callers render or speak the answer before it is complete.
+     * 
+     * @param messages The list of messages in the conversation
+     * @param model The model to use (e.g., "gpt-3.5-turbo", "gpt-4")
+     * @param onDelta Receives each content chunk on the calling thread
+     * @return The complete response as a String
+     * @throws OpenAIException If an error occurs during the API call
+     */
+    public String streamConversation(List<Message> messages, String model, Consumer<String> onDelta) {
+        return streamConversation(messages, model, onDelta, CancellationToken.NONE);
+    }
+    
+    /**
+     * Streams a conversation to the specified GPT model until it completes or
+     * the token is cancelled. Cancelling closes the HTTP call, so the server
+     * stops generating and the connection is released right away.
+     * 
+     * @param messages The list of messages in the conversation
+     * @param model The model to use (e.g., "gpt-3.5-turbo", "gpt-4")
+     * @param onDelta Receives each content chunk on the calling thread
+     * @param cancellation The token that cancels the request
+     * @return The complete response as a String
+     * @throws RequestCancelledException If the request was cancelled
+     * @throws OpenAIException If an error occurs during the API call
+     */
+    public String streamConversation(List<Message> messages, String model, Consumer<String> onDelta,
+            CancellationToken cancellation) {
+        return streamConversation(messages, model, onDelta, defaultPriority, sessionId, cancellation);
+    }
+    
+    /**
+     * Streams a conversation to the specified GPT model with the given priority class,
+     * accounted to a tenant for fair queuing. The request holds its scheduler
+     * slot until the stream ends.
+     * 
+     * @param messages The list of messages in the conversation
+     * @param model The model to use (e.g., "gpt-3.5-turbo", "gpt-4")
+     * @param onDelta Receives each content chunk on the calling thread
+     * @param priority The priority class of the request
+     * @param tenant The tenant (e.g. session or job) that shares its class fairly with others
+     * @param cancellation The token that cancels the request, also while it is queued
+     * @return The complete response as a String
+     * @throws RequestCancelledException If the request was cancelled
+     * @throws OpenAIException If an error occurs during the API call
+     */
+    public String streamConversation(List<Message> messages, String model, Consumer<String> onDelta,
+            RequestPriority priority, String tenant, CancellationToken cancellation) {
+        logger.debug("Streaming conversation with " + messages.size() + " messages using model: " + model);
+        cancellation.throwIfCancelled();
+        checkBudget();
+        
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model(model)
+                .messages(messages)
+                .max_tokens(maxTokens)
+                .stream(true)
+                .stream_options(new ChatCompletionRequest.StreamOptions(true))
+                .build();
+        
+        StringBuilder content = new StringBuilder();
+        ChatCompletionResponse.Usage usage = null;
+        TransportCall call = newCall(request, cancellation);
+        RequestScheduler.Permit permit = admit(request, priority, tenant, cancellation);
+        long started = System.nanoTime();
+        RequestTimer timer = startTimer(request, call);
+        try (permit; timer; TransportResponse response = call.execute()) {
+            if (!response.isSuccessful()) {
+                throw toOpenAIException(response);
+            }
+            
+            // The body is a sequence of server-sent events: "data: {chunk}" lines ending with "data: [DONE]"
+            BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                cancellation.throwIfCancelled();
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                if (timer != null) {
+                    timer.onChunk();
+                }
+                String data = line.substring(5).trim();
+                if (data.equals("[DONE]")) {
+                    break;
+                }
+                
+                ChatCompletionChunk chunk = objectMapper.readValue(data, ChatCompletionChunk.class);
+                if (chunk.getUsage() != null) {
+                    usage = chunk.getUsage();
+                }
+                String delta = chunk.getFirstChoiceDelta();
+                if (delta != null && !delta.isEmpty()) {
+                    content.append(delta);
+                    onDelta.accept(delta);
+                }
+            }
+            
+            // An aborted stream may end like a complete one
+            throwIfTimedOut(timer, null);
+            if (content.length() == 0) {
+                logger.error("No content in OpenAI API stream");
+                throw new OpenAIException("No content in response");
+            }
+            
+            logger.debug("Successfully processed OpenAI API stream");
+            recordUsage(model, messages, usage, content, started);
+            promptCache.record(model, tenant, messages, usage);
+            recordLatency(timer, usage, content);
+            return content.toString();
+        } catch (RequestCancelledException e) {
+            // The tokens generated so far are billed anyway
+            recordUsage(model, messages, usage, content, started);
+            throw e;
+        } catch (RequestTimeoutException e) {
+            recordUsage(model, messages, usage, content, started);
+            throw e;
+        } catch (IOException e) {
+            if (cancellation.isCancelled()) {
+                logger.info("Request cancelled");
+                recordUsage(model, messages, usage, content, started);
+                throw new RequestCancelledException(e);
+            }
+            if (timer != null && timer.getExpired() != null) {
+                recordUsage(model, messages, usage, content, started);
+                throwIfTimedOut(timer, e);
+            }
+            logger.error("Error communicating with OpenAI API", e);
+            throw new OpenAIException("Error communicating with OpenAI API", e);
+        }
     }
     
     /**
@@ -114,120 +441,484 @@ public class GPTService {
      * 
      * @param messages The list of messages to send
      * @param model The model to use
+     * @param priority The priority class of the request
+     * @param tenant The tenant the request is accounted to
+     * @param cancellation The token that cancels the request
      * @return The model's response as a String
      * @throws OpenAIException If an error occurs during the API call
      */
-    private String sendChatCompletionRequest(List<Message> messages, String model) {
-        // Check if we're using a placeholder API key
-        if (config.getApiKey().equals("sk-your-api-key-here")) {
-            logger.info("Using placeholder API key - returning mock response");
-            return generateMockResponse(messages);
-        }
+    private String sendChatCompletionRequest(List<Message> messages, String model, RequestPriority priority,
+            String tenant, CancellationToken cancellation) {
+        cancellation.throwIfCancelled();
+        checkBudget();
         
         ChatCompletionRequest request = ChatCompletionRequest.builder()
                 .model(model)
                 .messages(messages)
+                .max_tokens(maxTokens)
                 .build();
         
-        try {
-            String requestJson = objectMapper.writeValueAsString(request);
-            RequestBody body = RequestBody.create(requestJson, JSON);
+        TransportCall call = newCall(request, cancellation);
+        RequestScheduler.Permit permit = admit(request, priority, tenant, cancellation);
+        long started = System.nanoTime();
+        RequestTimer timer = startTimer(request, call);
+        try (permit; timer; TransportResponse response = call.execute()) {
+            if (!response.isSuccessful()) {
+                throw toOpenAIException(response);
+            }
             
-            logger.debug("Sending request to OpenAI API: " + config.getApiUrl());
+            String responseBody = response.readBody();
+            logger.debug("Received response from OpenAI API");
             
-            Request httpRequest = new Request.Builder()
-                    .url(config.getApiUrl())
-                    .addHeader("Authorization", "Bearer " + config.getApiKey())
-                    .addHeader("Content-Type", "application/json")
-                    .post(body)
-                    .build();
+            ChatCompletionResponse completionResponse = objectMapper.readValue(responseBody, ChatCompletionResponse.class);
             
-            try (Response response = client.newCall(httpRequest).execute()) {
-                if (!response.isSuccessful()) {
-                    String errorBody = response.body() != null ? response.body().string() : "No response body";
-                    int statusCode = response.code();
-                    String errorType = "unknown";
-                    String errorMessage = errorBody;
-                    
-                    logger.error("OpenAI API error response: " + statusCode + " - " + errorBody);
-                    
-                    // Try to parse error details from JSON response
-                    try {
-                        JsonNode errorJson = objectMapper.readTree(errorBody);
-                        if (errorJson.has("error")) {
-                            JsonNode error = errorJson.get("error");
-                            if (error.has("type")) {
-                                errorType = error.get("type").asText();
-                            }
-                            if (error.has("message")) {
-                                errorMessage = error.get("message").asText();
-                            }
-                        }
-                    } catch (Exception e) {
-                        // If we can't parse the error JSON, just use the raw error body
-                        logger.debug("Could not parse error JSON: " + e.getMessage());
-                    }
-                    
-                    throw new OpenAIException(statusCode, errorType, errorMessage);
-                }
-                
-                if (response.body() == null) {
-                    throw new OpenAIException("Response body is null");
-                }
-                
-                String responseBody = response.body().string();
-                logger.debug("Received response from OpenAI API");
-                
-                ChatCompletionResponse completionResponse = objectMapper.readValue(responseBody, ChatCompletionResponse.class);
-                
-                String content = completionResponse.getFirstChoiceContent();
-                if (content == null) {
-                    logger.error("No content in OpenAI API response");
-                    throw new OpenAIException("No content in response");
-                }
-                
-                logger.debug("Successfully processed OpenAI API response");
-                return content;
+            String content = completionResponse.getFirstChoiceContent();
+            if (content == null) {
+                logger.error("No content in OpenAI API response");
+                throw new OpenAIException("No content in response");
             }
+            
+            logger.debug("Successfully processed OpenAI API response");
+            recordUsage(model, messages, completionResponse.getUsage(), content, started);
+            promptCache.record(model, tenant, messages, completionResponse.getUsage());
+            recordLatency(timer, completionResponse.getUsage(), content);
+            return content;
         } catch (IOException e) {
+            // The prompt is billed anyway; what was generated before the abort is never seen, so it is not counted
+            if (cancellation.isCancelled()) {
+                logger.info("Request cancelled");
+                recordUsage(model, messages, null, "", started);
+                throw new RequestCancelledException(e);
+            }
+            if (timer != null && timer.getExpired() != null) {
+                recordUsage(model, messages, null, "", started);
+                throwIfTimedOut(timer, e);
+            }
             logger.error("Error communicating with OpenAI API", e);
             throw new OpenAIException("Error communicating with OpenAI API", e);
         }
     }
     
     /**
-     * Generates a mock response for testing when using a placeholder API key.
+     * Waits for a scheduler slot for a request. Its cost for fair queuing is
+     * the estimated prompt size in tokens.
      * 
-     * @param messages The list of messages in the conversation
-     * @return A mock response string
-     */
-    private String generateMockResponse(List<Message> messages) {
-        // Get the last user message
-        String lastUserMessage = "";
-        for (int i = messages.size() - 1; i >= 0; i--) {
-            Message message = messages.get(i);
-            if ("user".equals(message.getRole())) {
-                lastUserMessage = message.getContent();
-                break;
-            }
-        }
-        
-        // Generate a simple response based on the user's message
-        if (lastUserMessage.toLowerCase().contains("hello") || 
-            lastUserMessage.toLowerCase().contains("hi")) {
-            return "Hello! I'm a mock AI assistant. Since you're using a placeholder API key, I'm providing simulated responses for testing purposes.";
-        } else if (lastUserMessage.toLowerCase().contains("how are you")) {
-            return "I'm just a simulated response for testing purposes, but thanks for asking!";
-        } else if (lastUserMessage.toLowerCase().contains("weather")) {
-            return "I can't check the actual weather since this is a simulated response. In a real implementation, I would connect to the OpenAI API to provide accurate information.";
-        } else if (lastUserMessage.toLowerCase().contains("name")) {
-            return "I'm a simulated ChatGPT response for testing purposes. In a real implementation, I would be powered by OpenAI's GPT models.";
-        } else if (lastUserMessage.toLowerCase().contains("??")) {
-            return "I notice you've used multiple question marks. This is a simulated response since you're using a placeholder API key. For real responses, please configure a valid OpenAI API key.";
-        } else if (lastUserMessage.endsWith("?")) {
-            return "That's an interesting question! This is a simulated response for testing purposes. With a valid API key, you would receive an actual response from OpenAI's GPT models.";
+     * @param request The chat completion request
+     * @param priority The priority class of the request
+     * @param tenant The tenant the request is accounted to
+     * @param cancellation The token that abandons the wait
+     * @return The permit to close once the request is done
+     * @throws RequestCancelledException If the request was cancelled while it was queued
+     */
+    private RequestScheduler.Permit admit(ChatCompletionRequest request, RequestPriority priority, String tenant,
+            CancellationToken cancellation) {
+        RequestScheduler.Permit permit = scheduler.acquire(priority, tenant, estimateBodySize(request) / 4, cancellation);
+        if (permit.getQueueWaitMillis() > 0) {
+            logger.debug("Request waited " + permit.getQueueWaitMillis() + " ms in the " + priority + " queue");
+        }
+        return permit;
+    }
+    
+    /**
+     * Starts enforcing the deadlines of a request once it leaves the scheduler queue.
+     * 
+     * @param request The chat completion request
+     * @param call The call to abort when a deadline passes
+     * @return The timer, or null if adaptive timeouts are disabled
+     */
+    private RequestTimer startTimer(ChatCompletionRequest request, TransportCall call) {
+        if (timeouts == null) {
+            return null;
+        }
+        RequestDeadlines deadlines = timeouts.decide(request.getModel(), request.getMax_tokens(), request.isStream());
+        return timeouts.start(deadlines, call::cancel);
+    }
+    
+    /**
+     * Reports a missed deadline as a timeout rather than the I/O error the abort caused.
+     * 
+     * @param timer The timer of the request, or null
+     * @param cause The I/O error, or null
+     * @throws RequestTimeoutException If the request missed a deadline
+     */
+    private static void throwIfTimedOut(RequestTimer timer, IOException cause) {
+        TimeoutKind expired = timer != null ? timer.getExpired() : null;
+        if (expired != null) {
+            throw new RequestTimeoutException(expired.getDescription(), timer.getDeadlines().getMillis(expired), cause);
+        }
+    }
+    
+    /**
+     * Adds the latencies of a completed request to the window of its model.
+     * 
+     * @param timer The timer of the request, or null
+     * @param usage The usage reported by the API, or null
+     * @param completion The text that was generated
+     */
+    private void recordLatency(RequestTimer timer, ChatCompletionResponse.Usage usage, CharSequence completion) {
+        if (timer != null) {
+            timeouts.recordCompleted(timer, usage != null ? usage.getCompletion_tokens() : (completion.length() + 3) / 4);
+        }
+    }
+    
+    /**
+     * Creates the HTTP call for a chat completion and ties it to the cancellation token.
+     * 
+     * @param request The chat completion request
+     * @param cancellation The token that cancels the call
+     * @return The call, not yet executed
+     * @throws OpenAIException If the request cannot be serialized
+     */
+    private TransportCall newCall(ChatCompletionRequest request, CancellationToken cancellation) {
+        TransportCall call;
+        try {
+            call = transport.newCall(buildHttpRequest(request));
+        } catch (IOException e) {
+            throw new OpenAIException("Error serializing request", e);
+        }
+        cancellation.onCancel(call::cancel);
+        return call;
+    }
+    
+    /**
+     * Builds the HTTP request for a chat completion.
+     * 
+     * @param request The chat completion request
+     * @return The HTTP request
+     * @throws IOException If the request cannot be serialized
+     */
+    private TransportRequest buildHttpRequest(ChatCompletionRequest request) throws IOException {
+        logger.debug("Sending request to OpenAI API: " + config.getApiUrl());
+        
+        TransportRequest.TransportRequestBuilder builder = TransportRequest.builder()
+                .url(config.getApiUrl())
+                .header("Authorization", "Bearer " + config.getApiKey())
+                .contentType(JSON);
+        
+        // Large bodies are compressed while they are serialized, so no full
+        // copy of either form is held; the transports decode gzip responses
+        if (requestCompression != RequestCompression.NONE && estimateBodySize(request) >= compressionThreshold) {
+            return builder
+                    .header("Content-Encoding", requestCompression.getEncoding())
+                    .bodyWriter(out -> writeCompressed(request, out))
+                    .build();
+        }
+        
+        return builder
+                .body(objectMapper.writeValueAsBytes(request))
+                .build();
+    }
+    
+    /**
+     * Serializes a request through the configured compressor.
+     * 
+     * @param request The chat completion request
+     * @param out The stream to the connection, closed when done
+     * @throws IOException If the body cannot be written
+     */
+    private void writeCompressed(ChatCompletionRequest request, OutputStream out) throws IOException {
+        OutputStream compressed = requestCompression == RequestCompression.GZIP
+                ? new GZIPOutputStream(out, 8192)
+                : new DeflaterOutputStream(out);
+        // Jackson closes the stream when done, which writes the compressor's trailer
+        objectMapper.writeValue(compressed, request);
+    }
+    
+    /**
+     * Estimates the size of the serialized request without serializing it.
+     * 
+     * @param request The chat completion request
+     * @return The approximate body size in bytes
+     */
+    private static long estimateBodySize(ChatCompletionRequest request) {
+        long size = 128;
+        for (Message message : request.getMessages()) {
+            size += 32 + (message.getContent() != null ? message.getContent().length() : 0);
+        }
+        return size;
+    }
+    
+    /**
+     * Converts an unsuccessful HTTP response into an OpenAIException.
+     * 
+     * @param response The unsuccessful response
+     * @return The exception describing the API error
+     * @throws IOException If the error body cannot be read
+     */
+    private OpenAIException toOpenAIException(TransportResponse response) throws IOException {
+        String errorBody = response.readBody();
+        int statusCode = response.getStatusCode();
+        String errorType = "unknown";
+        String errorMessage = errorBody;
+        
+        logger.error("OpenAI API error response: " + statusCode + " - " + errorBody);
+        
+        // Try to parse error details from JSON response
+        try {
+            JsonNode errorJson = objectMapper.readTree(errorBody);
+            if (errorJson.has("error")) {
+                JsonNode error = errorJson.get("error");
+                if (error.has("type")) {
+                    errorType = error.get("type").asText();
+                }
+                if (error.has("message")) {
+                    errorMessage = error.get("message").asText();
+                }
+            }
+        } catch (Exception e) {
+            // If we can't parse the error JSON, just use the raw error body
+            logger.debug("Could not parse error JSON: " + e.getMessage());
+        }
+        
+        return new OpenAIException(statusCode, errorType, errorMessage);
+    }
+    
+    /**
+     * Connects to the API server ahead of the first request, so the first
+     * message does not pay for DNS, TCP and TLS setup. Blocks until the
+     * connection is ready or failed, so call it from a background thread.
+     */
+    public void warmUp() {
+        long started = System.nanoTime();
+        transport.warmUp(config.getApiUrl());
+        logger.debug("Connection warm-up took " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+    }
+    
+    /**
+     * Releases the HTTP transport and writes the remaining usage records.
+     */
+    @Override
+    public void close() {
+        transport.close();
+        if (timeouts != null) {
+            timeouts.close();
+        }
+        if (usageLedger != null) {
+            usageLedger.close();
+        }
+    }
+    
+    /**
+     * Creates the transport selected in the configuration. In cassette replay
+     * mode calls are served from the cassette file; in record mode the selected
+     * transport is wrapped so that every exchange is written to it.
+     * 
+     * @param config The OpenAI API configuration
+     * @return The transport
+     * @throws OpenAIException If the cassette cannot be opened
+     */
+    private static HttpTransport createTransport(OpenAIConfig config) {
+        String cassetteMode = config.getProperty("cassette.mode", "off");
+        Path cassetteFile = Paths.get(config.getProperty("cassette.file", "cassettes/recording.cassette"));
+        try {
+            if ("replay".equalsIgnoreCase(cassetteMode)) {
+                Cassette cassette = Cassette.load(cassetteFile);
+                double speed = config.getDoubleProperty("cassette.speed", 1.0);
+                logger.info("Replaying " + cassette.getExchanges().size() + " exchanges from " + cassetteFile
+                        + " at speed " + speed);
+                return new ReplayTransport(cassette, speed);
+            }
+            if ("record".equalsIgnoreCase(cassetteMode)) {
+                return new RecordingTransport(createNetworkTransport(config), cassetteFile);
+            }
+        } catch (IOException e) {
+            throw new OpenAIException("Could not open cassette " + cassetteFile, e);
+        }
+        return createNetworkTransport(config);
+    }
+    
+    /**
+     * Creates the HTTP transport selected in the configuration.
+     * The placeholder API key always selects the simulated backend.
+     * 
+     * @param config The OpenAI API configuration
+     * @return The OkHttp transport, the JDK HttpClient transport if http.transport is "jdk",
+     *         or the simulated backend if it is "simulated"
+     */
+    private static HttpTransport createNetworkTransport(OpenAIConfig config) {
+        String transport = config.getProperty("http.transport", "okhttp");
+        if ("simulated".equalsIgnoreCase(transport) || PLACEHOLDER_API_KEY.equals(config.getApiKey())) {
+            return createSimulatedTransport(config);
+        }
+        
+        // With adaptive timeouts the transport's own timeouts are only a backstop
+        Duration connectTimeout = Duration.ofSeconds(config.getIntProperty("http.connect.timeout.seconds", 10));
+        Duration readTimeout = Duration.ofSeconds(config.getBooleanProperty("timeout.adaptive.enabled", true)
+                ? config.getIntProperty("timeout.max.seconds", 600)
+                : config.getIntProperty("http.read.timeout.seconds", 60));
+        if ("jdk".equalsIgnoreCase(transport)) {
+            return new JdkHttpTransport(connectTimeout, readTimeout);
+        }
+        return new OkHttpTransport(connectTimeout, readTimeout, Duration.ofSeconds(30));
+    }
+    
+    /**
+     * Creates the adaptive per-model timeouts if they are enabled in the configuration.
+     * 
+     * @param config The OpenAI API configuration
+     * @return The timeouts, or null if they are disabled
+     */
+    private static AdaptiveTimeouts createTimeouts(OpenAIConfig config) {
+        if (!config.getBooleanProperty("timeout.adaptive.enabled", true)) {
+            return null;
+        }
+        return new AdaptiveTimeouts(
+                config.getIntProperty("timeout.window", 200),
+                config.getIntProperty("timeout.min.samples", 20),
+                config.getDoubleProperty("timeout.headroom", 2.0),
+                config.getIntProperty("timeout.default.first.byte.millis", 30_000),
+                config.getIntProperty("timeout.default.idle.millis", 30_000),
+                config.getDoubleProperty("timeout.default.millis.per.token", 100),
+                config.getIntProperty("timeout.min.millis", 2000),
+                config.getIntProperty("timeout.max.seconds", 600) * 1000L,
+                config.getIntProperty("timeout.check.millis", 100));
+    }
+    
+    /**
+     * Creates the in-process simulation backend.
+     * Rules come from simulation.rules, or the built-in rules if it is not set or cannot be read.
+     * 
+     * @param config The OpenAI API configuration
+     * @return The simulated transport
+     */
+    private static HttpTransport createSimulatedTransport(OpenAIConfig config) {
+        SimulationRules rules = SimulationRules.defaults();
+        String file = config.getProperty("simulation.rules", null);
+        if (file != null) {
+            try {
+                rules = SimulationRules.load(Paths.get(file));
+            } catch (IOException | IllegalArgumentException e) {
+                logger.error("Could not load simulation rules from " + file + ", using the built-in rules", e);
+            }
+        }
+        
+        long seed = config.getIntProperty("simulation.seed", 0);
+        double timeScale = config.getDoubleProperty("simulation.time.scale", 1.0);
+        logger.info("Using the simulated API backend (" + rules.getRules().size() + " rules, time scale " + timeScale + ")");
+        return new SimulatedTransport(rules, seed != 0 ? seed : System.nanoTime(), timeScale);
+    }
+    
+    /**
+     * Creates the request scheduler from the configuration.
+     * Tenant weights are given as "tenant:weight" pairs separated by commas.
+     * 
+     * @param config The OpenAI API configuration
+     * @return The scheduler
+     */
+    private static RequestScheduler createScheduler(OpenAIConfig config) {
+        int maxConcurrent = config.getIntProperty("scheduler.max.concurrent", 16);
+        RequestScheduler scheduler = new RequestScheduler(maxConcurrent,
+                config.getIntProperty("scheduler.aging.millis", 10_000));
+        scheduler.setConcurrencyLimit(RequestPriority.INTERACTIVE,
+                config.getIntProperty("scheduler.limit.interactive", maxConcurrent));
+        scheduler.setConcurrencyLimit(RequestPriority.NORMAL,
+                config.getIntProperty("scheduler.limit.normal", Math.max(1, maxConcurrent * 3 / 4)));
+        scheduler.setConcurrencyLimit(RequestPriority.BULK,
+                config.getIntProperty("scheduler.limit.bulk", Math.max(1, maxConcurrent / 4)));
+        
+        for (String entry : config.getProperty("scheduler.tenant.weights", "").split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            try {
+                scheduler.setTenantWeight(entry.substring(0, colon).trim(),
+                        Double.parseDouble(entry.substring(colon + 1).trim()));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Ignoring invalid tenant weight: " + entry);
+            }
+        }
+        return scheduler;
+    }
+    
+    /**
+     * Refuses the call if a usage budget is used up.
+     * 
+     * @throws com.chatgpt.clone.exception.BudgetExceededException If a budget is used up
+     */
+    private void checkBudget() {
+        if (usageLedger != null) {
+            usageLedger.checkBudget(sessionId);
+        }
+    }
+    
+    /**
+     * Records a call in the usage ledger and logs it.
+     * When the API did not report usage (e.g. cancelled streams),
+     * the tokens are estimated at four characters per token.
+     * 
+     * @param model The model the call was sent to
+     * @param messages The messages that were sent
+     * @param usage The usage reported by the API, or null
+     * @param completion The text that was generated
+     * @param startedNanos The {@link System#nanoTime()} when the call started
+     */
+    private void recordUsage(String model, List<Message> messages, ChatCompletionResponse.Usage usage,
+            CharSequence completion, long startedNanos) {
+        int promptTokens;
+        int completionTokens;
+        if (usage != null) {
+            promptTokens = usage.getPrompt_tokens();
+            completionTokens = usage.getCompletion_tokens();
         } else {
-            return "This is a simulated response since you're using a placeholder API key. For real AI-powered responses, please configure a valid OpenAI API key in your config.properties file or as an environment variable.";
+            int promptChars = 0;
+            for (Message message : messages) {
+                promptChars += message.getContent() != null ? message.getContent().length() : 0;
+            }
+            promptTokens = (promptChars + 3) / 4 + 4 * messages.size();
+            completionTokens = (completion.length() + 3) / 4;
         }
+        
+        int latencyMillis = (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+        
+        // Fixed key=value form, read back from the log files by UsageAnalytics
+        logger.info("Call completed model=" + model + " prompt_tokens=" + promptTokens
+                + " completion_tokens=" + completionTokens + " latency_ms=" + latencyMillis);
+        if (usageLedger == null) {
+            return;
+        }
+        usageLedger.record(new UsageRecord(System.currentTimeMillis(), model, sessionId,
+                promptTokens, completionTokens, latencyMillis));
+    }
+    
+    /**
+     * Creates the usage ledger if it is enabled in the configuration.
+     * 
+     * @param config The OpenAI API configuration
+     * @return The ledger, or null if it is disabled or cannot be opened
+     */
+    private static UsageLedger createUsageLedger(OpenAIConfig config) {
+        if (!config.getBooleanProperty("usage.ledger.enabled", true)) {
+            return null;
+        }
+        
+        try {
+            return new UsageLedger(
+                    Paths.get(config.getProperty("usage.ledger.dir", "usage")),
+                    config.getIntProperty("usage.ledger.flush.seconds", 10) * 1000L,
+                    config.getIntProperty("usage.budget.daily.tokens", 0),
+                    config.getIntProperty("usage.budget.session.tokens", 0));
+        } catch (IOException e) {
+            logger.error("Could not open usage ledger, usage will not be recorded", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Creates the semantic response cache if it is enabled in the configuration.
+     * 
+     * @param config The OpenAI API configuration
+     * @return The cache, or null if caching is disabled
+     */
+    private static SemanticResponseCache createResponseCache(OpenAIConfig config) {
+        if (!config.getBooleanProperty("cache.semantic.enabled", false)) {
+            return null;
+        }
+        
+        double threshold = config.getDoubleProperty("cache.semantic.threshold", 0.6);
+        int maxEntries = config.getIntProperty("cache.semantic.max.entries", 1000);
+        long maxBytes = config.getIntProperty("cache.semantic.max.bytes", 16 * 1024 * 1024);
+        logger.info("Semantic response cache enabled (threshold=" + threshold + ", maxEntries=" + maxEntries + ")");
+        return new SemanticResponseCache(threshold, maxEntries, maxBytes);
     }
 }
\ No newline at end of file
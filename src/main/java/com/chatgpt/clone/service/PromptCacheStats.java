@@ -0,0 +1,46 @@
+package com.chatgpt.clone.service;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the prompt cache use of one model, see {@link PromptCacheTracker}.
+ */
+@Value
+public class PromptCacheStats {
+    /**
+     * The model.
+     */
+    String model;
+    
+    /**
+     * Number of answered requests with reported usage.
+     */
+    long requests;
+    
+    /**
+     * Number of requests of which some prompt tokens were cached.
+     */
+    long cacheHits;
+    
+    /**
+     * Prompt tokens reported for all requests.
+     */
+    long promptTokens;
+    
+    /**
+     * Prompt tokens the provider read from its cache.
+     */
+    long cachedTokens;
+    
+    /**
+     * Share of the prompt tokens that were cached, from 0 to 1.
+     */
+    double cachedTokenRatio;
+    
+    /**
+     * Share of the prompt characters of follow-up requests that repeated the
+     * start of the previous request of the same conversation, from 0 to 1.
+     * This is the upper bound the layout allows for the cached token ratio.
+     */
+    double prefixReuse;
+}
\ No newline at end of file
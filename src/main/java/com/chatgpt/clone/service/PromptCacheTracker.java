@@ -0,0 +1,125 @@
+package com.chatgpt.clone.service;
+
+import com.chatgpt.clone.model.ChatCompletionResponse;
+import com.chatgpt.clone.model.Message;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures how well requests use the provider's prompt cache.
+ * Per model it adds up the prompt tokens and the cached tokens the API reported,
+ * and compares each request with the previous one of the same conversation to
+ * see how much of it was sent unchanged. Low prefix reuse points at the request
+ * layout; high reuse with few cached tokens points at the provider, which skips
+ * short prompts and drops entries after a few idle minutes.
+ */
+public class PromptCacheTracker {
+    /**
+     * Number of conversations whose last request is remembered.
+     */
+    private static final int MAX_CONVERSATIONS = 256;
+    
+    private final Map<String, Counters> models = new ConcurrentHashMap<>();
+    private final Map<String, Fingerprint> lastRequests = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Fingerprint> eldest) {
+            return size() > MAX_CONVERSATIONS;
+        }
+    };
+    
+    /**
+     * Records an answered request.
+     * 
+     * @param model The model
+     * @param conversation The conversation the request belongs to, or null
+     * @param messages The messages that were sent
+     * @param usage The usage reported by the API, or null, in which case nothing is recorded
+     */
+    public void record(String model, String conversation, List<Message> messages, ChatCompletionResponse.Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        Fingerprint current = new Fingerprint(messages);
+        Fingerprint previous;
+        synchronized (lastRequests) {
+            previous = lastRequests.put(model + "\n" + Objects.toString(conversation, ""), current);
+        }
+        
+        Counters counters = models.computeIfAbsent(model, key -> new Counters());
+        synchronized (counters) {
+            counters.requests++;
+            counters.promptTokens += usage.getPrompt_tokens();
+            counters.cachedTokens += usage.getCachedTokens();
+            if (usage.getCachedTokens() > 0) {
+                counters.cacheHits++;
+            }
+            if (previous != null) {
+                counters.followUpChars += current.totalChars;
+                counters.reusedChars += current.commonPrefixChars(previous);
+            }
+        }
+    }
+    
+    /**
+     * Gets a snapshot of the statistics of every model.
+     * 
+     * @return The statistics
+     */
+    public List<PromptCacheStats> getStats() {
+        List<PromptCacheStats> stats = new ArrayList<>();
+        models.forEach((model, counters) -> {
+            synchronized (counters) {
+                stats.add(new PromptCacheStats(model, counters.requests, counters.cacheHits, counters.promptTokens,
+                        counters.cachedTokens,
+                        counters.promptTokens == 0 ? 0 : (double) counters.cachedTokens / counters.promptTokens,
+                        counters.followUpChars == 0 ? 0 : (double) counters.reusedChars / counters.followUpChars));
+            }
+        });
+        return stats;
+    }
+    
+    private static final class Counters {
+        long requests;
+        long cacheHits;
+        long promptTokens;
+        long cachedTokens;
+        long followUpChars;
+        long reusedChars;
+    }
+    
+    /**
+     * The hash and size of every message of a request.
+     */
+    private static final class Fingerprint {
+        final int[] hashes;
+        final int[] chars;
+        final long totalChars;
+        
+        Fingerprint(List<Message> messages) {
+            hashes = new int[messages.size()];
+            chars = new int[messages.size()];
+            long total = 0;
+            for (int i = 0; i < hashes.length; i++) {
+                Message message = messages.get(i);
+                String content = Objects.toString(message.getContent(), "");
+                hashes[i] = Objects.hash(message.getRole(), content);
+                chars[i] = content.length();
+                total += chars[i];
+            }
+            totalChars = total;
+        }
+        
+        long commonPrefixChars(Fingerprint other) {
+            long common = 0;
+            for (int i = 0; i < hashes.length && i < other.hashes.length && hashes[i] == other.hashes[i]; i++) {
+                common += chars[i];
+            }
+            return common;
+        }
+    }
+}
\ No newline at end of file
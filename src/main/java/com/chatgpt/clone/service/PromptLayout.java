@@ -0,0 +1,126 @@
+package com.chatgpt.clone.service;
+
+import com.chatgpt.clone.model.Conversation;
+import com.chatgpt.clone.model.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lays out the messages of a request so that consecutive requests of a
+ * conversation share the longest possible prefix. Providers cache processed
+ * prompts by prefix, so a request that repeats the previous one and only adds
+ * at the end starts answering sooner and its repeated tokens cost less.
+ * <p>
+ * The order is fixed: the system message, the pinned context, the history, and
+ * only then what changes with every request: the context for the new question,
+ * such as retrieved excerpts, and the question itself. When the history has to
+ * be shortened it is cut in steps of several turns instead of one turn per
+ * request, so the prefix changes once per step rather than every time.
+ */
+public class PromptLayout {
+    private final List<Message> pinned;
+    private final int maxHistoryTokens;
+    private final int trimStepTurns;
+    
+    /**
+     * Creates a layout.
+     * 
+     * @param pinned Messages sent after the system message in every request, e.g. reference notes
+     * @param maxHistoryTokens The estimated tokens of history to send at most, or 0 for all of it
+     * @param trimStepTurns The number of turns the history start moves at a time when it is cut
+     */
+    public PromptLayout(List<Message> pinned, int maxHistoryTokens, int trimStepTurns) {
+        this.pinned = List.copyOf(pinned);
+        this.maxHistoryTokens = Math.max(0, maxHistoryTokens);
+        this.trimStepTurns = Math.max(1, trimStepTurns);
+    }
+    
+    /**
+     * Creates a layout that sends the whole conversation without pinned context.
+     * 
+     * @return The layout
+     */
+    public static PromptLayout plain() {
+        return new PromptLayout(List.of(), 0, 1);
+    }
+    
+    /**
+     * Builds the messages of a request.
+     * 
+     * @param conversation The conversation, usually ending with the new question
+     * @param context Messages that only concern the new question, placed right before it; may be empty
+     * @return The messages in request order
+     */
+    public List<Message> arrange(Conversation conversation, List<Message> context) {
+        List<Message> turns = conversation.toList();
+        int first = conversation.getSystemMessage() != null ? 1 : 0;
+        int end = turns.size();
+        Message question = null;
+        if (end > first && "user".equals(turns.get(end - 1).getRole())) {
+            question = turns.get(--end);
+        }
+        
+        List<Message> messages = new ArrayList<>(end - first + pinned.size() + context.size() + 2);
+        if (first == 1) {
+            messages.add(turns.get(0));
+        }
+        messages.addAll(pinned);
+        messages.addAll(turns.subList(historyStart(turns, first, end), end));
+        messages.addAll(context);
+        if (question != null) {
+            messages.add(question);
+        }
+        return messages;
+    }
+    
+    /**
+     * Gets the messages pinned after the system message.
+     * 
+     * @return The pinned messages
+     */
+    public List<Message> getPinned() {
+        return pinned;
+    }
+    
+    /**
+     * Finds the first history message to send. The earliest start that fits the
+     * budget only moves forward as the conversation grows; rounding it up to a
+     * multiple of the step keeps it in place for several requests.
+     */
+    private int historyStart(List<Message> turns, int first, int end) {
+        if (maxHistoryTokens == 0) {
+            return first;
+        }
+        int tokens = 0;
+        int needed = first;
+        for (int i = end - 1; i >= first; i--) {
+            tokens += estimateTokens(turns.get(i));
+            if (tokens > maxHistoryTokens) {
+                needed = i + 1;
+                break;
+            }
+        }
+        if (needed == first) {
+            return first;
+        }
+        int step = trimStepTurns;
+        int start = Math.min(end, first + ((needed - first + step - 1) / step) * step);
+        
+        // Never start with an answer whose question was cut off
+        while (start < end && !"user".equals(turns.get(start).getRole())) {
+            start++;
+        }
+        return start;
+    }
+    
+    /**
+     * Estimates the tokens of a message at four characters per token plus the message framing.
+     * 
+     * @param message The message
+     * @return The estimate
+     */
+    static int estimateTokens(Message message) {
+        return (message.getContent() != null ? (message.getContent().length() + 3) / 4 : 0) + 4;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.chatgpt.clone.service;
+
+/**
+ * Content codings for compressing request bodies.
+ */
+public enum RequestCompression {
+    NONE(null),
+    GZIP("gzip"),
+    DEFLATE("deflate");
+    
+    private final String encoding;
+    
+    RequestCompression(String encoding) {
+        this.encoding = encoding;
+    }
+    
+    /**
+     * Gets the value of the Content-Encoding header.
+     * 
+     * @return The content coding, or null for uncompressed bodies
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+    
+    /**
+     * Parses a setting such as "gzip".
+     * 
+     * @param value The setting, case-insensitive
+     * @return The compression, or NONE for null or unknown values
+     */
+    public static RequestCompression of(String value) {
+        for (RequestCompression compression : values()) {
+            if (compression.encoding != null && compression.encoding.equalsIgnoreCase(value)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+}
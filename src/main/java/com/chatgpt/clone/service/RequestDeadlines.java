@@ -0,0 +1,62 @@
+package com.chatgpt.clone.service;
+
+import lombok.Value;
+
+/**
+ * The deadlines {@link AdaptiveTimeouts} chose for one request.
+ */
+@Value
+public class RequestDeadlines {
+    /**
+     * The model the request is sent to.
+     */
+    String model;
+    
+    /**
+     * Whether the answer is streamed. Only streams have first-byte and idle deadlines.
+     */
+    boolean streaming;
+    
+    /**
+     * The max_tokens of the request, which the total deadline allows for.
+     */
+    int maxTokens;
+    
+    /**
+     * The maximum time until the first chunk arrives, in milliseconds.
+     */
+    long firstByteMillis;
+    
+    /**
+     * The maximum gap between two chunks, in milliseconds.
+     */
+    long idleMillis;
+    
+    /**
+     * The maximum time for the complete answer, in milliseconds.
+     */
+    long totalMillis;
+    
+    /**
+     * Whether the model had enough samples for the deadlines to come from observed
+     * latencies rather than the defaults.
+     */
+    boolean adaptive;
+    
+    /**
+     * Gets the limit for one kind of deadline.
+     * 
+     * @param kind The kind of deadline
+     * @return The limit in milliseconds
+     */
+    public long getMillis(TimeoutKind kind) {
+        switch (kind) {
+            case FIRST_BYTE:
+                return firstByteMillis;
+            case IDLE:
+                return idleMillis;
+            default:
+                return totalMillis;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.chatgpt.clone.service;
+
+/**
+ * Priority classes for API requests. Higher classes are admitted first
+ * when the {@link RequestScheduler} has a free slot.
+ */
+public enum RequestPriority {
+    /**
+     * A user is waiting for the answer, e.g. in the chat window.
+     */
+    INTERACTIVE,
+    
+    /**
+     * Ordinary calls made by programs.
+     */
+    NORMAL,
+    
+    /**
+     * Background batch jobs that can wait.
+     */
+    BULK;
+    
+    /**
+     * Parses a setting such as "bulk".
+     * 
+     * @param value The setting, case-insensitive
+     * @return The priority, or NORMAL for null or unknown values
+     */
+    public static RequestPriority of(String value) {
+        for (RequestPriority priority : values()) {
+            if (priority.name().equalsIgnoreCase(value)) {
+                return priority;
+            }
+        }
+        return NORMAL;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,385 @@
+package com.chatgpt.clone.service;
+
+import com.chatgpt.clone.exception.RequestCancelledException;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides which API request may go out next when more are waiting than
+ * may run at once.
+ * <p>
+ * Requests belong to a {@link RequestPriority} class, and a free slot goes
+ * to the highest class that is below its own concurrency limit, so
+ * interactive requests do not queue behind batch work. Within a class,
+ * tenants (e.g. sessions or jobs) share the slots by weighted fair queuing:
+ * every request gets a virtual finish time of its estimated cost divided by
+ * the tenant's weight, added to the tenant's previous finish time, and the
+ * earliest finish time goes first. A tenant with thousands of queued
+ * requests therefore cannot crowd out one with a single request. To keep
+ * lower classes from starving, a class is promoted one level for every
+ * aging interval its oldest request has waited.
+ * <p>
+ * Callers block in {@link #acquire} until admitted and release the slot by
+ * closing the returned {@link Permit}.
+ */
+public class RequestScheduler {
+    private static final Comparator<Waiter> FINISH_ORDER = Comparator
+            .comparingDouble((Waiter waiter) -> waiter.finishTag)
+            .thenComparingLong(waiter -> waiter.sequence);
+    
+    private static final Comparator<Waiter> AGE_ORDER = Comparator.comparingLong(waiter -> waiter.sequence);
+    
+    /**
+     * Queue-wait histogram buckets; bucket i counts waits below 2^i ms.
+     */
+    private static final int WAIT_BUCKETS = 32;
+    
+    private final int maxConcurrent;
+    private final long agingNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ClassQueue[] classes;
+    private final Map<String, Double> tenantWeights = new ConcurrentHashMap<>();
+    private int running;
+    private long nextSequence;
+    
+    /**
+     * Creates a scheduler. Every class may initially use all slots.
+     * 
+     * @param maxConcurrent The maximum number of requests running at once
+     * @param agingMillis The wait after which a class is promoted one level, or 0 to disable aging
+     */
+    public RequestScheduler(int maxConcurrent, long agingMillis) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, agingMillis));
+        
+        RequestPriority[] priorities = RequestPriority.values();
+        this.classes = new ClassQueue[priorities.length];
+        for (RequestPriority priority : priorities) {
+            classes[priority.ordinal()] = new ClassQueue(priority, maxConcurrent);
+        }
+    }
+    
+    /**
+     * Limits how many requests of one class may run at once.
+     * 
+     * @param priority The priority class
+     * @param limit The limit, at most the scheduler-wide maximum
+     */
+    public void setConcurrencyLimit(RequestPriority priority, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        lock.lock();
+        try {
+            classes[priority.ordinal()].limit = Math.min(limit, maxConcurrent);
+            dispatch(System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Sets the share of a tenant relative to others in the same class.
+     * Tenants without a weight have weight 1.
+     * 
+     * @param tenant The tenant
+     * @param weight The weight, greater than 0
+     */
+    public void setTenantWeight(String tenant, double weight) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+        tenantWeights.put(tenant, weight);
+    }
+    
+    /**
+     * Waits until the request may run.
+     * 
+     * @param priority The priority class of the request
+     * @param tenant The tenant the request is accounted to, or null for a shared default
+     * @param cost The estimated cost of the request, e.g. its prompt tokens
+     * @param cancellation The token that abandons the wait
+     * @return The permit to close once the request is done
+     * @throws RequestCancelledException If the token is cancelled or the thread interrupted while waiting
+     */
+    public Permit acquire(RequestPriority priority, String tenant, long cost, CancellationToken cancellation) {
+        cancellation.throwIfCancelled();
+        String account = tenant != null ? tenant : "";
+        double weight = tenantWeights.getOrDefault(account, 1.0);
+        Waiter waiter;
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            waiter = classes[priority.ordinal()].enqueue(account, Math.max(1, cost) / weight, nextSequence++, now);
+            dispatch(now);
+            if (waiter.admitted) {
+                return new Permit(waiter);
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        cancellation.onCancel(() -> abandon(waiter));
+        lock.lock();
+        try {
+            while (!waiter.admitted && !waiter.abandoned) {
+                try {
+                    waiter.signal.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    abandon(waiter);
+                    if (!waiter.admitted) {
+                        throw new RequestCancelledException(e);
+                    }
+                }
+            }
+            if (!waiter.admitted) {
+                throw new RequestCancelledException();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Permit(waiter);
+    }
+    
+    /**
+     * Gets a snapshot of the metrics of one priority class.
+     * 
+     * @param priority The priority class
+     * @return The current statistics
+     */
+    public SchedulerStats getStats(RequestPriority priority) {
+        lock.lock();
+        try {
+            ClassQueue queue = classes[priority.ordinal()];
+            return new SchedulerStats(
+                    priority,
+                    queue.running,
+                    queue.limit,
+                    queue.byFinish.size(),
+                    queue.admitted,
+                    queue.aged,
+                    queue.abandoned,
+                    queue.admitted == 0 ? 0 : queue.waitNanos / 1e6 / queue.admitted,
+                    queue.waitPercentileMillis(0.95),
+                    TimeUnit.NANOSECONDS.toMillis(queue.maxWaitNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Hands free slots to waiting requests. Must be called with the lock held.
+     * 
+     * @param now The current {@link System#nanoTime()}
+     */
+    private void dispatch(long now) {
+        while (running < maxConcurrent) {
+            ClassQueue best = null;
+            int bestLevel = Integer.MAX_VALUE;
+            for (ClassQueue queue : classes) {
+                if (queue.byFinish.isEmpty() || queue.running >= queue.limit) {
+                    continue;
+                }
+                int level = queue.level(now);
+                // On a tie the class that has waited longest goes first, so a
+                // class aged up to the top level is not passed over forever
+                if (level < bestLevel || level == bestLevel
+                        && queue.byAge.first().sequence < best.byAge.first().sequence) {
+                    best = queue;
+                    bestLevel = level;
+                }
+            }
+            if (best == null) {
+                return;
+            }
+            
+            Waiter waiter = best.dequeue();
+            if (bestLevel < best.priority.ordinal()) {
+                best.aged++;
+            }
+            waiter.waitNanos = now - waiter.enqueuedNanos;
+            best.recordWait(waiter.waitNanos);
+            waiter.admitted = true;
+            running++;
+            best.running++;
+            waiter.signal.signal();
+        }
+    }
+    
+    private void release(Waiter waiter) {
+        lock.lock();
+        try {
+            running--;
+            waiter.queue.running--;
+            dispatch(System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void abandon(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiter.admitted || waiter.abandoned) {
+                return;
+            }
+            waiter.queue.remove(waiter);
+            waiter.queue.abandoned++;
+            waiter.abandoned = true;
+            waiter.signal.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * A running request's slot. Closing it lets the next request in.
+     */
+    public final class Permit implements AutoCloseable {
+        private final Waiter waiter;
+        private boolean closed;
+        
+        private Permit(Waiter waiter) {
+            this.waiter = waiter;
+        }
+        
+        /**
+         * Gets how long the request waited before it was admitted.
+         * 
+         * @return The queue wait in milliseconds
+         */
+        public long getQueueWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(waiter.waitNanos);
+        }
+        
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            release(waiter);
+        }
+    }
+    
+    /**
+     * The waiting requests and counters of one priority class. Guarded by the scheduler lock.
+     */
+    private final class ClassQueue {
+        final RequestPriority priority;
+        final TreeSet<Waiter> byFinish = new TreeSet<>(FINISH_ORDER);
+        final TreeSet<Waiter> byAge = new TreeSet<>(AGE_ORDER);
+        final Map<String, Double> lastFinish = new HashMap<>();
+        final long[] waitHistogram = new long[WAIT_BUCKETS];
+        int limit;
+        int running;
+        double virtualTime;
+        long admitted;
+        long aged;
+        long abandoned;
+        long waitNanos;
+        long maxWaitNanos;
+        
+        ClassQueue(RequestPriority priority, int limit) {
+            this.priority = priority;
+            this.limit = limit;
+        }
+        
+        Waiter enqueue(String tenant, double cost, long sequence, long now) {
+            double start = Math.max(virtualTime, lastFinish.getOrDefault(tenant, 0.0));
+            Waiter waiter = new Waiter(this, start, start + cost, sequence, now, lock.newCondition());
+            lastFinish.put(tenant, waiter.finishTag);
+            byFinish.add(waiter);
+            byAge.add(waiter);
+            return waiter;
+        }
+        
+        Waiter dequeue() {
+            Waiter waiter = byFinish.pollFirst();
+            byAge.remove(waiter);
+            virtualTime = Math.max(virtualTime, waiter.startTag);
+            forgetTenantsIfIdle();
+            return waiter;
+        }
+        
+        void remove(Waiter waiter) {
+            byFinish.remove(waiter);
+            byAge.remove(waiter);
+            forgetTenantsIfIdle();
+        }
+        
+        /**
+         * Gets the level the class competes at: its own, lowered by aging.
+         */
+        int level(long now) {
+            int level = priority.ordinal();
+            if (agingNanos == 0 || level == 0) {
+                return level;
+            }
+            long promotions = (now - byAge.first().enqueuedNanos) / agingNanos;
+            return (int) Math.max(0, level - promotions);
+        }
+        
+        void recordWait(long nanos) {
+            admitted++;
+            waitNanos += nanos;
+            maxWaitNanos = Math.max(maxWaitNanos, nanos);
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            waitHistogram[Math.min(WAIT_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis))]++;
+        }
+        
+        long waitPercentileMillis(double fraction) {
+            long target = (long) Math.ceil(admitted * fraction);
+            long seen = 0;
+            for (int i = 0; i < WAIT_BUCKETS; i++) {
+                seen += waitHistogram[i];
+                if (seen >= target && seen > 0) {
+                    return i == 0 ? 0 : Math.min(1L << i, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+                }
+            }
+            return 0;
+        }
+        
+        private void forgetTenantsIfIdle() {
+            // With nothing queued every tenant starts from the current virtual time again
+            if (byFinish.isEmpty()) {
+                lastFinish.clear();
+            }
+        }
+    }
+    
+    private static final class Waiter {
+        final ClassQueue queue;
+        final double startTag;
+        final double finishTag;
+        final long sequence;
+        final long enqueuedNanos;
+        final Condition signal;
+        long waitNanos;
+        boolean admitted;
+        boolean abandoned;
+        
+        Waiter(ClassQueue queue, double startTag, double finishTag, long sequence, long enqueuedNanos,
+                Condition signal) {
+            this.queue = queue;
+            this.startTag = startTag;
+            this.finishTag = finishTag;
+            this.sequence = sequence;
+            this.enqueuedNanos = enqueuedNanos;
+            this.signal = signal;
+        }
+    }
+}
\ No newline at end of file
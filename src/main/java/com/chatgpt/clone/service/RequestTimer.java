@@ -0,0 +1,124 @@
+package com.chatgpt.clone.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the deadlines of one running request. The request reports each
+ * chunk it receives; the watchdog of {@link AdaptiveTimeouts} checks the
+ * timer periodically and aborts the call once a deadline has passed.
+ * Closing the timer stops the watching.
+ */
+public final class RequestTimer implements AutoCloseable {
+    private final AdaptiveTimeouts owner;
+    private final RequestDeadlines deadlines;
+    private final Runnable onExpired;
+    private final long startedNanos = System.nanoTime();
+    private volatile long firstChunkNanos;
+    private volatile long lastChunkNanos;
+    private volatile long maxGapNanos;
+    private volatile TimeoutKind expired;
+    
+    RequestTimer(AdaptiveTimeouts owner, RequestDeadlines deadlines, Runnable onExpired) {
+        this.owner = owner;
+        this.deadlines = deadlines;
+        this.onExpired = onExpired;
+    }
+    
+    /**
+     * Records that a chunk of the answer arrived. Called by the one thread reading the response.
+     */
+    public void onChunk() {
+        long now = System.nanoTime();
+        if (firstChunkNanos == 0) {
+            firstChunkNanos = now;
+        } else {
+            maxGapNanos = Math.max(maxGapNanos, now - lastChunkNanos);
+        }
+        lastChunkNanos = now;
+    }
+    
+    /**
+     * Gets the deadlines this timer enforces.
+     * 
+     * @return The deadlines
+     */
+    public RequestDeadlines getDeadlines() {
+        return deadlines;
+    }
+    
+    /**
+     * Gets the deadline that was missed.
+     * 
+     * @return The kind of deadline, or null if the request is within its deadlines
+     */
+    public TimeoutKind getExpired() {
+        return expired;
+    }
+    
+    /**
+     * Gets the time from the start of the request to its first chunk.
+     * 
+     * @return The time in milliseconds, or -1 if no chunk has arrived
+     */
+    public long getFirstByteMillis() {
+        long first = firstChunkNanos;
+        return first == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(first - startedNanos);
+    }
+    
+    /**
+     * Gets the longest gap between two chunks so far.
+     * 
+     * @return The gap in milliseconds
+     */
+    public long getMaxGapMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxGapNanos);
+    }
+    
+    /**
+     * Gets the time since the request started.
+     * 
+     * @return The time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+    
+    /**
+     * Checks the deadlines and aborts the request if one has passed.
+     * 
+     * @param now The current {@link System#nanoTime()}
+     * @return The deadline that was missed just now, or null
+     */
+    TimeoutKind check(long now) {
+        if (expired != null) {
+            return null;
+        }
+        TimeoutKind missed = null;
+        if (now - startedNanos > TimeUnit.MILLISECONDS.toNanos(deadlines.getTotalMillis())) {
+            missed = TimeoutKind.TOTAL;
+        }
+        if (deadlines.isStreaming()) {
+            long last = lastChunkNanos;
+            if (last == 0 && now - startedNanos > TimeUnit.MILLISECONDS.toNanos(deadlines.getFirstByteMillis())) {
+                missed = TimeoutKind.FIRST_BYTE;
+            } else if (last != 0 && now - last > TimeUnit.MILLISECONDS.toNanos(deadlines.getIdleMillis())) {
+                missed = TimeoutKind.IDLE;
+            }
+        }
+        if (missed != null) {
+            // Counted before the abort, so the caller sees the timeout in the metrics
+            expired = missed;
+            owner.recordTimeout(this, missed);
+            onExpired.run();
+        }
+        return missed;
+    }
+    
+    /**
+     * Stops watching the request.
+     */
+    @Override
+    public void close() {
+        owner.release(this);
+    }
+}
\ No newline at end of file
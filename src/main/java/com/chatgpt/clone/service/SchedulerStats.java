@@ -0,0 +1,60 @@
+package com.chatgpt.clone.service;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the metrics of one priority class of a {@link RequestScheduler}.
+ */
+@Value
+public class SchedulerStats {
+    /**
+     * The priority class.
+     */
+    RequestPriority priority;
+    
+    /**
+     * Number of requests of this class currently running.
+     */
+    int running;
+    
+    /**
+     * Maximum number of requests of this class that may run at once.
+     */
+    int concurrencyLimit;
+    
+    /**
+     * Number of requests of this class waiting for a slot.
+     */
+    int waiting;
+    
+    /**
+     * Number of requests of this class that were admitted.
+     */
+    long admitted;
+    
+    /**
+     * Number of requests admitted while aging had promoted their class.
+     */
+    long aged;
+    
+    /**
+     * Number of requests cancelled while they were waiting.
+     */
+    long cancelled;
+    
+    /**
+     * Average time a request waited before it was admitted, in milliseconds.
+     */
+    double averageQueueWaitMillis;
+    
+    /**
+     * 95th percentile of the queue wait, in milliseconds, rounded up to a power of two
+     * but never above the maximum.
+     */
+    long p95QueueWaitMillis;
+    
+    /**
+     * Longest time a request waited before it was admitted, in milliseconds.
+     */
+    long maxQueueWaitMillis;
+}
\ No newline at end of file
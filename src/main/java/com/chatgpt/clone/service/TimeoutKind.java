@@ -0,0 +1,37 @@
+package com.chatgpt.clone.service;
+
+/**
+ * The deadlines a request can miss.
+ */
+public enum TimeoutKind {
+    /**
+     * No data arrived after the request was sent. For streams this is the
+     * time to the first chunk, so it includes the prompt processing.
+     */
+    FIRST_BYTE("first byte"),
+    
+    /**
+     * A stream stalled: the gap since the previous chunk was too long.
+     */
+    IDLE("next chunk"),
+    
+    /**
+     * The whole answer took longer than its size allows.
+     */
+    TOTAL("complete answer");
+    
+    private final String description;
+    
+    TimeoutKind(String description) {
+        this.description = description;
+    }
+    
+    /**
+     * Gets what the request was waiting for, for error messages.
+     * 
+     * @return The description, e.g. "first byte"
+     */
+    public String getDescription() {
+        return description;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.chatgpt.clone.service;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the latencies and timeout decisions of one model
+ * in {@link AdaptiveTimeouts}.
+ */
+@Value
+public class TimeoutStats {
+    /**
+     * The model.
+     */
+    String model;
+    
+    /**
+     * Number of requests in the rolling window of the time to the first chunk.
+     */
+    int samples;
+    
+    /**
+     * Number of requests deadlines were chosen for.
+     */
+    long decisions;
+    
+    /**
+     * Number of decisions that used observed latencies rather than the defaults.
+     */
+    long adaptiveDecisions;
+    
+    /**
+     * Number of requests that missed their first-byte deadline.
+     */
+    long firstByteTimeouts;
+    
+    /**
+     * Number of streams that stalled longer than their idle deadline.
+     */
+    long idleTimeouts;
+    
+    /**
+     * Number of requests that missed their total deadline.
+     */
+    long totalTimeouts;
+    
+    /**
+     * Median time to the first chunk in the window, in milliseconds.
+     */
+    long p50FirstByteMillis;
+    
+    /**
+     * 99th percentile of the time to the first chunk in the window, in milliseconds.
+     */
+    long p99FirstByteMillis;
+    
+    /**
+     * 99th percentile of the longest gap between chunks per stream, in milliseconds.
+     */
+    long p99IdleMillis;
+    
+    /**
+     * 95th percentile of the generation time per completion token, in milliseconds.
+     */
+    double p95MillisPerToken;
+    
+    /**
+     * The deadlines of the most recent decision, or null if there was none.
+     */
+    RequestDeadlines lastDeadlines;
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.chatgpt.clone.simulation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Finds which of many keywords occur in a text in a single pass (Aho-Corasick).
+ * Every keyword carries a value, and a match reports the lowest value among
+ * all keywords found, so values work as priorities. Matching ignores case.
+ * A keyword starting with ^ only matches at the start of the text and one
+ * ending with $ only at its end.
+ */
+public final class KeywordMatcher {
+    /**
+     * Fed before and after the text so anchored keywords can match.
+     */
+    private static final char BOUNDARY = '\u0000';
+    
+    /**
+     * Outgoing characters of each state, sorted for binary search.
+     */
+    private final char[][] edges;
+    
+    /**
+     * Target state of each outgoing character.
+     */
+    private final int[][] targets;
+    
+    /**
+     * State to continue from when a character has no edge.
+     */
+    private final int[] failure;
+    
+    /**
+     * Lowest value of any keyword ending in the state or its failure chain, or -1.
+     */
+    private final int[] output;
+    
+    private KeywordMatcher(List<TreeMap<Character, Integer>> trie, List<Integer> values) {
+        int states = trie.size();
+        edges = new char[states][];
+        targets = new int[states][];
+        for (int state = 0; state < states; state++) {
+            TreeMap<Character, Integer> children = trie.get(state);
+            edges[state] = new char[children.size()];
+            targets[state] = new int[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> child : children.entrySet()) {
+                edges[state][i] = child.getKey();
+                targets[state][i] = child.getValue();
+                i++;
+            }
+        }
+        
+        failure = new int[states];
+        output = new int[states];
+        for (int state = 0; state < states; state++) {
+            output[state] = values.get(state);
+        }
+        
+        // Breadth-first, so the failure target of every state is finished before its children
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < edges[state].length; i++) {
+                char c = edges[state][i];
+                int child = targets[state][i];
+                int fallback = failure[state];
+                while (fallback != 0 && next(fallback, c) < 0) {
+                    fallback = failure[fallback];
+                }
+                int target = next(fallback, c);
+                failure[child] = target >= 0 && target != child ? target : 0;
+                output[child] = lowest(output[child], output[failure[child]]);
+                queue.add(child);
+            }
+        }
+    }
+    
+    /**
+     * Creates a builder.
+     * 
+     * @return The builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Finds the lowest value of all keywords that occur in the text.
+     * 
+     * @param text The text to search
+     * @return The lowest matching value, or -1 if no keyword occurs
+     */
+    public int match(CharSequence text) {
+        int best = -1;
+        int state = step(0, BOUNDARY);
+        best = lowest(best, output[state]);
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, Character.toLowerCase(text.charAt(i)));
+            best = lowest(best, output[state]);
+            if (best == 0) {
+                // Nothing can beat the first keyword
+                return 0;
+            }
+        }
+        state = step(state, BOUNDARY);
+        return lowest(best, output[state]);
+    }
+    
+    private int step(int state, char c) {
+        while (true) {
+            int target = next(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+    
+    private int next(int state, char c) {
+        int index = Arrays.binarySearch(edges[state], c);
+        return index >= 0 ? targets[state][index] : -1;
+    }
+    
+    private static int lowest(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        return b < 0 ? a : Math.min(a, b);
+    }
+    
+    /**
+     * Collects keywords and their values.
+     */
+    public static final class Builder {
+        private final List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        private final List<Integer> values = new ArrayList<>();
+        
+        private Builder() {
+            addState();
+        }
+        
+        /**
+         * Adds a keyword.
+         * 
+         * @param keyword The keyword, optionally anchored with ^ or $
+         * @param value The value reported when the keyword matches, 0 or greater
+         * @return This builder
+         */
+        public Builder add(String keyword, int value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("value must not be negative");
+            }
+            String text = keyword;
+            boolean atStart = text.startsWith("^");
+            boolean atEnd = text.length() > (atStart ? 1 : 0) && text.endsWith("$");
+            text = text.substring(atStart ? 1 : 0, text.length() - (atEnd ? 1 : 0));
+            if (text.isEmpty() && !atStart && !atEnd) {
+                throw new IllegalArgumentException("keyword must not be empty");
+            }
+            
+            int state = 0;
+            if (atStart) {
+                state = child(state, BOUNDARY);
+            }
+            for (int i = 0; i < text.length(); i++) {
+                state = child(state, Character.toLowerCase(text.charAt(i)));
+            }
+            if (atEnd) {
+                state = child(state, BOUNDARY);
+            }
+            values.set(state, lowest(values.get(state), value));
+            return this;
+        }
+        
+        /**
+         * Builds the matcher.
+         * 
+         * @return The matcher
+         */
+        public KeywordMatcher build() {
+            return new KeywordMatcher(trie, values);
+        }
+        
+        private int child(int state, char c) {
+            Integer existing = trie.get(state).get(c);
+            if (existing != null) {
+                return existing;
+            }
+            int created = addState();
+            trie.get(state).put(c, created);
+            return created;
+        }
+        
+        private int addState() {
+            trie.add(new TreeMap<>());
+            values.add(-1);
+            return trie.size() - 1;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.chatgpt.clone.simulation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Random;
+
+/**
+ * A distribution of delays, as written in a simulation rules file.
+ * The type selects which fields are used:
+ * <ul>
+ *   <li>"fixed": always {@code millis}</li>
+ *   <li>"uniform": between {@code min} and {@code max}</li>
+ *   <li>"normal": {@code mean} and {@code stddev}, cut off at 0</li>
+ *   <li>"lognormal": {@code median} and {@code p99}, the usual shape of API latency</li>
+ * </ul>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencyDistribution {
+    /**
+     * z-score of the 99th percentile of a standard normal distribution.
+     */
+    private static final double Z_99 = 2.326;
+    
+    /**
+     * The distribution type: fixed, uniform, normal or lognormal.
+     */
+    private String type = "fixed";
+    
+    /**
+     * The delay of a fixed distribution, in milliseconds.
+     */
+    private double millis;
+    
+    /**
+     * The lower bound of a uniform distribution, in milliseconds.
+     */
+    private double min;
+    
+    /**
+     * The upper bound of a uniform distribution, in milliseconds.
+     */
+    private double max;
+    
+    /**
+     * The mean of a normal distribution, in milliseconds.
+     */
+    private double mean;
+    
+    /**
+     * The standard deviation of a normal distribution, in milliseconds.
+     */
+    private double stddev;
+    
+    /**
+     * The median of a lognormal distribution, in milliseconds.
+     */
+    private double median;
+    
+    /**
+     * The 99th percentile of a lognormal distribution, in milliseconds.
+     */
+    private double p99;
+    
+    /**
+     * Creates a distribution that always returns the same delay.
+     * 
+     * @param millis The delay in milliseconds
+     * @return The distribution
+     */
+    public static LatencyDistribution fixed(double millis) {
+        LatencyDistribution distribution = new LatencyDistribution();
+        distribution.setMillis(millis);
+        return distribution;
+    }
+    
+    /**
+     * Draws a delay.
+     * 
+     * @param random The random source
+     * @return The delay in milliseconds, never negative
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    public double sampleMillis(Random random) {
+        switch (type.toLowerCase()) {
+            case "fixed":
+                return Math.max(0, millis);
+            case "uniform":
+                return Math.max(0, min + random.nextDouble() * (max - min));
+            case "normal":
+                return Math.max(0, mean + random.nextGaussian() * stddev);
+            case "lognormal":
+                double sigma = p99 > median && median > 0 ? Math.log(p99 / median) / Z_99 : 0;
+                return median * Math.exp(random.nextGaussian() * sigma);
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + type);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,351 @@
+package com.chatgpt.clone.simulation;
+
+import com.chatgpt.clone.model.ChatCompletionRequest;
+import com.chatgpt.clone.model.ChatCompletionResponse;
+import com.chatgpt.clone.model.Message;
+import com.chatgpt.clone.transport.HttpTransport;
+import com.chatgpt.clone.transport.TransportCall;
+import com.chatgpt.clone.transport.TransportRequest;
+import com.chatgpt.clone.transport.TransportResponse;
+import com.chatgpt.clone.util.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers chat completion requests in-process according to {@link SimulationRules},
+ * without a network. It behaves like the API as far as the client can tell:
+ * the first byte arrives after a latency drawn from the rule, streamed answers
+ * come as server-sent events at the rule's token rate, usage is reported, and
+ * rules can fail with HTTP error codes. Like the API's prompt cache, prompt
+ * tokens that repeat the start of a recent request are reported as cached.
+ * Delays can be scaled, e.g. to 0 for fast tests, and a fixed seed makes
+ * runs repeatable.
+ */
+public class SimulatedTransport implements HttpTransport {
+    private static final Logger logger = new Logger(SimulatedTransport.class);
+    
+    /**
+     * Prompts shorter than this are not cached, as with the API.
+     */
+    private static final int CACHE_MIN_TOKENS = 1024;
+    
+    /**
+     * Cached prefixes are counted in blocks of this many tokens.
+     */
+    private static final int CACHE_BLOCK_TOKENS = 128;
+    
+    /**
+     * Number of message prefixes the simulated cache remembers.
+     */
+    private static final int CACHE_ENTRIES = 4096;
+    
+    private final SimulationRules rules;
+    private final Random random;
+    private final double timeScale;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, Boolean> promptCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > CACHE_ENTRIES;
+        }
+    };
+    
+    /**
+     * Creates a simulated transport.
+     * 
+     * @param rules The rules that decide how each request is answered
+     * @param seed The seed of the random source for latencies, answers and errors
+     * @param timeScale Factor applied to every delay: 1 for real time, 0 for no delays
+     */
+    public SimulatedTransport(SimulationRules rules, long seed, double timeScale) {
+        this.rules = rules;
+        this.random = new Random(seed);
+        this.timeScale = Math.max(0, timeScale);
+    }
+    
+    @Override
+    public TransportCall newCall(TransportRequest request) {
+        return new SimulatedCall(request);
+    }
+    
+    @Override
+    public String getName() {
+        return "simulated";
+    }
+    
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+    
+    /**
+     * Splits an answer into the pieces sent as separate stream chunks, one word each.
+     * 
+     * @param text The answer
+     * @return The pieces
+     */
+    static List<String> pieces(String text) {
+        List<String> pieces = new ArrayList<>();
+        for (String piece : text.split("(?<= )")) {
+            if (!piece.isEmpty()) {
+                pieces.add(piece);
+            }
+        }
+        return pieces;
+    }
+    
+    /**
+     * Estimates the tokens of a text at four characters per token.
+     * 
+     * @param text The text
+     * @return The estimate, at least 1
+     */
+    static int estimateTokens(CharSequence text) {
+        return Math.max(1, (text.length() + 3) / 4);
+    }
+    
+    private final class SimulatedCall implements TransportCall {
+        private final TransportRequest request;
+        private final CountDownLatch cancelled = new CountDownLatch(1);
+        
+        SimulatedCall(TransportRequest request) {
+            this.request = request;
+        }
+        
+        @Override
+        public TransportResponse execute() throws IOException {
+            ChatCompletionRequest completionRequest = objectMapper.readValue(request.decodedBody(), ChatCompletionRequest.class);
+            List<Message> messages = completionRequest.getMessages() != null ? completionRequest.getMessages() : List.of();
+            SimulationRule rule = rules.match(lastUserMessage(messages));
+            logger.debug("Simulating rule " + rule.getName());
+            
+            // Draw everything up front, so a seeded run does not depend on thread timing
+            double firstByteMillis;
+            boolean fails;
+            String answer;
+            synchronized (random) {
+                firstByteMillis = rule.getFirstByte().sampleMillis(random);
+                fails = rule.getStatus() != 0 && random.nextDouble() < rule.getErrorProbability();
+                answer = rule.getResponses().isEmpty() ? ""
+                        : rule.getResponses().get(random.nextInt(rule.getResponses().size()));
+            }
+            
+            pause(firstByteMillis);
+            if (fails) {
+                return respond(rule.getStatus(), errorBody(rule));
+            }
+            
+            ChatCompletionResponse.Usage usage = usage(rule, completionRequest.getModel(), messages, answer);
+            String id = "chatcmpl-sim-" + ids.incrementAndGet();
+            long created = System.currentTimeMillis() / 1000;
+            if (!completionRequest.isStream()) {
+                pause(generationMillis(rule, usage.getCompletion_tokens()));
+                ObjectNode response = envelope(id, "chat.completion", created, completionRequest.getModel());
+                ObjectNode choice = response.putArray("choices").addObject();
+                choice.put("index", 0);
+                choice.putObject("message").put("role", "assistant").put("content", answer);
+                choice.put("finish_reason", "stop");
+                response.set("usage", objectMapper.valueToTree(usage));
+                return respond(200, objectMapper.writeValueAsBytes(response));
+            }
+            
+            boolean includeUsage = completionRequest.getStream_options() != null
+                    && completionRequest.getStream_options().isInclude_usage();
+            EventStream events = new EventStream(rule, id, created, completionRequest.getModel(), pieces(answer),
+                    includeUsage ? usage : null);
+            return new TransportResponse(200, events, cancelled::countDown);
+        }
+        
+        @Override
+        public void cancel() {
+            cancelled.countDown();
+        }
+        
+        /**
+         * Waits for a simulated delay, or until the call is cancelled.
+         * 
+         * @param millis The delay before time scaling
+         * @throws IOException if the call was cancelled
+         */
+        private void pause(double millis) throws IOException {
+            long nanos = (long) (millis * timeScale * 1_000_000);
+            try {
+                if (cancelled.getCount() == 0 || (nanos > 0 && cancelled.await(nanos, TimeUnit.NANOSECONDS))) {
+                    throw new IOException("Canceled");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+        }
+        
+        private ObjectNode envelope(String id, String object, long created, String model) {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("id", id);
+            node.put("object", object);
+            node.put("created", created);
+            node.put("model", model);
+            return node;
+        }
+        
+        private TransportResponse respond(int status, byte[] body) {
+            return new TransportResponse(status, new ByteArrayInputStream(body), cancelled::countDown);
+        }
+        
+        private byte[] errorBody(SimulationRule rule) throws IOException {
+            ObjectNode root = objectMapper.createObjectNode();
+            ObjectNode error = root.putObject("error");
+            error.put("message", rule.getErrorMessage());
+            error.put("type", rule.getErrorType());
+            error.put("code", rule.getStatus());
+            return objectMapper.writeValueAsBytes(root);
+        }
+        
+        /**
+         * Serves a streamed answer as server-sent events, producing each
+         * event only when its simulated generation time has come.
+         */
+        private final class EventStream extends InputStream {
+            private final SimulationRule rule;
+            private final String id;
+            private final long created;
+            private final String model;
+            private final List<String> pieces;
+            private final ChatCompletionResponse.Usage usage;
+            private final long startedNanos = System.nanoTime();
+            private double dueMillis;
+            private int next;
+            private boolean usageSent;
+            private boolean done;
+            private byte[] buffer = new byte[0];
+            private int position;
+            
+            EventStream(SimulationRule rule, String id, long created, String model, List<String> pieces,
+                    ChatCompletionResponse.Usage usage) {
+                this.rule = rule;
+                this.id = id;
+                this.created = created;
+                this.model = model;
+                this.pieces = pieces;
+                this.usage = usage;
+            }
+            
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (position == buffer.length && !nextEvent()) {
+                    return -1;
+                }
+                int n = Math.min(len, buffer.length - position);
+                System.arraycopy(buffer, position, b, off, n);
+                position += n;
+                return n;
+            }
+            
+            @Override
+            public void close() {
+                cancelled.countDown();
+            }
+            
+            private boolean nextEvent() throws IOException {
+                String data;
+                if (next < pieces.size()) {
+                    String piece = pieces.get(next++);
+                    // Due times are absolute, so the rate does not drift with slow readers
+                    dueMillis += generationMillis(rule, estimateTokens(piece));
+                    double waitMillis = dueMillis - (System.nanoTime() - startedNanos) / (1e6 * Math.max(timeScale, 1e-9));
+                    pause(Math.max(0, waitMillis));
+                    
+                    ObjectNode chunk = envelope(id, "chat.completion.chunk", created, model);
+                    ObjectNode choice = chunk.putArray("choices").addObject();
+                    choice.put("index", 0);
+                    ObjectNode delta = choice.putObject("delta");
+                    if (next == 1) {
+                        delta.put("role", "assistant");
+                    }
+                    delta.put("content", piece);
+                    choice.put("finish_reason", next == pieces.size() ? "stop" : null);
+                    data = objectMapper.writeValueAsString(chunk);
+                } else if (usage != null && !usageSent) {
+                    usageSent = true;
+                    ObjectNode chunk = envelope(id, "chat.completion.chunk", created, model);
+                    chunk.putArray("choices");
+                    chunk.set("usage", objectMapper.valueToTree(usage));
+                    data = objectMapper.writeValueAsString(chunk);
+                } else if (!done) {
+                    done = true;
+                    data = "[DONE]";
+                } else {
+                    return false;
+                }
+                
+                if (cancelled.getCount() == 0) {
+                    throw new IOException("Canceled");
+                }
+                buffer = ("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+                position = 0;
+                return true;
+            }
+        }
+    }
+    
+    private static String lastUserMessage(List<Message> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            Message message = messages.get(i);
+            if ("user".equals(message.getRole()) && message.getContent() != null) {
+                return message.getContent();
+            }
+        }
+        return "";
+    }
+    
+    private ChatCompletionResponse.Usage usage(SimulationRule rule, String model, List<Message> messages,
+            String answer) {
+        int completionTokens = rule.getCompletionTokens() > 0 ? rule.getCompletionTokens() : estimateTokens(answer);
+        if (rule.getPromptTokens() > 0) {
+            int promptTokens = rule.getPromptTokens();
+            return new ChatCompletionResponse.Usage(promptTokens, completionTokens, promptTokens + completionTokens);
+        }
+        
+        // The cache is keyed by every message prefix; the longest one seen before is cached
+        int promptTokens = 0;
+        int cachedTokens = 0;
+        long prefix = Objects.hashCode(model);
+        synchronized (promptCache) {
+            for (Message message : messages) {
+                promptTokens += (message.getContent() != null ? estimateTokens(message.getContent()) : 0) + 4;
+                prefix = prefix * 1_000_003 + Objects.hash(message.getRole(), message.getContent());
+                if (promptCache.put(prefix, Boolean.TRUE) != null) {
+                    cachedTokens = promptTokens;
+                }
+            }
+        }
+        cachedTokens = cachedTokens < CACHE_MIN_TOKENS ? 0 : cachedTokens / CACHE_BLOCK_TOKENS * CACHE_BLOCK_TOKENS;
+        return new ChatCompletionResponse.Usage(promptTokens, completionTokens, promptTokens + completionTokens,
+                new ChatCompletionResponse.PromptTokensDetails(cachedTokens));
+    }
+    
+    private static double generationMillis(SimulationRule rule, int tokens) {
+        return rule.getTokensPerSecond() > 0 ? tokens * 1000.0 / rule.getTokensPerSecond() : 0;
+    }
+}
\ No newline at end of file
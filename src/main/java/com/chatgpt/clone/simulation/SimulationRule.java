@@ -0,0 +1,79 @@
+package com.chatgpt.clone.simulation;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One rule of a simulation rules file: which prompts it answers and how.
+ * A rule without keywords is the fallback for prompts no other rule matches.
+ */
+@Data
+@NoArgsConstructor
+public class SimulationRule {
+    /**
+     * The name of the rule, used in logs.
+     */
+    private String name;
+    
+    /**
+     * Keywords looked for in the last user message, see {@link KeywordMatcher}.
+     */
+    private List<String> match = new ArrayList<>();
+    
+    /**
+     * The answer. If several are given, one is picked at random per request.
+     */
+    private List<String> responses = new ArrayList<>();
+    
+    /**
+     * Delay until the first byte of the response.
+     */
+    private LatencyDistribution firstByte = LatencyDistribution.fixed(0);
+    
+    /**
+     * Generation speed in tokens per second, or 0 to send the whole answer at once.
+     */
+    private double tokensPerSecond;
+    
+    /**
+     * HTTP status of a simulated error, or 0 for a successful answer.
+     */
+    private int status;
+    
+    /**
+     * Probability that a request matching this rule fails with {@link #status}.
+     */
+    private double errorProbability = 1.0;
+    
+    /**
+     * The error type reported with a simulated error, e.g. "rate_limit_exceeded".
+     */
+    private String errorType = "server_error";
+    
+    /**
+     * The error message reported with a simulated error.
+     */
+    private String errorMessage = "Simulated error";
+    
+    /**
+     * Prompt tokens to report, or 0 to estimate them from the request.
+     */
+    private int promptTokens;
+    
+    /**
+     * Completion tokens to report, or 0 to estimate them from the answer.
+     */
+    private int completionTokens;
+    
+    /**
+     * Sets a single answer.
+     * 
+     * @param response The answer
+     */
+    public void setResponse(String response) {
+        this.responses = new ArrayList<>(List.of(response));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.chatgpt.clone.simulation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ordered list of {@link SimulationRule}s loaded from a JSON array.
+ * The first rule with a keyword in the prompt wins; all keywords of all
+ * rules are matched together in one pass over the prompt.
+ */
+public final class SimulationRules {
+    /**
+     * Classpath resource with the rules used when no file is configured.
+     */
+    private static final String DEFAULT_RESOURCE = "simulation-rules.json";
+    
+    private final List<SimulationRule> rules;
+    private final KeywordMatcher matcher;
+    private final SimulationRule fallback;
+    
+    /**
+     * Creates a rule set.
+     * 
+     * @param rules The rules in priority order
+     * @throws IllegalArgumentException if a rule has no responses
+     */
+    public SimulationRules(List<SimulationRule> rules) {
+        KeywordMatcher.Builder builder = KeywordMatcher.builder();
+        SimulationRule fallback = null;
+        for (int i = 0; i < rules.size(); i++) {
+            SimulationRule rule = rules.get(i);
+            if (rule.getResponses().isEmpty() && rule.getStatus() == 0) {
+                throw new IllegalArgumentException("Simulation rule has no responses: " + rule.getName());
+            }
+            if (rule.getMatch().isEmpty()) {
+                if (fallback == null) {
+                    fallback = rule;
+                }
+                continue;
+            }
+            for (String keyword : rule.getMatch()) {
+                builder.add(keyword, i);
+            }
+        }
+        this.rules = Collections.unmodifiableList(rules);
+        this.matcher = builder.build();
+        this.fallback = fallback;
+    }
+    
+    /**
+     * Loads rules from a JSON file.
+     * 
+     * @param file The rules file
+     * @return The rules
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public static SimulationRules load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+    
+    /**
+     * Loads the built-in rules, which answer greetings and questions with
+     * a short note that the responses are simulated.
+     * 
+     * @return The rules
+     * @throws IllegalStateException if the built-in rules are missing
+     */
+    public static SimulationRules defaults() {
+        try (InputStream in = SimulationRules.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + DEFAULT_RESOURCE);
+            }
+            return read(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + DEFAULT_RESOURCE, e);
+        }
+    }
+    
+    private static SimulationRules read(InputStream in) throws IOException {
+        SimulationRule[] rules = new ObjectMapper().readValue(in, SimulationRule[].class);
+        return new SimulationRules(Arrays.asList(rules));
+    }
+    
+    /**
+     * Finds the rule for a prompt.
+     * 
+     * @param prompt The last user message
+     * @return The first matching rule, or the fallback rule
+     * @throws IllegalStateException if nothing matches and there is no fallback rule
+     */
+    public SimulationRule match(CharSequence prompt) {
+        int index = matcher.match(prompt);
+        if (index >= 0) {
+            return rules.get(index);
+        }
+        if (fallback == null) {
+            throw new IllegalStateException("No simulation rule matches and there is no fallback rule");
+        }
+        return fallback;
+    }
+    
+    /**
+     * Gets the rules in priority order.
+     * 
+     * @return The rules
+     */
+    public List<SimulationRule> getRules() {
+        return rules;
+    }
+}
\ No newline at end of file
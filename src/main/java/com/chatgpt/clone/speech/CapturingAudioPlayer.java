@@ -0,0 +1,116 @@
+package com.chatgpt.clone.speech;
+
+import com.sun.speech.freetts.audio.AudioPlayer;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * FreeTTS audio player that keeps the synthesized samples in memory
+ * instead of sending them to a sound card, so synthesis and playback
+ * can run on different threads.
+ */
+class CapturingAudioPlayer implements AudioPlayer {
+    private final ByteArrayOutputStream samples = new ByteArrayOutputStream(64 * 1024);
+    private AudioFormat format;
+    private float volume = 1.0f;
+    private volatile boolean cancelled;
+    
+    /**
+     * Returns the samples captured since the last call and clears the buffer.
+     * 
+     * @return The captured PCM bytes
+     */
+    byte[] takeSamples() {
+        byte[] pcm = samples.toByteArray();
+        samples.reset();
+        cancelled = false;
+        return pcm;
+    }
+    
+    @Override
+    public void setAudioFormat(AudioFormat format) {
+        this.format = format;
+    }
+    
+    @Override
+    public AudioFormat getAudioFormat() {
+        return format;
+    }
+    
+    @Override
+    public void pause() {
+    }
+    
+    @Override
+    public void resume() {
+    }
+    
+    @Override
+    public void reset() {
+    }
+    
+    @Override
+    public boolean drain() {
+        return true;
+    }
+    
+    @Override
+    public void begin(int size) {
+    }
+    
+    @Override
+    public boolean end() {
+        return !cancelled;
+    }
+    
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    @Override
+    public void close() {
+    }
+    
+    @Override
+    public float getVolume() {
+        return volume;
+    }
+    
+    @Override
+    public void setVolume(float volume) {
+        this.volume = volume;
+    }
+    
+    @Override
+    public long getTime() {
+        return 0;
+    }
+    
+    @Override
+    public void resetTime() {
+    }
+    
+    @Override
+    public void startFirstSampleTimer() {
+    }
+    
+    @Override
+    public boolean write(byte[] audioData) {
+        return write(audioData, 0, audioData.length);
+    }
+    
+    @Override
+    public boolean write(byte[] bytes, int offset, int size) {
+        if (cancelled) {
+            return false;
+        }
+        samples.write(bytes, offset, size);
+        return true;
+    }
+    
+    @Override
+    public void showMetrics() {
+    }
+}
\ No newline at end of file
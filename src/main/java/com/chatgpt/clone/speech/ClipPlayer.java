@@ -0,0 +1,79 @@
+package com.chatgpt.clone.speech;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays speech clips on the default audio output.
+ * The line stays open between clips so consecutive sentences play back to back.
+ */
+class ClipPlayer implements AutoCloseable {
+    private static final int WRITE_CHUNK_BYTES = 4096;
+    
+    private volatile SourceDataLine line;
+    private AudioFormat lineFormat;
+    private volatile boolean stopped;
+    
+    /**
+     * Plays a clip and blocks until its samples have been queued on the line.
+     * 
+     * @param clip The clip to play
+     * @throws LineUnavailableException if no audio output is available
+     */
+    void play(SpeechClip clip) throws LineUnavailableException {
+        SourceDataLine current = ensureLine(clip.getFormat());
+        stopped = false;
+        
+        byte[] pcm = clip.getPcm();
+        for (int offset = 0; offset < pcm.length && !stopped; offset += WRITE_CHUNK_BYTES) {
+            current.write(pcm, offset, Math.min(WRITE_CHUNK_BYTES, pcm.length - offset));
+        }
+    }
+    
+    /**
+     * Blocks until everything written so far has been heard.
+     */
+    void drain() {
+        SourceDataLine current = line;
+        if (current != null && !stopped) {
+            current.drain();
+        }
+    }
+    
+    /**
+     * Stops playback immediately and discards buffered audio.
+     * May be called from any thread.
+     */
+    void stop() {
+        stopped = true;
+        SourceDataLine current = line;
+        if (current != null) {
+            current.flush();
+        }
+    }
+    
+    @Override
+    public void close() {
+        SourceDataLine current = line;
+        if (current != null) {
+            line = null;
+            current.close();
+        }
+    }
+    
+    private SourceDataLine ensureLine(AudioFormat format) throws LineUnavailableException {
+        SourceDataLine current = line;
+        if (current != null && format.matches(lineFormat)) {
+            return current;
+        }
+        close();
+        SourceDataLine newLine = AudioSystem.getSourceDataLine(format);
+        newLine.open(format);
+        newLine.start();
+        lineFormat = format;
+        line = newLine;
+        return newLine;
+    }
+}
\ No newline at end of file
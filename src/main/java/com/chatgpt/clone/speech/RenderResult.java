@@ -0,0 +1,46 @@
+package com.chatgpt.clone.speech;
+
+import lombok.Value;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Outcome of one request to the {@link SpeechRenderService}.
+ */
+@Value
+public class RenderResult {
+    /**
+     * Number of sentences rendered.
+     */
+    int sentences;
+    
+    /**
+     * Number of PCM bytes written, excluding the WAV header.
+     */
+    long audioBytes;
+    
+    /**
+     * Format of the audio written, as given in the WAV header.
+     */
+    AudioFormat audioFormat;
+    
+    /**
+     * Playing time of the rendered audio, in milliseconds.
+     */
+    long audioMillis;
+    
+    /**
+     * Time the request waited for a free synthesizer, in milliseconds.
+     */
+    long queueWaitMillis;
+    
+    /**
+     * Time from the start of rendering until the first audio was written, in milliseconds.
+     */
+    long timeToFirstAudioMillis;
+    
+    /**
+     * Time spent rendering and writing, in milliseconds.
+     */
+    long renderMillis;
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.chatgpt.clone.speech;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the metrics of a {@link SpeechRenderService}.
+ */
+@Value
+public class RenderServiceStats {
+    /**
+     * Number of pre-allocated synthesizers.
+     */
+    int poolSize;
+    
+    /**
+     * Number of requests currently being rendered.
+     */
+    int active;
+    
+    /**
+     * Number of requests waiting for a free synthesizer.
+     */
+    int queueDepth;
+    
+    /**
+     * Number of requests rendered successfully.
+     */
+    long completed;
+    
+    /**
+     * Number of requests that failed or were cancelled.
+     */
+    long failed;
+    
+    /**
+     * Number of requests turned away because the queue was full.
+     */
+    long rejected;
+    
+    /**
+     * Total playing time of all rendered audio, in milliseconds.
+     */
+    long audioMillis;
+    
+    /**
+     * Total time spent rendering, summed over all synthesizers, in milliseconds.
+     */
+    long renderMillis;
+    
+    /**
+     * Average time a request waited for a free synthesizer, in milliseconds.
+     */
+    double averageQueueWaitMillis;
+    
+    /**
+     * Gets how many seconds of audio one synthesizer produces per second of work.
+     * Values above 1 mean synthesis is faster than real time.
+     * 
+     * @return The real-time factor, or 0 if nothing has been rendered
+     */
+    public double getRealTimeFactor() {
+        return renderMillis == 0 ? 0 : (double) audioMillis / renderMillis;
+    }
+}
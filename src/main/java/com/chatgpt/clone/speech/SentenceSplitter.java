@@ -0,0 +1,111 @@
+package com.chatgpt.clone.speech;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Incrementally splits streamed text into speakable sentences.
+ * Text can arrive in arbitrary chunks; a sentence is emitted as soon as its
+ * terminating punctuation is followed by whitespace, so speech can start
+ * before the rest of the answer exists.
+ */
+public class SentenceSplitter {
+    /**
+     * Sentences longer than this are cut at the last clause break so the
+     * first audio is not held back by a very long sentence.
+     */
+    private static final int MAX_SENTENCE_LENGTH = 240;
+    
+    private static final Set<String> ABBREVIATIONS = new HashSet<>(Arrays.asList(
+            "mr", "mrs", "ms", "dr", "prof", "sr", "jr", "st", "vs", "etc", "e.g", "i.e", "no", "fig"));
+    
+    private final StringBuilder buffer = new StringBuilder();
+    private boolean inCodeBlock;
+    
+    /**
+     * Adds a chunk of text and returns the sentences it completed.
+     * 
+     * @param chunk The next piece of text
+     * @return The completed sentences, possibly empty
+     */
+    public List<String> append(CharSequence chunk) {
+        buffer.append(chunk);
+        List<String> sentences = new ArrayList<>();
+        
+        int start = 0;
+        for (int i = 0; i < buffer.length(); i++) {
+            char c = buffer.charAt(i);
+            boolean boundary;
+            if (c == '\n') {
+                boundary = true;
+            } else if (c == '.' || c == '!' || c == '?') {
+                // Wait for the next character before deciding
+                if (i + 1 >= buffer.length()) {
+                    break;
+                }
+                boundary = Character.isWhitespace(buffer.charAt(i + 1)) && !isAbbreviation(start, i);
+            } else {
+                boundary = i - start >= MAX_SENTENCE_LENGTH && isClauseBreak(c);
+            }
+            
+            if (boundary) {
+                emit(buffer.substring(start, i + 1), sentences);
+                start = i + 1;
+            }
+        }
+        
+        buffer.delete(0, start);
+        return sentences;
+    }
+    
+    /**
+     * Returns whatever text is left once the stream has ended.
+     * 
+     * @return The final sentence, or null if nothing speakable is left
+     */
+    public String flush() {
+        List<String> sentences = new ArrayList<>();
+        emit(buffer.toString(), sentences);
+        buffer.setLength(0);
+        inCodeBlock = false;
+        return sentences.isEmpty() ? null : sentences.get(0);
+    }
+    
+    private void emit(String raw, List<String> sentences) {
+        String line = raw.trim();
+        if (line.startsWith("```")) {
+            // Code is not read aloud
+            inCodeBlock = !inCodeBlock;
+            return;
+        }
+        if (inCodeBlock) {
+            return;
+        }
+        
+        String spoken = line.replaceAll("[*_#`>|]+", " ").replaceAll("\\s+", " ").trim();
+        if (spoken.chars().anyMatch(Character::isLetterOrDigit)) {
+            sentences.add(spoken);
+        }
+    }
+    
+    private boolean isAbbreviation(int sentenceStart, int dotIndex) {
+        if (buffer.charAt(dotIndex) != '.') {
+            return false;
+        }
+        int wordStart = dotIndex;
+        while (wordStart > sentenceStart && !Character.isWhitespace(buffer.charAt(wordStart - 1))) {
+            wordStart--;
+        }
+        String word = buffer.substring(wordStart, dotIndex).toLowerCase(Locale.ROOT);
+        // Single letters cover initials such as "J. Smith"
+        return ABBREVIATIONS.contains(word) || (word.length() == 1 && Character.isLetter(word.charAt(0)));
+    }
+    
+    private static boolean isClauseBreak(char c) {
+        return c == ',' || c == ';' || c == ':' || c == ' ';
+    }
+}
\ No newline at end of file
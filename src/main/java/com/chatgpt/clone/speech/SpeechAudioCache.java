@@ -0,0 +1,341 @@
+package com.chatgpt.clone.speech;
+
+import com.chatgpt.clone.util.Logger;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache of synthesized sentences.
+ * Entries are keyed on the voice plus the sentence text with its whitespace
+ * normalized, so stock phrases such as greetings and error messages are
+ * synthesized only once. Case is kept, since "US" and "us" are spoken
+ * differently. A clip is stored as raw PCM in the format it was rendered in,
+ * so cached and fresh clips play on the same audio line.
+ * The directory is kept under a size cap by evicting the least recently used
+ * files; file modification times carry the LRU order across restarts.
+ * The lock only guards the index and the counters, so clips are read and
+ * written by several renderers at once.
+ */
+public class SpeechAudioCache {
+    private static final Logger logger = new Logger(SpeechAudioCache.class);
+    
+    /**
+     * Sentences longer than this are rarely repeated and are not cached.
+     */
+    private static final int MAX_CACHEABLE_LENGTH = 160;
+    
+    private static final String EXTENSION = ".pcm";
+    
+    /**
+     * Extension of the WAV files written by earlier versions, which are deleted.
+     */
+    private static final String OLD_EXTENSION = ".wav";
+    
+    private static final String TEMP_EXTENSION = ".tmp";
+    
+    private static final int MAGIC = 0x53504331;
+    
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> writing = new HashSet<>();
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    /**
+     * Opens a cache directory, creating it if needed.
+     * 
+     * @param directory The directory holding the clip files
+     * @param maxBytes The maximum total size of the cached files
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public SpeechAudioCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        
+        Files.createDirectories(directory);
+        loadIndex();
+        logger.info("Speech audio cache opened with " + files.size() + " clips (" + totalBytes + " bytes)");
+    }
+    
+    /**
+     * Looks up a cached clip. The file is read outside the cache's lock, so
+     * parallel renderers do not wait for each other's disk I/O.
+     * 
+     * @param voiceName The voice the clip was rendered with
+     * @param text The sentence
+     * @return The cached clip, or null if it is not cached
+     */
+    public SpeechClip get(String voiceName, String text) {
+        if (!isCacheable(text)) {
+            return null;
+        }
+        
+        String name = fileName(voiceName, text);
+        synchronized (this) {
+            // Also marks the entry as recently used
+            if (files.get(name) == null) {
+                misses++;
+                return null;
+            }
+        }
+        
+        Path file = directory.resolve(name);
+        try {
+            SpeechClip clip = read(file, text);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            synchronized (this) {
+                hits++;
+            }
+            return clip;
+        } catch (IOException e) {
+            boolean indexed;
+            synchronized (this) {
+                misses++;
+                indexed = unindex(name);
+            }
+            // A clip evicted while it was being read is simply gone
+            if (indexed) {
+                logger.warning("Dropping unreadable cached clip " + name + ": " + e.getMessage());
+                deleteQuietly(name);
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Stores a clip, evicting the least recently used clips if the cache is full.
+     * The file is written outside the cache's lock.
+     * 
+     * @param voiceName The voice the clip was rendered with
+     * @param clip The clip to store
+     */
+    public void put(String voiceName, SpeechClip clip) {
+        if (!isCacheable(clip.getText())) {
+            return;
+        }
+        
+        String name = fileName(voiceName, clip.getText());
+        synchronized (this) {
+            if (files.containsKey(name) || !writing.add(name)) {
+                return;
+            }
+        }
+        
+        Path file = directory.resolve(name);
+        Path temp = directory.resolve(name + TEMP_EXTENSION);
+        long size;
+        try {
+            // Write to a temporary file first so a crash never leaves a truncated clip behind
+            write(temp, clip);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            size = Files.size(file);
+        } catch (IOException e) {
+            logger.warning("Could not cache speech clip: " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Nothing more to clean up
+            }
+            synchronized (this) {
+                writing.remove(name);
+            }
+            return;
+        }
+        
+        List<String> evicted;
+        synchronized (this) {
+            writing.remove(name);
+            files.put(name, size);
+            totalBytes += size;
+            evicted = evictIfNeeded();
+        }
+        evicted.forEach(this::deleteQuietly);
+    }
+    
+    /**
+     * Gets the number of lookups answered from disk.
+     * 
+     * @return The hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    /**
+     * Gets the number of lookups that had to be synthesized.
+     * 
+     * @return The miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    /**
+     * Gets the number of clips removed to stay under the size cap.
+     * 
+     * @return The eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    /**
+     * Gets the total size of the cached clips.
+     * 
+     * @return The size in bytes
+     */
+    public synchronized long getSizeBytes() {
+        return totalBytes;
+    }
+    
+    /**
+     * Normalizes the whitespace of sentence text so the same sentence split
+     * across lines differently shares an entry.
+     * 
+     * @param text The sentence
+     * @return The normalized text
+     */
+    static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+    
+    private static void write(Path file, SpeechClip clip) throws IOException {
+        AudioFormat format = clip.getFormat();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(format.getEncoding().toString());
+            out.writeFloat(format.getSampleRate());
+            out.writeInt(format.getSampleSizeInBits());
+            out.writeInt(format.getChannels());
+            out.writeInt(format.getFrameSize());
+            out.writeFloat(format.getFrameRate());
+            out.writeBoolean(format.isBigEndian());
+            out.writeInt(clip.getPcm().length);
+            out.write(clip.getPcm());
+        }
+    }
+    
+    private static SpeechClip read(Path file, String text) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a speech clip");
+            }
+            AudioFormat format = new AudioFormat(new AudioFormat.Encoding(in.readUTF()), in.readFloat(), in.readInt(),
+                    in.readInt(), in.readInt(), in.readFloat(), in.readBoolean());
+            byte[] pcm = new byte[in.readInt()];
+            in.readFully(pcm);
+            return new SpeechClip(text, format, pcm);
+        }
+    }
+    
+    private static boolean isCacheable(String text) {
+        return text != null && !text.isEmpty() && text.length() <= MAX_CACHEABLE_LENGTH;
+    }
+    
+    private static String fileName(String voiceName, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((voiceName + "\n" + normalize(text)).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(EXTENSION.length() + 40);
+            // 20 bytes of the hash are plenty to avoid collisions in a local cache
+            for (int i = 0; i < 20; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.append(EXTENSION).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private void loadIndex() throws IOException {
+        List<Path> existing;
+        try (Stream<Path> listing = Files.list(directory)) {
+            existing = listing
+                    .sorted(Comparator.comparing(SpeechAudioCache::lastModified))
+                    .collect(Collectors.toList());
+        }
+        
+        for (Path path : existing) {
+            String name = path.getFileName().toString();
+            if (name.endsWith(EXTENSION)) {
+                long size = Files.size(path);
+                files.put(name, size);
+                totalBytes += size;
+            } else if (name.endsWith(OLD_EXTENSION) || name.endsWith(TEMP_EXTENSION)) {
+                // Old layout, or a write cut off by a crash
+                Files.deleteIfExists(path);
+            }
+        }
+        evictIfNeeded().forEach(this::deleteQuietly);
+    }
+    
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+    
+    /**
+     * Drops the least recently used entries until the cache fits its cap.
+     * 
+     * @return The names of the dropped files, for the caller to delete outside the lock
+     */
+    private List<String> evictIfNeeded() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> lru = files.entrySet().iterator();
+        while (totalBytes > maxBytes && lru.hasNext()) {
+            Map.Entry<String, Long> eldest = lru.next();
+            lru.remove();
+            totalBytes -= eldest.getValue();
+            evictions++;
+            evicted.add(eldest.getKey());
+        }
+        return evicted;
+    }
+    
+    private boolean unindex(String name) {
+        Long size = files.remove(name);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        return size != null;
+    }
+    
+    private void deleteQuietly(String name) {
+        try {
+            Files.deleteIfExists(directory.resolve(name));
+        } catch (IOException e) {
+            logger.warning("Could not delete cached clip " + name + ": " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.chatgpt.clone.speech;
+
+import lombok.Value;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Synthesized audio for a single sentence.
+ */
+@Value
+public class SpeechClip {
+    /**
+     * The sentence that was synthesized.
+     */
+    String text;
+    
+    /**
+     * The format of the PCM data.
+     */
+    AudioFormat format;
+    
+    /**
+     * The raw PCM samples.
+     */
+    byte[] pcm;
+    
+    /**
+     * Gets the playing time of the clip.
+     * 
+     * @return The duration in milliseconds
+     */
+    public long getDurationMillis() {
+        float bytesPerSecond = format.getFrameRate() * format.getFrameSize();
+        return bytesPerSecond > 0 ? (long) (pcm.length * 1000L / bytesPerSecond) : 0;
+    }
+}
\ No newline at end of file
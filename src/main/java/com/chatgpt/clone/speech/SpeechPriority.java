@@ -0,0 +1,21 @@
+package com.chatgpt.clone.speech;
+
+/**
+ * Priority classes for queued speech. Higher priorities are spoken first.
+ */
+public enum SpeechPriority {
+    /**
+     * Short, urgent announcements such as errors.
+     */
+    HIGH,
+    
+    /**
+     * Assistant responses.
+     */
+    NORMAL,
+    
+    /**
+     * Background speech that may wait or be dropped under load.
+     */
+    LOW
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.chatgpt.clone.speech;
+
+import com.chatgpt.clone.util.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Renders text to WAV audio without a display or sound card, using the
+ * {@link SpeechRenderService}. Each text file is rendered to a WAV file next
+ * to it, all files in parallel on the synthesizer pool. Without files the
+ * text is read from standard input and the WAV audio is streamed to standard
+ * output sentence by sentence. The service statistics go to standard error.
+ * Usage: {@code SpeechRenderApp [--voice NAME] [--threads N] [FILE.txt ...]},
+ * by default the kevin16 voice and one synthesizer per core.
+ */
+public class SpeechRenderApp {
+    private static final Logger logger = new Logger(SpeechRenderApp.class);
+    
+    public static void main(String[] args) throws Exception {
+        String voice = SpeechRenderer.DEFAULT_VOICE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--voice":
+                    voice = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    files.add(Paths.get(args[i]));
+            }
+        }
+        
+        int failures = 0;
+        try (SpeechRenderService service = new SpeechRenderService(voice, threads, Math.max(files.size(), 1), null)) {
+            if (files.isEmpty()) {
+                String text = new String(System.in.readAllBytes(), StandardCharsets.UTF_8);
+                OutputStream out = new BufferedOutputStream(System.out);
+                service.render(text, out).get();
+                out.flush();
+            } else {
+                List<Future<RenderResult>> results = new ArrayList<>();
+                for (Path file : files) {
+                    results.add(service.renderToFile(Files.readString(file), wavFileFor(file)));
+                }
+                for (int i = 0; i < files.size(); i++) {
+                    try {
+                        RenderResult result = results.get(i).get();
+                        System.err.println(wavFileFor(files.get(i)) + ": " + result.getSentences() + " sentences, "
+                                + result.getAudioMillis() + " ms of audio in " + result.getRenderMillis() + " ms");
+                    } catch (ExecutionException e) {
+                        logger.error("Could not render " + files.get(i), e.getCause());
+                        failures++;
+                    }
+                }
+            }
+            System.err.println(service.getStats());
+        } catch (IOException | ExecutionException e) {
+            logger.error("Could not render speech", e);
+            failures++;
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Gets the WAV file a text file is rendered to.
+     * 
+     * @param file The text file
+     * @return The file with its extension replaced by .wav
+     */
+    static Path wavFileFor(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return file.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".wav");
+    }
+}
\ No newline at end of file
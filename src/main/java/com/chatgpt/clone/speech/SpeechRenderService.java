@@ -0,0 +1,274 @@
+package com.chatgpt.clone.speech;
+
+import com.chatgpt.clone.util.Logger;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless text-to-speech rendering for server deployments.
+ * A fixed pool of pre-allocated FreeTTS synthesizers renders requests in
+ * parallel, one synthesizer per request, and each request writes WAV audio
+ * sentence by sentence as it is synthesized. Requests beyond the pool wait
+ * in a bounded queue; when that is full they are rejected.
+ */
+public class SpeechRenderService implements AutoCloseable {
+    private static final Logger logger = new Logger(SpeechRenderService.class);
+    
+    private final int poolSize;
+    private final BlockingQueue<SpeechRenderer> renderers;
+    private final ThreadPoolExecutor executor;
+    private final SpeechAudioCache audioCache;
+    private final AudioFormat format;
+    
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong audioMillis = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    
+    /**
+     * Creates a new service and allocates its synthesizers.
+     * 
+     * @param voiceName The FreeTTS voice to use, e.g. "kevin16"
+     * @param poolSize The number of synthesizers, usually the number of cores
+     * @param queueCapacity The number of requests that may wait for a synthesizer
+     * @param audioCache Cache of rendered sentences shared by all synthesizers, or null
+     */
+    public SpeechRenderService(String voiceName, int poolSize, int queueCapacity, SpeechAudioCache audioCache) {
+        if (poolSize <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("poolSize must be positive and queueCapacity non-negative");
+        }
+        this.poolSize = poolSize;
+        this.audioCache = audioCache;
+        this.renderers = new ArrayBlockingQueue<>(poolSize);
+        
+        // Allocate every voice up front; the warm-up render also reveals the output format
+        AudioFormat warmUpFormat = null;
+        for (int i = 0; i < poolSize; i++) {
+            SpeechRenderer renderer = new SpeechRenderer(voiceName);
+            warmUpFormat = renderer.render("Ready.").getFormat();
+            renderers.add(renderer);
+        }
+        this.format = warmUpFormat;
+        
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "speech-render-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        
+        logger.info("Speech render service started with " + poolSize + " synthesizers");
+    }
+    
+    /**
+     * Renders text to a WAV stream. Audio is written and flushed after each
+     * sentence, so clients can start playing before rendering finishes. The
+     * header is written with the first sentence and carries an open-ended
+     * length because the total is not known yet. The stream is not closed.
+     * 
+     * @param text The text to speak
+     * @param out The destination of the WAV data
+     * @return A future completing when all audio has been written
+     * @throws RejectedExecutionException if the request queue is full
+     */
+    public Future<RenderResult> render(String text, OutputStream out) {
+        long submitted = System.nanoTime();
+        return submit(() -> renderSentences(text, out, submitted));
+    }
+    
+    /**
+     * Renders text to a WAV file. Audio is written sentence by sentence and
+     * the header is completed with the final length at the end.
+     * 
+     * @param text The text to speak
+     * @param file The file to create or replace
+     * @return A future completing when the file is complete
+     * @throws RejectedExecutionException if the request queue is full
+     */
+    public Future<RenderResult> renderToFile(String text, Path file) {
+        long submitted = System.nanoTime();
+        return submit(() -> {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+                RenderResult result = renderSentences(text, out, submitted);
+                out.flush();
+                
+                // Patch the header now that the length is known
+                channel.write(ByteBuffer.wrap(WavWriter.header(result.getAudioFormat(), result.getAudioBytes())), 0);
+                return result;
+            }
+        });
+    }
+    
+    /**
+     * Gets the format of the PCM samples the synthesizers produced while
+     * warming up. Cached sentences keep the format they were rendered in.
+     * 
+     * @return The audio format
+     */
+    public AudioFormat getAudioFormat() {
+        return format;
+    }
+    
+    /**
+     * Gets a snapshot of the service metrics.
+     * 
+     * @return The current statistics
+     */
+    public RenderServiceStats getStats() {
+        long startedCount = started.get();
+        return new RenderServiceStats(
+                poolSize,
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                completed.get(),
+                failed.get(),
+                rejected.get(),
+                audioMillis.get(),
+                TimeUnit.NANOSECONDS.toMillis(renderNanos.get()),
+                startedCount == 0 ? 0 : queueWaitNanos.get() / 1e6 / startedCount);
+    }
+    
+    /**
+     * Finishes queued requests, then releases all synthesizers.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        
+        List<SpeechRenderer> idle = new ArrayList<>();
+        renderers.drainTo(idle);
+        for (SpeechRenderer renderer : idle) {
+            renderer.close();
+        }
+        logger.info("Speech render service stopped");
+    }
+    
+    private Future<RenderResult> submit(Callable<RenderResult> task) {
+        try {
+            return executor.submit(() -> {
+                try {
+                    RenderResult result = task.call();
+                    completed.incrementAndGet();
+                    return result;
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    throw e;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            logger.warning("Speech render request rejected, queue is full");
+            throw e;
+        }
+    }
+    
+    /**
+     * Renders the sentences of a text and writes them as WAV, starting with a
+     * header in the format of the first sentence. A WAV file has one format,
+     * so a sentence in another format, e.g. cached from an older voice
+     * version, fails the request.
+     */
+    private RenderResult renderSentences(String text, OutputStream out, long submittedNanos)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long queueWait = start - submittedNanos;
+        started.incrementAndGet();
+        queueWaitNanos.addAndGet(queueWait);
+        
+        // Every pool thread owns at most one renderer at a time, so this never waits long
+        SpeechRenderer renderer = renderers.take();
+        int sentenceCount = 0;
+        long bytes = 0;
+        long millis = 0;
+        long firstAudio = -1;
+        AudioFormat written = null;
+        try {
+            SentenceSplitter splitter = new SentenceSplitter();
+            List<String> sentences = new ArrayList<>(splitter.append(text));
+            String last = splitter.flush();
+            if (last != null) {
+                sentences.add(last);
+            }
+            
+            for (String sentence : sentences) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Speech render request cancelled");
+                }
+                
+                SpeechClip clip = audioCache != null ? audioCache.get(renderer.getVoiceName(), sentence) : null;
+                if (clip == null) {
+                    clip = renderer.render(sentence);
+                    if (audioCache != null) {
+                        audioCache.put(renderer.getVoiceName(), clip);
+                    }
+                }
+                
+                if (written == null) {
+                    written = clip.getFormat();
+                    out.write(WavWriter.header(written, -1));
+                } else if (!clip.getFormat().matches(written)) {
+                    throw new IOException("Sentence audio format " + clip.getFormat()
+                            + " differs from the stream format " + written);
+                }
+                WavWriter.writeSamples(out, clip.getFormat(), clip.getPcm());
+                out.flush();
+                if (firstAudio < 0) {
+                    firstAudio = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+                sentenceCount++;
+                bytes += clip.getPcm().length;
+                millis += clip.getDurationMillis();
+            }
+            if (written == null) {
+                // Nothing to say, so an empty WAV in the synthesizer format
+                written = format;
+                out.write(WavWriter.header(written, -1));
+                out.flush();
+            }
+        } finally {
+            renderers.add(renderer);
+            renderNanos.addAndGet(System.nanoTime() - start);
+        }
+        
+        audioMillis.addAndGet(millis);
+        return new RenderResult(sentenceCount, bytes, written, millis,
+                TimeUnit.NANOSECONDS.toMillis(queueWait),
+                firstAudio,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
\ No newline at end of file
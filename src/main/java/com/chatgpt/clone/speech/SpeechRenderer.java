@@ -0,0 +1,76 @@
+package com.chatgpt.clone.speech;
+
+import com.chatgpt.clone.util.Logger;
+import com.sun.speech.freetts.Voice;
+
+/**
+ * Renders text to PCM audio with a dedicated FreeTTS voice.
+ * A renderer is not thread-safe; each synthesis thread needs its own.
+ */
+public class SpeechRenderer implements AutoCloseable {
+    private static final Logger logger = new Logger(SpeechRenderer.class);
+    
+    /**
+     * The default FreeTTS voice.
+     */
+    public static final String DEFAULT_VOICE = "kevin16";
+    
+    private final String voiceName;
+    private final Voice voice;
+    private final CapturingAudioPlayer player;
+    
+    /**
+     * Creates and allocates a renderer for the given FreeTTS voice.
+     * 
+     * @param voiceName The FreeTTS voice name, e.g. "kevin16"
+     * @throws IllegalStateException if the voice cannot be found
+     */
+    public SpeechRenderer(String voiceName) {
+        // Register the bundled voices before looking one up
+        System.setProperty("freetts.voices", "com.sun.speech.freetts.en.us.cmu_us_kal.KevinVoiceDirectory");
+        
+        Voice found = com.sun.speech.freetts.VoiceManager.getInstance().getVoice(voiceName);
+        if (found == null) {
+            throw new IllegalStateException("FreeTTS voice not found: " + voiceName);
+        }
+        
+        this.voiceName = voiceName;
+        this.voice = found;
+        this.player = new CapturingAudioPlayer();
+        voice.setAudioPlayer(player);
+        voice.allocate();
+        logger.debug("Speech renderer allocated for voice " + voiceName);
+    }
+    
+    /**
+     * Synthesizes a piece of text.
+     * 
+     * @param text The text to synthesize
+     * @return The synthesized clip
+     * @throws IllegalStateException if synthesis fails
+     */
+    public SpeechClip render(String text) {
+        player.takeSamples();
+        if (!voice.speak(text)) {
+            throw new IllegalStateException("Speech synthesis failed for: " + text);
+        }
+        return new SpeechClip(text, player.getAudioFormat(), player.takeSamples());
+    }
+    
+    /**
+     * Gets the name of the voice this renderer uses.
+     * 
+     * @return The voice name
+     */
+    public String getVoiceName() {
+        return voiceName;
+    }
+    
+    /**
+     * Deallocates the FreeTTS voice.
+     */
+    @Override
+    public void close() {
+        voice.deallocate();
+    }
+}
\ No newline at end of file
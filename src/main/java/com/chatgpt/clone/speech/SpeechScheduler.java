@@ -0,0 +1,392 @@
+package com.chatgpt.clone.speech;
+
+import com.chatgpt.clone.util.Logger;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules all speech of the application on a single synthesizer.
+ * Streams wait in a bounded priority queue and are synthesized one at a
+ * time by a dedicated thread that owns the {@link SpeechRenderer}. A second
+ * thread plays sentence N while sentence N+1 is synthesized, so speech
+ * starts after the first sentence instead of after the whole answer.
+ * Streams can be cancelled at any point, which also cuts off their audio.
+ * With a {@link SpeechAudioCache}, repeated sentences are played from disk
+ * instead of being synthesized again.
+ */
+public class SpeechScheduler implements AutoCloseable {
+    private static final Logger logger = new Logger(SpeechScheduler.class);
+    
+    /**
+     * Default number of streams that may wait for the synthesizer.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 8;
+    
+    /**
+     * Number of synthesized clips that may wait for playback.
+     */
+    private static final int SYNTHESIS_LOOKAHEAD = 1;
+    
+    private static final Comparator<SpeechStream> QUEUE_ORDER = Comparator
+            .comparing(SpeechStream::getPriority)
+            .thenComparingLong(SpeechStream::getSequence);
+    
+    private final SpeechRenderer renderer;
+    private final SpeechAudioCache audioCache;
+    private final int queueCapacity;
+    private final ClipPlayer player = new ClipPlayer();
+    private final PriorityQueue<SpeechStream> queue = new PriorityQueue<>(QUEUE_ORDER);
+    private final BlockingQueue<PendingClip> clips = new ArrayBlockingQueue<>(SYNTHESIS_LOOKAHEAD);
+    private final Thread synthesisThread;
+    private final Thread playbackThread;
+    private volatile boolean running = true;
+    private volatile SpeechStream synthesizing;
+    private volatile SpeechStream playing;
+    private long nextSequence;
+    
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong sentences = new AtomicLong();
+    private final AtomicLong cachedSentences = new AtomicLong();
+    private final AtomicLong synthesisNanos = new AtomicLong();
+    private final AtomicLong queueWaits = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong firstAudios = new AtomicLong();
+    private final AtomicLong firstAudioMillis = new AtomicLong();
+    
+    /**
+     * Creates a new scheduler with the default queue capacity and starts its threads.
+     * 
+     * @param renderer The renderer, owned by the scheduler from now on
+     */
+    public SpeechScheduler(SpeechRenderer renderer) {
+        this(renderer, DEFAULT_QUEUE_CAPACITY);
+    }
+    
+    /**
+     * Creates a new scheduler and starts its threads.
+     * 
+     * @param renderer The renderer, owned by the scheduler from now on
+     * @param queueCapacity The maximum number of streams that may wait for the synthesizer
+     */
+    public SpeechScheduler(SpeechRenderer renderer, int queueCapacity) {
+        this(renderer, queueCapacity, null);
+    }
+    
+    /**
+     * Creates a new scheduler that reuses cached audio and starts its threads.
+     * 
+     * @param renderer The renderer, owned by the scheduler from now on
+     * @param queueCapacity The maximum number of streams that may wait for the synthesizer
+     * @param audioCache The cache of rendered sentences, or null to always synthesize
+     */
+    public SpeechScheduler(SpeechRenderer renderer, int queueCapacity, SpeechAudioCache audioCache) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.renderer = renderer;
+        this.audioCache = audioCache;
+        this.queueCapacity = queueCapacity;
+        
+        synthesisThread = new Thread(this::synthesisLoop, "speech-synthesis");
+        synthesisThread.setDaemon(true);
+        playbackThread = new Thread(this::playbackLoop, "speech-playback");
+        playbackThread.setDaemon(true);
+        
+        synthesisThread.start();
+        playbackThread.start();
+    }
+    
+    /**
+     * Opens a new stream with normal priority.
+     * 
+     * @return The stream to append text to
+     */
+    public SpeechStream openStream() {
+        return openStream(SpeechPriority.NORMAL);
+    }
+    
+    /**
+     * Opens a new stream. It is spoken after the streams already queued with
+     * the same or a higher priority. If the queue is full, the newest stream
+     * with a lower priority is displaced; if there is none, the new stream is
+     * rejected and reports {@link SpeechStream#isRejected()}.
+     * 
+     * @param priority The priority of the stream
+     * @return The stream to append text to
+     */
+    public synchronized SpeechStream openStream(SpeechPriority priority) {
+        SpeechStream stream = new SpeechStream(this, priority, nextSequence++);
+        if (!running) {
+            stream.markRejected();
+            return stream;
+        }
+        
+        if (queue.size() >= queueCapacity) {
+            SpeechStream weakest = null;
+            for (SpeechStream queued : queue) {
+                if (weakest == null || QUEUE_ORDER.compare(queued, weakest) > 0) {
+                    weakest = queued;
+                }
+            }
+            if (weakest.getPriority().compareTo(priority) > 0) {
+                queue.remove(weakest);
+                weakest.markRejected();
+            } else {
+                weakest = stream;
+            }
+            rejected.incrementAndGet();
+            logger.warning("Speech queue full, dropped a " + weakest.getPriority() + " priority stream");
+            if (weakest == stream) {
+                stream.markRejected();
+                return stream;
+            }
+        }
+        
+        queue.add(stream);
+        notifyAll();
+        return stream;
+    }
+    
+    /**
+     * Cancels everything that is queued, being synthesized or playing.
+     * Used for barge-in when the user starts a new message.
+     */
+    public void cancelAll() {
+        List<SpeechStream> streams;
+        synchronized (this) {
+            streams = new ArrayList<>(queue);
+        }
+        SpeechStream current = synthesizing;
+        if (current != null) {
+            streams.add(current);
+        }
+        current = playing;
+        if (current != null) {
+            streams.add(current);
+        }
+        
+        for (SpeechStream stream : streams) {
+            stream.cancel();
+        }
+    }
+    
+    /**
+     * Gets a snapshot of the scheduler metrics.
+     * 
+     * @return The current statistics
+     */
+    public SpeechStats getStats() {
+        int depth;
+        synchronized (this) {
+            depth = queue.size();
+        }
+        long waits = queueWaits.get();
+        long audios = firstAudios.get();
+        long synthesized = sentences.get();
+        return new SpeechStats(
+                depth,
+                queueCapacity,
+                completed.get(),
+                cancelled.get(),
+                rejected.get(),
+                synthesized,
+                cachedSentences.get(),
+                waits == 0 ? 0 : queueWaitNanos.get() / 1e6 / waits,
+                TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos.get()),
+                audios == 0 ? 0 : (double) firstAudioMillis.get() / audios,
+                synthesized == 0 ? 0 : synthesisNanos.get() / 1e6 / synthesized);
+    }
+    
+    /**
+     * Stops both threads and releases the renderer and audio line.
+     * Every stream that has not finished yet is marked done, so nobody
+     * waiting on one is left blocked.
+     */
+    @Override
+    public void close() {
+        running = false;
+        // Unblocks a playback thread stuck writing to or draining the line
+        player.stop();
+        synthesisThread.interrupt();
+        playbackThread.interrupt();
+        try {
+            synthesisThread.join(1000);
+            playbackThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        // Release anyone still waiting on a stream that will never play
+        synchronized (this) {
+            for (SpeechStream stream : queue) {
+                stream.markDone();
+            }
+            queue.clear();
+        }
+        for (PendingClip pending : clips) {
+            pending.stream.markDone();
+        }
+        SpeechStream current = synthesizing;
+        if (current != null) {
+            current.markDone();
+        }
+        current = playing;
+        if (current != null) {
+            current.markDone();
+        }
+        
+        player.close();
+        renderer.close();
+    }
+    
+    /**
+     * Called by {@link SpeechStream#cancel()}.
+     * 
+     * @param stream The cancelled stream
+     */
+    void cancel(SpeechStream stream) {
+        boolean wasQueued;
+        synchronized (this) {
+            wasQueued = queue.remove(stream);
+        }
+        
+        if (wasQueued) {
+            cancelled.incrementAndGet();
+            stream.markDone();
+        } else if (playing == stream) {
+            // The playback thread finishes the stream when it reaches its end marker
+            player.stop();
+        }
+    }
+    
+    private synchronized SpeechStream takeNext() throws InterruptedException {
+        while (queue.isEmpty()) {
+            wait();
+        }
+        return queue.poll();
+    }
+    
+    private void synthesisLoop() {
+        try {
+            while (running) {
+                SpeechStream stream = takeNext();
+                synthesizing = stream;
+                stream.markSynthesisStarted();
+                recordQueueWait(stream.getQueueWaitNanos());
+                
+                String sentence;
+                while (running && (sentence = stream.nextSentence()) != null) {
+                    try {
+                        clips.put(new PendingClip(stream, synthesize(sentence)));
+                    } catch (RuntimeException e) {
+                        logger.error("Error synthesizing sentence", e);
+                    }
+                }
+                if (!running) {
+                    // FreeTTS may swallow the interrupt; close() releases the stream
+                    return;
+                }
+                
+                // Cleared only once the end marker is queued, so close() never loses the stream
+                clips.put(new PendingClip(stream, null));
+                synthesizing = null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private SpeechClip synthesize(String sentence) {
+        if (audioCache != null) {
+            SpeechClip cached = audioCache.get(renderer.getVoiceName(), sentence);
+            if (cached != null) {
+                cachedSentences.incrementAndGet();
+                return cached;
+            }
+        }
+        
+        long start = System.nanoTime();
+        SpeechClip clip = renderer.render(sentence);
+        synthesisNanos.addAndGet(System.nanoTime() - start);
+        sentences.incrementAndGet();
+        
+        if (audioCache != null) {
+            audioCache.put(renderer.getVoiceName(), clip);
+        }
+        return clip;
+    }
+    
+    private void playbackLoop() {
+        boolean lineWarningLogged = false;
+        try {
+            while (running) {
+                PendingClip pending = clips.take();
+                SpeechStream stream = pending.stream;
+                if (pending.clip == null) {
+                    finishStream(stream);
+                    continue;
+                }
+                if (stream.isCancelled()) {
+                    continue;
+                }
+                
+                playing = stream;
+                stream.markAudioStarted();
+                try {
+                    player.play(pending.clip);
+                } catch (LineUnavailableException | IllegalArgumentException e) {
+                    if (!lineWarningLogged) {
+                        logger.warning("No audio output available: " + e.getMessage());
+                        lineWarningLogged = true;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void finishStream(SpeechStream stream) {
+        if (stream.isCancelled()) {
+            cancelled.incrementAndGet();
+        } else {
+            player.drain();
+            completed.incrementAndGet();
+            long timeToFirstAudio = stream.getTimeToFirstAudioMillis();
+            if (timeToFirstAudio >= 0) {
+                firstAudios.incrementAndGet();
+                firstAudioMillis.addAndGet(timeToFirstAudio);
+                logger.debug("Speech stream finished, time to first audio " + timeToFirstAudio + " ms");
+            }
+        }
+        playing = null;
+        stream.markDone();
+    }
+    
+    private void recordQueueWait(long waitNanos) {
+        queueWaits.incrementAndGet();
+        queueWaitNanos.addAndGet(waitNanos);
+        maxQueueWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+    
+    private static final class PendingClip {
+        final SpeechStream stream;
+        final SpeechClip clip;
+        
+        PendingClip(SpeechStream stream, SpeechClip clip) {
+            this.stream = stream;
+            this.clip = clip;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.chatgpt.clone.speech;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of the metrics of a {@link SpeechScheduler}.
+ */
+@Value
+public class SpeechStats {
+    /**
+     * Number of streams waiting for the synthesizer.
+     */
+    int queueDepth;
+    
+    /**
+     * Maximum number of streams that may wait for the synthesizer.
+     */
+    int queueCapacity;
+    
+    /**
+     * Number of streams that were spoken to the end.
+     */
+    long completed;
+    
+    /**
+     * Number of streams that were cancelled before they finished.
+     */
+    long cancelled;
+    
+    /**
+     * Number of streams rejected or displaced because the queue was full.
+     */
+    long rejected;
+    
+    /**
+     * Number of sentences synthesized.
+     */
+    long sentences;
+    
+    /**
+     * Number of sentences played from the audio cache instead of being synthesized.
+     */
+    long cachedSentences;
+    
+    /**
+     * Average time a stream waited in the queue before synthesis started, in milliseconds.
+     */
+    double averageQueueWaitMillis;
+    
+    /**
+     * Longest time a stream waited in the queue before synthesis started, in milliseconds.
+     */
+    long maxQueueWaitMillis;
+    
+    /**
+     * Average time from opening a stream until its first audio played, in milliseconds.
+     */
+    double averageTimeToFirstAudioMillis;
+    
+    /**
+     * Average time to synthesize one sentence, in milliseconds.
+     */
+    double averageSynthesisMillis;
+}
\ No newline at end of file
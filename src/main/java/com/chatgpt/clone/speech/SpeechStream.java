@@ -0,0 +1,194 @@
+package com.chatgpt.clone.speech;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single utterance fed to a {@link SpeechScheduler} piece by piece.
+ * Text is appended as it arrives; each completed sentence is synthesized
+ * and played while later text is still being produced.
+ * Appending is thread-safe, so chunks can come straight from a network thread.
+ */
+public class SpeechStream {
+    /**
+     * Marks the end of the sentence queue.
+     */
+    private static final String END = new String("<end>");
+    
+    private final SpeechScheduler scheduler;
+    private final SpeechPriority priority;
+    private final long sequence;
+    private final SentenceSplitter splitter = new SentenceSplitter();
+    private final BlockingQueue<String> sentences = new LinkedBlockingQueue<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final long openedNanos = System.nanoTime();
+    private volatile long synthesisStartedNanos;
+    private volatile long firstAudioNanos;
+    private volatile boolean cancelled;
+    private volatile boolean rejected;
+    private boolean finished;
+    
+    SpeechStream(SpeechScheduler scheduler, SpeechPriority priority, long sequence) {
+        this.scheduler = scheduler;
+        this.priority = priority;
+        this.sequence = sequence;
+    }
+    
+    /**
+     * Appends the next chunk of text.
+     * Chunks appended after {@link #finish()} or {@link #cancel()} are ignored.
+     * 
+     * @param chunk The text chunk
+     */
+    public synchronized void append(CharSequence chunk) {
+        if (finished || cancelled || chunk == null) {
+            return;
+        }
+        sentences.addAll(splitter.append(chunk));
+    }
+    
+    /**
+     * Marks the end of the text. The remaining partial sentence is spoken.
+     */
+    public synchronized void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        String last = splitter.flush();
+        if (last != null && !cancelled) {
+            sentences.add(last);
+        }
+        sentences.add(END);
+    }
+    
+    /**
+     * Stops this stream. Queued text is dropped and audio that is
+     * already playing is cut off.
+     */
+    public void cancel() {
+        if (isDone() || cancelled) {
+            return;
+        }
+        cancelled = true;
+        // Wake the synthesis thread if it is waiting for more text
+        sentences.add(END);
+        scheduler.cancel(this);
+    }
+    
+    /**
+     * Waits until everything in this stream has been spoken or it was cancelled.
+     * 
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void await() throws InterruptedException {
+        done.await();
+    }
+    
+    /**
+     * Waits until everything in this stream has been spoken, up to a timeout.
+     * 
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     * @return true if the stream finished speaking, false if the timeout elapsed
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+    
+    /**
+     * Checks whether this stream has finished, was cancelled or was rejected.
+     * 
+     * @return true if the stream is done
+     */
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+    
+    /**
+     * Checks whether this stream was cancelled.
+     * 
+     * @return true if {@link #cancel()} was called before the stream finished
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Checks whether the scheduler turned this stream away because its queue was full.
+     * 
+     * @return true if the stream was rejected
+     */
+    public boolean isRejected() {
+        return rejected;
+    }
+    
+    /**
+     * Gets the priority this stream was queued with.
+     * 
+     * @return The priority
+     */
+    public SpeechPriority getPriority() {
+        return priority;
+    }
+    
+    /**
+     * Gets the time from opening the stream until its first audio started playing.
+     * 
+     * @return The latency in milliseconds, or -1 if nothing has played yet
+     */
+    public long getTimeToFirstAudioMillis() {
+        long first = firstAudioNanos;
+        return first == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(first - openedNanos);
+    }
+    
+    /**
+     * Gets the time this stream waited in the queue before synthesis started.
+     * 
+     * @return The wait in nanoseconds, or -1 if synthesis has not started
+     */
+    long getQueueWaitNanos() {
+        long started = synthesisStartedNanos;
+        return started == 0 ? -1 : started - openedNanos;
+    }
+    
+    long getSequence() {
+        return sequence;
+    }
+    
+    /**
+     * Takes the next sentence to synthesize, waiting for it if necessary.
+     * 
+     * @return The sentence, or null once the stream has ended or was cancelled
+     * @throws InterruptedException if the synthesis thread is interrupted
+     */
+    String nextSentence() throws InterruptedException {
+        if (cancelled) {
+            return null;
+        }
+        String sentence = sentences.take();
+        return sentence == END || cancelled ? null : sentence;
+    }
+    
+    void markSynthesisStarted() {
+        synthesisStartedNanos = System.nanoTime();
+    }
+    
+    void markAudioStarted() {
+        if (firstAudioNanos == 0) {
+            firstAudioNanos = System.nanoTime();
+        }
+    }
+    
+    void markRejected() {
+        rejected = true;
+        done.countDown();
+    }
+    
+    void markDone() {
+        done.countDown();
+    }
+}
\ No newline at end of file
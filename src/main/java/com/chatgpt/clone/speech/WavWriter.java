@@ -0,0 +1,76 @@
+package com.chatgpt.clone.speech;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes PCM audio as WAV without knowing the total length up front,
+ * so audio can be sent out sentence by sentence as it is synthesized.
+ */
+final class WavWriter {
+    private static final int HEADER_BYTES = 44;
+    
+    /**
+     * Data length written when the final length is not known yet.
+     * Streaming players treat it as "until the end of the stream".
+     */
+    private static final long UNKNOWN_LENGTH = 0xFFFFFFFFL - 36;
+    
+    private WavWriter() {
+    }
+    
+    /**
+     * Builds a 44-byte RIFF/WAVE header for signed PCM.
+     * 
+     * @param format The format of the samples as produced by the synthesizer
+     * @param dataBytes The number of PCM bytes that follow, or -1 if unknown
+     * @return The header bytes
+     */
+    static byte[] header(AudioFormat format, long dataBytes) {
+        long length = dataBytes < 0 ? UNKNOWN_LENGTH : dataBytes;
+        int channels = format.getChannels();
+        int sampleRate = (int) format.getSampleRate();
+        int bitsPerSample = format.getSampleSizeInBits();
+        int blockAlign = channels * bitsPerSample / 8;
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] {'R', 'I', 'F', 'F'});
+        header.putInt((int) (length + 36));
+        header.put(new byte[] {'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+        header.putInt(16);
+        header.putShort((short) 1); // PCM
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * blockAlign);
+        header.putShort((short) blockAlign);
+        header.putShort((short) bitsPerSample);
+        header.put(new byte[] {'d', 'a', 't', 'a'});
+        header.putInt((int) length);
+        return header.array();
+    }
+    
+    /**
+     * Writes PCM samples in the little-endian byte order WAV requires.
+     * 
+     * @param out The destination
+     * @param format The format of the samples
+     * @param pcm The samples
+     * @throws IOException if writing fails
+     */
+    static void writeSamples(OutputStream out, AudioFormat format, byte[] pcm) throws IOException {
+        if (!format.isBigEndian() || format.getSampleSizeInBits() != 16) {
+            out.write(pcm);
+            return;
+        }
+        
+        byte[] swapped = new byte[pcm.length];
+        for (int i = 0; i + 1 < pcm.length; i += 2) {
+            swapped[i] = pcm[i + 1];
+            swapped[i + 1] = pcm[i];
+        }
+        out.write(swapped);
+    }
+}
@@ -0,0 +1,20 @@
+package com.chatgpt.clone.transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Produces a request body while it is being sent, so large bodies never
+ * have to be held in memory in full.
+ */
+@FunctionalInterface
+public interface BodyWriter {
+    
+    /**
+     * Writes the body and closes the stream.
+     * 
+     * @param out The stream to the connection
+     * @throws IOException if the body cannot be written
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
\ No newline at end of file
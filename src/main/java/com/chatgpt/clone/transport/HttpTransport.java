@@ -0,0 +1,41 @@
+package com.chatgpt.clone.transport;
+
+/**
+ * The HTTP client that carries completion requests to the API.
+ * Implementations must be thread-safe; one transport is shared by all
+ * requests of a service.
+ */
+public interface HttpTransport extends AutoCloseable {
+    
+    /**
+     * Prepares a POST request without sending it.
+     * 
+     * @param request The request
+     * @return The call, which can be executed once and cancelled from any thread
+     */
+    TransportCall newCall(TransportRequest request);
+    
+    /**
+     * Gets a short name for logs and benchmarks.
+     * 
+     * @return The name, e.g. "okhttp"
+     */
+    String getName();
+    
+    /**
+     * Opens a connection to the server of the given URL ahead of the first call,
+     * so DNS, TCP and TLS setup are not paid by the first request.
+     * Blocks until the connection is established; failures are ignored.
+     * Transports without connections do nothing.
+     * 
+     * @param url The URL calls will be made to
+     */
+    default void warmUp(String url) {
+    }
+    
+    /**
+     * Releases connections and threads.
+     */
+    @Override
+    void close();
+}
\ No newline at end of file
@@ -0,0 +1,221 @@
+package com.chatgpt.clone.transport;
+
+import com.chatgpt.clone.util.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Transport based on {@code java.net.http.HttpClient}.
+ * Requests are sent asynchronously and the caller only parks while
+ * waiting, so it pairs well with virtual threads on JDKs that have them.
+ * Gzip responses are requested and decoded here, since the JDK client
+ * does not do that itself.
+ */
+public class JdkHttpTransport implements HttpTransport {
+    private static final Logger logger = new Logger(JdkHttpTransport.class);
+    private static final int PIPE_SIZE = 64 * 1024;
+    
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final ExecutorService bodyWriters = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "jdk-http-body-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * Creates a JDK HttpClient transport.
+     * 
+     * @param connectTimeout The connect timeout
+     * @param requestTimeout The maximum time until the response headers arrive
+     */
+    public JdkHttpTransport(Duration connectTimeout, Duration requestTimeout) {
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        this.requestTimeout = requestTimeout;
+    }
+    
+    @Override
+    public TransportCall newCall(TransportRequest request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.getUrl()))
+                .timeout(requestTimeout)
+                .header("Content-Type", request.getContentType())
+                .header("Accept-Encoding", "gzip");
+        request.getHeaders().forEach((name, value) -> {
+            if (!"Content-Type".equalsIgnoreCase(name)) {
+                builder.header(name, value);
+            }
+        });
+        HttpRequest httpRequest = builder.POST(toBodyPublisher(request)).build();
+        
+        return new TransportCall() {
+            private volatile boolean cancelled;
+            private volatile CompletableFuture<HttpResponse<InputStream>> future;
+            private volatile InputStream body;
+            
+            @Override
+            public TransportResponse execute() throws IOException {
+                if (cancelled) {
+                    throw new IOException("Canceled");
+                }
+                future = client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+                HttpResponse<InputStream> response;
+                try {
+                    response = future.get();
+                } catch (InterruptedException e) {
+                    future.cancel(true);
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted");
+                } catch (CancellationException e) {
+                    throw new IOException("Canceled", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                }
+                
+                InputStream raw = response.body();
+                body = raw;
+                if (cancelled) {
+                    raw.close();
+                    throw new IOException("Canceled");
+                }
+                boolean gzip = response.headers().firstValue("Content-Encoding")
+                        .map("gzip"::equalsIgnoreCase).orElse(false);
+                InputStream decoded = gzip ? new GZIPInputStream(raw) : raw;
+                return new TransportResponse(response.statusCode(), decoded, raw);
+            }
+            
+            @Override
+            public void cancel() {
+                cancelled = true;
+                CompletableFuture<HttpResponse<InputStream>> pending = future;
+                if (pending != null) {
+                    pending.cancel(true);
+                }
+                InputStream open = body;
+                if (open != null) {
+                    try {
+                        // Closing the body aborts the exchange and wakes a blocked reader
+                        open.close();
+                    } catch (IOException e) {
+                        logger.debug("Error closing cancelled response: " + e.getMessage());
+                    }
+                }
+            }
+        };
+    }
+    
+    @Override
+    public void warmUp(String url) {
+        // Any answer to a HEAD request leaves a pooled connection behind
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(requestTimeout)
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debug("Connection warm-up failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return "jdk";
+    }
+    
+    @Override
+    public void close() {
+        bodyWriters.shutdown();
+    }
+    
+    private HttpRequest.BodyPublisher toBodyPublisher(TransportRequest request) {
+        if (request.getBody() != null) {
+            return HttpRequest.BodyPublishers.ofByteArray(request.getBody());
+        }
+        
+        // The writer fills a pipe on its own thread while the client reads from it
+        return HttpRequest.BodyPublishers.ofInputStream(() -> {
+            BodyPipe in = new BodyPipe();
+            try {
+                PipedOutputStream out = new PipedOutputStream(in);
+                bodyWriters.execute(() -> {
+                    try {
+                        request.getBodyWriter().writeTo(out);
+                    } catch (IOException | RuntimeException e) {
+                        logger.error("Error writing request body", e);
+                        // Fail the upload instead of letting the pipe end like a complete body
+                        in.fail(e);
+                    } finally {
+                        try {
+                            out.close();
+                        } catch (IOException e) {
+                            logger.debug("Error closing request body pipe: " + e.getMessage());
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not create request body pipe", e);
+            }
+            return in;
+        });
+    }
+    
+    /**
+     * The reading end of a request body pipe. A failure of the writer is
+     * raised to the client, so a cut-off body aborts the request.
+     */
+    private static final class BodyPipe extends PipedInputStream {
+        private volatile Exception failure;
+        
+        BodyPipe() {
+            super(PIPE_SIZE);
+        }
+        
+        void fail(Exception cause) {
+            failure = cause;
+        }
+        
+        @Override
+        public synchronized int read() throws IOException {
+            checkFailure();
+            int value = super.read();
+            checkFailure();
+            return value;
+        }
+        
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
+            checkFailure();
+            int count = super.read(buffer, offset, length);
+            checkFailure();
+            return count;
+        }
+        
+        private void checkFailure() throws IOException {
+            Exception cause = failure;
+            if (cause != null) {
+                throw new IOException("Request body could not be written", cause);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+package com.chatgpt.clone.transport;
+
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+
+/**
+ * Transport based on OkHttp.
+ * Calls block the calling thread; OkHttp pools connections and decodes
+ * gzip responses on its own. Sockets are opened with TCP_NODELAY.
+ */
+public class OkHttpTransport implements HttpTransport {
+    private final OkHttpClient client;
+    
+    /**
+     * Creates an OkHttp transport.
+     * 
+     * @param connectTimeout The connect timeout
+     * @param readTimeout The maximum time between two reads
+     * @param writeTimeout The maximum time between two writes
+     */
+    public OkHttpTransport(Duration connectTimeout, Duration readTimeout, Duration writeTimeout) {
+        this.client = new OkHttpClient.Builder()
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .writeTimeout(writeTimeout)
+                .socketFactory(new NoDelaySocketFactory())
+                .build();
+    }
+    
+    @Override
+    public TransportCall newCall(TransportRequest request) {
+        Request.Builder builder = new Request.Builder().url(request.getUrl());
+        request.getHeaders().forEach(builder::addHeader);
+        Call call = client.newCall(builder.post(toRequestBody(request)).build());
+        
+        return new TransportCall() {
+            @Override
+            public TransportResponse execute() throws IOException {
+                Response response = call.execute();
+                InputStream body = response.body() != null ? response.body().byteStream() : InputStream.nullInputStream();
+                return new TransportResponse(response.code(), body, response);
+            }
+            
+            @Override
+            public void cancel() {
+                call.cancel();
+            }
+        };
+    }
+    
+    @Override
+    public void warmUp(String url) {
+        // Any answer to a HEAD request leaves a pooled connection behind
+        try (Response response = client.newCall(new Request.Builder().url(url).head().build()).execute()) {
+            response.code();
+        } catch (IOException | IllegalArgumentException e) {
+            // The first real call connects on its own
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return "okhttp";
+    }
+    
+    @Override
+    public void close() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+    
+    private static RequestBody toRequestBody(TransportRequest request) {
+        MediaType contentType = MediaType.parse(request.getContentType());
+        if (request.getBody() != null) {
+            return RequestBody.create(request.getBody(), contentType);
+        }
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+            
+            @Override
+            public long contentLength() {
+                // Unknown until written, so the body is sent chunked
+                return -1;
+            }
+            
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                request.getBodyWriter().writeTo(sink.outputStream());
+            }
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.chatgpt.clone.transport;
+
+import java.io.IOException;
+
+/**
+ * A single request prepared by an {@link HttpTransport}.
+ */
+public interface TransportCall {
+    
+    /**
+     * Sends the request and waits for the response headers.
+     * The body is read from the returned response, which must be closed.
+     * 
+     * @return The response
+     * @throws IOException if the request fails or was cancelled
+     */
+    TransportResponse execute() throws IOException;
+    
+    /**
+     * Aborts the call. A blocked {@link #execute()} or body read fails with
+     * an IOException and the connection is released.
+     */
+    void cancel();
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.chatgpt.clone.transport;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A POST request to send through an {@link HttpTransport}.
+ * The body is either a byte array or, for bodies produced while sending,
+ * a {@link BodyWriter}.
+ */
+@Value
+@Builder
+public class TransportRequest {
+    /**
+     * The URL to post to.
+     */
+    String url;
+    
+    /**
+     * The request headers.
+     */
+    @Singular
+    Map<String, String> headers;
+    
+    /**
+     * The media type of the body.
+     */
+    String contentType;
+    
+    /**
+     * The complete body, or null if {@link #bodyWriter} is used.
+     */
+    byte[] body;
+    
+    /**
+     * Writes the body while it is sent, or null if {@link #body} is used.
+     */
+    BodyWriter bodyWriter;
+    
+    /**
+     * Produces the body as the server would see it after removing the content coding.
+     * A {@link #bodyWriter} is run again for this, so the body is serialized twice.
+     * 
+     * @return The uncompressed body
+     * @throws IOException if the body cannot be written or decompressed
+     */
+    public byte[] decodedBody() throws IOException {
+        byte[] raw = body;
+        if (raw == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            bodyWriter.writeTo(out);
+            raw = out.toByteArray();
+        }
+        String encoding = headers.getOrDefault("Content-Encoding", "");
+        if (encoding.equalsIgnoreCase("gzip")) {
+            return new GZIPInputStream(new ByteArrayInputStream(raw)).readAllBytes();
+        }
+        if (encoding.equalsIgnoreCase("deflate")) {
+            return new InflaterInputStream(new ByteArrayInputStream(raw)).readAllBytes();
+        }
+        return raw;
+    }
+}
\ No newline at end of file
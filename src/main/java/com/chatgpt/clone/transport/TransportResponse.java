@@ -0,0 +1,75 @@
+package com.chatgpt.clone.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The response to a {@link TransportCall}.
+ * The body is already decompressed. Closing the response releases the connection.
+ */
+public class TransportResponse implements Closeable {
+    private final int statusCode;
+    private final InputStream body;
+    private final Closeable resource;
+    
+    /**
+     * Creates a response.
+     * 
+     * @param statusCode The HTTP status code
+     * @param body The decoded body
+     * @param resource What to close when the response is closed
+     */
+    public TransportResponse(int statusCode, InputStream body, Closeable resource) {
+        this.statusCode = statusCode;
+        this.body = body;
+        this.resource = resource;
+    }
+    
+    /**
+     * Gets the HTTP status code.
+     * 
+     * @return The status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+    
+    /**
+     * Checks whether the status code is in the 2xx range.
+     * 
+     * @return true for a successful response
+     */
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+    
+    /**
+     * Gets the body as a stream.
+     * 
+     * @return The body
+     */
+    public InputStream getBody() {
+        return body;
+    }
+    
+    /**
+     * Reads the whole body as UTF-8 text.
+     * 
+     * @return The body text
+     * @throws IOException if the body cannot be read
+     */
+    public String readBody() throws IOException {
+        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            body.close();
+        } finally {
+            resource.close();
+        }
+    }
+}
\ No newline at end of file
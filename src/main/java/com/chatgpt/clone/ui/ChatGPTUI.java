@@ -1,23 +1,65 @@
 package com.chatgpt.clone.ui;
 
+import com.chatgpt.clone.codec.CodecFormat;
+import com.chatgpt.clone.config.OpenAIConfig;
 import com.chatgpt.clone.exception.OpenAIException;
+import com.chatgpt.clone.exception.RequestCancelledException;
+import com.chatgpt.clone.history.ConversationStore;
+import com.chatgpt.clone.history.StoredConversation;
+import com.chatgpt.clone.model.Conversation;
 import com.chatgpt.clone.model.Message;
+import com.chatgpt.clone.recognition.AudioSource;
+import com.chatgpt.clone.recognition.FileAudioSource;
+import com.chatgpt.clone.recognition.MicrophoneAudioSource;
+import com.chatgpt.clone.recognition.SpeechRecognizer;
+import com.chatgpt.clone.recognition.TranscriptRecognizer;
+import com.chatgpt.clone.recognition.VoiceActivityDetector;
+import com.chatgpt.clone.recognition.VoiceInput;
+import com.chatgpt.clone.recognition.VoiceUtterance;
+import com.chatgpt.clone.retrieval.ConversationRetriever;
+import com.chatgpt.clone.retrieval.EmbeddingProvider;
+import com.chatgpt.clone.retrieval.HashingEmbeddingProvider;
+import com.chatgpt.clone.retrieval.HnswIndex;
+import com.chatgpt.clone.retrieval.OpenAIEmbeddingProvider;
+import com.chatgpt.clone.retrieval.VectorKernel;
+import com.chatgpt.clone.service.CancellationToken;
 import com.chatgpt.clone.service.GPTService;
+import com.chatgpt.clone.service.PromptCacheStats;
+import com.chatgpt.clone.service.PromptLayout;
+import com.chatgpt.clone.service.RequestPriority;
+import com.chatgpt.clone.service.SchedulerStats;
+import com.chatgpt.clone.service.TimeoutStats;
+import com.chatgpt.clone.speech.SpeechStream;
+import com.chatgpt.clone.transport.OkHttpTransport;
+import com.chatgpt.clone.usage.UsageDimension;
+import com.chatgpt.clone.usage.UsageLedger;
 import com.chatgpt.clone.util.Logger;
 import com.chatgpt.clone.util.OpenAIUtil;
 
 import javax.swing.*;
-import javax.swing.text.*;
-import javax.swing.text.html.HTMLDocument;
-import javax.swing.text.html.HTMLEditorKit;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A simple Swing-based UI for interacting with the GPT service.
@@ -25,20 +67,47 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class ChatGPTUI extends JFrame {
     private static final Logger logger = new Logger(ChatGPTUI.class);
     
-    private final GPTService gptService;
-    private final List<Message> conversation;
+    private final StartupSequence startup;
+    private boolean startupFinished;
+    private GPTService gptService;
+    private ConversationStore historyStore;
+    private volatile ConversationRetriever retriever;
+    private volatile PromptLayout promptLayout = PromptLayout.plain();
+    private final int compactWindow;
+    private final int backgroundHotWindow;
+    private final int maxLoadedTabs;
+    private final boolean coalesceQueued;
+    private final List<ConversationTab> tabs = new ArrayList<>();
+    private final List<StoredConversation> historyRecords = new ArrayList<>();
+    private final Map<TranscriptMessage, Conversation> turnSnapshots = new HashMap<>();
+    private ConversationTab activeTab;
     private final VoiceManager voiceManager;
+    private boolean voiceReady;
+    private VoiceInput voiceInput;
+    private final boolean voiceAutoSend;
+    private String voicePrefix = "";
     
-    private JTextPane chatArea;
+    private TranscriptModel transcript;
+    private TranscriptView chatArea;
+    private MarkdownRenderQueue renderQueue;
     private JTextField inputField;
     private JButton sendButton;
+    private JButton stopButton;
+    private JToggleButton listenButton;
     private JButton clearButton;
     private JComboBox<String> modelSelector;
+    private JTabbedPane tabPane;
+    private JScrollPane transcriptPane;
+    private JButton newTabButton;
+    private JButton closeTabButton;
+    private JComboBox<String> historySelector;
+    private DefaultListModel<String> queueModel;
+    private JList<String> queueList;
+    private JPanel queuePanel;
     private JCheckBox systemMessageCheckbox;
     private JTextField systemMessageField;
     private JCheckBox voiceEnabledCheckbox;
-    
-    private final AtomicBoolean isSpeaking = new AtomicBoolean(false);
+    private JLabel statusLabel;
     
     private final String[] AVAILABLE_MODELS = {"gpt-3.5-turbo", "gpt-4"};
     
@@ -48,14 +117,19 @@ public class ChatGPTUI extends JFrame {
     public ChatGPTUI() {
         super("ChatGPT Clone");
         
-        // Initialize the GPT service
-        gptService = new GPTService();
+        // Reading the configuration is quick; everything slow is started once the UI exists
+        OpenAIConfig config = new OpenAIConfig();
+        startup = new StartupSequence(config.getBooleanProperty("startup.staged", true));
+        compactWindow = config.getBooleanProperty("conversation.compact.enabled", false)
+                ? config.getIntProperty("conversation.compact.hot.window", 8) : 0;
         
-        // Initialize the conversation
-        conversation = new ArrayList<>();
+        backgroundHotWindow = config.getIntProperty("tabs.background.hot.window", 2);
+        maxLoadedTabs = config.getIntProperty("tabs.max.loaded", 8);
+        coalesceQueued = config.getBooleanProperty("queue.coalesce", false);
         
-        // Initialize the voice manager
-        voiceManager = new VoiceManager();
+        // The voice is loaded in the background
+        voiceManager = new VoiceManager(false);
+        voiceAutoSend = config.getBooleanProperty("voice.input.autosend", true);
         
         // Set up the UI components
         initializeUI();
@@ -66,9 +140,17 @@ public class ChatGPTUI extends JFrame {
         // Set default system message
         systemMessageField.setText("You are a helpful assistant.");
         
+        // Open the first tab; conversations are only replaced, never modified,
+        // so background requests can use a snapshot without copying
+        openTab(new ConversationTab(newRecord(), withCompaction(Conversation.empty()), false));
+        
         // Add initial system message to conversation
         updateSystemMessage();
         
+        // Typing works at once; sending and voice follow when their parts are ready
+        setInputEnabled(true);
+        startBackgroundInitialization(config);
+        
         logger.info("ChatGPT UI initialized");
     }
     
@@ -82,29 +164,71 @@ public class ChatGPTUI extends JFrame {
         setLocationRelativeTo(null);
         
         // Create components
-        chatArea = new JTextPane();
-        chatArea.setEditable(false);
-        chatArea.setContentType("text/html");
+        transcript = new TranscriptModel();
+        renderQueue = new MarkdownRenderQueue(transcript);
+        chatArea = new TranscriptView(transcript);
         
         inputField = new JTextField();
         sendButton = new JButton("Send");
+        stopButton = new JButton("Stop");
+        stopButton.setEnabled(false);
+        listenButton = new JToggleButton("Listen");
+        listenButton.setEnabled(false);
+        listenButton.setToolTipText("Loading voice input...");
         clearButton = new JButton("Clear Chat");
         modelSelector = new JComboBox<>(AVAILABLE_MODELS);
+        newTabButton = new JButton("New Tab");
+        newTabButton.setToolTipText("Open a new conversation (Ctrl+T)");
+        closeTabButton = new JButton("Close Tab");
+        closeTabButton.setToolTipText("Close this conversation (Ctrl+W)");
+        historySelector = new JComboBox<>(new String[] {"Open conversation..."});
+        queueModel = new DefaultListModel<>();
+        queueList = new JList<>(queueModel);
+        queueList.setVisibleRowCount(3);
+        queueList.setToolTipText("Double-click to edit, Delete to remove");
         systemMessageCheckbox = new JCheckBox("System Message:", true);
         systemMessageField = new JTextField();
         voiceEnabledCheckbox = new JCheckBox("Enable Voice", voiceManager.isEnabled());
+        statusLabel = new JLabel("Starting...");
+        statusLabel.setForeground(Color.GRAY);
         
-        // Layout
-        JPanel mainPanel = new JPanel(new BorderLayout());
+        // Layout; the first paint of the window is a startup milestone
+        JPanel mainPanel = new JPanel(new BorderLayout()) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                startup.mark("first-paint");
+            }
+        };
         
-        // Chat area with scroll pane
-        JScrollPane scrollPane = new JScrollPane(chatArea);
-        mainPanel.add(scrollPane, BorderLayout.CENTER);
+        // Chat area with scroll pane; all tabs share it and it moves into the tab that is shown
+        transcriptPane = new JScrollPane(chatArea);
+        tabPane = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
+        mainPanel.add(tabPane, BorderLayout.CENTER);
         
         // Input panel
         JPanel inputPanel = new JPanel(new BorderLayout());
         inputPanel.add(inputField, BorderLayout.CENTER);
-        inputPanel.add(sendButton, BorderLayout.EAST);
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 3, 4, 0));
+        buttonPanel.add(sendButton);
+        buttonPanel.add(stopButton);
+        buttonPanel.add(listenButton);
+        inputPanel.add(buttonPanel, BorderLayout.EAST);
+        
+        // Messages waiting for the answer in progress, shown above the input field
+        queuePanel = new JPanel(new BorderLayout(4, 0));
+        queuePanel.add(new JLabel("Queued:"), BorderLayout.WEST);
+        queuePanel.add(new JScrollPane(queueList), BorderLayout.CENTER);
+        JPanel queueButtons = new JPanel(new GridLayout(2, 1, 0, 2));
+        JButton editQueuedButton = new JButton("Edit");
+        editQueuedButton.addActionListener(e -> editQueued(queueList.getSelectedIndex()));
+        JButton removeQueuedButton = new JButton("Remove");
+        removeQueuedButton.addActionListener(e -> removeQueued(queueList.getSelectedIndex()));
+        queueButtons.add(editQueuedButton);
+        queueButtons.add(removeQueuedButton);
+        queuePanel.add(queueButtons, BorderLayout.EAST);
+        queuePanel.setVisible(false);
+        inputPanel.add(queuePanel, BorderLayout.NORTH);
         
         // Control panel
         JPanel controlPanel = new JPanel(new BorderLayout());
@@ -113,8 +237,12 @@ public class ChatGPTUI extends JFrame {
         JPanel modelPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         modelPanel.add(new JLabel("Model:"));
         modelPanel.add(modelSelector);
+        modelPanel.add(newTabButton);
+        modelPanel.add(closeTabButton);
+        modelPanel.add(historySelector);
         modelPanel.add(clearButton);
         modelPanel.add(voiceEnabledCheckbox);
+        modelPanel.add(statusLabel);
         
         // System message panel
         JPanel systemPanel = new JPanel(new BorderLayout());
@@ -158,6 +286,42 @@ public class ChatGPTUI extends JFrame {
             }
         });
         
+        // Editing and removing queued messages
+        queueList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    editQueued(queueList.locationToIndex(e.getPoint()));
+                }
+            }
+        });
+        queueList.registerKeyboardAction(e -> removeQueued(queueList.getSelectedIndex()),
+                KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), JComponent.WHEN_FOCUSED);
+        
+        // Stop button action
+        stopButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                cancelActiveRequest();
+            }
+        });
+        
+        // Listen button toggles voice input
+        listenButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                toggleListening(listenButton.isSelected());
+            }
+        });
+        
+        // Changing the model abandons the answer of the previous one
+        modelSelector.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                cancelActiveRequest();
+            }
+        });
+        
         // Clear button action
         clearButton.addActionListener(new ActionListener() {
             @Override
@@ -180,97 +344,687 @@ public class ChatGPTUI extends JFrame {
             @Override
             public void windowClosing(WindowEvent e) {
                 logger.info("ChatGPT UI closing");
+                for (ConversationTab tab : tabs) {
+                    if (tab.isBusy()) {
+                        tab.getActiveRequest().cancel();
+                    }
+                }
+                if (voiceManager.getStats() != null) {
+                    logger.info("Speech " + voiceManager.getStats());
+                }
                 voiceManager.cleanup();
+                if (voiceInput != null) {
+                    voiceInput.close();
+                    logger.info("Voice input " + voiceInput.getStats());
+                }
+                renderQueue.close();
+                if (historyStore != null) {
+                    historyStore.close();
+                }
+                if (retriever != null) {
+                    logger.info("Retrieval " + retriever.getStats());
+                    retriever.close();
+                }
+                if (gptService != null) {
+                    logStats();
+                    gptService.close();
+                }
+            }
+        });
+        
+        // Switching tabs
+        tabPane.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                int index = tabPane.getSelectedIndex();
+                if (index >= 0 && tabs.get(index) != activeTab) {
+                    showTab(tabs.get(index));
+                }
+            }
+        });
+        
+        // New and close tab buttons and their shortcuts
+        ActionListener newTab = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                openTab(new ConversationTab(newRecord(), withCompaction(Conversation.empty()), false));
+            }
+        };
+        ActionListener closeTab = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                closeTab(activeTab);
+            }
+        };
+        newTabButton.addActionListener(newTab);
+        closeTabButton.addActionListener(closeTab);
+        int shortcut = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        getRootPane().registerKeyboardAction(newTab, KeyStroke.getKeyStroke(KeyEvent.VK_T, shortcut),
+                JComponent.WHEN_IN_FOCUSED_WINDOW);
+        getRootPane().registerKeyboardAction(closeTab, KeyStroke.getKeyStroke(KeyEvent.VK_W, shortcut),
+                JComponent.WHEN_IN_FOCUSED_WINDOW);
+        
+        // Opening a stored conversation
+        historySelector.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                int index = historySelector.getSelectedIndex();
+                if (index > 0) {
+                    historySelector.setSelectedIndex(0);
+                    openStored(historyRecords.get(index - 1));
+                }
             }
         });
         
+        // Branching from an earlier message in the transcript
+        chatArea.addMessageAction("Branch from here", turnSnapshots::containsKey, this::branchFrom);
+        
         // Voice checkbox
         voiceEnabledCheckbox.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 voiceManager.setEnabled(voiceEnabledCheckbox.isSelected());
+                if (!voiceEnabledCheckbox.isSelected()) {
+                    voiceManager.stopSpeaking();
+                }
                 logger.info("Voice " + (voiceEnabledCheckbox.isSelected() ? "enabled" : "disabled"));
             }
         });
     }
     
     /**
-     * Sends a message to the GPT service and displays the response.
+     * Starts the slow parts of startup: creating the service and warming up its
+     * connection, loading the voice and voice input, and loading the stored
+     * conversations. They run in parallel in the background unless
+     * startup.staged is false; each feature is enabled once its part is ready.
+     * 
+     * @param config The configuration
+     */
+    private void startBackgroundInitialization(OpenAIConfig config) {
+        startup.run("connection", () -> {
+            GPTService service;
+            try {
+                service = new GPTService(config);
+            } catch (OpenAIException e) {
+                logger.error("Could not create the GPT service", e);
+                SwingUtilities.invokeLater(() -> {
+                    appendToChat("System", "Error: " + OpenAIUtil.formatError(e), Color.RED);
+                    statusLabel.setText("Service unavailable");
+                });
+                return;
+            }
+            promptLayout = createPromptLayout(config);
+            SwingUtilities.invokeLater(() -> onServiceReady(service));
+            service.warmUp();
+        });
+        startup.run("voice", () -> {
+            voiceManager.initialize();
+            VoiceInput input = createVoiceInput(config);
+            SwingUtilities.invokeLater(() -> onVoiceReady(input));
+        });
+        startup.run("history", () -> {
+            ConversationStore store = openHistory(config);
+            List<StoredConversation> stored = new ArrayList<>();
+            if (store != null) {
+                try {
+                    stored = store.loadAll();
+                } catch (IOException e) {
+                    logger.error("Could not load conversation history", e);
+                }
+            }
+            // The turns are dropped once the history is listed, so keep them for indexing
+            Map<String, List<Message>> turns = new HashMap<>();
+            for (StoredConversation record : stored) {
+                if (record.getMessages() != null) {
+                    turns.put(record.getId(), record.getMessages());
+                }
+            }
+            List<StoredConversation> loaded = stored;
+            SwingUtilities.invokeLater(() -> onHistoryLoaded(store, loaded));
+            
+            // Conversations saved while retrieval was off are indexed now
+            ConversationRetriever opened = store != null ? openRetriever(config) : null;
+            if (opened != null) {
+                turns.forEach(opened::indexLater);
+                retriever = opened;
+            }
+        });
+        startup.allDone().whenComplete((ignored, error) -> SwingUtilities.invokeLater(this::onStartupFinished));
+    }
+    
+    /**
+     * Enables sending once the service exists.
+     * 
+     * @param service The GPT service
+     */
+    private void onServiceReady(GPTService service) {
+        gptService = service;
+        sendButton.setEnabled(inputField.isEnabled());
+        startup.mark("send-ready");
+        updateStartupStatus();
+    }
+    
+    /**
+     * Enables the voice controls once the voice is loaded.
+     * 
+     * @param input The voice input, or null if it is not available
+     */
+    private void onVoiceReady(VoiceInput input) {
+        voiceReady = true;
+        voiceInput = input;
+        voiceEnabledCheckbox.setSelected(voiceManager.isEnabled());
+        voiceEnabledCheckbox.setEnabled(inputField.isEnabled() && voiceManager.isInitialized());
+        listenButton.setEnabled(input != null);
+        listenButton.setToolTipText(input != null ? "Dictate a message"
+                : "Voice input needs an audio source and a speech recognizer (voice.input.*)");
+        updateStartupStatus();
+    }
+    
+    /**
+     * Lists the stored conversations in the history selector.
+     * 
+     * @param store The store, or null if history is disabled
+     * @param stored The stored conversations, most recent first
+     */
+    private void onHistoryLoaded(ConversationStore store, List<StoredConversation> stored) {
+        historyStore = store;
+        for (StoredConversation record : stored) {
+            // Only the metadata is kept; a conversation is read again when it is opened
+            record.setMessages(null);
+            historyRecords.add(record);
+            historySelector.addItem(record.getTitle() != null ? record.getTitle() : "Untitled");
+        }
+        if (!stored.isEmpty()) {
+            logger.info("Loaded " + stored.size() + " conversations from " + store.getDirectory());
+        }
+        updateStartupStatus();
+    }
+    
+    /**
+     * Gets the startup milestones of this window.
+     * 
+     * @return The startup sequence
+     */
+    public StartupSequence getStartup() {
+        return startup;
+    }
+    
+    /**
+     * Shows that startup has finished and logs how long each part took.
+     */
+    private void onStartupFinished() {
+        startupFinished = true;
+        updateStartupStatus();
+        startup.mark(StartupSequence.ALL_READY);
+        logger.info("Startup " + startup);
+    }
+    
+    /**
+     * Shows which parts of startup are still running.
+     */
+    private void updateStartupStatus() {
+        List<String> pending = new ArrayList<>();
+        if (gptService == null) {
+            pending.add("service");
+        }
+        if (!voiceReady) {
+            pending.add("voice");
+        }
+        if (historyStore == null && !startup.isReached("history-ready")) {
+            pending.add("history");
+        }
+        if (!pending.isEmpty()) {
+            statusLabel.setText("Loading " + String.join(", ", pending) + "...");
+        } else if (gptService != null) {
+            statusLabel.setText("Ready");
+            statusLabel.setToolTipText("Startup: " + startup);
+        }
+    }
+    
+    /**
+     * Opens the conversation store if history is enabled.
+     * 
+     * @param config The configuration
+     * @return The store, or null if history is disabled or cannot be opened
+     */
+    private static ConversationStore openHistory(OpenAIConfig config) {
+        if (!config.getBooleanProperty("history.enabled", true)) {
+            return null;
+        }
+        try {
+            return new ConversationStore(Paths.get(config.getProperty("history.dir", "history")),
+                    CodecFormat.of(config.getProperty("history.format", "json")));
+        } catch (IOException e) {
+            logger.error("Could not open conversation history, conversations will not be saved", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Creates the request layout configured by the prompt.* properties.
+     * 
+     * @param config The configuration
+     * @return The layout; without settings it sends the whole conversation
+     */
+    private static PromptLayout createPromptLayout(OpenAIConfig config) {
+        List<Message> pinned = new ArrayList<>();
+        String pinnedFile = config.getProperty("prompt.pinned.file", "");
+        if (!pinnedFile.isEmpty()) {
+            try {
+                pinned.add(Message.systemMessage(Files.readString(Paths.get(pinnedFile)).strip()));
+            } catch (IOException e) {
+                logger.error("Could not read the pinned context " + pinnedFile, e);
+            }
+        }
+        return new PromptLayout(pinned,
+                config.getIntProperty("prompt.max.history.tokens", 0),
+                config.getIntProperty("prompt.trim.step.turns", 10));
+    }
+    
+    /**
+     * Opens the index of earlier conversations if retrieval is enabled.
+     * 
+     * @param config The configuration
+     * @return The retriever, or null if retrieval is disabled or the index cannot be opened
+     */
+    private static ConversationRetriever openRetriever(OpenAIConfig config) {
+        if (!config.getBooleanProperty("retrieval.enabled", false)) {
+            return null;
+        }
+        int dimensions = config.getIntProperty("retrieval.dimensions", 256);
+        EmbeddingProvider embeddings;
+        if ("openai".equalsIgnoreCase(config.getProperty("retrieval.embedding", "hashing"))) {
+            embeddings = new OpenAIEmbeddingProvider(
+                    new OkHttpTransport(Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofSeconds(30)),
+                    config.getProperty("retrieval.embedding.url", "https://api.openai.com/v1/embeddings"),
+                    config.getApiKey(),
+                    config.getProperty("retrieval.embedding.model", "text-embedding-3-small"),
+                    dimensions);
+        } else {
+            embeddings = new HashingEmbeddingProvider(dimensions);
+        }
+        HnswIndex index = null;
+        try {
+            index = HnswIndex.open(Paths.get(config.getProperty("retrieval.dir", "index")), embeddings.getName(),
+                    dimensions, config.getIntProperty("retrieval.hnsw.m", 16),
+                    config.getIntProperty("retrieval.hnsw.ef.construction", 100), VectorKernel.best());
+            return new ConversationRetriever(embeddings, index,
+                    config.getIntProperty("retrieval.top.k", 3),
+                    (float) config.getDoubleProperty("retrieval.min.score", 0.35),
+                    config.getIntProperty("retrieval.hnsw.ef.search", 64),
+                    config.getIntProperty("retrieval.max.snippet.chars", 600));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not open the index of earlier conversations, retrieval is off", e);
+            if (index != null) {
+                try {
+                    index.close();
+                } catch (IOException closeError) {
+                    logger.error("Could not close the vector index", closeError);
+                }
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Applies the configured compaction to a conversation.
+     * 
+     * @param conversation The conversation
+     * @return The conversation in compact mode if compaction is enabled
+     */
+    private Conversation withCompaction(Conversation conversation) {
+        return compactWindow > 0 ? conversation.compacted(compactWindow) : conversation;
+    }
+    
+    /**
+     * Creates the history record of a new conversation. It gets its title when it is first saved.
+     * 
+     * @return The record, without messages
+     */
+    private static StoredConversation newRecord() {
+        long now = System.currentTimeMillis();
+        return StoredConversation.builder()
+                .id(ConversationStore.newId())
+                .createdMillis(now)
+                .updatedMillis(now)
+                .build();
+    }
+    
+    /**
+     * Saves the conversation of a tab to the history in the background.
+     * 
+     * @param tab The tab
+     */
+    private void saveTab(ConversationTab tab) {
+        Conversation thread = tab.getConversation();
+        if (historyStore == null || thread.getTurnCount() == 0) {
+            return;
+        }
+        List<Message> turns = new ArrayList<>(thread.getTurnCount());
+        for (int i = 0; i < thread.getTurnCount(); i++) {
+            turns.add(thread.getTurn(i));
+        }
+        
+        // A new conversation is named after its first question
+        StoredConversation record = tab.getRecord();
+        if (record.getTitle() == null) {
+            String question = turns.get(0).getContent().strip().replaceAll("\\s+", " ");
+            record.setTitle(question.length() > 40 ? question.substring(0, 40) + "..." : question);
+            updateTabTitle(tab);
+        }
+        if (!tab.isSaved()) {
+            tab.setSaved(true);
+            historyRecords.add(0, record);
+            historySelector.insertItemAt(record.getTitle(), 1);
+        }
+        record.setUpdatedMillis(System.currentTimeMillis());
+        historyStore.saveLater(StoredConversation.builder()
+                .id(record.getId())
+                .title(record.getTitle())
+                .createdMillis(record.getCreatedMillis())
+                .updatedMillis(record.getUpdatedMillis())
+                .messages(turns)
+                .build());
+        if (retriever != null) {
+            retriever.indexLater(record.getId(), turns);
+        }
+    }
+    
+    /**
+     * Creates the offline voice input configured by the voice.input.* properties.
+     * A file source is used in place of the microphone for headless runs; it
+     * brings its own transcript recognizer when a matching .txt file exists.
+     * 
+     * @param config The configuration
+     * @return The voice input, or null if no audio source or recognizer is available
+     */
+    private VoiceInput createVoiceInput(OpenAIConfig config) {
+        String sourceName = config.getProperty("voice.input.source", "microphone");
+        String recognizerClass = config.getProperty("voice.input.recognizer", "");
+        AudioSource source = null;
+        try {
+            SpeechRecognizer recognizer = null;
+            if ("microphone".equalsIgnoreCase(sourceName)) {
+                if (!MicrophoneAudioSource.isAvailable()) {
+                    logger.info("No microphone available, voice input disabled");
+                    return null;
+                }
+                source = new MicrophoneAudioSource(config.getIntProperty("voice.input.buffer.millis", 60));
+            } else {
+                Path file = Paths.get(sourceName);
+                source = new FileAudioSource(file, config.getBooleanProperty("voice.input.realtime", true));
+                if (recognizerClass.isEmpty() && Files.exists(TranscriptRecognizer.transcriptFile(file))) {
+                    recognizer = TranscriptRecognizer.forAudioFile(file);
+                }
+            }
+            if (!recognizerClass.isEmpty()) {
+                recognizer = (SpeechRecognizer) Class.forName(recognizerClass).getDeclaredConstructor().newInstance();
+            }
+            if (recognizer == null) {
+                logger.info("No speech recognizer configured, voice input disabled");
+                source.close();
+                return null;
+            }
+            
+            int frameMillis = 20;
+            VoiceActivityDetector detector = new VoiceActivityDetector(frameMillis,
+                    config.getIntProperty("voice.input.start.millis", 60),
+                    config.getIntProperty("voice.input.endpoint.millis", 600),
+                    config.getDoubleProperty("voice.input.threshold", 3.0),
+                    config.getDoubleProperty("voice.input.min.level", 200));
+            return new VoiceInput(source, recognizer, detector, frameMillis,
+                    config.getIntProperty("voice.input.preroll.millis", 200), new VoiceInput.Listener() {
+                        @Override
+                        public void onSpeechStart() {
+                            SwingUtilities.invokeLater(() -> {
+                                // Talking over the assistant interrupts it
+                                voiceManager.stopSpeaking();
+                                voicePrefix = inputField.getText().trim();
+                            });
+                        }
+                        
+                        @Override
+                        public void onPartial(String text) {
+                            SwingUtilities.invokeLater(() -> inputField.setText(withVoicePrefix(text)));
+                        }
+                        
+                        @Override
+                        public void onUtterance(VoiceUtterance utterance) {
+                            SwingUtilities.invokeLater(() -> handleUtterance(utterance));
+                        }
+                    });
+        } catch (IOException | ReflectiveOperationException | ClassCastException e) {
+            logger.error("Voice input unavailable", e);
+            if (source != null) {
+                source.close();
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Starts or stops voice input.
+     * 
+     * @param listening Whether to listen
+     */
+    private void toggleListening(boolean listening) {
+        if (!listening) {
+            voiceInput.stop();
+            return;
+        }
+        try {
+            voiceInput.start();
+        } catch (IOException e) {
+            logger.error("Could not start voice input", e);
+            listenButton.setSelected(false);
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Voice Input", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    /**
+     * Puts a recognized utterance into the input field and sends it if auto-send is on.
+     * While an answer is in progress the utterance is queued.
+     * 
+     * @param utterance The utterance
+     */
+    private void handleUtterance(VoiceUtterance utterance) {
+        inputField.setText(withVoicePrefix(utterance.getText()));
+        voicePrefix = "";
+        if (!voiceInput.isListening()) {
+            listenButton.setSelected(false);
+        }
+        if (voiceAutoSend && !utterance.getText().isEmpty() && sendButton.isEnabled()) {
+            sendMessage();
+            double latency = voiceInput.recordSend(utterance);
+            logger.debug(String.format("Voice message sent %.1f ms after the end of speech", latency));
+        }
+    }
+    
+    /**
+     * Appends dictated text to what was typed before speech started.
+     * 
+     * @param text The dictated text
+     * @return The text for the input field
+     */
+    private String withVoicePrefix(String text) {
+        if (voicePrefix.isEmpty() || text.isEmpty()) {
+            return voicePrefix.isEmpty() ? text : voicePrefix;
+        }
+        return voicePrefix + " " + text;
+    }
+    
+    /**
+     * Queues the typed message in the active tab and sends it right away if the
+     * tab is idle. While an answer is in progress the user can keep typing;
+     * queued messages are sent in order as the answers complete. Sending with an
+     * empty input field resumes a queue that was paused by a cancel or an error.
      */
     private void sendMessage() {
+        ConversationTab tab = activeTab;
         String userInput = inputField.getText().trim();
-        if (userInput.isEmpty()) {
+        if (gptService == null || (userInput.isEmpty() && tab.getQueued().isEmpty())) {
             return;
         }
         
         // Clear the input field
         inputField.setText("");
+        if (!userInput.isEmpty()) {
+            tab.enqueue(userInput);
+        }
+        if (!tab.isBusy()) {
+            sendQueued(tab);
+        }
+        updateQueueView();
+        updateTabTitle(tab);
+    }
+    
+    /**
+     * Sends the next queued turn of a tab, or all queued messages as one turn
+     * if queue.coalesce is set.
+     * 
+     * @param tab The tab, which must be idle
+     */
+    private void sendQueued(ConversationTab tab) {
+        if (!tab.isLoaded()) {
+            // The messages stay queued until the conversation has been read
+            loadTab(tab).thenRun(() -> {
+                if (tabs.contains(tab) && !tab.isBusy()) {
+                    sendQueued(tab);
+                }
+            });
+            return;
+        }
+        String userInput = tab.takeQueued(coalesceQueued);
+        if (userInput == null) {
+            return;
+        }
+        boolean shown = tab == activeTab;
         
-        // Update system message if needed
-        if (systemMessageCheckbox.isSelected() && 
-                !systemMessageField.getText().trim().isEmpty()) {
-            updateSystemMessage();
+        if (shown) {
+            // A new message interrupts whatever is still being spoken
+            voiceManager.stopSpeaking();
+            
+            // Update system message if needed
+            if (systemMessageCheckbox.isSelected() && 
+                    !systemMessageField.getText().trim().isEmpty()) {
+                updateSystemMessage();
+            }
         }
         
         // Add user message to conversation
-        OpenAIUtil.addUserMessage(conversation, userInput);
-        
-        // Display user message
-        appendToChat("You", userInput);
-        
-        // Disable input while waiting for response
-        setInputEnabled(false);
+        tab.setConversation(OpenAIUtil.addUserMessage(tab.getConversation(), userInput));
+        Conversation request = tab.getConversation();
         
         // Get selected model
         String selectedModel = (String) modelSelector.getSelectedItem();
         
-        // Create a worker thread to prevent UI freezing
+        // Cancelling stops the HTTP call, the rendering and the speech of this answer
+        CancellationToken cancellation = new CancellationToken();
+        
+        // The answer is rendered into this message as it streams in, while the tab is shown
+        ConversationTab.Reply reply = tab.startRequest(cancellation);
+        // Only the shown tab speaks its answer, sentence by sentence while it streams in
+        SpeechStream speech = shown && voiceManager.isEnabled() ? voiceManager.openStream() : null;
+        if (speech != null) {
+            tab.setSpeech(speech);
+            cancellation.onCancel(speech::cancel);
+        }
+        if (shown) {
+            // Display user message
+            turnSnapshots.put(appendToChat("You", userInput), request);
+            reply.attach(renderQueue.start("ChatGPT", null), renderQueue);
+            setInputEnabled(false);
+        }
+        updateTabTitle(tab);
+        
+        // Create a worker thread to prevent UI freezing; other tabs can send at the same time
         SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
             @Override
             protected String doInBackground() throws Exception {
                 try {
                     logger.info("Sending message to GPT model: " + selectedModel);
-                    return gptService.sendConversation(conversation, selectedModel);
+                    // Related exchanges from earlier conversations go just before the question,
+                    // after the part that stays the same from request to request
+                    ConversationRetriever related = retriever;
+                    List<Message> context = related != null
+                            ? related.contextFor(request.getLastTurn().getContent(), tab.getId())
+                            : List.of();
+                    List<Message> messages = promptLayout.arrange(request, context);
+                    
+                    // Each tab is its own tenant, so one busy tab cannot starve the others
+                    return gptService.streamConversation(messages, selectedModel, delta -> {
+                        reply.append(delta);
+                        if (speech != null) {
+                            speech.append(delta);
+                        }
+                    }, RequestPriority.INTERACTIVE, tab.getId(), cancellation);
+                } catch (RequestCancelledException e) {
+                    // Keep the part of the answer that arrived before the cancel
+                    return reply.getText();
                 } catch (OpenAIException e) {
                     logger.error("Error sending message to GPT", e);
                     return "Error: " + OpenAIUtil.formatError(e);
+                } finally {
+                    if (speech != null) {
+                        speech.finish();
+                    }
                 }
             }
             
             @Override
             protected void done() {
+                // The message is null if the tab is not shown
+                TranscriptMessage message = reply.getMessage();
+                // The queue only moves on after a complete answer
+                boolean answered = false;
                 try {
                     String response = get();
+                    if (!tabs.contains(tab)) {
+                        // The tab was closed, which cancelled the request
+                        return;
+                    }
+                    boolean current = tab.getConversation().hasSameTurns(request);
                     
-                    // Check if it's an error message
-                    if (response.startsWith("Error: ")) {
-                        appendToChat("System", response, Color.RED);
-                    } else {
-                        // Add assistant message to conversation
-                        OpenAIUtil.addAssistantMessage(conversation, response);
-                        
-                        // Display assistant message
-                        appendToChat("ChatGPT", response);
-                        
-                        // Speak the response if voice is enabled
-                        if (voiceManager.isEnabled() && !isSpeaking.get()) {
-                            isSpeaking.set(true);
-                            new Thread(() -> {
-                                try {
-                                    voiceManager.speak(response);
-                                } finally {
-                                    isSpeaking.set(false);
-                                }
-                            }).start();
+                    if (cancellation.isCancelled()) {
+                        if (!current || response.isEmpty()) {
+                            removeFromChat(message);
+                        } else {
+                            tab.setConversation(OpenAIUtil.addAssistantMessage(tab.getConversation(), response));
+                            completeReply(tab, message, response);
                         }
+                        // After clearing the chat there is nothing to report
+                        if (current) {
+                            report(tab, "Response cancelled." + pausedQueue(tab));
+                        }
+                    } else if (response.startsWith("Error: ")) {
+                        removeFromChat(message);
+                        report(tab, response + pausedQueue(tab));
+                    } else if (current) {
+                        // Add assistant message to conversation unless the chat was cleared meanwhile
+                        tab.setConversation(OpenAIUtil.addAssistantMessage(tab.getConversation(), response));
+                        completeReply(tab, message, response);
+                        answered = true;
+                    } else if (message != null) {
+                        renderQueue.complete(message, response);
                     }
                 } catch (Exception e) {
                     logger.error("Error processing GPT response", e);
-                    appendToChat("System", "Error: " + e.getMessage(), Color.RED);
+                    removeFromChat(message);
+                    report(tab, "Error: " + e.getMessage() + pausedQueue(tab));
                 } finally {
-                    // Re-enable input
-                    setInputEnabled(true);
-                    inputField.requestFocus();
+                    tab.finishRequest(cancellation);
+                    if (answered) {
+                        sendQueued(tab);
+                    }
+                    updateTabTitle(tab);
+                    if (tab == activeTab) {
+                        updateQueueView();
+                        setInputEnabled(!tab.isBusy());
+                        inputField.requestFocus();
+                    } else if (tab.isLoaded() && !tab.isBusy()) {
+                        tab.setConversation(tab.getConversation().compacted(backgroundHotWindow));
+                        unloadIdleTabs();
+                    }
                 }
             }
         };
@@ -283,9 +1037,10 @@ public class ChatGPTUI extends JFrame {
      * 
      * @param sender The sender of the message
      * @param message The message content
+     * @return The displayed message
      */
-    private void appendToChat(String sender, String message) {
-        appendToChat(sender, message, null);
+    private TranscriptMessage appendToChat(String sender, String message) {
+        return appendToChat(sender, message, null);
     }
     
     /**
@@ -294,33 +1049,395 @@ public class ChatGPTUI extends JFrame {
      * @param sender The sender of the message
      * @param message The message content
      * @param color The color for the message, or null for default
+     * @return The displayed message
      */
-    private void appendToChat(String sender, String message, Color color) {
-        // Format the message as HTML
-        String colorAttr = color != null ? 
-                String.format("color:rgb(%d,%d,%d)", color.getRed(), color.getGreen(), color.getBlue()) : 
-                "";
-        
-        String formattedSender = sender.equals("ChatGPT") ? 
-                String.format("<b style='%s'>%s:</b> ", colorAttr, sender) : 
-                String.format("<b style='%s'>%s:</b> ", colorAttr, sender);
+    private TranscriptMessage appendToChat(String sender, String message, Color color) {
+        // The transcript view lays out and scrolls to the new message itself
+        TranscriptMessage entry = new TranscriptMessage(sender, message, color);
+        transcript.add(entry);
+        return entry;
+    }
+    
+    /**
+     * Logs the queue waits and timeout decisions of this session and today's usage per model.
+     */
+    private void logStats() {
+        for (RequestPriority priority : RequestPriority.values()) {
+            SchedulerStats stats = gptService.getScheduler().getStats(priority);
+            if (stats.getAdmitted() > 0) {
+                logger.info("Request queue " + stats);
+            }
+        }
+        for (PromptCacheStats stats : gptService.getPromptCache().getStats()) {
+            logger.info("Prompt cache " + stats);
+        }
+        if (gptService.getTimeouts() != null) {
+            for (TimeoutStats stats : gptService.getTimeouts().getStats()) {
+                logger.info("Timeouts " + stats);
+            }
+        }
         
-        // Replace newlines with HTML breaks
-        String formattedMessage = message.replace("\n", "<br>");
+        UsageLedger ledger = gptService.getUsageLedger();
+        if (ledger == null) {
+            return;
+        }
+        try {
+            LocalDate today = LocalDate.now();
+            ledger.rollup(UsageDimension.MODEL, today, today)
+                    .forEach((model, totals) -> logger.info("Usage today for " + model + ": " + totals));
+        } catch (IOException e) {
+            logger.error("Error reading usage ledger", e);
+        }
+    }
+    
+    /**
+     * Describes the messages that stay queued after a request failed or was cancelled.
+     * 
+     * @param tab The tab
+     * @return The note to append to the status line, or an empty string if nothing is queued
+     */
+    private static String pausedQueue(ConversationTab tab) {
+        int queued = tab.getQueued().size();
+        if (queued == 0) {
+            return "";
+        }
+        return " " + queued + (queued == 1 ? " queued message is" : " queued messages are")
+                + " paused; press Send to continue.";
+    }
+    
+    /**
+     * Shows the queue of the active tab above the input field.
+     */
+    private void updateQueueView() {
+        queueModel.clear();
+        for (String queued : activeTab.getQueued()) {
+            queueModel.addElement(queued);
+        }
+        if (queuePanel.isVisible() != !queueModel.isEmpty()) {
+            queuePanel.setVisible(!queueModel.isEmpty());
+            queuePanel.getParent().revalidate();
+        }
+    }
+    
+    /**
+     * Lets the user change a queued message of the active tab. An empty text removes it.
+     * 
+     * @param index The position in the queue, or -1 if nothing is selected
+     */
+    private void editQueued(int index) {
+        if (index < 0 || index >= activeTab.getQueued().size()) {
+            return;
+        }
+        ConversationTab tab = activeTab;
+        String queued = tab.getQueued().get(index);
+        String edited = (String) JOptionPane.showInputDialog(this, "Queued message:", "Edit Message",
+                JOptionPane.PLAIN_MESSAGE, null, null, queued);
+        // The message may have been sent while the dialog was open
+        index = tab.getQueued().indexOf(queued);
+        if (edited == null || index < 0) {
+            return;
+        }
+        if (edited.trim().isEmpty()) {
+            tab.removeQueued(index);
+        } else {
+            tab.setQueued(index, edited.trim());
+        }
+        updateQueueView();
+        updateTabTitle(tab);
+    }
+    
+    /**
+     * Drops a queued message of the active tab without sending it.
+     * 
+     * @param index The position in the queue, or -1 if nothing is selected
+     */
+    private void removeQueued(int index) {
+        if (index < 0 || index >= activeTab.getQueued().size()) {
+            return;
+        }
+        activeTab.removeQueued(index);
+        updateQueueView();
+        updateTabTitle(activeTab);
+    }
+    
+    /**
+     * Stores a finished answer: shows it if its tab is shown and saves the tab.
+     * 
+     * @param tab The tab, whose conversation already ends with the answer
+     * @param message The transcript message of the answer, or null if the tab is not shown
+     * @param response The answer
+     */
+    private void completeReply(ConversationTab tab, TranscriptMessage message, String response) {
+        if (message != null) {
+            turnSnapshots.put(message, tab.getConversation());
+            renderQueue.complete(message, response);
+        } else {
+            tab.setUnread(true);
+        }
+        saveTab(tab);
+    }
+    
+    /**
+     * Removes a message from the transcript.
+     * 
+     * @param message The message, or null if nothing is shown
+     */
+    private void removeFromChat(TranscriptMessage message) {
+        if (message != null) {
+            transcript.remove(message);
+        }
+    }
+    
+    /**
+     * Shows a status or error line in a tab, or keeps it until the tab is shown.
+     * 
+     * @param tab The tab
+     * @param text The text; errors start with "Error: "
+     */
+    private void report(ConversationTab tab, String text) {
+        if (tab == activeTab) {
+            appendToChat("System", text, text.startsWith("Error: ") ? Color.RED : Color.GRAY);
+        } else {
+            tab.setNotice(text);
+        }
+    }
+    
+    /**
+     * Cancels the request of the active tab, if any.
+     */
+    private void cancelActiveRequest() {
+        CancellationToken request = activeTab != null ? activeTab.getActiveRequest() : null;
+        if (request != null && !request.isCancelled()) {
+            logger.info("Cancelling request in progress");
+            request.cancel();
+        }
+    }
+    
+    /**
+     * Replaces the conversation of the active tab.
+     * 
+     * @param updated The new conversation
+     */
+    private void setConversation(Conversation updated) {
+        activeTab.setConversation(updated);
+    }
+    
+    /**
+     * Opens a new tab that continues from the given message.
+     * The new conversation shares all earlier turns with the current one.
+     * 
+     * @param message The last message to keep
+     */
+    private void branchFrom(TranscriptMessage message) {
+        Conversation snapshot = turnSnapshots.get(message);
+        if (snapshot == null) {
+            return;
+        }
+        StoredConversation record = newRecord();
+        record.setTitle(activeTab.getTitle() + " (branch)");
+        openTab(new ConversationTab(record, activeTab.getConversation().fork(snapshot.getTurnCount()), false));
+        logger.info("Branched after turn " + snapshot.getTurnCount());
+    }
+    
+    /**
+     * Adds a tab and shows it.
+     * 
+     * @param tab The tab
+     */
+    private void openTab(ConversationTab tab) {
+        tabs.add(tab);
+        tabPane.addTab(tab.getTitle(), tab.getPanel());
+        tabPane.setSelectedIndex(tabs.size() - 1);
+    }
+    
+    /**
+     * Shows a stored conversation, in its tab if it is open or in a new one.
+     * 
+     * @param record The history record
+     */
+    private void openStored(StoredConversation record) {
+        for (int i = 0; i < tabs.size(); i++) {
+            if (tabs.get(i).getId().equals(record.getId())) {
+                tabPane.setSelectedIndex(i);
+                return;
+            }
+        }
+        openTab(new ConversationTab(record, null, true));
+    }
+    
+    /**
+     * Closes a tab and cancels its request. The last tab is replaced by a new one.
+     * 
+     * @param tab The tab
+     */
+    private void closeTab(ConversationTab tab) {
+        if (tab.isBusy()) {
+            tab.getActiveRequest().cancel();
+            tab.getReply().detach();
+        }
+        if (tabs.size() == 1) {
+            openTab(new ConversationTab(newRecord(), withCompaction(Conversation.empty()), false));
+        }
+        int index = tabs.indexOf(tab);
+        tabs.remove(index);
+        tabPane.removeTabAt(index);
+        logger.info("Closed tab " + tab.getTitle());
+    }
+    
+    /**
+     * Updates the label of a tab: its title, whether it is waiting for an
+     * answer, and whether an answer arrived while it was in the background.
+     * 
+     * @param tab The tab
+     */
+    private void updateTabTitle(ConversationTab tab) {
+        int index = tabs.indexOf(tab);
+        if (index >= 0) {
+            String title = tab.getTitle().length() > 24 ? tab.getTitle().substring(0, 24) + "..." : tab.getTitle();
+            int queued = tab.getQueued().size();
+            tabPane.setTitleAt(index, title + (tab.isBusy() ? " (...)" : tab.isUnread() ? " *" : "")
+                    + (queued > 0 ? " +" + queued : ""));
+            tabPane.setToolTipTextAt(index, tab.getTitle());
+        }
+    }
+    
+    /**
+     * Switches to another tab and displays its history. The previous tab stops
+     * rendering and keeps its conversation in compact form.
+     * 
+     * @param tab The tab to show
+     */
+    private void showTab(ConversationTab tab) {
+        voiceManager.stopSpeaking();
+        ConversationTab previous = activeTab;
+        if (previous != null && tabs.contains(previous)) {
+            // Its answer may still be streaming; the rest of it is not spoken either
+            previous.stopSpeech();
+            if (previous.getReply() != null) {
+                previous.getReply().detach();
+            }
+            if (previous.isLoaded()) {
+                previous.setConversation(previous.getConversation().compacted(backgroundHotWindow));
+            }
+        }
         
-        // Append to the HTML document
-        HTMLDocument doc = (HTMLDocument) chatArea.getDocument();
-        HTMLEditorKit editorKit = (HTMLEditorKit) chatArea.getEditorKit();
+        activeTab = tab;
+        tab.markShown();
+        tab.setUnread(false);
+        updateTabTitle(tab);
+        tab.getPanel().add(transcriptPane, BorderLayout.CENTER);
+        tab.getPanel().revalidate();
+        if (!tab.isLoaded()) {
+            // Shown once it has been read, unless another tab is shown by then
+            loadTab(tab).thenRun(() -> {
+                if (tab == activeTab) {
+                    displayConversation(tab);
+                }
+            });
+        }
+        displayConversation(tab);
+        updateQueueView();
+        setInputEnabled(!tab.isBusy());
+        unloadIdleTabs();
+    }
+    
+    /**
+     * Displays the conversation of the active tab in the transcript, followed
+     * by a notice kept while it was in the background.
+     * 
+     * @param tab The active tab
+     */
+    private void displayConversation(ConversationTab tab) {
+        transcript.clear();
+        turnSnapshots.clear();
+        if (!tab.isLoaded()) {
+            appendToChat("System", "Loading the conversation...", Color.GRAY);
+            return;
+        }
+        setConversation(tab.getConversation().withSystemMessage(currentSystemMessage()));
+        Conversation conversation = tab.getConversation();
+        int turns = 0;
+        for (Message message : conversation) {
+            if ("system".equals(message.getRole())) {
+                continue;
+            }
+            turns++;
+            TranscriptMessage entry;
+            if ("assistant".equals(message.getRole())) {
+                entry = renderQueue.start("ChatGPT", null);
+                renderQueue.complete(entry, message.getContent());
+            } else {
+                entry = appendToChat("You", message.getContent());
+            }
+            turnSnapshots.put(entry, conversation.fork(turns));
+        }
         
-        try {
-            editorKit.insertHTML(doc, doc.getLength(), 
-                    "<p>" + formattedSender + formattedMessage + "</p>", 
-                    0, 0, null);
-            
-            // Scroll to the bottom
-            chatArea.setCaretPosition(doc.getLength());
-        } catch (Exception e) {
-            logger.error("Error appending to chat", e);
+        // An answer still streaming in continues where it is
+        if (tab.getReply() != null) {
+            tab.getReply().attach(renderQueue.start("ChatGPT", null), renderQueue);
+        }
+        String notice = tab.takeNotice();
+        if (notice != null) {
+            report(tab, notice);
+        }
+    }
+    
+    /**
+     * Reads the conversation of an unloaded tab back from the history in the
+     * background, starting a new read only if none is in progress. If it
+     * cannot be read, the tab stays unloaded, so saving it cannot overwrite the
+     * stored conversation with an empty one; it is read again when needed.
+     * 
+     * @param tab The tab
+     * @return A future completed on the Event Dispatch Thread once the tab is
+     *         loaded, or completed exceptionally if it could not be read
+     */
+    private CompletableFuture<Void> loadTab(ConversationTab tab) {
+        if (tab.getLoading() != null) {
+            return tab.getLoading();
+        }
+        CompletableFuture<Void> loading = new CompletableFuture<>();
+        tab.setLoading(loading);
+        historyStore.loadLater(tab.getId()).whenComplete((stored, error) -> SwingUtilities.invokeLater(() -> {
+            tab.setLoading(null);
+            if (error != null && !tab.isLoaded()) {
+                logger.error("Could not load conversation " + tab.getId(), error);
+                report(tab, "Error: The conversation could not be loaded." + pausedQueue(tab));
+                loading.completeExceptionally(error);
+                return;
+            }
+            // Cleared while it was being read, so the cleared conversation stays
+            if (!tab.isLoaded() && stored != null) {
+                tab.setConversation(withCompaction(stored.toConversation()));
+            }
+            loading.complete(null);
+        }));
+        return loading;
+    }
+    
+    /**
+     * Bounds the memory of background tabs: beyond tabs.max.loaded loaded tabs,
+     * the least recently shown idle tabs drop their conversation once its latest
+     * version has been written to the history.
+     */
+    private void unloadIdleTabs() {
+        if (historyStore == null) {
+            return;
+        }
+        List<ConversationTab> idle = new ArrayList<>();
+        int loaded = 0;
+        for (ConversationTab tab : tabs) {
+            if (tab.isLoaded()) {
+                loaded++;
+                if (tab != activeTab && !tab.isBusy() && tab.isSaved() && historyStore.isWritten(tab.getId())) {
+                    idle.add(tab);
+                }
+            }
+        }
+        idle.sort(Comparator.comparingLong(ConversationTab::getLastShownNanos));
+        for (int i = 0; i < idle.size() && loaded > maxLoadedTabs; i++, loaded--) {
+            idle.get(i).setConversation(null);
+            logger.debug("Unloaded background tab " + idle.get(i).getTitle());
         }
     }
     
@@ -328,46 +1445,102 @@ public class ChatGPTUI extends JFrame {
      * Clears the chat area and conversation history.
      */
     private void clearChat() {
+        // Stop paying for an answer nobody will see
+        cancelActiveRequest();
+        
         // Clear the chat area
-        chatArea.setText("");
+        transcript.clear();
+        voiceManager.stopSpeaking();
         
         // Clear the conversation, but keep the system message if enabled
-        conversation.clear();
+        setConversation(activeTab.isLoaded()
+                ? activeTab.getConversation().clearTurns()
+                : withCompaction(Conversation.empty()));
+        turnSnapshots.clear();
+        deleteTab(activeTab);
         updateSystemMessage();
         
         logger.info("Chat cleared");
     }
     
+    /**
+     * Removes the conversation of a tab from the history, e.g. after it was cleared.
+     * 
+     * @param tab The tab
+     */
+    private void deleteTab(ConversationTab tab) {
+        if (historyStore == null || !tab.isSaved()) {
+            return;
+        }
+        tab.setSaved(false);
+        int index = historyRecords.indexOf(tab.getRecord());
+        if (index < 0) {
+            // Opened from the history, so look it up by ID
+            for (int i = 0; i < historyRecords.size() && index < 0; i++) {
+                index = historyRecords.get(i).getId().equals(tab.getId()) ? i : -1;
+            }
+        }
+        if (index >= 0) {
+            historyRecords.remove(index);
+            historySelector.removeItemAt(index + 1);
+        }
+        if (retriever != null) {
+            retriever.forget(tab.getId());
+        }
+        try {
+            historyStore.delete(tab.getId());
+        } catch (IOException e) {
+            logger.error("Could not delete stored conversation", e);
+        }
+    }
+    
     /**
      * Updates the system message in the conversation.
      */
     private void updateSystemMessage() {
-        // Remove any existing system messages
-        conversation.removeIf(message -> "system".equals(message.getRole()));
-        
-        // Add system message if enabled
-        if (systemMessageCheckbox.isSelected()) {
-            String systemMessage = systemMessageField.getText().trim();
-            if (!systemMessage.isEmpty()) {
-                conversation.add(0, Message.systemMessage(systemMessage));
-                logger.debug("System message updated: " + systemMessage);
-            }
+        // Replacing the system message keeps the turns as they are
+        if (!activeTab.isLoaded()) {
+            // Applied when the conversation is loaded and shown
+            return;
+        }
+        String systemMessage = currentSystemMessage();
+        Message current = activeTab.getConversation().getSystemMessage();
+        if (Objects.equals(systemMessage, current != null ? current.getContent() : null)) {
+            // Unchanged, so the request prefix the provider may have cached stays valid
+            return;
+        }
+        setConversation(activeTab.getConversation().withSystemMessage(systemMessage));
+        if (systemMessage != null) {
+            logger.debug("System message updated: " + systemMessage);
+        }
+    }
+    
+    /**
+     * Gets the system message entered in the UI.
+     * 
+     * @return The system message, or null if it is disabled or empty
+     */
+    private String currentSystemMessage() {
+        if (!systemMessageCheckbox.isSelected()) {
+            return null;
         }
+        String systemMessage = systemMessageField.getText().trim();
+        return systemMessage.isEmpty() ? null : systemMessage;
     }
     
     /**
-     * Enables or disables input components.
+     * Enables or disables the components that must not change while an answer is in progress.
+     * Typing and sending stay possible; messages sent while waiting are queued.
      * 
      * @param enabled Whether the input components should be enabled
      */
     private void setInputEnabled(boolean enabled) {
-        inputField.setEnabled(enabled);
-        sendButton.setEnabled(enabled);
-        clearButton.setEnabled(enabled);
-        modelSelector.setEnabled(enabled);
+        // Clear and the model selector stay usable while waiting; both cancel the request
+        sendButton.setEnabled(gptService != null);
+        stopButton.setEnabled(!enabled);
         systemMessageCheckbox.setEnabled(enabled);
         systemMessageField.setEnabled(enabled && systemMessageCheckbox.isSelected());
-        voiceEnabledCheckbox.setEnabled(enabled);
+        voiceEnabledCheckbox.setEnabled(enabled && voiceReady && voiceManager.isInitialized());
     }
     
     /**
@@ -0,0 +1,326 @@
+package com.chatgpt.clone.ui;
+
+import com.chatgpt.clone.history.StoredConversation;
+import com.chatgpt.clone.model.Conversation;
+import com.chatgpt.clone.service.CancellationToken;
+import com.chatgpt.clone.speech.SpeechStream;
+
+import javax.swing.JPanel;
+import java.awt.BorderLayout;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The state of one open conversation tab. Every tab can have a request in
+ * flight at the same time. Only the active tab shows its messages in the
+ * transcript; a background tab keeps its conversation in compact form,
+ * collects a streaming answer as plain text without rendering it, and may
+ * be unloaded entirely once it is saved, to be read back when it is shown.
+ * Messages submitted while a request is in flight wait in the tab's queue.
+ * Only the active tab speaks its answers, and it stops when it loses focus.
+ * Tabs are only used on the Event Dispatch Thread, except for {@link Reply}.
+ */
+final class ConversationTab {
+    private final StoredConversation record;
+    private final JPanel panel = new JPanel(new BorderLayout());
+    private final List<String> queued = new ArrayList<>();
+    private Conversation conversation;
+    private CompletableFuture<Void> loading;
+    private CancellationToken activeRequest;
+    private Reply reply;
+    private SpeechStream speech;
+    private String notice;
+    private boolean unread;
+    private boolean saved;
+    private long lastShownNanos = System.nanoTime();
+    
+    /**
+     * Creates a tab.
+     * 
+     * @param record The history record with the ID, title and creation time, without messages
+     * @param conversation The conversation, or null if it is not loaded yet
+     * @param saved Whether the conversation is in the history store
+     */
+    ConversationTab(StoredConversation record, Conversation conversation, boolean saved) {
+        this.record = record;
+        this.conversation = conversation;
+        this.saved = saved;
+    }
+    
+    StoredConversation getRecord() {
+        return record;
+    }
+    
+    String getId() {
+        return record.getId();
+    }
+    
+    /**
+     * Gets the label of the tab.
+     * 
+     * @return The title, or "New chat" before the first question
+     */
+    String getTitle() {
+        return record.getTitle() != null ? record.getTitle() : "New chat";
+    }
+    
+    /**
+     * Gets the container the transcript is placed in while this tab is shown.
+     * 
+     * @return The panel
+     */
+    JPanel getPanel() {
+        return panel;
+    }
+    
+    Conversation getConversation() {
+        return conversation;
+    }
+    
+    void setConversation(Conversation conversation) {
+        this.conversation = conversation;
+    }
+    
+    boolean isLoaded() {
+        return conversation != null;
+    }
+    
+    /**
+     * Gets the load of the conversation in progress.
+     * 
+     * @return A future completed on the Event Dispatch Thread once the
+     *         conversation is loaded, or null if it is not being loaded
+     */
+    CompletableFuture<Void> getLoading() {
+        return loading;
+    }
+    
+    void setLoading(CompletableFuture<Void> loading) {
+        this.loading = loading;
+    }
+    
+    boolean isBusy() {
+        return activeRequest != null;
+    }
+    
+    CancellationToken getActiveRequest() {
+        return activeRequest;
+    }
+    
+    /**
+     * Marks a request as started for this tab.
+     * 
+     * @param request The cancellation token of the request
+     * @return The reply that collects the streamed answer
+     */
+    Reply startRequest(CancellationToken request) {
+        activeRequest = request;
+        reply = new Reply();
+        return reply;
+    }
+    
+    /**
+     * Marks the request as finished, unless a newer one has replaced it.
+     * 
+     * @param request The cancellation token of the finished request
+     */
+    void finishRequest(CancellationToken request) {
+        if (activeRequest == request) {
+            activeRequest = null;
+            reply = null;
+        }
+    }
+    
+    /**
+     * Gets the reply of the request in flight.
+     * 
+     * @return The reply, or null if the tab is idle
+     */
+    Reply getReply() {
+        return reply;
+    }
+    
+    /**
+     * Sets the stream speaking this tab's latest answer, replacing an earlier one.
+     * 
+     * @param speech The speech stream
+     */
+    void setSpeech(SpeechStream speech) {
+        this.speech = speech;
+    }
+    
+    /**
+     * Stops speaking this tab's answer, including text that has not arrived yet.
+     */
+    void stopSpeech() {
+        if (speech != null) {
+            speech.cancel();
+            speech = null;
+        }
+    }
+    
+    /**
+     * Adds a message to send once the requests before it have completed.
+     * 
+     * @param message The message
+     */
+    void enqueue(String message) {
+        queued.add(message);
+    }
+    
+    /**
+     * Takes the next turn to send from the queue.
+     * 
+     * @param coalesce Whether all queued messages are combined into one turn
+     * @return The turn, or null if the queue is empty
+     */
+    String takeQueued(boolean coalesce) {
+        if (queued.isEmpty()) {
+            return null;
+        }
+        if (!coalesce) {
+            return queued.remove(0);
+        }
+        String turn = String.join("\n\n", queued);
+        queued.clear();
+        return turn;
+    }
+    
+    /**
+     * Replaces a queued message, e.g. after the user edited it.
+     * 
+     * @param index The position in the queue
+     * @param message The new text
+     */
+    void setQueued(int index, String message) {
+        queued.set(index, message);
+    }
+    
+    /**
+     * Removes a queued message without sending it.
+     * 
+     * @param index The position in the queue
+     */
+    void removeQueued(int index) {
+        queued.remove(index);
+    }
+    
+    /**
+     * Gets the messages waiting to be sent.
+     * 
+     * @return The queued messages, oldest first
+     */
+    List<String> getQueued() {
+        return Collections.unmodifiableList(queued);
+    }
+    
+    /**
+     * Takes a message for the user that arrived while the tab was in the background.
+     * 
+     * @return The message, or null if there is none
+     */
+    String takeNotice() {
+        String taken = notice;
+        notice = null;
+        return taken;
+    }
+    
+    void setNotice(String notice) {
+        this.notice = notice;
+    }
+    
+    boolean isUnread() {
+        return unread;
+    }
+    
+    void setUnread(boolean unread) {
+        this.unread = unread;
+    }
+    
+    boolean isSaved() {
+        return saved;
+    }
+    
+    void setSaved(boolean saved) {
+        this.saved = saved;
+    }
+    
+    long getLastShownNanos() {
+        return lastShownNanos;
+    }
+    
+    void markShown() {
+        lastShownNanos = System.nanoTime();
+    }
+    
+    /**
+     * An answer streaming into a tab. Chunks arrive on a network thread; while
+     * the tab is shown they are also passed on to the render queue.
+     */
+    static final class Reply {
+        private final StringBuilder received = new StringBuilder();
+        private TranscriptMessage message;
+        private MarkdownRenderQueue renderQueue;
+        
+        /**
+         * Adds the next chunk of the answer.
+         * 
+         * @param delta The chunk
+         */
+        synchronized void append(String delta) {
+            received.append(delta);
+            if (message != null) {
+                renderQueue.append(message, delta);
+            }
+        }
+        
+        /**
+         * Starts rendering the answer into a transcript message, beginning with what has arrived so far.
+         * 
+         * @param message The placeholder message
+         * @param renderQueue The render queue of the transcript
+         */
+        synchronized void attach(TranscriptMessage message, MarkdownRenderQueue renderQueue) {
+            this.message = message;
+            this.renderQueue = renderQueue;
+            if (received.length() > 0) {
+                renderQueue.append(message, received.toString());
+            }
+        }
+        
+        /**
+         * Stops rendering the answer, e.g. because its tab is no longer shown.
+         * 
+         * @return The message the answer was rendered into, or null if it was not shown
+         */
+        synchronized TranscriptMessage detach() {
+            TranscriptMessage detached = message;
+            if (detached != null) {
+                renderQueue.discard(detached);
+            }
+            message = null;
+            renderQueue = null;
+            return detached;
+        }
+        
+        /**
+         * Gets the message the answer is rendered into.
+         * 
+         * @return The message, or null if the tab is not shown
+         */
+        synchronized TranscriptMessage getMessage() {
+            return message;
+        }
+        
+        /**
+         * Gets the answer received so far.
+         * 
+         * @return The text
+         */
+        synchronized String getText() {
+            return received.toString();
+        }
+    }
+}
\ No newline at end of file
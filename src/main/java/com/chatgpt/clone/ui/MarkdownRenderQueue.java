@@ -0,0 +1,257 @@
+package com.chatgpt.clone.ui;
+
+import com.chatgpt.clone.markdown.IncrementalMarkdown;
+import com.chatgpt.clone.util.Logger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.html.HTMLDocument;
+import javax.swing.text.html.HTMLEditorKit;
+import java.awt.Color;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders streamed Markdown answers off the Event Dispatch Thread.
+ * Chunks are converted to HTML incrementally on a background thread. The
+ * first update of a message is parsed into a Swing document there; later
+ * updates only replace the trailing block that is still growing, and the
+ * blocks completed since, in that document on the EDT, so the cost of an
+ * update does not grow with the length of the answer. Chunks that arrive
+ * while a render is running are coalesced into the next one, so a fast
+ * stream never queues up more than one pending render per message.
+ */
+public class MarkdownRenderQueue implements AutoCloseable {
+    private static final Logger logger = new Logger(MarkdownRenderQueue.class);
+    
+    /**
+     * The ID of the element holding the trailing block of a rendered message.
+     */
+    private static final String TAIL_ID = "markdown-tail";
+    
+    private final TranscriptModel model;
+    private final HTMLEditorKit kit = new HTMLEditorKit();
+    private final Map<TranscriptMessage, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "markdown-render");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+    
+    /**
+     * Creates a render queue publishing into the given transcript.
+     * 
+     * @param model The transcript model
+     */
+    public MarkdownRenderQueue(TranscriptModel model) {
+        this.model = model;
+    }
+    
+    /**
+     * Adds an empty message that will be filled as chunks are rendered.
+     * Must be called on the Event Dispatch Thread.
+     * 
+     * @param sender The sender shown in front of the message
+     * @param color The color of the sender label, or null for default
+     * @return The placeholder message
+     */
+    public TranscriptMessage start(String sender, Color color) {
+        TranscriptMessage message = new TranscriptMessage(sender, "", color);
+        jobs.put(message, new Job(message));
+        model.add(message);
+        return message;
+    }
+    
+    /**
+     * Queues the next chunk of a message for rendering. Safe to call from any thread.
+     * 
+     * @param message The message returned by {@link #start}
+     * @param chunk The Markdown chunk
+     */
+    public void append(TranscriptMessage message, String chunk) {
+        Job job = jobs.get(message);
+        if (job != null) {
+            job.offer(chunk, false);
+        }
+    }
+    
+    /**
+     * Renders the final text of a message and stops tracking it.
+     * Safe to call from any thread.
+     * 
+     * @param message The message returned by {@link #start}
+     * @param text The complete Markdown text
+     */
+    public void complete(TranscriptMessage message, String text) {
+        Job job = jobs.get(message);
+        if (job != null) {
+            job.offer(text, true);
+        }
+    }
+    
+    /**
+     * Stops tracking a message that is no longer displayed, e.g. because its
+     * tab was switched away. Renders already queued for it are dropped.
+     * 
+     * @param message The message returned by {@link #start}
+     */
+    public void discard(TranscriptMessage message) {
+        Job job = jobs.remove(message);
+        if (job != null) {
+            job.cancel();
+        }
+    }
+    
+    /**
+     * Gets the average time spent rendering a message update.
+     * 
+     * @return The average render time in milliseconds
+     */
+    public double getAverageRenderMillis() {
+        long count = renders.get();
+        return count == 0 ? 0 : renderNanos.get() / 1_000_000.0 / count;
+    }
+    
+    /**
+     * Stops the render thread. Pending renders are dropped.
+     */
+    @Override
+    public void close() {
+        jobs.clear();
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Rendering state of one streaming message.
+     */
+    private final class Job implements Runnable {
+        private final TranscriptMessage message;
+        private IncrementalMarkdown markdown = new IncrementalMarkdown();
+        // The document published for the message and the stable HTML it holds, used on the render thread
+        private HTMLDocument document;
+        private int publishedStable;
+        // Set on the EDT if the document could not be updated, so the next render starts over
+        private volatile boolean documentFailed;
+        private final StringBuilder pending = new StringBuilder();
+        private String finalText;
+        private boolean scheduled;
+        private boolean cancelled;
+        
+        Job(TranscriptMessage message) {
+            this.message = message;
+        }
+        
+        synchronized void cancel() {
+            cancelled = true;
+            finalText = "";
+            pending.setLength(0);
+        }
+        
+        synchronized void offer(String text, boolean last) {
+            if (finalText != null) {
+                return;
+            }
+            if (last) {
+                finalText = text;
+            } else {
+                pending.append(text);
+            }
+            if (!scheduled) {
+                scheduled = true;
+                executor.execute(this);
+            }
+        }
+        
+        @Override
+        public void run() {
+            String chunk;
+            String complete;
+            synchronized (this) {
+                chunk = pending.toString();
+                pending.setLength(0);
+                complete = finalText;
+                scheduled = false;
+                if (cancelled) {
+                    return;
+                }
+            }
+            
+            long start = System.nanoTime();
+            boolean appended = true;
+            if (complete != null) {
+                jobs.remove(message);
+                if (!complete.equals(markdown.getSource() + chunk)) {
+                    // The final text differs from the streamed chunks, so render it from scratch
+                    markdown = new IncrementalMarkdown();
+                    chunk = complete;
+                    appended = false;
+                }
+            }
+            markdown.append(chunk);
+            
+            String source = markdown.getSource();
+            String tail = "<div id='" + TAIL_ID + "'>" + markdown.tailHtml() + "</div>";
+            if (document != null && appended && !documentFailed) {
+                // The document may be shown, so it is changed on the EDT; only the new part is parsed there
+                String added = markdown.getStableHtml(publishedStable) + tail;
+                publishedStable = markdown.getStableHtmlLength();
+                HTMLDocument shown = document;
+                renders.incrementAndGet();
+                renderNanos.addAndGet(System.nanoTime() - start);
+                SwingUtilities.invokeLater(() -> updateDocument(shown, source, added));
+                return;
+            }
+            
+            // Nobody shows a new document yet, so it is parsed here
+            documentFailed = false;
+            String html = "<html><body>" + TranscriptView.senderLabel(message.getSender(), message.getColor())
+                    + markdown.getStableHtml(0) + tail + "</body></html>";
+            document = (HTMLDocument) kit.createDefaultDocument();
+            try {
+                kit.read(new StringReader(html), document, 0);
+            } catch (Exception e) {
+                logger.error("Error rendering message", e);
+                document = null;
+            }
+            publishedStable = markdown.getStableHtmlLength();
+            renders.incrementAndGet();
+            renderNanos.addAndGet(System.nanoTime() - start);
+            
+            HTMLDocument rendered = document;
+            if (appended) {
+                SwingUtilities.invokeLater(() -> model.append(message, source, rendered));
+            } else {
+                SwingUtilities.invokeLater(() -> model.update(message, source, rendered));
+            }
+        }
+        
+        /**
+         * Replaces the trailing block of a published document with the blocks
+         * completed since and the new trailing block. Runs on the EDT.
+         */
+        private void updateDocument(HTMLDocument shown, String source, String added) {
+            try {
+                shown.setOuterHTML(shown.getElement(TAIL_ID), added);
+                model.append(message, source, shown);
+            } catch (BadLocationException | IOException | RuntimeException e) {
+                logger.error("Error updating rendered message", e);
+                // The view formats the content itself until the next render starts over
+                documentFailed = true;
+                model.append(message, source, null);
+            }
+        }
+    }
+}
\ No newline at end of file
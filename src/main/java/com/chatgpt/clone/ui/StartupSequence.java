@@ -0,0 +1,164 @@
+package com.chatgpt.clone.ui;
+
+import com.chatgpt.clone.util.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the slow parts of application startup and records when each
+ * milestone was reached, in milliseconds since the JVM started. In
+ * parallel mode every stage runs on its own background thread, so the
+ * window can be shown before any of them is done; otherwise stages run
+ * on the calling thread, one after the other.
+ * Milestones can be awaited, e.g. by a benchmark that measures startup.
+ */
+public class StartupSequence {
+    /**
+     * Marked once every stage has finished and the UI shows that it is ready.
+     */
+    public static final String ALL_READY = "all-ready";
+    
+    private static final Logger logger = new Logger(StartupSequence.class);
+    
+    private final boolean parallel;
+    private final Map<String, Long> milestones = new LinkedHashMap<>();
+    private final Map<String, CompletableFuture<Void>> waiting = new HashMap<>();
+    private final List<CompletableFuture<Void>> stages = new ArrayList<>();
+    private final ExecutorService executor;
+    
+    /**
+     * Creates a startup sequence.
+     * 
+     * @param parallel Whether stages run in the background in parallel
+     */
+    StartupSequence(boolean parallel) {
+        this.parallel = parallel;
+        this.executor = parallel ? Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "startup");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+    
+    /**
+     * Runs a stage and marks "name-ready" when it has finished.
+     * A stage that fails is logged and counts as finished.
+     * 
+     * @param name The stage name
+     * @param task The work of the stage
+     * @return A future completed when the stage has finished
+     */
+    CompletableFuture<Void> run(String name, Runnable task) {
+        Runnable stage = () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Startup stage " + name + " failed", e);
+            } finally {
+                mark(name + "-ready");
+            }
+        };
+        CompletableFuture<Void> future;
+        if (parallel) {
+            future = CompletableFuture.runAsync(stage, executor);
+        } else {
+            stage.run();
+            future = CompletableFuture.completedFuture(null);
+        }
+        synchronized (this) {
+            stages.add(future);
+        }
+        return future;
+    }
+    
+    /**
+     * Gets a future completed when all stages started so far have finished.
+     * The background threads end with it.
+     * 
+     * @return The future
+     */
+    synchronized CompletableFuture<Void> allDone() {
+        CompletableFuture<Void> all = CompletableFuture.allOf(stages.toArray(CompletableFuture<?>[]::new));
+        if (executor != null) {
+            all.whenComplete((ignored, error) -> executor.shutdown());
+        }
+        return all;
+    }
+    
+    /**
+     * Records a milestone. Only the first time a milestone is reached counts.
+     * 
+     * @param milestone The milestone name
+     * @return true if this was the first time
+     */
+    boolean mark(String milestone) {
+        CompletableFuture<Void> waiter;
+        synchronized (this) {
+            if (milestones.containsKey(milestone)) {
+                return false;
+            }
+            milestones.put(milestone, ManagementFactory.getRuntimeMXBean().getUptime());
+            waiter = waiting.remove(milestone);
+        }
+        if (waiter != null) {
+            waiter.complete(null);
+        }
+        return true;
+    }
+    
+    /**
+     * Gets a future completed when a milestone is reached.
+     * 
+     * @param milestone The milestone name, e.g. "first-paint" or {@link #ALL_READY}
+     * @return The future, already completed if the milestone was reached
+     */
+    public synchronized CompletableFuture<Void> whenReached(String milestone) {
+        if (milestones.containsKey(milestone)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return waiting.computeIfAbsent(milestone, name -> new CompletableFuture<>());
+    }
+    
+    /**
+     * Checks whether a milestone has been reached.
+     * 
+     * @param milestone The milestone name
+     * @return true if it was marked
+     */
+    synchronized boolean isReached(String milestone) {
+        return milestones.containsKey(milestone);
+    }
+    
+    /**
+     * Gets the milestones reached so far, in the order they were reached.
+     * 
+     * @return Milliseconds since JVM start by milestone name
+     */
+    public synchronized Map<String, Long> getMilestones() {
+        return new LinkedHashMap<>(milestones);
+    }
+    
+    /**
+     * Checks whether stages run in the background.
+     * 
+     * @return true in parallel mode
+     */
+    boolean isParallel() {
+        return parallel;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder(parallel ? "staged" : "sequential");
+        milestones.forEach((name, millis) -> text.append(", ").append(name).append(' ').append(millis).append(" ms"));
+        return text.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.chatgpt.clone.ui;
+
+import javax.swing.text.Document;
+import java.awt.Color;
+
+/**
+ * A single entry of the chat transcript.
+ * The content may grow while a response is streaming in; every change
+ * bumps the version so cached rendering state can be invalidated.
+ * A message may also carry a document that was rendered for its current
+ * content off the Event Dispatch Thread, which a view takes over instead of
+ * parsing the content again. The message lets go of it once taken, so
+ * rendered documents only live as long as the view's bounded cell cache.
+ * Instances are only modified on the Event Dispatch Thread.
+ */
+public class TranscriptMessage {
+    private final String sender;
+    private final Color color;
+    private String content;
+    private int lineBreaks;
+    private Document document;
+    private int version;
+    
+    /**
+     * Creates a new transcript message.
+     * 
+     * @param sender The sender shown in front of the message
+     * @param content The message content
+     * @param color The color of the sender label, or null for default
+     */
+    public TranscriptMessage(String sender, String content, Color color) {
+        this.sender = sender;
+        this.content = content;
+        this.color = color;
+        this.lineBreaks = countLineBreaks(content, 0);
+    }
+    
+    /**
+     * Gets the sender of the message.
+     * 
+     * @return The sender
+     */
+    public String getSender() {
+        return sender;
+    }
+    
+    /**
+     * Gets the message content.
+     * 
+     * @return The content
+     */
+    public String getContent() {
+        return content;
+    }
+    
+    /**
+     * Gets the number of line breaks in the content, e.g. to estimate its height.
+     * 
+     * @return The number of '\n' characters
+     */
+    public int getLineBreaks() {
+        return lineBreaks;
+    }
+    
+    /**
+     * Gets the color of the sender label.
+     * 
+     * @return The color, or null for default
+     */
+    public Color getColor() {
+        return color;
+    }
+    
+    /**
+     * Gets the number of times the content has changed.
+     * 
+     * @return The version
+     */
+    public int getVersion() {
+        return version;
+    }
+    
+    /**
+     * Takes the document rendered for the current content. Later calls return
+     * null until the content changes again.
+     * 
+     * @return The rendered document, or null if the view has to format the content itself
+     */
+    Document takeDocument() {
+        Document taken = document;
+        document = null;
+        return taken;
+    }
+    
+    /**
+     * Replaces the content. Use {@link TranscriptModel#update} so views are notified.
+     * 
+     * @param content The new content
+     * @param document The document rendered for the content, or null
+     */
+    void setContent(String content, Document document) {
+        this.lineBreaks = countLineBreaks(content, 0);
+        this.content = content;
+        this.document = document;
+        version++;
+    }
+    
+    /**
+     * Replaces the content with a longer one that starts with the current
+     * content, e.g. the next part of a streamed answer. Only the added text
+     * is scanned. Use {@link TranscriptModel#append} so views are notified.
+     * 
+     * @param content The new content
+     * @param document The document rendered for the content, or null
+     */
+    void appendContent(String content, Document document) {
+        this.lineBreaks += countLineBreaks(content, this.content.length());
+        this.content = content;
+        this.document = document;
+        version++;
+    }
+    
+    private static int countLineBreaks(String text, int from) {
+        int breaks = 0;
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                breaks++;
+            }
+        }
+        return breaks;
+    }
+}
\ No newline at end of file
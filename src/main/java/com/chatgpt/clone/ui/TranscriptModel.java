@@ -0,0 +1,105 @@
+package com.chatgpt.clone.ui;
+
+import javax.swing.AbstractListModel;
+import javax.swing.text.Document;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List model holding the messages of the chat transcript.
+ * Must only be used on the Event Dispatch Thread.
+ */
+public class TranscriptModel extends AbstractListModel<TranscriptMessage> {
+    private final List<TranscriptMessage> messages = new ArrayList<>();
+    
+    @Override
+    public int getSize() {
+        return messages.size();
+    }
+    
+    @Override
+    public TranscriptMessage getElementAt(int index) {
+        return messages.get(index);
+    }
+    
+    /**
+     * Appends a message to the end of the transcript.
+     * 
+     * @param message The message to append
+     */
+    public void add(TranscriptMessage message) {
+        messages.add(message);
+        int index = messages.size() - 1;
+        fireIntervalAdded(this, index, index);
+    }
+    
+    /**
+     * Replaces the content of a message, e.g. while a response streams in.
+     * 
+     * @param message The message to update
+     * @param content The new content
+     */
+    public void update(TranscriptMessage message, String content) {
+        update(message, content, null);
+    }
+    
+    /**
+     * Replaces the content of a message together with its rendered document.
+     * 
+     * @param message The message to update
+     * @param content The new content
+     * @param document The document rendered for the content, or null
+     */
+    public void update(TranscriptMessage message, String content, Document document) {
+        // Updates almost always target the newest message, so search from the end
+        int index = messages.lastIndexOf(message);
+        if (index < 0) {
+            return;
+        }
+        message.setContent(content, document);
+        fireContentsChanged(this, index, index);
+    }
+    
+    /**
+     * Replaces the content of a message with a longer one that starts with
+     * the current content, e.g. while a response streams in.
+     * 
+     * @param message The message to update
+     * @param content The new content, the current content followed by the new text
+     * @param document The document rendered for the content, or null
+     */
+    public void append(TranscriptMessage message, String content, Document document) {
+        int index = messages.lastIndexOf(message);
+        if (index < 0) {
+            return;
+        }
+        message.appendContent(content, document);
+        fireContentsChanged(this, index, index);
+    }
+    
+    /**
+     * Removes a message.
+     * 
+     * @param message The message to remove
+     */
+    public void remove(TranscriptMessage message) {
+        int index = messages.lastIndexOf(message);
+        if (index < 0) {
+            return;
+        }
+        messages.remove(index);
+        fireIntervalRemoved(this, index, index);
+    }
+    
+    /**
+     * Removes all messages.
+     */
+    public void clear() {
+        int size = messages.size();
+        if (size == 0) {
+            return;
+        }
+        messages.clear();
+        fireIntervalRemoved(this, 0, size - 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,468 @@
+package com.chatgpt.clone.ui;
+
+import com.chatgpt.clone.markdown.Html;
+
+import javax.swing.CellRendererPane;
+import javax.swing.JComponent;
+import javax.swing.JEditorPane;
+import javax.swing.JMenuItem;
+import javax.swing.JPopupMenu;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import javax.swing.text.Document;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Virtualized view of a {@link TranscriptModel}.
+ * Only the messages inside the visible area are laid out and painted, using
+ * the same stamping approach as {@code JList}. Every message's height is
+ * cached; off-screen messages use a cheap estimate until they scroll into
+ * view. Laid-out cells are kept for a bounded number of recently painted
+ * messages, so memory for rendering does not grow with the history and
+ * appending a message does not touch the earlier ones.
+ */
+public class TranscriptView extends JComponent implements Scrollable {
+    private static final int INSET = 6;
+    private static final int CELL_GAP = 8;
+    private static final int UNIT_INCREMENT = 16;
+    
+    /**
+     * Number of laid-out message cells kept around; older ones are rebuilt on demand.
+     */
+    private static final int MAX_CACHED_CELLS = 48;
+    
+    private final TranscriptModel model;
+    private final CellRendererPane rendererPane = new CellRendererPane();
+    private final Map<TranscriptMessage, MessageCell> cells =
+            new LinkedHashMap<TranscriptMessage, MessageCell>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<TranscriptMessage, MessageCell> eldest) {
+                    if (size() <= MAX_CACHED_CELLS) {
+                        return false;
+                    }
+                    eldest.getValue().release();
+                    return true;
+                }
+            };
+    private final List<MessageAction> actions = new ArrayList<>();
+    
+    // Per-message layout state, indexed like the model
+    private int count;
+    private int[] heights = new int[64];
+    private boolean[] measured = new boolean[64];
+    private int[] chars = new int[64];
+    private int[] lineBreaks = new int[64];
+    
+    // tops[i] is the y position of message i; entries up to validTops are current
+    private int[] tops = new int[65];
+    private int validTops;
+    
+    private int layoutWidth = -1;
+    private boolean stickToBottom = true;
+    
+    /**
+     * Creates a new view of the given transcript.
+     * 
+     * @param model The transcript to display
+     */
+    public TranscriptView(TranscriptModel model) {
+        this.model = model;
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        Font font = UIManager.getFont("TextPane.font");
+        if (font != null) {
+            setFont(font);
+        }
+        add(rendererPane);
+        
+        model.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                messagesAdded(e.getIndex0(), e.getIndex1());
+            }
+            
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                reset();
+            }
+            
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                messagesChanged(e.getIndex0(), e.getIndex1());
+            }
+        });
+        
+        installCopyMenu();
+        reset();
+    }
+    
+    /**
+     * Scrolls to the newest message and keeps following new messages.
+     */
+    public void scrollToEnd() {
+        stickToBottom = true;
+        scrollRectToVisible(new Rectangle(0, Math.max(0, getPreferredSize().height - 1), 1, 1));
+    }
+    
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        super.setBounds(x, y, width, height);
+        if (width != layoutWidth) {
+            // Re-wrapping changes every height; estimate now, measure when visible
+            layoutWidth = width;
+            for (int i = 0; i < count; i++) {
+                heights[i] = estimateHeight(i);
+                measured[i] = false;
+            }
+            validTops = 0;
+            clearCells();
+            revalidate();
+        }
+    }
+    
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(layoutWidth > 0 ? layoutWidth : 400, top(count) + INSET);
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        Rectangle clip = g.getClipBounds();
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        if (count == 0 || layoutWidth <= 2 * INSET) {
+            return;
+        }
+        
+        int first = indexAt(clip.y);
+        int bottom = clip.y + clip.height;
+        
+        // Measure visible messages whose height is only estimated
+        boolean heightsChanged = false;
+        for (int i = first; i < count && top(i) < bottom; i++) {
+            if (!measured[i]) {
+                int height = measure(i);
+                measured[i] = true;
+                if (height != heights[i]) {
+                    heights[i] = height;
+                    validTops = Math.min(validTops, i);
+                    heightsChanged = true;
+                }
+            }
+        }
+        
+        int cellWidth = layoutWidth - 2 * INSET;
+        for (int i = first; i < count && top(i) < bottom; i++) {
+            MessageCell cell = cellFor(model.getElementAt(i));
+            rendererPane.paintComponent(g, cell.pane, this, INSET, top(i) + INSET, cellWidth, heights[i], true);
+        }
+        
+        if (heightsChanged) {
+            revalidate();
+            if (stickToBottom) {
+                SwingUtilities.invokeLater(this::scrollToEnd);
+            }
+        }
+    }
+    
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(400, 300);
+    }
+    
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return UNIT_INCREMENT;
+    }
+    
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return Math.max(UNIT_INCREMENT, visibleRect.height - UNIT_INCREMENT);
+    }
+    
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+    
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        // Fill the viewport while the transcript is shorter than it
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+    
+    /**
+     * Adds an entry to the context menu of the messages.
+     * 
+     * @param name The menu label
+     * @param enabled Decides whether the entry is enabled for a message
+     * @param action Runs on the Event Dispatch Thread with the clicked message
+     */
+    public void addMessageAction(String name, Predicate<TranscriptMessage> enabled, Consumer<TranscriptMessage> action) {
+        actions.add(new MessageAction(name, enabled, action));
+    }
+    
+    /**
+     * Formats a message as HTML for its cell.
+     * 
+     * @param message The message to format
+     * @return The HTML body of the cell
+     */
+    protected String toHtml(TranscriptMessage message) {
+        // Replace newlines with HTML breaks
+        String formattedMessage = Html.escape(message.getContent()).replace("\n", "<br>");
+        
+        return "<html><body>" + senderLabel(message.getSender(), message.getColor()) + formattedMessage + "</body></html>";
+    }
+    
+    /**
+     * Formats the bold sender label shown in front of a message.
+     * 
+     * @param sender The sender
+     * @param color The color of the label, or null for default
+     * @return The HTML label
+     */
+    static String senderLabel(String sender, Color color) {
+        String colorAttr = color != null ?
+                String.format("color:rgb(%d,%d,%d)", color.getRed(), color.getGreen(), color.getBlue()) :
+                "";
+        
+        return String.format("<b style='%s'>%s:</b> ", colorAttr, Html.escape(sender));
+    }
+    
+    private void messagesAdded(int index0, int index1) {
+        if (index0 != count) {
+            // Only appends are incremental; anything else rebuilds the layout
+            reset();
+            return;
+        }
+        
+        boolean follow = isAtBottom();
+        for (int i = index0; i <= index1; i++) {
+            ensureCapacity(i + 1);
+            recordSize(i);
+            heights[i] = estimateHeight(i);
+            measured[i] = false;
+        }
+        count = index1 + 1;
+        contentChanged(follow);
+    }
+    
+    private void messagesChanged(int index0, int index1) {
+        boolean follow = isAtBottom();
+        for (int i = index0; i <= index1 && i < count; i++) {
+            // Keep the old height until the cell is measured again to avoid jumps
+            recordSize(i);
+            measured[i] = false;
+            TranscriptMessage message = model.getElementAt(i);
+            if (!cells.containsKey(message)) {
+                // Only cached cells hold rendered documents; this one is formatted again when shown
+                message.takeDocument();
+            }
+        }
+        contentChanged(follow);
+    }
+    
+    private void reset() {
+        count = model.getSize();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            recordSize(i);
+            heights[i] = estimateHeight(i);
+            measured[i] = false;
+        }
+        validTops = 0;
+        clearCells();
+        contentChanged(true);
+    }
+    
+    private void contentChanged(boolean follow) {
+        stickToBottom = follow;
+        revalidate();
+        repaint();
+        if (follow) {
+            SwingUtilities.invokeLater(this::scrollToEnd);
+        }
+    }
+    
+    private boolean isAtBottom() {
+        Rectangle visible = getVisibleRect();
+        return visible.height == 0 || visible.y + visible.height >= getHeight() - UNIT_INCREMENT;
+    }
+    
+    private int top(int index) {
+        if (index > validTops) {
+            for (int i = validTops; i < index; i++) {
+                tops[i + 1] = tops[i] + heights[i] + CELL_GAP;
+            }
+            validTops = index;
+        }
+        return tops[index];
+    }
+    
+    private int indexAt(int y) {
+        top(count);
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (tops[mid] <= y) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return Math.max(0, low);
+    }
+    
+    private int measure(int index) {
+        MessageCell cell = cellFor(model.getElementAt(index));
+        cell.pane.setSize(layoutWidth - 2 * INSET, Short.MAX_VALUE);
+        return cell.pane.getPreferredSize().height;
+    }
+    
+    private void clearCells() {
+        cells.values().forEach(MessageCell::release);
+        cells.clear();
+    }
+    
+    private MessageCell cellFor(TranscriptMessage message) {
+        MessageCell cell = cells.get(message);
+        if (cell == null) {
+            cell = new MessageCell();
+            cell.pane.setFont(getFont());
+            cells.put(message, cell);
+        }
+        if (cell.version != message.getVersion()) {
+            Document document = message.takeDocument();
+            if (document != null) {
+                // Streamed updates change the shown document in place, so it may be set already
+                if (document != cell.pane.getDocument()) {
+                    // Rendered off the EDT; only the view hierarchy is built here
+                    cell.pane.setDocument(document);
+                }
+            } else {
+                cell.pane.setText(toHtml(message));
+            }
+            cell.version = message.getVersion();
+        }
+        return cell;
+    }
+    
+    private void recordSize(int index) {
+        // The message counts its line breaks as it grows, so a streaming update is not rescanned
+        TranscriptMessage message = model.getElementAt(index);
+        chars[index] = message.getContent().length();
+        lineBreaks[index] = message.getLineBreaks();
+    }
+    
+    private int estimateHeight(int index) {
+        FontMetrics metrics = getFontMetrics(getFont());
+        int width = Math.max(1, (layoutWidth > 0 ? layoutWidth : 400) - 2 * INSET);
+        int charsPerLine = Math.max(1, width / Math.max(1, metrics.charWidth('n')));
+        int lines = 1 + lineBreaks[index] + chars[index] / charsPerLine;
+        return lines * metrics.getHeight() + 4;
+    }
+    
+    private void ensureCapacity(int size) {
+        if (size <= heights.length) {
+            return;
+        }
+        int capacity = Math.max(size, heights.length * 2);
+        heights = Arrays.copyOf(heights, capacity);
+        measured = Arrays.copyOf(measured, capacity);
+        chars = Arrays.copyOf(chars, capacity);
+        lineBreaks = Arrays.copyOf(lineBreaks, capacity);
+        tops = Arrays.copyOf(tops, capacity + 1);
+    }
+    
+    private void installCopyMenu() {
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                showMenu(e);
+            }
+            
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                showMenu(e);
+            }
+            
+            private void showMenu(MouseEvent e) {
+                if (!e.isPopupTrigger() || count == 0) {
+                    return;
+                }
+                TranscriptMessage message = model.getElementAt(indexAt(e.getY()));
+                JPopupMenu menu = new JPopupMenu();
+                JMenuItem copy = new JMenuItem("Copy message");
+                copy.addActionListener(event -> Toolkit.getDefaultToolkit().getSystemClipboard()
+                        .setContents(new StringSelection(message.getContent()), null));
+                menu.add(copy);
+                for (MessageAction action : actions) {
+                    JMenuItem item = new JMenuItem(action.name);
+                    item.setEnabled(action.enabled.test(message));
+                    item.addActionListener(event -> action.action.accept(message));
+                    menu.add(item);
+                }
+                menu.show(TranscriptView.this, e.getX(), e.getY());
+            }
+        });
+    }
+    
+    /**
+     * A context menu entry added by the owner of the view.
+     */
+    private static final class MessageAction {
+        final String name;
+        final Predicate<TranscriptMessage> enabled;
+        final Consumer<TranscriptMessage> action;
+        
+        MessageAction(String name, Predicate<TranscriptMessage> enabled, Consumer<TranscriptMessage> action) {
+            this.name = name;
+            this.enabled = enabled;
+            this.action = action;
+        }
+    }
+    
+    /**
+     * Laid-out rendering state of one message.
+     */
+    private static final class MessageCell {
+        final JEditorPane pane = new JEditorPane();
+        int version = -1;
+        
+        MessageCell() {
+            pane.setContentType("text/html");
+            pane.setEditable(false);
+            pane.setOpaque(false);
+            pane.putClientProperty(JEditorPane.HONOR_DISPLAY_PROPERTIES, Boolean.TRUE);
+        }
+        
+        /**
+         * Detaches a shared rendered document so the evicted pane can be collected.
+         */
+        void release() {
+            pane.setDocument(pane.getEditorKit().createDefaultDocument());
+        }
+    }
+}
\ No newline at end of file
@@ -1,102 +1,172 @@
 package com.chatgpt.clone.ui;
 
+import com.chatgpt.clone.speech.SpeechAudioCache;
+import com.chatgpt.clone.speech.SpeechPriority;
+import com.chatgpt.clone.speech.SpeechRenderer;
+import com.chatgpt.clone.speech.SpeechScheduler;
+import com.chatgpt.clone.speech.SpeechStats;
+import com.chatgpt.clone.speech.SpeechStream;
 import com.chatgpt.clone.util.Logger;
 
-import javax.speech.AudioException;
-import javax.speech.Central;
-import javax.speech.EngineException;
-import javax.speech.EngineStateError;
-import javax.speech.synthesis.Synthesizer;
-import javax.speech.synthesis.SynthesizerModeDesc;
-import javax.speech.synthesis.Voice;
-import java.beans.PropertyVetoException;
-import java.util.Locale;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * Manages text-to-speech functionality using FreeTTS.
+ * All speech goes through one {@link SpeechScheduler}, so text is spoken
+ * sentence by sentence, can be fed incrementally while a response streams
+ * in, and can be interrupted when the user moves on.
  */
 public class VoiceManager {
     private static final Logger logger = new Logger(VoiceManager.class);
     
-    private Synthesizer synthesizer;
-    private boolean initialized = false;
-    private boolean enabled = true;
+    /**
+     * Where synthesized sentences are cached, relative to the working directory.
+     */
+    private static final String AUDIO_CACHE_DIR = "cache/speech";
+    
+    /**
+     * Size cap of the audio cache.
+     */
+    private static final long AUDIO_CACHE_MAX_BYTES = 32L * 1024 * 1024;
+    
+    /**
+     * The running scheduler; null before the voice is loaded, after a failed load and after {@link #cleanup()}.
+     */
+    private volatile SpeechScheduler scheduler;
+    private boolean loadAttempted;
+    private volatile boolean enabled = true;
     
     /**
      * Creates a new VoiceManager instance.
      */
     public VoiceManager() {
+        this(true);
+    }
+    
+    /**
+     * Creates a new VoiceManager instance, optionally without loading the voice yet.
+     * Until {@link #initialize()} has finished, nothing is spoken.
+     * 
+     * @param initializeNow Whether to load the voice in the constructor
+     */
+    public VoiceManager(boolean initializeNow) {
+        if (initializeNow) {
+            initialize();
+        }
+    }
+    
+    /**
+     * Loads the voice and starts the speech threads. Allocating a FreeTTS voice
+     * takes a noticeable time, so this can be called from a background thread.
+     * Only the first call loads the voice. Later calls do nothing, also when
+     * the load failed, since a missing voice does not appear later, and after
+     * {@link #cleanup()}. A failed load disables speech.
+     */
+    public synchronized void initialize() {
+        if (loadAttempted) {
+            return;
+        }
+        loadAttempted = true;
         try {
-            initializeSynthesizer();
+            // Allocate the voice and start the synthesis and playback threads
+            scheduler = new SpeechScheduler(new SpeechRenderer(SpeechRenderer.DEFAULT_VOICE),
+                    SpeechScheduler.DEFAULT_QUEUE_CAPACITY, openAudioCache());
+            logger.info("Speech synthesizer initialized");
         } catch (Exception e) {
             logger.error("Failed to initialize speech synthesizer", e);
-            // Set enabled to false if initialization fails
             enabled = false;
-            initialized = false;
         }
     }
     
     /**
-     * Initializes the speech synthesizer.
+     * Checks whether the voice is loaded and speech can be played.
+     * 
+     * @return true from a successful {@link #initialize()} until {@link #cleanup()}
      */
-    private void initializeSynthesizer() {
+    public boolean isInitialized() {
+        return scheduler != null;
+    }
+    
+    /**
+     * Opens the disk cache of synthesized sentences.
+     * 
+     * @return The cache, or null if it cannot be opened
+     */
+    private SpeechAudioCache openAudioCache() {
         try {
-        // Set FreeTTS properties
-        System.setProperty("freetts.voices", "com.sun.speech.freetts.en.us.cmu_us_kal.KevinVoiceDirectory");
-        
-        // Create a synthesizer for English
-        SynthesizerModeDesc desc = new SynthesizerModeDesc(
-                null,          // engine name
-                "general",     // mode name
-                Locale.US,     // locale
-                null,          // running
-                null           // voice
-        );
-        
-        // Create the synthesizer
-        synthesizer = Central.createSynthesizer(desc);
-        
-        // Allocate the synthesizer
-        synthesizer.allocate();
-        
-        // Select a voice
-        Voice voice = new Voice(
-                "kevin16",     // name
-                Voice.GENDER_MALE,  // gender
-                Voice.AGE_DONT_CARE,    // age
-                null                // variant
-        );
-        synthesizer.getSynthesizerProperties().setVoice(voice);
-        
-        // Resume the synthesizer
-        synthesizer.resume();
+            return new SpeechAudioCache(Paths.get(AUDIO_CACHE_DIR), AUDIO_CACHE_MAX_BYTES);
+        } catch (IOException e) {
+            logger.warning("Speech audio cache disabled: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Opens a speech stream with normal priority that speaks text as it is appended.
+     * Sentences are synthesized and played while later chunks are still arriving.
+     * 
+     * @return The stream, or null if speech synthesis is not enabled or initialized
+     */
+    public SpeechStream openStream() {
+        return openStream(SpeechPriority.NORMAL);
+    }
+    
+    /**
+     * Opens a speech stream that speaks text as it is appended.
+     * 
+     * @param priority The priority of the stream in the speech queue
+     * @return The stream, or null if speech synthesis is not enabled or initialized
+     */
+    public SpeechStream openStream(SpeechPriority priority) {
+        SpeechScheduler current = scheduler;
+        if (!enabled || current == null) {
+            logger.warning("Speech synthesis is not enabled or initialized");
+            return null;
+        }
         
-        initialized = true;
-        logger.info("Speech synthesizer initialized");
-        } catch (Exception e) {
-            logger.error("Error initializing speech synthesizer", e);
-            enabled = false;
-            initialized = false;
+        return current.openStream(priority);
+    }
+    
+    /**
+     * Stops all queued and playing speech immediately.
+     */
+    public void stopSpeaking() {
+        SpeechScheduler current = scheduler;
+        if (current != null) {
+            current.cancelAll();
         }
     }
     
     /**
-     * Speaks the given text.
+     * Gets the queue and latency metrics of the speech scheduler.
+     * 
+     * @return The current statistics, or null if speech synthesis is not initialized
+     */
+    public SpeechStats getStats() {
+        SpeechScheduler current = scheduler;
+        return current != null ? current.getStats() : null;
+    }
+    
+    /**
+     * Speaks the given text and waits until it has been spoken.
      * 
      * @param text The text to speak
      */
     public void speak(String text) {
-        if (!enabled || !initialized) {
-            logger.warning("Speech synthesis is not enabled or initialized");
+        SpeechStream stream = openStream();
+        if (stream == null) {
             return;
         }
         
         try {
-            // Speak the text
-            synthesizer.speakPlainText(text, null);
+            stream.append(text);
+            stream.finish();
             
-            // Wait for the synthesizer to finish
-            synthesizer.waitEngineState(Synthesizer.QUEUE_EMPTY);
+            // Wait for the pipeline to finish speaking
+            stream.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             logger.error("Error speaking text", e);
         }
@@ -108,25 +178,13 @@ public class VoiceManager {
      * @param text The text to speak
      */
     public void speakAsync(final String text) {
-        if (!enabled || !initialized) {
-            logger.warning("Speech synthesis is not enabled or initialized");
+        SpeechStream stream = openStream();
+        if (stream == null) {
             return;
         }
         
-        // Create a new thread to speak the text
-        Thread speakThread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    // Speak the text
-                    synthesizer.speakPlainText(text, null);
-                } catch (Exception e) {
-                    logger.error("Error speaking text asynchronously", e);
-                }
-            }
-        });
-        
-        speakThread.start();
+        stream.append(text);
+        stream.finish();
     }
     
     /**
@@ -148,16 +206,21 @@ public class VoiceManager {
     }
     
     /**
-     * Cleans up resources used by the synthesizer.
+     * Cleans up resources used by the synthesizer. Afterwards nothing is
+     * spoken and {@link #initialize()} does not load the voice again.
      */
-    public void cleanup() {
-        if (initialized) {
-            try {
-                synthesizer.deallocate();
-                logger.info("Speech synthesizer deallocated");
-            } catch (Exception e) {
-                logger.error("Error deallocating speech synthesizer", e);
-            }
+    public synchronized void cleanup() {
+        loadAttempted = true;
+        SpeechScheduler current = scheduler;
+        if (current == null) {
+            return;
+        }
+        scheduler = null;
+        try {
+            current.close();
+            logger.info("Speech synthesizer deallocated");
+        } catch (Exception e) {
+            logger.error("Error deallocating speech synthesizer", e);
         }
     }
 }
\ No newline at end of file
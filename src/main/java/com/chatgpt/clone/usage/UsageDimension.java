@@ -0,0 +1,10 @@
+package com.chatgpt.clone.usage;
+
+/**
+ * The ways usage can be grouped in a rollup.
+ */
+public enum UsageDimension {
+    MODEL,
+    SESSION,
+    DAY
+}
\ No newline at end of file
@@ -0,0 +1,307 @@
+package com.chatgpt.clone.usage;
+
+import com.chatgpt.clone.exception.BudgetExceededException;
+import com.chatgpt.clone.util.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Records the token usage and latency of every completion call.
+ * Recording is lock-free: records go to a concurrent queue and running
+ * totals to {@link LongAdder}s, so callers never wait for disk I/O. A
+ * background thread periodically appends the queued records to one
+ * {@link UsageSeriesFile} per day. Rollups group the stored and pending
+ * records by model, session or day, and optional daily and per-session
+ * token budgets are checked before each call.
+ */
+public class UsageLedger implements AutoCloseable {
+    private static final Logger logger = new Logger(UsageLedger.class);
+    
+    private final Path directory;
+    private final ZoneId zone;
+    private final long dailyTokenBudget;
+    private final long sessionTokenBudget;
+    private final ConcurrentLinkedQueue<UsageRecord> pending = new ConcurrentLinkedQueue<>();
+    private final Map<String, LongAdder> sessionTokens = new ConcurrentHashMap<>();
+    private final AtomicReference<DayCounter> today;
+    private final Map<LocalDate, UsageSeriesFile> files = new HashMap<>();
+    private final ScheduledExecutorService flusher;
+    
+    /**
+     * Creates a ledger storing its files in the given directory.
+     * 
+     * @param directory The directory for the daily files
+     * @param flushIntervalMillis How often queued records are written
+     * @param dailyTokenBudget The maximum tokens per day, or 0 for no limit
+     * @param sessionTokenBudget The maximum tokens per session, or 0 for no limit
+     * @throws IOException if the directory or today's file cannot be read
+     */
+    public UsageLedger(Path directory, long flushIntervalMillis, long dailyTokenBudget, long sessionTokenBudget)
+            throws IOException {
+        this.directory = directory;
+        this.zone = ZoneId.systemDefault();
+        this.dailyTokenBudget = dailyTokenBudget;
+        this.sessionTokenBudget = sessionTokenBudget;
+        Files.createDirectories(directory);
+        
+        // Continue today's totals from disk so the daily budget survives restarts
+        LocalDate date = LocalDate.now(zone);
+        DayCounter counter = new DayCounter(date, zone);
+        files.put(date, UsageSeriesFile.open(fileFor(date), record -> counter.tokens.add(record.getTotalTokens())));
+        this.today = new AtomicReference<>(counter);
+        
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "usage-ledger-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Records a completed call. Never blocks.
+     * 
+     * @param record The usage of the call
+     */
+    public void record(UsageRecord record) {
+        pending.add(record);
+        DayCounter counter = today.get();
+        if (!counter.contains(record.getTimestampMillis())) {
+            // Only around midnight
+            LocalDate date = dayOf(record.getTimestampMillis());
+            counter = counterFor(date);
+            if (!counter.date.equals(date)) {
+                counter = null;
+            }
+        }
+        if (counter != null) {
+            counter.tokens.add(record.getTotalTokens());
+        }
+        sessionTokens.computeIfAbsent(record.getSession(), key -> new LongAdder()).add(record.getTotalTokens());
+    }
+    
+    /**
+     * Checks the budgets before a call is made.
+     * 
+     * @param session The session about to make a call
+     * @throws BudgetExceededException if the daily or session budget is used up
+     */
+    public void checkBudget(String session) {
+        if (dailyTokenBudget > 0 && getTokensToday() >= dailyTokenBudget) {
+            throw new BudgetExceededException("Daily token budget of " + dailyTokenBudget + " tokens is used up");
+        }
+        if (sessionTokenBudget > 0 && getSessionTokens(session) >= sessionTokenBudget) {
+            throw new BudgetExceededException("Session token budget of " + sessionTokenBudget + " tokens is used up");
+        }
+    }
+    
+    /**
+     * Gets the tokens used today, including calls not yet written to disk.
+     * 
+     * @return The number of tokens
+     */
+    public long getTokensToday() {
+        return counterFor(LocalDate.now(zone)).tokens.sum();
+    }
+    
+    /**
+     * Gets the tokens a session used since the ledger was opened.
+     * 
+     * @param session The session
+     * @return The number of tokens
+     */
+    public long getSessionTokens(String session) {
+        LongAdder tokens = sessionTokens.get(session);
+        return tokens == null ? 0 : tokens.sum();
+    }
+    
+    /**
+     * Groups the usage between two days, inclusive.
+     * 
+     * @param dimension What to group by
+     * @param from The first day
+     * @param to The last day
+     * @return The totals per group, sorted by key
+     * @throws IOException if a daily file cannot be read
+     */
+    public synchronized Map<String, UsageTotals> rollup(UsageDimension dimension, LocalDate from, LocalDate to)
+            throws IOException {
+        Map<String, Accumulator> groups = new TreeMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            Path file = fileFor(date);
+            if (Files.exists(file)) {
+                UsageSeriesFile.read(file, record -> add(groups, dimension, record));
+            }
+        }
+        for (UsageRecord record : pending) {
+            LocalDate date = dayOf(record.getTimestampMillis());
+            if (!date.isBefore(from) && !date.isAfter(to)) {
+                add(groups, dimension, record);
+            }
+        }
+        
+        Map<String, UsageTotals> totals = new TreeMap<>();
+        groups.forEach((key, accumulator) -> totals.put(key, accumulator.toTotals()));
+        return totals;
+    }
+    
+    /**
+     * Reads the records of one daily file, e.g. for offline analysis of a ledger directory.
+     * 
+     * @param file The file, named usage-YYYY-MM-DD.bin
+     * @param sink Receives the records in the order they were written
+     * @throws IOException if the file cannot be read
+     */
+    public static void read(Path file, Consumer<UsageRecord> sink) throws IOException {
+        UsageSeriesFile.read(file, sink);
+    }
+    
+    /**
+     * Writes all queued records to disk. Records of a day whose file cannot
+     * be written stay queued for the next flush.
+     * 
+     * @throws IOException if a daily file cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        Map<LocalDate, List<UsageRecord>> byDay = new TreeMap<>();
+        UsageRecord record;
+        while ((record = pending.poll()) != null) {
+            byDay.computeIfAbsent(dayOf(record.getTimestampMillis()), key -> new ArrayList<>()).add(record);
+        }
+        IOException error = null;
+        for (Map.Entry<LocalDate, List<UsageRecord>> entry : byDay.entrySet()) {
+            try {
+                UsageSeriesFile file = files.get(entry.getKey());
+                if (file == null) {
+                    file = UsageSeriesFile.open(fileFor(entry.getKey()), null);
+                    files.put(entry.getKey(), file);
+                }
+                file.append(entry.getValue());
+            } catch (IOException e) {
+                // Opened again next time, which also repairs a tail the failed write left behind
+                files.remove(entry.getKey());
+                pending.addAll(entry.getValue());
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+    
+    /**
+     * Stops the background flush and writes the remaining records.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flushQuietly();
+    }
+    
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.error("Error writing usage ledger", e);
+        }
+    }
+    
+    private DayCounter counterFor(LocalDate date) {
+        DayCounter counter = today.get();
+        while (date.isAfter(counter.date)) {
+            // A new day starts with a fresh counter; losing the race just means another thread installed it
+            today.compareAndSet(counter, new DayCounter(date, zone));
+            counter = today.get();
+        }
+        return counter;
+    }
+    
+    private LocalDate dayOf(long timestampMillis) {
+        return Instant.ofEpochMilli(timestampMillis).atZone(zone).toLocalDate();
+    }
+    
+    private Path fileFor(LocalDate date) {
+        return directory.resolve("usage-" + date + ".bin");
+    }
+    
+    private void add(Map<String, Accumulator> groups, UsageDimension dimension, UsageRecord record) {
+        String key;
+        switch (dimension) {
+            case MODEL:
+                key = record.getModel();
+                break;
+            case SESSION:
+                key = record.getSession();
+                break;
+            default:
+                key = dayOf(record.getTimestampMillis()).toString();
+                break;
+        }
+        groups.computeIfAbsent(key, k -> new Accumulator()).add(record);
+    }
+    
+    /**
+     * Running token count of one day.
+     */
+    private static final class DayCounter {
+        final LocalDate date;
+        final long startMillis;
+        final long endMillis;
+        final LongAdder tokens = new LongAdder();
+        
+        DayCounter(LocalDate date, ZoneId zone) {
+            this.date = date;
+            this.startMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+            this.endMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        
+        boolean contains(long timestampMillis) {
+            return timestampMillis >= startMillis && timestampMillis < endMillis;
+        }
+    }
+    
+    /**
+     * Mutable totals used while building a rollup.
+     */
+    private static final class Accumulator {
+        long calls;
+        long promptTokens;
+        long completionTokens;
+        long totalLatency;
+        long maxLatency;
+        
+        void add(UsageRecord record) {
+            calls++;
+            promptTokens += record.getPromptTokens();
+            completionTokens += record.getCompletionTokens();
+            totalLatency += record.getLatencyMillis();
+            maxLatency = Math.max(maxLatency, record.getLatencyMillis());
+        }
+        
+        UsageTotals toTotals() {
+            return new UsageTotals(calls, promptTokens, completionTokens, totalLatency, maxLatency);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.chatgpt.clone.usage;
+
+import lombok.Value;
+
+/**
+ * Token usage and latency of a single completion call.
+ */
+@Value
+public class UsageRecord {
+    /**
+     * When the call completed, in milliseconds since the epoch.
+     */
+    long timestampMillis;
+    
+    /**
+     * The model the call was sent to.
+     */
+    String model;
+    
+    /**
+     * The session that made the call.
+     */
+    String session;
+    
+    /**
+     * The number of prompt tokens.
+     */
+    int promptTokens;
+    
+    /**
+     * The number of completion tokens.
+     */
+    int completionTokens;
+    
+    /**
+     * The time from sending the request until the response was complete.
+     */
+    int latencyMillis;
+    
+    /**
+     * Gets the total number of tokens.
+     * 
+     * @return Prompt plus completion tokens
+     */
+    public int getTotalTokens() {
+        return promptTokens + completionTokens;
+    }
+}
\ No newline at end of file
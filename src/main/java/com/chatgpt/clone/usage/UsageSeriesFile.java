@@ -0,0 +1,216 @@
+package com.chatgpt.clone.usage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Append-only binary time series of usage records, one file per day.
+ * Model and session names are written once per file and referenced by
+ * number; timestamps are stored as deltas and all numbers as varints, so a
+ * typical record takes about ten bytes. A record cut off by a crash is
+ * detected and truncated when the file is opened for appending.
+ */
+final class UsageSeriesFile {
+    private static final byte[] MAGIC = {'U', 'S', 'G', '1'};
+    private static final int DEFINE = 0;
+    private static final int RECORD = 1;
+    
+    private final Path path;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private long lastTimestamp;
+    
+    private UsageSeriesFile(Path path) {
+        this.path = path;
+    }
+    
+    /**
+     * Opens a file for appending, reading its name table and repairing a torn tail.
+     * 
+     * @param path The file
+     * @param sink Receives the records already in the file, or null
+     * @return The opened file
+     * @throws IOException if the file cannot be read or repaired
+     */
+    static UsageSeriesFile open(Path path, Consumer<UsageRecord> sink) throws IOException {
+        UsageSeriesFile file = new UsageSeriesFile(path);
+        if (Files.exists(path)) {
+            byte[] data = Files.readAllBytes(path);
+            int valid = file.parse(data, sink);
+            if (valid < data.length) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+        }
+        return file;
+    }
+    
+    /**
+     * Reads all records of a file.
+     * 
+     * @param path The file
+     * @param sink Receives the records
+     * @throws IOException if the file cannot be read
+     */
+    static void read(Path path, Consumer<UsageRecord> sink) throws IOException {
+        new UsageSeriesFile(path).parse(Files.readAllBytes(path), sink);
+    }
+    
+    /**
+     * Appends records to the file. If the write fails, the file is cut back
+     * to its previous length and the same records can be appended again.
+     * 
+     * @param records The records to append
+     * @throws IOException if the file cannot be written
+     */
+    void append(List<UsageRecord> records) throws IOException {
+        long size = Files.exists(path) ? Files.size(path) : 0;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(records.size() * 12 + 64);
+        if (size == 0) {
+            out.write(MAGIC);
+        }
+        // Names defined and the last timestamp only count once they are in the file
+        Map<String, Integer> defined = new LinkedHashMap<>();
+        long timestamp = lastTimestamp;
+        for (UsageRecord record : records) {
+            int model = id(record.getModel(), defined, out);
+            int session = id(record.getSession(), defined, out);
+            out.write(RECORD);
+            writeVarLong(out, zigZag(record.getTimestampMillis() - timestamp));
+            writeVarLong(out, model);
+            writeVarLong(out, session);
+            writeVarLong(out, record.getPromptTokens());
+            writeVarLong(out, record.getCompletionTokens());
+            writeVarLong(out, record.getLatencyMillis());
+            timestamp = record.getTimestampMillis();
+        }
+        try {
+            Files.write(path, out.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // Drop a partly written batch so it is not read back before its retry
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(size);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            throw e;
+        }
+        ids.putAll(defined);
+        names.addAll(defined.keySet());
+        lastTimestamp = timestamp;
+    }
+    
+    private int id(String name, Map<String, Integer> defined, ByteArrayOutputStream out) {
+        String key = name == null ? "" : name;
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = defined.get(key);
+        }
+        if (id != null) {
+            return id;
+        }
+        id = names.size() + defined.size();
+        defined.put(key, id);
+        byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+        out.write(DEFINE);
+        writeVarLong(out, utf8.length);
+        out.write(utf8, 0, utf8.length);
+        return id;
+    }
+    
+    /**
+     * Parses the file content.
+     * 
+     * @return The length of the valid prefix
+     */
+    private int parse(byte[] data, Consumer<UsageRecord> sink) throws IOException {
+        if (data.length < MAGIC.length) {
+            return 0;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                throw new IOException("Not a usage series file: " + path);
+            }
+        }
+        
+        int[] position = {MAGIC.length};
+        int valid = position[0];
+        try {
+            while (position[0] < data.length) {
+                int type = data[position[0]++];
+                if (type == DEFINE) {
+                    int length = (int) readVarLong(data, position);
+                    if (position[0] + length > data.length) {
+                        break;
+                    }
+                    String name = new String(data, position[0], length, StandardCharsets.UTF_8);
+                    position[0] += length;
+                    ids.put(name, names.size());
+                    names.add(name);
+                } else if (type == RECORD) {
+                    long timestamp = lastTimestamp + unZigZag(readVarLong(data, position));
+                    String model = names.get((int) readVarLong(data, position));
+                    String session = names.get((int) readVarLong(data, position));
+                    int prompt = (int) readVarLong(data, position);
+                    int completion = (int) readVarLong(data, position);
+                    int latency = (int) readVarLong(data, position);
+                    lastTimestamp = timestamp;
+                    if (sink != null) {
+                        sink.accept(new UsageRecord(timestamp, model, session, prompt, completion, latency));
+                    }
+                } else {
+                    break;
+                }
+                valid = position[0];
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // Torn write at the end of the file; the name table and timestamp
+            // only reflect entries that were read completely
+        }
+        return valid;
+    }
+    
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static long readVarLong(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IndexOutOfBoundsException("Malformed varint");
+            }
+        }
+    }
+    
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.chatgpt.clone.usage;
+
+import lombok.Value;
+
+/**
+ * Aggregated usage of a group of calls, e.g. all calls to one model.
+ */
+@Value
+public class UsageTotals {
+    long calls;
+    long promptTokens;
+    long completionTokens;
+    long totalLatencyMillis;
+    long maxLatencyMillis;
+    
+    /**
+     * Gets the total number of tokens.
+     * 
+     * @return Prompt plus completion tokens
+     */
+    public long getTotalTokens() {
+        return promptTokens + completionTokens;
+    }
+    
+    /**
+     * Gets the average latency of the calls.
+     * 
+     * @return The average latency in milliseconds
+     */
+    public double getAverageLatencyMillis() {
+        return calls == 0 ? 0 : (double) totalLatencyMillis / calls;
+    }
+    
+    /**
+     * Gets the generation throughput over the time spent in calls.
+     * 
+     * @return Completion tokens per second of latency
+     */
+    public double getCompletionTokensPerSecond() {
+        return totalLatencyMillis == 0 ? 0 : completionTokens * 1000.0 / totalLatencyMillis;
+    }
+}
\ No newline at end of file
@@ -1,7 +1,12 @@
 package com.chatgpt.clone.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
 import java.util.logging.LogManager;
 
 /**
@@ -14,7 +19,9 @@ public class Logger {
     static {
         try (InputStream is = Logger.class.getClassLoader().getResourceAsStream("logging.properties")) {
             if (is != null) {
-                LogManager.getLogManager().readConfiguration(is);
+                byte[] configuration = is.readAllBytes();
+                createLogDirectory(configuration);
+                LogManager.getLogManager().readConfiguration(new ByteArrayInputStream(configuration));
             }
         } catch (IOException e) {
             System.err.println("Could not load logging.properties file");
@@ -22,6 +29,24 @@ public class Logger {
         }
     }
     
+    /**
+     * Creates the directory of the log files, since the file handler does not.
+     * 
+     * @param configuration The contents of logging.properties
+     */
+    private static void createLogDirectory(byte[] configuration) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(configuration));
+        String pattern = properties.getProperty("java.util.logging.FileHandler.pattern");
+        if (pattern == null || pattern.startsWith("%h") || pattern.startsWith("%t")) {
+            return;
+        }
+        Path directory = Paths.get(pattern).getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+    }
+    
     /**
      * Creates a new Logger for the specified class.
      * 
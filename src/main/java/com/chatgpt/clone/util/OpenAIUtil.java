@@ -1,6 +1,7 @@
 package com.chatgpt.clone.util;
 
 import com.chatgpt.clone.exception.OpenAIException;
+import com.chatgpt.clone.model.Conversation;
 import com.chatgpt.clone.model.Message;
 
 import java.util.ArrayList;
@@ -51,6 +52,38 @@ public class OpenAIUtil {
         return conversation;
     }
 
+    /**
+     * Starts an immutable conversation with a system message.
+     * 
+     * @param systemMessage The system message to set the context
+     * @return A new conversation with the system message
+     */
+    public static Conversation startConversation(String systemMessage) {
+        return Conversation.empty().withSystemMessage(systemMessage);
+    }
+
+    /**
+     * Adds a user message to an immutable conversation.
+     * 
+     * @param conversation The existing conversation, which is not modified
+     * @param userMessage The user message to add
+     * @return The extended conversation
+     */
+    public static Conversation addUserMessage(Conversation conversation, String userMessage) {
+        return conversation.appendUser(userMessage);
+    }
+
+    /**
+     * Adds an assistant message to an immutable conversation.
+     * 
+     * @param conversation The existing conversation, which is not modified
+     * @param assistantMessage The assistant message to add
+     * @return The extended conversation
+     */
+    public static Conversation addAssistantMessage(Conversation conversation, String assistantMessage) {
+        return conversation.appendAssistant(assistantMessage);
+    }
+
     /**
      * Formats an OpenAI exception message for display.
      * 
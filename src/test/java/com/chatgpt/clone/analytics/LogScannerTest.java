@@ -0,0 +1,153 @@
+package com.chatgpt.clone.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogScannerTest {
+    private static final int FROM = 20240501;
+    private static final int TO = 20240503;
+    private static final String[] MODELS = {"gpt-4", "gpt-3.5-turbo", "gpt-4o-mini"};
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void rangesMatchSingleScan() throws IOException {
+        Path file = directory.resolve("chatgpt-clone-0.log");
+        int expected = writeLog(file, 2_000, new Random(7), true);
+        
+        try (FileChannel channel = LogScanner.open(file)) {
+            CallAggregate single = scan(channel, Long.MAX_VALUE);
+            assertEquals(expected, single.getCalls());
+            // Boundaries land inside call lines, on line starts, inside and
+            // just before the long lines
+            for (long split : new long[] {50, 333, 4_096, 40_000, 65_536, 100_003, 150_000}) {
+                CallAggregate ranges = scan(channel, split);
+                assertEquals(single.getCalls(), ranges.getCalls(), "split " + split);
+                assertEquals(single.toStats(), ranges.toStats(), "split " + split);
+            }
+        }
+    }
+    
+    @Test
+    void rangeStartingAtLineStartKeepsItsFirstLine() throws IOException {
+        String line = callLine("2024-05-02", 9, "gpt-4", 10, 20, 30) + "\n";
+        Path file = directory.resolve("chatgpt-clone-0.log");
+        Files.writeString(file, line + line, StandardCharsets.US_ASCII);
+        
+        try (FileChannel channel = LogScanner.open(file)) {
+            // The second range starts right after a line break
+            assertEquals(2, scan(channel, line.length()).getCalls());
+            // And one byte into the second line
+            assertEquals(2, scan(channel, line.length() + 1).getCalls());
+        }
+    }
+    
+    @Test
+    void lineLongerThanLimitDoesNotDropRestOfRange() throws IOException {
+        String call = callLine("2024-05-02", 9, "gpt-4", 10, 20, 30) + "\n";
+        String longLine = "x".repeat(100_000) + "\n";
+        Path file = directory.resolve("chatgpt-clone-0.log");
+        Files.writeString(file, call + longLine + call + call + longLine + call, StandardCharsets.US_ASCII);
+        
+        try (FileChannel channel = LogScanner.open(file)) {
+            for (long split = 64; split < channel.size(); split = split * 3 / 2) {
+                assertEquals(4, scan(channel, split).getCalls(), "split " + split);
+            }
+        }
+    }
+    
+    @Test
+    void rotatedFilesAreScannedAcrossSplits() throws IOException {
+        Random random = new Random(11);
+        Path current = directory.resolve("chatgpt-clone-0.log");
+        // Large enough to be split in two ranges at the real split size
+        int expected = writeLog(current, (int) (LogScanner.SPLIT_BYTES / 120), random, false);
+        expected += writeLog(directory.resolve("chatgpt-clone-0.log.1"), 500, random, true);
+        expected += writeLog(directory.resolve("chatgpt-clone-0.log.2"), 500, random, false);
+        writeLog(directory.resolve("chatgpt-clone-0.txt"), 500, random, false);
+        assertTrue(Files.size(current) > LogScanner.SPLIT_BYTES);
+        
+        long single = 0;
+        for (String name : new String[] {"chatgpt-clone-0.log", "chatgpt-clone-0.log.1", "chatgpt-clone-0.log.2"}) {
+            try (FileChannel channel = LogScanner.open(directory.resolve(name))) {
+                single += scan(channel, Long.MAX_VALUE).getCalls();
+            }
+        }
+        assertEquals(expected, single);
+        
+        AnalyticsReport report = new UsageAnalytics(null, null, directory, 2, ZoneId.systemDefault())
+                .run(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 3));
+        assertEquals(1, report.getSources().size());
+        SourceReport logs = report.getSources().get(0);
+        assertEquals(3, logs.getFiles());
+        assertEquals(single, logs.getCalls());
+    }
+    
+    private static CallAggregate scan(FileChannel channel, long splitBytes) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            return pool.invoke(new LogScanner(channel, channel.size(), FROM, TO, splitBytes));
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Writes call lines with other lines between them, and a few call lines
+     * longer than a range reads past its end when {@code longLines} is set.
+     * 
+     * @return The number of call lines within the days scanned, without the long ones
+     */
+    private static int writeLog(Path file, int lines, Random random, boolean longLines) throws IOException {
+        int calls = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            for (int i = 0; i < lines; i++) {
+                String line;
+                int kind = random.nextInt(10);
+                if (longLines && i % 500 == 250) {
+                    line = callLine("2024-05-02", 10, "gpt-4", 1, 2, 3) + " "
+                            + "y".repeat(70_000 + random.nextInt(40_000));
+                } else if (kind < 6) {
+                    int day = random.nextInt(5);
+                    if (day >= 1 && day <= 3) {
+                        calls++;
+                    }
+                    String date = day == 0 ? "2024-04-30" : "2024-05-0" + day;
+                    line = callLine(date, random.nextInt(24), MODELS[random.nextInt(MODELS.length)],
+                            random.nextInt(20_000), random.nextInt(2_000), random.nextInt(60_000));
+                } else if (kind < 8) {
+                    line = "2024-05-02 11:22:33.444 INFO com.chatgpt.clone.service.GPTService: Sending request";
+                } else {
+                    line = "\tat com.chatgpt.clone.service.GPTService.call(GPTService.java:" + random.nextInt(500) + ")";
+                }
+                writer.write(line);
+                if (i < lines - 1) {
+                    writer.write('\n');
+                }
+            }
+        }
+        return calls;
+    }
+    
+    private static String callLine(String date, int hour, String model, int prompt, int completion, int latency) {
+        return String.format("%s %02d:03:12.345 INFO com.chatgpt.clone.service.GPTService: Call completed model=%s "
+                + "prompt_tokens=%d completion_tokens=%d latency_ms=%d", date, hour, model, prompt, completion, latency);
+    }
+}
\ No newline at end of file
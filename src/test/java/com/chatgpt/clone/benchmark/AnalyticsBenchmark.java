@@ -0,0 +1,170 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.analytics.AnalyticsDimension;
+import com.chatgpt.clone.analytics.AnalyticsReport;
+import com.chatgpt.clone.analytics.CallStats;
+import com.chatgpt.clone.analytics.SourceReport;
+import com.chatgpt.clone.analytics.UsageAnalytics;
+import com.chatgpt.clone.history.ConversationStore;
+import com.chatgpt.clone.history.StoredConversation;
+import com.chatgpt.clone.model.Conversation;
+import com.chatgpt.clone.model.Message;
+import com.chatgpt.clone.usage.UsageLedger;
+import com.chatgpt.clone.usage.UsageRecord;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates a week of logs, usage records and conversations, then measures the
+ * analytics on one thread and on all cores. The call counts found are checked
+ * against the generated ones, and both runs must agree.
+ * Usage: {@code AnalyticsBenchmark [logMegabytes]}, default 256.
+ */
+public class AnalyticsBenchmark {
+    private static final String[] MODELS = {"gpt-3.5-turbo", "gpt-4", "gpt-4o"};
+    private static final int DAYS = 7;
+    private static final int LOG_FILES = 4;
+    private static final int LEDGER_RECORDS = 200_000;
+    private static final int CONVERSATIONS = 300;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    
+    public static void main(String[] args) throws Exception {
+        long logBytes = (args.length > 0 ? Long.parseLong(args[0]) : 256) * 1024 * 1024;
+        Path root = Files.createTempDirectory("analytics-bench");
+        try {
+            LocalDate to = LocalDate.now();
+            LocalDate from = to.minusDays(DAYS - 1);
+            long logCalls = writeLogs(root.resolve("logs"), logBytes, from);
+            writeLedger(root.resolve("usage"), from);
+            writeHistory(root.resolve("history"));
+            System.out.printf("=== Analytics over %d MB of logs, %d usage records, %d conversations ===%n",
+                    logBytes / 1024 / 1024, LEDGER_RECORDS, CONVERSATIONS);
+            
+            int cores = Runtime.getRuntime().availableProcessors();
+            AnalyticsReport single = null;
+            for (int threads : cores > 1 ? new int[] {1, cores} : new int[] {1}) {
+                UsageAnalytics analytics = new UsageAnalytics(root.resolve("history"), root.resolve("usage"),
+                        root.resolve("logs"), threads, ZoneId.systemDefault());
+                // The first run pages the files in and compiles the scanner
+                analytics.run(from, to);
+                AnalyticsReport report = analytics.run(from, to);
+                System.out.printf("threads %-3d %8d ms %10.0f MB/s%n", threads, report.getElapsedMillis(),
+                        report.getBytes() / 1e6 / Math.max(1, report.getElapsedMillis()) * 1000);
+                for (SourceReport source : report.getSources()) {
+                    System.out.printf("  %-14s %10d calls%n", source.getSource(), source.getCalls());
+                }
+                if (single == null) {
+                    single = report;
+                } else if (!same(single, report)) {
+                    throw new IllegalStateException("Parallel run disagrees with the single-threaded run");
+                }
+            }
+            
+            long found = single.getSources().stream().filter(source -> source.getSource().equals("logs"))
+                    .mapToLong(SourceReport::getCalls).sum();
+            if (found != logCalls) {
+                throw new IllegalStateException("Found " + found + " log calls, wrote " + logCalls);
+            }
+            System.out.println();
+            System.out.print(single.format());
+        } finally {
+            try (Stream<Path> files = Files.walk(root)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+    
+    private static boolean same(AnalyticsReport a, AnalyticsReport b) {
+        for (int i = 0; i < a.getSources().size(); i++) {
+            List<CallStats> left = a.getSources().get(i).getStats().get(AnalyticsDimension.MODEL_PROMPT_SIZE);
+            List<CallStats> right = b.getSources().get(i).getStats().get(AnalyticsDimension.MODEL_PROMPT_SIZE);
+            if (!left.equals(right)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Writes log files in which about one line in ten is a call; larger prompts are slower.
+     * 
+     * @return The number of call lines
+     */
+    private static long writeLogs(Path directory, long bytes, LocalDate from) throws Exception {
+        Files.createDirectories(directory);
+        Random random = new Random(5);
+        long calls = 0;
+        long perFile = bytes / LOG_FILES;
+        LocalDateTime time = from.atStartOfDay();
+        long stepMillis = DAYS * 86_400_000L / (bytes / 110);
+        for (int file = 0; file < LOG_FILES; file++) {
+            long written = 0;
+            Path path = directory.resolve("chatgpt-clone-0.log." + file);
+            try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                while (written < perFile) {
+                    time = time.plusNanos(stepMillis * 1_000_000);
+                    String line;
+                    if (random.nextInt(10) == 0) {
+                        String model = MODELS[random.nextInt(MODELS.length)];
+                        int prompt = (int) Math.exp(4 + random.nextDouble() * 7);
+                        int completion = 20 + random.nextInt(800);
+                        int latency = 300 + prompt / 10 + completion * 30 + random.nextInt(500);
+                        line = TIMESTAMP.format(time) + " INFO com.chatgpt.clone.service.GPTService: Call completed model="
+                                + model + " prompt_tokens=" + prompt + " completion_tokens=" + completion
+                                + " latency_ms=" + latency;
+                        calls++;
+                    } else {
+                        line = TIMESTAMP.format(time) + " FINE com.chatgpt.clone.service.GPTService: "
+                                + "Streaming conversation with " + random.nextInt(40) + " messages using model: gpt-4";
+                    }
+                    out.write(line);
+                    out.write('\n');
+                    written += line.length() + 1;
+                }
+            }
+        }
+        return calls;
+    }
+    
+    private static void writeLedger(Path directory, LocalDate from) throws Exception {
+        Random random = new Random(6);
+        long start = from.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        try (UsageLedger ledger = new UsageLedger(directory, 60_000, 0, 0)) {
+            for (int i = 0; i < LEDGER_RECORDS; i++) {
+                long timestamp = start + (long) i * DAYS * 86_400_000L / LEDGER_RECORDS;
+                ledger.record(new UsageRecord(timestamp, MODELS[random.nextInt(MODELS.length)], "bench",
+                        50 + random.nextInt(8000), 20 + random.nextInt(800), 300 + random.nextInt(20_000)));
+            }
+        }
+    }
+    
+    private static void writeHistory(Path directory) throws Exception {
+        Random random = new Random(7);
+        try (ConversationStore store = new ConversationStore(directory)) {
+            for (int i = 0; i < CONVERSATIONS; i++) {
+                Conversation conversation = BenchmarkText.conversation(random, 2 + 2 * random.nextInt(15));
+                List<Message> turns = conversation.toList().subList(1, conversation.size());
+                long now = System.currentTimeMillis() - random.nextInt(DAYS * 86_400_000 / 2);
+                store.save(StoredConversation.builder()
+                        .id(ConversationStore.newId())
+                        .title("Conversation " + i)
+                        .createdMillis(now)
+                        .updatedMillis(now)
+                        .messages(turns)
+                        .build());
+            }
+        }
+    }
+}
\ No newline at end of file
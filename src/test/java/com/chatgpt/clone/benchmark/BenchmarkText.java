@@ -0,0 +1,60 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.model.Conversation;
+
+import java.util.Random;
+
+/**
+ * Generates repeatable chat-like text for the benchmarks.
+ */
+final class BenchmarkText {
+    private static final String[] WORDS = {
+            "the", "a", "to", "of", "and", "in", "is", "you", "that", "it", "for", "can", "with", "this",
+            "function", "value", "list", "request", "response", "thread", "memory", "model", "example",
+            "returns", "object", "string", "configuration", "server", "client", "error", "handle", "file",
+            "performance", "cache", "each", "when", "should", "because", "instead", "different", "state",
+            "result", "method", "variable", "update", "parameter", "simple", "better", "data", "time"
+    };
+    
+    private BenchmarkText() {
+    }
+    
+    /**
+     * Generates sentences of random words, with a paragraph break every 60 words.
+     * 
+     * @param random The random source
+     * @param words The number of words
+     * @return The text
+     */
+    static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (i % 12 == 0) {
+                word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            }
+            text.append(word).append(i % 12 == 11 ? ". " : " ");
+            if (i % 60 == 59) {
+                text.append("\n\n");
+            }
+        }
+        return text.toString().trim();
+    }
+    
+    /**
+     * Generates a conversation of alternating short questions and longer answers.
+     * 
+     * @param random The random source
+     * @param turns The number of turns
+     * @return The conversation
+     */
+    static Conversation conversation(Random random, int turns) {
+        Conversation conversation = Conversation.empty().withSystemMessage("You are a helpful assistant.");
+        for (int i = 0; i < turns; i++) {
+            conversation = i % 2 == 0
+                    ? conversation.appendUser(text(random, 15 + random.nextInt(40)))
+                    : conversation.appendAssistant(text(random, 120 + random.nextInt(250)));
+        }
+        return conversation;
+    }
+}
@@ -0,0 +1,141 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.codec.CodecFormat;
+import com.chatgpt.clone.codec.ModelCodec;
+import com.chatgpt.clone.codec.RecordReader;
+import com.chatgpt.clone.codec.RecordWriter;
+import com.chatgpt.clone.model.ChatCompletionRequest;
+import com.chatgpt.clone.model.ChatCompletionResponse;
+import com.chatgpt.clone.model.Message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the size and the encode and decode speed of the codec formats
+ * for requests, responses and streamed message sequences of growing conversations.
+ * Every document is decoded and compared with the original before it is timed.
+ * Usage: {@code CodecBenchmark [millisPerMeasurement]}, default 500.
+ */
+public class CodecBenchmark {
+    private static final int[] TURNS = {2, 20, 200};
+    
+    public static void main(String[] args) throws Exception {
+        long budgetNanos = (args.length > 0 ? Long.parseLong(args[0]) : 500) * 1_000_000;
+        
+        System.out.println("=== Codec formats, envelope version " + ModelCodec.VERSION + " ===");
+        System.out.printf("%-6s %-6s %-9s %10s %7s %11s %11s %10s %10s%n", "turns", "format", "document",
+                "bytes", "of json", "encode us", "decode us", "enc MB/s", "dec MB/s");
+        for (int turns : TURNS) {
+            Random random = new Random(turns);
+            List<Message> messages = BenchmarkText.conversation(random, turns).toList();
+            ChatCompletionRequest request = ChatCompletionRequest.builder()
+                    .model("gpt-4o")
+                    .messages(messages)
+                    .build();
+            ChatCompletionResponse response = new ChatCompletionResponse("chatcmpl-" + turns, "chat.completion",
+                    1_700_000_000L, "gpt-4o",
+                    List.of(new ChatCompletionResponse.Choice(0,
+                            new Message("assistant", BenchmarkText.text(random, 300)), "stop")),
+                    new ChatCompletionResponse.Usage(turns * 150, 400, turns * 150 + 400));
+            
+            int[] jsonBytes = new int[3];
+            for (CodecFormat format : CodecFormat.values()) {
+                ModelCodec codec = ModelCodec.of(format);
+                jsonBytes[0] = measure(turns, format, "request", jsonBytes[0], budgetNanos,
+                        () -> codec.encode(request),
+                        data -> check(request, codec.decode(data, ChatCompletionRequest.class)));
+                jsonBytes[1] = measure(turns, format, "response", jsonBytes[1], budgetNanos,
+                        () -> codec.encode(response),
+                        data -> check(response, codec.decode(data, ChatCompletionResponse.class)));
+                jsonBytes[2] = measure(turns, format, "messages", jsonBytes[2], budgetNanos,
+                        () -> writeAll(codec, messages),
+                        data -> check(messages, readAll(codec, data)));
+            }
+        }
+    }
+    
+    /**
+     * Prints one row.
+     * 
+     * @return The size of the document, so later formats can be compared with JSON
+     */
+    private static int measure(int turns, CodecFormat format, String document, int jsonBytes, long budgetNanos,
+            Encoder encoder, Decoder decoder) throws IOException {
+        byte[] data = encoder.encode();
+        decoder.decode(data);
+        
+        double encodeNanos = time(budgetNanos, encoder::encode);
+        double decodeNanos = time(budgetNanos, () -> decoder.decode(data));
+        int reference = format == CodecFormat.JSON ? data.length : jsonBytes;
+        System.out.printf("%-6d %-6s %-9s %10d %6.0f%% %11.1f %11.1f %10.0f %10.0f%n", turns, format.getName(),
+                document, data.length, 100.0 * data.length / reference, encodeNanos / 1000, decodeNanos / 1000,
+                data.length / encodeNanos * 1000, data.length / decodeNanos * 1000);
+        return reference;
+    }
+    
+    /**
+     * Runs a task for half the budget to warm up, then for the other half.
+     * 
+     * @return The mean nanoseconds per run in the second half
+     */
+    private static double time(long budgetNanos, Task task) throws IOException {
+        long warmUpEnd = System.nanoTime() + budgetNanos / 2;
+        while (System.nanoTime() < warmUpEnd) {
+            task.run();
+        }
+        long runs = 0;
+        long started = System.nanoTime();
+        long end = started + budgetNanos / 2;
+        long now;
+        do {
+            task.run();
+            runs++;
+            now = System.nanoTime();
+        } while (now < end);
+        return (double) (now - started) / runs;
+    }
+    
+    private static byte[] writeAll(ModelCodec codec, List<Message> messages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RecordWriter<Message> writer = codec.openWriter(out)) {
+            for (Message message : messages) {
+                writer.write(message);
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    private static List<Message> readAll(ModelCodec codec, byte[] data) throws IOException {
+        List<Message> messages = new ArrayList<>();
+        try (RecordReader<Message> reader = codec.openReader(new ByteArrayInputStream(data), Message.class)) {
+            Message message;
+            while ((message = reader.next()) != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+    
+    private static void check(Object expected, Object decoded) {
+        if (!expected.equals(decoded)) {
+            throw new IllegalStateException("Decoded value differs from the original: " + decoded);
+        }
+    }
+    
+    private interface Encoder {
+        byte[] encode() throws IOException;
+    }
+    
+    private interface Decoder {
+        void decode(byte[] data) throws IOException;
+    }
+    
+    private interface Task {
+        void run() throws IOException;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.chatgpt.clone.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Local stand-in for the chat completions endpoint used by the benchmarks
+ * and tests. It accepts gzip and deflate request bodies, can limit how fast
+ * it reads the upload to imitate a slow uplink, and answers every request
+ * with a fixed completion, gzipped when the client accepts it.
+ */
+public final class CompletionStub implements AutoCloseable {
+    private static final String RESPONSE = "{\"id\":\"stub\",\"object\":\"chat.completion\",\"created\":0,"
+            + "\"model\":\"stub\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"OK\"},\"finish_reason\":\"stop\"}],"
+            + "\"usage\":{\"prompt_tokens\":1,\"completion_tokens\":1,\"total_tokens\":2}}";
+    
+    private final HttpServer server;
+    private final long uplinkBytesPerSecond;
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong bodyBytes = new AtomicLong();
+    private volatile byte[] lastBody;
+    
+    /**
+     * Starts the stub on a free local port.
+     * 
+     * @param uplinkBytesPerSecond How fast request bodies are read, or 0 for no limit
+     * @throws IOException if the server cannot be started
+     */
+    public CompletionStub(long uplinkBytesPerSecond) throws IOException {
+        this.uplinkBytesPerSecond = uplinkBytesPerSecond;
+        // Without this the server's small response writes wait on delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "completion-stub");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+    
+    /**
+     * Gets the URL of the stub endpoint.
+     * 
+     * @return The URL
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+    }
+    
+    /**
+     * Gets the request bytes received on the wire, compressed or not.
+     * 
+     * @return The byte count since the last reset
+     */
+    public long getWireBytes() {
+        return wireBytes.get();
+    }
+    
+    /**
+     * Gets the decoded request body bytes.
+     * 
+     * @return The byte count since the last reset
+     */
+    public long getBodyBytes() {
+        return bodyBytes.get();
+    }
+    
+    /**
+     * Gets the decoded body of the last request that was read in full.
+     * 
+     * @return The body, or null if no request was read yet
+     */
+    public byte[] getLastBody() {
+        return lastBody;
+    }
+    
+    /**
+     * Resets the byte counters.
+     */
+    public void resetCounters() {
+        wireBytes.set(0);
+        bodyBytes.set(0);
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        InputStream wire = new ThrottledInputStream(exchange.getRequestBody());
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        InputStream body = "gzip".equalsIgnoreCase(encoding) ? new GZIPInputStream(wire)
+                : "deflate".equalsIgnoreCase(encoding) ? new InflaterInputStream(wire)
+                : wire;
+        
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        int n;
+        while ((n = body.read(buffer)) > 0) {
+            bodyBytes.addAndGet(n);
+            received.write(buffer, 0, n);
+        }
+        lastBody = received.toByteArray();
+        
+        byte[] response = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (accept != null && accept.contains("gzip")) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                out.write(response);
+            }
+        } else {
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        }
+    }
+    
+    /**
+     * Counts the bytes read from the connection and paces them to the uplink rate.
+     */
+    private final class ThrottledInputStream extends InputStream {
+        private final InputStream in;
+        private final long started = System.nanoTime();
+        private long read;
+        
+        ThrottledInputStream(InputStream in) {
+            this.in = in;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, Math.min(len, 4096));
+            if (n > 0) {
+                read += n;
+                wireBytes.addAndGet(n);
+                pace();
+            }
+            return n;
+        }
+        
+        private void pace() throws IOException {
+            if (uplinkBytesPerSecond <= 0) {
+                return;
+            }
+            long dueNanos = read * 1_000_000_000L / uplinkBytesPerSecond;
+            long aheadMillis = (dueNanos - (System.nanoTime() - started)) / 1_000_000;
+            if (aheadMillis > 0) {
+                try {
+                    Thread.sleep(aheadMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted", e);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.model.Conversation;
+
+import java.util.Random;
+
+/**
+ * Measures the heap used per 1,000 conversation turns, with and without
+ * compact storage.
+ * Run with a fixed heap for stable numbers, e.g.
+ * {@code java -Xms512m -Xmx512m -cp target/classes:target/test-classes:... com.chatgpt.clone.benchmark.ConversationMemoryBenchmark [turns]}.
+ */
+public class ConversationMemoryBenchmark {
+    public static void main(String[] args) {
+        int turns = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        
+        System.out.println("=== Conversation heap per 1,000 turns (" + turns + " turns) ===");
+        long plain = measure(turns, -1);
+        long compact = measure(turns, 8);
+        System.out.printf("Plain:   %,d bytes per 1,000 turns%n", plain);
+        System.out.printf("Compact: %,d bytes per 1,000 turns (hot window 8)%n", compact);
+        System.out.printf("Ratio:   %.2fx%n", (double) plain / Math.max(1, compact));
+    }
+    
+    private static long measure(int turns, int hotWindow) {
+        Random random = new Random(42);
+        long before = usedHeap();
+        
+        Conversation conversation = Conversation.empty().withSystemMessage("You are a helpful assistant.");
+        if (hotWindow >= 0) {
+            conversation = conversation.compacted(hotWindow);
+        }
+        for (int i = 0; i < turns; i++) {
+            // Questions are short, answers are a few paragraphs
+            conversation = i % 2 == 0
+                    ? conversation.appendUser(BenchmarkText.text(random, 15 + random.nextInt(40)))
+                    : conversation.appendAssistant(BenchmarkText.text(random, 120 + random.nextInt(250)));
+        }
+        
+        long after = usedHeap();
+        if (conversation.getTurnCount() != turns) {
+            throw new IllegalStateException("Unexpected turn count");
+        }
+        return (after - before) * 1000 / turns;
+    }
+    
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
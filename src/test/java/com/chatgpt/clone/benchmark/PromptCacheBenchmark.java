@@ -0,0 +1,94 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.config.OpenAIConfig;
+import com.chatgpt.clone.model.Conversation;
+import com.chatgpt.clone.model.Message;
+import com.chatgpt.clone.service.CancellationToken;
+import com.chatgpt.clone.service.GPTService;
+import com.chatgpt.clone.service.PromptCacheStats;
+import com.chatgpt.clone.service.PromptLayout;
+import com.chatgpt.clone.service.RequestPriority;
+import com.chatgpt.clone.simulation.SimulationRule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Compares request layouts by how much of the prompt the simulated backend
+ * can serve from its prompt cache over a long conversation whose history has
+ * to be shortened. Every question comes with per-question context, like
+ * retrieved excerpts. The layouts are:
+ * <ul>
+ * <li>front: context right after the system message, history cut one turn at a time</li>
+ * <li>tail: context right before the question, history cut one turn at a time</li>
+ * <li>stable: context right before the question, history cut in steps (PromptLayout)</li>
+ * </ul>
+ * Usage: {@code PromptCacheBenchmark [turns] [historyTokens] [stepTurns]}, default 60, 6000 and 10.
+ */
+public class PromptCacheBenchmark {
+    private static final String MODEL = "gpt-4";
+    private static final String SYSTEM = "You are a helpful assistant. " + BenchmarkText.text(new Random(1), 250);
+    
+    public static void main(String[] args) throws Exception {
+        int turns = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int historyTokens = args.length > 1 ? Integer.parseInt(args[1]) : 6000;
+        int step = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Path rules = Files.createTempFile("prompt-cache-rules", ".json");
+        try {
+            SimulationRule rule = new SimulationRule();
+            rule.setName("answer");
+            rule.setResponse(BenchmarkText.text(new Random(3), 180));
+            new ObjectMapper().writeValue(rules.toFile(), List.of(rule));
+            
+            System.out.println("=== Prompt cache, " + turns + " questions, history budget " + historyTokens
+                    + " tokens, step " + step + " turns ===");
+            System.out.printf("%-8s %12s %14s %14s %12s%n", "layout", "cached", "prefix reuse", "prompt tok/req",
+                    "cache hits");
+            run("front", rules, turns, new PromptLayout(List.of(), historyTokens, 1), true);
+            run("tail", rules, turns, new PromptLayout(List.of(), historyTokens, 1), false);
+            run("stable", rules, turns, new PromptLayout(List.of(), historyTokens, step), false);
+        } finally {
+            Files.deleteIfExists(rules);
+        }
+    }
+    
+    private static void run(String name, Path rules, int turns, PromptLayout layout, boolean contextFirst) {
+        Random random = new Random(11);
+        try (GPTService service = new GPTService(new OpenAIConfig("http://simulated.invalid", settings(rules)))) {
+            Conversation conversation = Conversation.empty().withSystemMessage(SYSTEM);
+            for (int i = 0; i < turns; i++) {
+                conversation = conversation.appendUser("Question " + i + ": " + BenchmarkText.text(random, 40));
+                List<Message> context = List.of(Message.systemMessage("Relevant excerpts: "
+                        + BenchmarkText.text(random, 80)));
+                List<Message> messages = layout.arrange(conversation, context);
+                if (contextFirst) {
+                    messages = new ArrayList<>(layout.arrange(conversation, List.of()));
+                    messages.addAll(1, context);
+                }
+                String answer = service.sendConversation(messages, MODEL, RequestPriority.INTERACTIVE, "benchmark",
+                        new CancellationToken());
+                conversation = conversation.appendAssistant(answer);
+            }
+            PromptCacheStats stats = service.getPromptCache().getStats().get(0);
+            System.out.printf("%-8s %11.1f%% %13.1f%% %14d %8d/%d%n", name, 100 * stats.getCachedTokenRatio(),
+                    100 * stats.getPrefixReuse(), stats.getPromptTokens() / stats.getRequests(), stats.getCacheHits(),
+                    stats.getRequests());
+        }
+    }
+    
+    private static Properties settings(Path rules) {
+        Properties properties = new Properties();
+        properties.setProperty("openai.api.key", "sk-benchmark");
+        properties.setProperty("usage.ledger.enabled", "false");
+        properties.setProperty("http.transport", "simulated");
+        properties.setProperty("simulation.rules", rules.toString());
+        properties.setProperty("simulation.seed", "42");
+        properties.setProperty("simulation.time.scale", "0");
+        return properties;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.config.OpenAIConfig;
+import com.chatgpt.clone.model.Conversation;
+import com.chatgpt.clone.service.GPTService;
+import com.chatgpt.clone.service.RequestCompression;
+
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Compares request latency with and without request-body compression
+ * against a local stub that reads uploads at a limited rate.
+ * Usage: {@code RequestCompressionBenchmark [uplinkKilobytesPerSecond]}, default 256 (about 2 Mbit/s).
+ */
+public class RequestCompressionBenchmark {
+    private static final int[] TURNS = {20, 100, 400};
+    private static final int ROUNDS = 3;
+    
+    public static void main(String[] args) throws Exception {
+        long uplink = (args.length > 0 ? Long.parseLong(args[0]) : 256) * 1024;
+        
+        try (CompletionStub stub = new CompletionStub(uplink)) {
+            System.out.println("=== Request compression, uplink " + uplink / 1024 + " KB/s ===");
+            System.out.printf("%-8s %-8s %12s %12s %12s%n", "turns", "coding", "body KB", "wire KB", "latency ms");
+            
+            for (int turns : TURNS) {
+                Conversation conversation = BenchmarkText.conversation(new Random(turns), turns);
+                for (RequestCompression compression : RequestCompression.values()) {
+                    GPTService service = new GPTService(new OpenAIConfig(stub.getUrl(), settings(compression)));
+                    
+                    // Warm up the connection and the code paths
+                    service.sendConversation(conversation, "stub");
+                    stub.resetCounters();
+                    
+                    long started = System.nanoTime();
+                    for (int i = 0; i < ROUNDS; i++) {
+                        service.sendConversation(conversation, "stub");
+                    }
+                    long millis = (System.nanoTime() - started) / 1_000_000 / ROUNDS;
+                    
+                    System.out.printf("%-8d %-8s %12d %12d %12d%n", turns, compression,
+                            stub.getBodyBytes() / ROUNDS / 1024, stub.getWireBytes() / ROUNDS / 1024, millis);
+                }
+            }
+        }
+    }
+    
+    private static Properties settings(RequestCompression compression) {
+        Properties properties = new Properties();
+        properties.setProperty("openai.api.key", "sk-benchmark");
+        properties.setProperty("usage.ledger.enabled", "false");
+        properties.setProperty("http.compression", compression.getEncoding() != null ? compression.getEncoding() : "none");
+        properties.setProperty("http.compression.threshold.bytes", "1024");
+        return properties;
+    }
+}
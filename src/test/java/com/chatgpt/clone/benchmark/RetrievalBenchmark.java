@@ -0,0 +1,173 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.retrieval.EmbeddingProvider;
+import com.chatgpt.clone.retrieval.HnswIndex;
+import com.chatgpt.clone.retrieval.SearchHit;
+import com.chatgpt.clone.retrieval.VectorKernel;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Measures the on-disk vector index: build rate, query latency and recall
+ * against an exact scan, plus the throughput of the scalar and SIMD kernels.
+ * The vectors are clustered like embeddings of related texts.
+ * The SIMD kernel is only used when the JVM runs with {@code --add-modules jdk.incubator.vector}.
+ * Usage: {@code RetrievalBenchmark [vectors] [dimensions]}, default 100000 and 128.
+ */
+public class RetrievalBenchmark {
+    private static final int CLUSTERS = 500;
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+    private static final int[] EF = {16, 32, 64, 128};
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int dimensions = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        Random random = new Random(42);
+        float[][] centers = new float[CLUSTERS][];
+        for (int i = 0; i < CLUSTERS; i++) {
+            centers[i] = gaussian(random, dimensions, 1);
+        }
+        float[][] data = new float[count][];
+        for (int i = 0; i < count; i++) {
+            data[i] = near(random, centers[random.nextInt(CLUSTERS)], 0.6f);
+        }
+        float[][] queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = near(random, data[random.nextInt(count)], 0.4f);
+        }
+        
+        VectorKernel kernel = VectorKernel.best();
+        System.out.println("=== Vector index, " + count + " x " + dimensions + " dimensions, kernel " + kernel.getName() + " ===");
+        kernels(data, dimensions);
+        
+        Path directory = Files.createTempDirectory("retrieval-bench");
+        try {
+            long started = System.nanoTime();
+            try (HnswIndex index = HnswIndex.open(directory, "bench", dimensions, 16, 100, kernel)) {
+                for (int i = 0; i < count; i++) {
+                    index.add(data[i], new byte[0]);
+                }
+            }
+            double buildSeconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("build: %.1f s, %.0f vectors/s%n", buildSeconds, count / buildSeconds);
+            
+            int[][] exact = new int[QUERIES][];
+            started = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                exact[q] = exact(kernel, data, queries[q]);
+            }
+            double scanMillis = (System.nanoTime() - started) / 1e6 / QUERIES;
+            
+            started = System.nanoTime();
+            try (HnswIndex index = HnswIndex.open(directory, "bench", dimensions, 16, 100, kernel)) {
+                System.out.printf("reopen: %.1f ms%n", (System.nanoTime() - started) / 1e6);
+                System.out.printf("%-8s %10s %10s %10s%n", "ef", "recall@" + K, "p50 ms", "p99 ms");
+                System.out.printf("%-8s %10s %10.3f %10.3f%n", "scan", "1.000", scanMillis, scanMillis);
+                for (int ef : EF) {
+                    for (int q = 0; q < QUERIES; q++) {
+                        index.search(queries[q], K, ef);
+                    }
+                    long[] nanos = new long[QUERIES];
+                    int found = 0;
+                    for (int q = 0; q < QUERIES; q++) {
+                        long queryStarted = System.nanoTime();
+                        List<SearchHit> hits = index.search(queries[q], K, ef);
+                        nanos[q] = System.nanoTime() - queryStarted;
+                        Set<Integer> expected = new HashSet<>();
+                        for (int id : exact[q]) {
+                            expected.add(id);
+                        }
+                        for (SearchHit hit : hits) {
+                            if (expected.contains(hit.getId())) {
+                                found++;
+                            }
+                        }
+                    }
+                    Arrays.sort(nanos);
+                    System.out.printf("%-8d %10.3f %10.3f %10.3f%n", ef, found / (double) (QUERIES * K),
+                            nanos[QUERIES / 2] / 1e6, nanos[QUERIES * 99 / 100] / 1e6);
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(file -> file.toFile().delete());
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+    
+    /**
+     * Compares the kernels on dot products against vectors in a direct buffer, as the index reads them.
+     */
+    private static void kernels(float[][] data, int dimensions) {
+        int rows = Math.min(data.length, 20_000);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(rows * dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < rows; i++) {
+            for (float value : data[i]) {
+                buffer.putFloat(value);
+            }
+        }
+        for (VectorKernel kernel : new VectorKernel[] {VectorKernel.scalar(), VectorKernel.best()}) {
+            // The Vector API is only fast once C2 has compiled and inlined it
+            int rounds = Math.max(10, 500_000 / rows);
+            for (int round = 0; round < rounds; round++) {
+                dots(kernel, data[round % rows], buffer, rows, dimensions);
+            }
+            long started = System.nanoTime();
+            float checksum = 0;
+            for (int round = 0; round < rounds; round++) {
+                checksum += dots(kernel, data[round % rows], buffer, rows, dimensions);
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("kernel %-10s %8.1f M dot products/s (checksum %.1f)%n", kernel.getName(),
+                    (double) rounds * rows / seconds / 1e6, checksum);
+        }
+    }
+    
+    private static float dots(VectorKernel kernel, float[] query, ByteBuffer buffer, int rows, int dimensions) {
+        float sum = 0;
+        for (int i = 0; i < rows; i++) {
+            sum += kernel.dot(query, buffer, i * dimensions * Float.BYTES);
+        }
+        return sum;
+    }
+    
+    private static int[] exact(VectorKernel kernel, float[][] data, float[] query) {
+        Integer[] ids = new Integer[data.length];
+        float[] scores = new float[data.length];
+        for (int i = 0; i < data.length; i++) {
+            ids[i] = i;
+            scores[i] = kernel.dot(query, data[i]);
+        }
+        return Arrays.stream(ids).sorted(Comparator.comparingDouble(id -> -scores[id])).limit(K)
+                .mapToInt(Integer::intValue).toArray();
+    }
+    
+    private static float[] gaussian(Random random, int dimensions, double scale) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) (random.nextGaussian() * scale);
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+    
+    private static float[] near(Random random, float[] center, float spread) {
+        float[] noise = gaussian(random, center.length, 1);
+        float[] vector = new float[center.length];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = center[i] + spread * noise[i];
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+}
\ No newline at end of file
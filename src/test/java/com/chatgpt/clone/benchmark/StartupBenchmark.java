@@ -0,0 +1,136 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.history.ConversationStore;
+import com.chatgpt.clone.history.StoredConversation;
+import com.chatgpt.clone.model.Conversation;
+
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures cold startup of the UI with sequential and with staged
+ * initialization. Every run starts a fresh JVM in a scratch directory with
+ * the simulated backend and a pre-filled conversation history, where
+ * {@link StartupProbe} opens the UI, prints its startup milestones and exits
+ * once it is fully ready. Reported times are
+ * medians in milliseconds since JVM start; first usable send is the later of
+ * first paint and the send button being enabled. Needs a display.
+ * Usage: {@code StartupBenchmark [runs] [storedConversations]}, default 5 and 300.
+ */
+public class StartupBenchmark {
+    private static final String[] MILESTONES = {"first-paint", "send-ready", "connection-ready", "voice-ready", "history-ready"};
+    
+    public static void main(String[] args) throws Exception {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("StartupBenchmark needs a display");
+            System.exit(1);
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int stored = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        
+        Path directory = Files.createTempDirectory("startup-benchmark");
+        try {
+            fillHistory(directory.resolve("history"), stored);
+            System.out.println("=== Startup, " + runs + " runs, " + stored + " stored conversations ===");
+            System.out.printf("%-12s %12s %12s %12s %12s %12s%n",
+                    "mode", "first paint", "usable send", "connection", "voice", "history");
+            
+            for (boolean staged : new boolean[] {false, true}) {
+                Map<String, List<Long>> times = new HashMap<>();
+                for (int run = 0; run < runs; run++) {
+                    Map<String, Long> milestones = launch(directory, staged);
+                    milestones.put("usable-send", Math.max(milestones.getOrDefault("first-paint", -1L),
+                            milestones.getOrDefault("send-ready", -1L)));
+                    milestones.forEach((name, millis) -> times.computeIfAbsent(name, key -> new ArrayList<>()).add(millis));
+                }
+                System.out.printf("%-12s %12d %12d %12d %12d %12d%n", staged ? "staged" : "sequential",
+                        median(times.get("first-paint")), median(times.get("usable-send")),
+                        median(times.get("connection-ready")), median(times.get("voice-ready")),
+                        median(times.get("history-ready")));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+    
+    /**
+     * Starts the UI in a new JVM and collects the milestones the probe prints.
+     */
+    private static Map<String, Long> launch(Path directory, boolean staged) throws IOException, InterruptedException {
+        Files.write(directory.resolve("config.properties"), Arrays.asList(
+                "openai.api.key=sk-your-api-key-here",
+                "usage.ledger.dir=" + directory.resolve("usage").toString().replace('\\', '/'),
+                "history.dir=" + directory.resolve("history").toString().replace('\\', '/'),
+                "startup.staged=" + staged), StandardCharsets.UTF_8);
+        
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                StartupProbe.class.getName())
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .start();
+        
+        Map<String, Long> milestones = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length == 3 && parts[0].equals("startup")) {
+                    milestones.put(parts[1], Long.parseLong(parts[2]));
+                }
+            }
+        }
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("UI did not exit after startup");
+        }
+        for (String milestone : MILESTONES) {
+            if (!milestones.containsKey(milestone)) {
+                throw new IllegalStateException("UI did not report " + milestone);
+            }
+        }
+        return milestones;
+    }
+    
+    /**
+     * Writes stored conversations of 4 to 40 turns for the UI to load.
+     */
+    private static void fillHistory(Path directory, int count) throws IOException {
+        Random random = new Random(7);
+        try (ConversationStore store = new ConversationStore(directory)) {
+            for (int i = 0; i < count; i++) {
+                Conversation conversation = BenchmarkText.conversation(random, 4 + random.nextInt(37));
+                store.save(StoredConversation.builder()
+                        .id(ConversationStore.newId())
+                        .title("Stored conversation " + i)
+                        .createdMillis(System.currentTimeMillis())
+                        .updatedMillis(System.currentTimeMillis() + i)
+                        .messages(conversation.toList().subList(1, conversation.size()))
+                        .build());
+            }
+        }
+    }
+    
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted.get(sorted.size() / 2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.ui.ChatGPTUI;
+import com.chatgpt.clone.ui.StartupSequence;
+
+import javax.swing.*;
+import java.awt.event.WindowEvent;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Child process started by {@link StartupBenchmark} for each run. It opens the
+ * UI like the application does, waits until the window has been painted and
+ * every startup stage has finished, prints one {@code startup <name> <millis>}
+ * line per milestone and closes the window.
+ */
+public final class StartupProbe {
+    private StartupProbe() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            System.err.println("Could not set system look and feel: " + e);
+        }
+        
+        ChatGPTUI[] ui = new ChatGPTUI[1];
+        SwingUtilities.invokeAndWait(() -> {
+            ui[0] = new ChatGPTUI();
+            ui[0].setVisible(true);
+        });
+        
+        StartupSequence startup = ui[0].getStartup();
+        startup.whenReached("first-paint").get(60, TimeUnit.SECONDS);
+        startup.whenReached(StartupSequence.ALL_READY).get(60, TimeUnit.SECONDS);
+        startup.getMilestones().forEach((name, millis) -> System.out.println("startup " + name + " " + millis));
+        System.out.flush();
+        
+        SwingUtilities.invokeLater(() -> ui[0].dispatchEvent(new WindowEvent(ui[0], WindowEvent.WINDOW_CLOSING)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,148 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.config.OpenAIConfig;
+import com.chatgpt.clone.exception.RequestTimeoutException;
+import com.chatgpt.clone.model.Message;
+import com.chatgpt.clone.service.GPTService;
+import com.chatgpt.clone.service.TimeoutStats;
+import com.chatgpt.clone.simulation.LatencyDistribution;
+import com.chatgpt.clone.simulation.SimulationRule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Compares fixed timeouts with adaptive ones against the simulated backend.
+ * After a warm-up of short streamed answers it measures how long a stalled
+ * stream takes to fail and whether long non-streamed answers survive.
+ * The fixed policy uses the former 60 s read timeout for every deadline.
+ * Times are reported in simulated seconds.
+ * Usage: {@code TimeoutBenchmark [timeScale]}, default 0.02, which runs the simulation 50 times faster.
+ */
+public class TimeoutBenchmark {
+    private static final String MODEL = "gpt-4";
+    private static final int WARM_UP = 40;
+    private static final int STALLS = 5;
+    private static final int LONG_ANSWERS = 3;
+    private static final int MAX_TOKENS = 2500;
+    
+    public static void main(String[] args) throws Exception {
+        double timeScale = args.length > 0 ? Double.parseDouble(args[0]) : 0.02;
+        Path rules = Files.createTempFile("timeout-rules", ".json");
+        try {
+            new ObjectMapper().writeValue(rules.toFile(), rules());
+            System.out.println("=== Timeouts, " + MODEL + " at 25 tokens/s, time scale " + timeScale + " ===");
+            System.out.printf("%-9s %14s %14s %12s %12s%n", "policy", "stall fail s", "long done", "long s", "deadlines s");
+            for (String policy : new String[] {"fixed", "adaptive"}) {
+                run(policy, settings(policy, rules, timeScale), timeScale);
+            }
+        } finally {
+            Files.deleteIfExists(rules);
+        }
+    }
+    
+    private static void run(String policy, Properties settings, double timeScale) {
+        try (GPTService service = new GPTService(new OpenAIConfig("http://simulated.invalid", settings))) {
+            for (int i = 0; i < WARM_UP; i++) {
+                service.streamConversation(List.of(Message.userMessage("Quick question " + i)), MODEL, delta -> { });
+            }
+            
+            // A few short answers between the stalls, as in a normal session
+            double stallSeconds = 0;
+            for (int i = 0; i < STALLS; i++) {
+                for (int j = 0; j < 5; j++) {
+                    service.streamConversation(List.of(Message.userMessage("Another question")), MODEL, delta -> { });
+                }
+                long started = System.nanoTime();
+                try {
+                    service.streamConversation(List.of(Message.userMessage("stall please")), MODEL, delta -> { });
+                } catch (RequestTimeoutException e) {
+                    stallSeconds += (System.nanoTime() - started) / 1e9 / timeScale;
+                }
+            }
+            
+            int completed = 0;
+            double longSeconds = 0;
+            for (int i = 0; i < LONG_ANSWERS; i++) {
+                long started = System.nanoTime();
+                try {
+                    service.sendConversation(List.of(Message.userMessage("Write an essay")), MODEL);
+                    completed++;
+                } catch (RequestTimeoutException e) {
+                    // Cut off
+                }
+                longSeconds += (System.nanoTime() - started) / 1e9 / timeScale;
+            }
+            
+            TimeoutStats stats = service.getTimeouts().getStats(MODEL);
+            System.out.printf("%-9s %14.1f %11d/%d %12.1f %12s%n", policy, stallSeconds / STALLS, completed,
+                    LONG_ANSWERS, longSeconds / LONG_ANSWERS, String.format("%.1f/%.1f/%.1f",
+                            stats.getLastDeadlines().getFirstByteMillis() / timeScale / 1000,
+                            stats.getLastDeadlines().getIdleMillis() / timeScale / 1000,
+                            stats.getLastDeadlines().getTotalMillis() / timeScale / 1000));
+            System.out.println("          " + stats);
+        }
+    }
+    
+    /**
+     * Short answers by default, a stalled server for "stall" and a long answer for "essay".
+     */
+    private static List<SimulationRule> rules() {
+        List<SimulationRule> rules = new ArrayList<>();
+        rules.add(rule("stall", LatencyDistribution.fixed(600_000), "Finally."));
+        rules.add(rule("essay", lognormal(800, 3000), BenchmarkText.text(new Random(7), 1600)));
+        rules.add(rule(null, lognormal(400, 1500), BenchmarkText.text(new Random(3), 30)));
+        return rules;
+    }
+    
+    private static SimulationRule rule(String keyword, LatencyDistribution firstByte, String response) {
+        SimulationRule rule = new SimulationRule();
+        rule.setName(keyword != null ? keyword : "quick");
+        if (keyword != null) {
+            rule.getMatch().add(keyword);
+        }
+        rule.setFirstByte(firstByte);
+        rule.setTokensPerSecond(25);
+        rule.setResponse(response);
+        return rule;
+    }
+    
+    private static LatencyDistribution lognormal(double median, double p99) {
+        LatencyDistribution distribution = new LatencyDistribution();
+        distribution.setType("lognormal");
+        distribution.setMedian(median);
+        distribution.setP99(p99);
+        return distribution;
+    }
+    
+    private static Properties settings(String policy, Path rules, double timeScale) {
+        Properties properties = new Properties();
+        properties.setProperty("openai.api.key", "sk-benchmark");
+        properties.setProperty("usage.ledger.enabled", "false");
+        properties.setProperty("http.transport", "simulated");
+        properties.setProperty("simulation.rules", rules.toString());
+        properties.setProperty("simulation.seed", "42");
+        properties.setProperty("simulation.time.scale", String.valueOf(timeScale));
+        properties.setProperty("openai.max.tokens", String.valueOf(MAX_TOKENS));
+        properties.setProperty("timeout.check.millis", "5");
+        properties.setProperty("timeout.min.millis", String.valueOf((long) (2000 * timeScale)));
+        if (policy.equals("fixed")) {
+            // Never enough samples, and the defaults add up to 60 s for every deadline
+            long millis = (long) (60_000 * timeScale);
+            properties.setProperty("timeout.min.samples", String.valueOf(Integer.MAX_VALUE));
+            properties.setProperty("timeout.default.first.byte.millis", String.valueOf(millis));
+            properties.setProperty("timeout.default.idle.millis", String.valueOf(millis));
+            properties.setProperty("timeout.default.millis.per.token", "0");
+        } else {
+            properties.setProperty("timeout.default.first.byte.millis", String.valueOf((long) (30_000 * timeScale)));
+            properties.setProperty("timeout.default.idle.millis", String.valueOf((long) (30_000 * timeScale)));
+            properties.setProperty("timeout.default.millis.per.token", String.valueOf(100 * timeScale));
+        }
+        return properties;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.config.OpenAIConfig;
+import com.chatgpt.clone.model.Conversation;
+import com.chatgpt.clone.service.GPTService;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares the HTTP transports under concurrent load against a local stub.
+ * Reports throughput, latency percentiles and client-side allocation per request.
+ * Usage: {@code TransportBenchmark [requestsPerLevel]}, default 2000.
+ */
+public class TransportBenchmark {
+    private static final String[] TRANSPORTS = {"okhttp", "jdk"};
+    private static final int[] CONCURRENCY = {1, 8, 32};
+    private static final int TURNS = 10;
+    
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Conversation conversation = BenchmarkText.conversation(new Random(42), TURNS);
+        
+        try (CompletionStub stub = new CompletionStub(0)) {
+            System.out.println("=== HTTP transports, " + requests + " requests per level ===");
+            System.out.printf("%-8s %-6s %10s %10s %10s %12s%n", "client", "conc", "req/s", "p50 ms", "p99 ms", "alloc KB/req");
+            
+            for (String transport : TRANSPORTS) {
+                try (GPTService service = new GPTService(new OpenAIConfig(stub.getUrl(), settings(transport)))) {
+                    // Warm up the connection pool and the code paths
+                    ExecutorService warmup = Executors.newFixedThreadPool(8);
+                    run(warmup, service, conversation, 8, requests / 2);
+                    warmup.shutdown();
+                    
+                    for (int concurrency : CONCURRENCY) {
+                        // The workers stay alive until measured, so their allocation is still visible
+                        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+                        long allocatedBefore = clientAllocatedBytes();
+                        long started = System.nanoTime();
+                        long[] latencies = run(pool, service, conversation, concurrency, requests);
+                        long elapsed = System.nanoTime() - started;
+                        long allocated = clientAllocatedBytes() - allocatedBefore;
+                        pool.shutdown();
+                        
+                        Arrays.sort(latencies);
+                        System.out.printf("%-8s %-6d %10.0f %10.2f %10.2f %12.1f%n", transport, concurrency,
+                                requests * 1e9 / elapsed,
+                                percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                                allocated / 1024.0 / requests);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Sends requests from the given number of pool threads.
+     * 
+     * @return The latency of every request in nanoseconds
+     */
+    private static long[] run(ExecutorService pool, GPTService service, Conversation conversation,
+            int concurrency, int requests) throws Exception {
+        long[] latencies = new long[requests];
+        List<Future<?>> workers = new ArrayList<>();
+        for (int w = 0; w < concurrency; w++) {
+            int first = w;
+            workers.add(pool.submit(() -> {
+                for (int i = first; i < requests; i += concurrency) {
+                    long started = System.nanoTime();
+                    service.sendConversation(conversation, "stub");
+                    latencies[i] = System.nanoTime() - started;
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        return latencies;
+    }
+    
+    /**
+     * Sums the bytes allocated by live threads, leaving out the stub's own threads.
+     */
+    private static long clientAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            String name = thread.getName();
+            if (name.startsWith("completion-stub") || name.startsWith("HTTP-Dispatcher")) {
+                continue;
+            }
+            long bytes = threads.getThreadAllocatedBytes(thread.getId());
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+    
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+    
+    private static Properties settings(String transport) {
+        Properties properties = new Properties();
+        properties.setProperty("openai.api.key", "sk-benchmark");
+        properties.setProperty("usage.ledger.enabled", "false");
+        properties.setProperty("http.transport", transport);
+        // Let every worker through, so only the transport limits concurrency
+        properties.setProperty("scheduler.max.concurrent", "64");
+        properties.setProperty("scheduler.limit.normal", "64");
+        return properties;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.chatgpt.clone.benchmark;
+
+import com.chatgpt.clone.recognition.AudioSource;
+import com.chatgpt.clone.recognition.FileAudioSource;
+import com.chatgpt.clone.recognition.TranscriptRecognizer;
+import com.chatgpt.clone.recognition.VoiceActivityDetector;
+import com.chatgpt.clone.recognition.VoiceInput;
+import com.chatgpt.clone.recognition.VoiceInputStats;
+import com.chatgpt.clone.recognition.VoiceUtterance;
+import com.chatgpt.clone.speech.SpeechClip;
+import com.chatgpt.clone.speech.SpeechRenderer;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the latency from the end of speech to the send of the recognized
+ * message, headless. Spoken prompts are synthesized with FreeTTS into a WAV
+ * file with pauses and background noise, then played in real time through
+ * the voice input pipeline with the transcript recognizer, for several
+ * endpointing delays.
+ * Usage: {@code VoiceInputBenchmark [wavFile]}, default a temporary file.
+ */
+public class VoiceInputBenchmark {
+    private static final String[] PROMPTS = {
+            "What is the weather like today",
+            "Tell me a joke about computers",
+            "How do I sort a list in Java"
+    };
+    private static final int[] ENDPOINT_MILLIS = {300, 600, 900};
+    private static final int FRAME_MILLIS = 20;
+    private static final int PAUSE_MILLIS = 1500;
+    
+    public static void main(String[] args) throws Exception {
+        Path wav = args.length > 0 ? Path.of(args[0]) : Files.createTempFile("voice-input", ".wav");
+        long audioMillis = synthesize(wav);
+        System.out.println("=== Voice input, " + PROMPTS.length + " prompts, " + audioMillis + " ms of audio ===");
+        System.out.printf("%-10s %8s %8s %12s %12s %12s %12s%n", "endpoint", "heard", "correct",
+                "endpoint ms", "recog ms", "c2s avg ms", "c2s max ms");
+        
+        for (int endpointMillis : ENDPOINT_MILLIS) {
+            AudioSource source = new FileAudioSource(wav, true);
+            VoiceActivityDetector detector = new VoiceActivityDetector(FRAME_MILLIS, 60, endpointMillis, 3.0, 200);
+            List<String> heard = new ArrayList<>();
+            AtomicInteger partials = new AtomicInteger();
+            CountDownLatch finished = new CountDownLatch(PROMPTS.length);
+            VoiceInput[] input = new VoiceInput[1];
+            input[0] = new VoiceInput(source, TranscriptRecognizer.forAudioFile(wav), detector,
+                    FRAME_MILLIS, 200, new VoiceInput.Listener() {
+                        @Override
+                        public void onSpeechStart() {
+                        }
+                        
+                        @Override
+                        public void onPartial(String text) {
+                            partials.incrementAndGet();
+                        }
+                        
+                        @Override
+                        public void onUtterance(VoiceUtterance utterance) {
+                            // Sending is where the UI would hand the text to the service
+                            input[0].recordSend(utterance);
+                            heard.add(utterance.getText());
+                            finished.countDown();
+                        }
+                    });
+            
+            input[0].start();
+            finished.await(audioMillis + 10_000, TimeUnit.MILLISECONDS);
+            input[0].close();
+            
+            int correct = 0;
+            for (int i = 0; i < Math.min(heard.size(), PROMPTS.length); i++) {
+                correct += heard.get(i).equals(PROMPTS[i]) ? 1 : 0;
+            }
+            VoiceInputStats stats = input[0].getStats();
+            System.out.printf("%-10s %8d %8d %12.0f %12.2f %12.2f %12.2f%n", endpointMillis + " ms",
+                    stats.getUtterances(), correct, stats.getAverageEndpointMillis(),
+                    stats.getAverageRecognitionMillis(), stats.getAverageCaptureToSendMillis(),
+                    stats.getMaxCaptureToSendMillis());
+        }
+        
+        if (args.length == 0) {
+            Files.deleteIfExists(TranscriptRecognizer.transcriptFile(wav));
+            Files.deleteIfExists(wav);
+        }
+    }
+    
+    /**
+     * Writes the prompts as speech separated by noisy pauses, plus their transcript.
+     * 
+     * @return The playing time of the file in milliseconds
+     */
+    private static long synthesize(Path wav) throws Exception {
+        Random random = new Random(42);
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        AudioFormat format = AudioSource.FORMAT;
+        try (SpeechRenderer renderer = new SpeechRenderer(SpeechRenderer.DEFAULT_VOICE)) {
+            noise(pcm, random, PAUSE_MILLIS);
+            for (String prompt : PROMPTS) {
+                SpeechClip clip = renderer.render(prompt);
+                if (clip.getFormat().getSampleRate() != format.getSampleRate()
+                        || clip.getFormat().getSampleSizeInBits() != 16 || clip.getFormat().getChannels() != 1) {
+                    throw new IllegalStateException("Unexpected voice format " + clip.getFormat());
+                }
+                byte[] samples = clip.getPcm();
+                for (int i = 0; i + 1 < samples.length; i += 2) {
+                    // Voice input works in little-endian samples
+                    pcm.write(clip.getFormat().isBigEndian() ? samples[i + 1] : samples[i]);
+                    pcm.write(clip.getFormat().isBigEndian() ? samples[i] : samples[i + 1]);
+                }
+                noise(pcm, random, PAUSE_MILLIS);
+            }
+        }
+        
+        byte[] audio = pcm.toByteArray();
+        try (AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(audio), format,
+                audio.length / format.getFrameSize())) {
+            AudioSystem.write(in, AudioFileFormat.Type.WAVE, wav.toFile());
+        }
+        Files.write(TranscriptRecognizer.transcriptFile(wav), List.of(PROMPTS), StandardCharsets.UTF_8);
+        return (long) (audio.length * 1000L / (format.getFrameRate() * format.getFrameSize()));
+    }
+    
+    /**
+     * Appends quiet background noise.
+     */
+    private static void noise(ByteArrayOutputStream pcm, Random random, int millis) {
+        int samples = (int) (AudioSource.FORMAT.getSampleRate() * millis / 1000);
+        for (int i = 0; i < samples; i++) {
+            int sample = (int) (random.nextGaussian() * 40);
+            pcm.write(sample & 0xff);
+            pcm.write((sample >> 8) & 0xff);
+        }
+    }
+}
\ No newline at end of file
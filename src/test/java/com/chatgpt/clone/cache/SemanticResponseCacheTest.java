@@ -0,0 +1,82 @@
+package com.chatgpt.clone.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SemanticResponseCacheTest {
+    private static final String MODEL = "gpt-3.5-turbo";
+    
+    @Test
+    void rewordedQuestionHitsCachedAnswer() {
+        SemanticResponseCache cache = new SemanticResponseCache(0.6, 100, 1 << 20);
+        cache.put(MODEL, "What is the capital city of France?", "Paris");
+        
+        assertEquals("Paris", cache.get(MODEL, "what is the capital city of France"));
+        assertEquals("Paris", cache.get(MODEL, "What's the capital city of France?"));
+        assertEquals(2, cache.getStats().getHits());
+    }
+    
+    @Test
+    void unrelatedQuestionMisses() {
+        SemanticResponseCache cache = new SemanticResponseCache(0.6, 100, 1 << 20);
+        cache.put(MODEL, "What is the capital city of France?", "Paris");
+        
+        assertNull(cache.get(MODEL, "How do I reverse a linked list in Java?"));
+    }
+    
+    @Test
+    void answersAreKeptPerModel() {
+        SemanticResponseCache cache = new SemanticResponseCache(0.6, 100, 1 << 20);
+        cache.put(MODEL, "What is the capital city of France?", "Paris");
+        
+        assertNull(cache.get("gpt-4", "What is the capital city of France?"));
+    }
+    
+    @Test
+    void identicalPromptReplacesEntry() {
+        SemanticResponseCache cache = new SemanticResponseCache(0.6, 100, 1 << 20);
+        cache.put(MODEL, "What is the capital city of France?", "Paris");
+        cache.put(MODEL, "What is the capital city of France?", "Paris, on the Seine");
+        
+        assertEquals(1, cache.getStats().getEntries());
+        assertEquals("Paris, on the Seine", cache.get(MODEL, "What is the capital city of France?"));
+    }
+    
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        SemanticResponseCache cache = new SemanticResponseCache(0.9, 2, 1 << 20);
+        cache.put(MODEL, "What is the capital city of France?", "Paris");
+        cache.put(MODEL, "How do I reverse a linked list in Java?", "Iterate and swap pointers");
+        cache.get(MODEL, "What is the capital city of France?");
+        cache.put(MODEL, "Explain the difference between TCP and UDP", "Reliability");
+        
+        assertEquals(2, cache.getStats().getEntries());
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals("Paris", cache.get(MODEL, "What is the capital city of France?"));
+        assertNull(cache.get(MODEL, "How do I reverse a linked list in Java?"));
+    }
+    
+    @Test
+    void reportedFalseHitIsNotServedAgain() {
+        SemanticResponseCache cache = new SemanticResponseCache(0.6, 100, 1 << 20);
+        cache.put(MODEL, "What is the capital city of France?", "Paris");
+        
+        assertTrue(cache.reportFalseHit(MODEL, "What is the capital city of France?"));
+        assertNull(cache.get(MODEL, "What is the capital city of France?"));
+        assertFalse(cache.reportFalseHit(MODEL, "What is the capital city of France?"));
+        assertEquals(1, cache.getStats().getFalseHits());
+    }
+    
+    @Test
+    void similarityOfIdenticalSignaturesIsOne() {
+        MinHasher hasher = new MinHasher(32, 4);
+        long[] signature = hasher.signature(PromptNormalizer.shingles("reverse a linked list"));
+        
+        assertEquals(1.0, MinHasher.similarity(signature, signature.clone()));
+        assertEquals(32, hasher.bandKeys(signature).length);
+    }
+}
\ No newline at end of file
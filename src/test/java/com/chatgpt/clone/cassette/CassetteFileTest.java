@@ -0,0 +1,94 @@
+package com.chatgpt.clone.cassette;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CassetteFileTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    void exchangesReadBackAcrossAppends() throws IOException {
+        Path path = directory.resolve("recordings/session.cassette");
+        assertEquals(0, CassetteFile.openForAppend(path));
+        CassetteFile.append(path, exchange("a", 2));
+        CassetteFile.append(path, exchange("b", 0));
+        assertEquals(2, CassetteFile.openForAppend(path));
+        CassetteFile.append(path, exchange("c", 5));
+        
+        assertEquals(List.of(exchange("a", 2), exchange("b", 0), exchange("c", 5)), CassetteFile.read(path));
+    }
+    
+    @Test
+    void tornExchangeIsCutOffBeforeAppending() throws IOException {
+        Path path = directory.resolve("session.cassette");
+        CassetteFile.append(path, exchange("a", 3));
+        long complete = Files.size(path);
+        CassetteFile.append(path, exchange("b", 3));
+        byte[] data = Files.readAllBytes(path);
+        
+        for (long cut = complete; cut < data.length; cut++) {
+            Files.write(path, Arrays.copyOf(data, (int) cut));
+            assertEquals(1, CassetteFile.openForAppend(path), "cut at " + cut);
+            assertEquals(complete, Files.size(path));
+            CassetteFile.append(path, exchange("c", 1));
+            assertEquals(List.of(exchange("a", 3), exchange("c", 1)), CassetteFile.read(path));
+        }
+    }
+    
+    @Test
+    void foreignFileIsRejected() throws IOException {
+        Path path = directory.resolve("other.cassette");
+        Files.write(path, "{\"not\": \"a cassette\"}".getBytes(StandardCharsets.UTF_8));
+        
+        assertThrows(IOException.class, () -> CassetteFile.read(path));
+    }
+    
+    @Test
+    void repeatedRequestsReplayInRecordingOrder() {
+        CassetteExchange first = exchange("same", 1);
+        CassetteExchange second = exchange("same", 2);
+        Cassette cassette = new Cassette(List.of(first, exchange("other", 1), second));
+        
+        assertSame(first, cassette.next("same"));
+        assertSame(second, cassette.next("same"));
+        assertSame(first, cassette.next("same"));
+        assertNull(cassette.next("unknown"));
+    }
+    
+    @Test
+    void requestHashIgnoresKeyOrderAndWhitespace() throws IOException {
+        String a = RequestHash.of("{\"model\":\"gpt-4\",\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}]}"
+                .getBytes(StandardCharsets.UTF_8));
+        String b = RequestHash.of("{ \"messages\": [ {\"content\": \"hi\", \"role\": \"user\"} ],\n \"model\": \"gpt-4\" }"
+                .getBytes(StandardCharsets.UTF_8));
+        String c = RequestHash.of("{\"model\":\"gpt-4\",\"messages\":[{\"role\":\"user\",\"content\":\"hello\"}]}"
+                .getBytes(StandardCharsets.UTF_8));
+        
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+        assertEquals(64, a.length());
+    }
+    
+    private static CassetteExchange exchange(String hash, int chunks) {
+        CassetteExchange.Chunk[] pieces = new CassetteExchange.Chunk[chunks];
+        for (int i = 0; i < chunks; i++) {
+            pieces[i] = new CassetteExchange.Chunk(1000 + i * 250L, ("data: chunk " + i + " of " + hash + "\n\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return new CassetteExchange(hash, "gpt-4", 200, 1000, Arrays.asList(pieces));
+    }
+}
\ No newline at end of file
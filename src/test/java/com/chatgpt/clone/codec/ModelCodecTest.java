@@ -0,0 +1,144 @@
+package com.chatgpt.clone.codec;
+
+import com.chatgpt.clone.model.Message;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ModelCodecTest {
+    private static final Message MESSAGE = Message.builder().role("assistant").content("Grüße, \"quoted\"\n🙂").build();
+    
+    @Test
+    void documentsRoundTripInEveryFormat() throws IOException {
+        for (CodecFormat format : CodecFormat.values()) {
+            ModelCodec codec = ModelCodec.of(format);
+            assertEquals(MESSAGE, codec.decode(codec.encode(MESSAGE), Message.class), format.getName());
+        }
+    }
+    
+    @Test
+    void bareJsonIsReadAsVersionZero() throws IOException {
+        byte[] bare = "{\"role\":\"user\",\"content\":\"hello\"}".getBytes(StandardCharsets.UTF_8);
+        
+        assertEquals(Message.userMessage("hello"), ModelCodec.of(CodecFormat.JSON).decode(bare, Message.class));
+    }
+    
+    @Test
+    void unknownFieldsAreIgnored() throws IOException {
+        byte[] document = "{\"version\":1,\"extra\":{\"a\":[1,2]},\"value\":{\"role\":\"user\",\"content\":\"hi\",\"name\":\"x\"}}"
+                .getBytes(StandardCharsets.UTF_8);
+        
+        assertEquals(Message.userMessage("hi"), ModelCodec.of(CodecFormat.JSON).decode(document, Message.class));
+    }
+    
+    @Test
+    void newerVersionIsRejected() {
+        byte[] document = ("{\"version\":" + (ModelCodec.VERSION + 1) + ",\"value\":{\"role\":\"user\",\"content\":\"hi\"}}")
+                .getBytes(StandardCharsets.UTF_8);
+        
+        IOException e = assertThrows(IOException.class,
+                () -> ModelCodec.of(CodecFormat.JSON).decode(document, Message.class));
+        assertEquals("Document version " + (ModelCodec.VERSION + 1) + " is newer than this build reads ("
+                + ModelCodec.VERSION + ")", e.getMessage());
+    }
+    
+    @Test
+    void documentsWithoutValueAreRejected() {
+        ModelCodec codec = ModelCodec.of(CodecFormat.JSON);
+        for (String document : Arrays.asList("{}", "{\"version\":1}", "{\"version\":1,\"value\":null}", "[]")) {
+            assertThrows(IOException.class, () -> codec.decode(document.getBytes(StandardCharsets.UTF_8), Message.class),
+                    document);
+        }
+    }
+    
+    @Test
+    void otherFormatIsRejected() throws IOException {
+        byte[] smile = ModelCodec.of(CodecFormat.SMILE).encode(MESSAGE);
+        
+        assertThrows(IOException.class, () -> ModelCodec.of(CodecFormat.JSON).decode(smile, Message.class));
+    }
+    
+    @Test
+    void sequencesRoundTripWithHeaderInEveryFormat() throws IOException {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            messages.add(Message.userMessage("message " + i));
+        }
+        
+        for (CodecFormat format : CodecFormat.values()) {
+            ModelCodec codec = ModelCodec.of(format);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (RecordWriter<Message> writer = codec.openWriter(out, Message.systemMessage("header"))) {
+                for (Message message : messages) {
+                    writer.write(message);
+                }
+                assertEquals(messages.size(), writer.getCount());
+            }
+            
+            try (RecordReader<Message> reader = codec.openReader(new ByteArrayInputStream(out.toByteArray()), Message.class)) {
+                assertEquals(ModelCodec.VERSION, reader.getVersion());
+                assertEquals(Message.systemMessage("header"), reader.getHeader(Message.class));
+                List<Message> read = new ArrayList<>();
+                for (Message message = reader.next(); message != null; message = reader.next()) {
+                    read.add(message);
+                }
+                assertEquals(messages, read, format.getName());
+                assertNull(reader.next());
+            }
+        }
+    }
+    
+    @Test
+    void sequenceWithoutHeaderHasNullHeader() throws IOException {
+        ModelCodec codec = ModelCodec.of(CodecFormat.CBOR);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RecordWriter<Message> writer = codec.openWriter(out)) {
+            writer.write(MESSAGE);
+        }
+        
+        try (RecordReader<Message> reader = codec.openReader(new ByteArrayInputStream(out.toByteArray()), Message.class)) {
+            assertNull(reader.getHeader(Message.class));
+            assertEquals(MESSAGE, reader.next());
+            assertNull(reader.next());
+        }
+    }
+    
+    @Test
+    void singleDocumentIsNotASequence() throws IOException {
+        ModelCodec codec = ModelCodec.of(CodecFormat.SMILE);
+        byte[] document = codec.encode(MESSAGE);
+        
+        assertThrows(NotASequenceException.class,
+                () -> codec.openReader(new ByteArrayInputStream(document), Message.class));
+    }
+    
+    @Test
+    void truncatedSequenceFails() throws IOException {
+        ModelCodec codec = ModelCodec.of(CodecFormat.JSON);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RecordWriter<Message> writer = codec.openWriter(out)) {
+            writer.write(MESSAGE);
+            writer.write(MESSAGE);
+        }
+        byte[] data = out.toByteArray();
+        byte[] truncated = Arrays.copyOf(data, data.length - 3);
+        
+        assertThrows(IOException.class, () -> {
+            try (RecordReader<Message> reader = codec.openReader(new ByteArrayInputStream(truncated), Message.class)) {
+                while (reader.next() != null) {
+                    // Read to the end
+                }
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.chatgpt.clone.history;
+
+import com.chatgpt.clone.codec.CodecFormat;
+import com.chatgpt.clone.model.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationStoreTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    void conversationsRoundTripInEveryFormat() throws IOException {
+        for (CodecFormat format : CodecFormat.values()) {
+            try (ConversationStore store = new ConversationStore(directory.resolve(format.getName()), format)) {
+                StoredConversation conversation = conversation("a", 10);
+                store.save(conversation);
+                
+                assertEquals(conversation, store.load("a"));
+                assertEquals(List.of(conversation), store.loadAll());
+            }
+        }
+    }
+    
+    @Test
+    void bareAndEnvelopedFilesFromEarlierVersionsAreRead() throws IOException {
+        write("bare.json", "{\"id\":\"bare\",\"title\":\"Bare\",\"createdMillis\":1,\"updatedMillis\":2,"
+                + "\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}]}");
+        write("enveloped.json", "{\"version\":1,\"value\":{\"id\":\"enveloped\",\"title\":\"Enveloped\","
+                + "\"createdMillis\":1,\"updatedMillis\":3,\"messages\":[]}}");
+        
+        try (ConversationStore store = new ConversationStore(directory)) {
+            List<StoredConversation> all = store.loadAll();
+            assertEquals(2, all.size());
+            assertEquals("enveloped", all.get(0).getId());
+            assertEquals(List.of(Message.userMessage("hi")), all.get(1).getMessages());
+        }
+    }
+    
+    @Test
+    void unreadableFilesAreSkipped() throws IOException {
+        write("empty.json", "{}");
+        write("noid.json", "{\"title\":\"No ID\"}");
+        write("broken.json", "{\"version\":1,\"header\":{\"id\":\"broken\"},\"records\":[{\"role\":");
+        write("newer.json", "{\"version\":99,\"value\":{\"id\":\"newer\"}}");
+        
+        try (ConversationStore store = new ConversationStore(directory)) {
+            store.save(conversation("good", 2));
+            
+            List<StoredConversation> all = store.loadAll();
+            assertEquals(1, all.size());
+            assertEquals("good", all.get(0).getId());
+        }
+    }
+    
+    @Test
+    void savingInAnotherFormatReplacesTheOldFile() throws IOException {
+        try (ConversationStore json = new ConversationStore(directory)) {
+            json.save(conversation("a", 3));
+        }
+        try (ConversationStore smile = new ConversationStore(directory, CodecFormat.SMILE)) {
+            StoredConversation updated = conversation("a", 5);
+            smile.save(updated);
+            
+            assertFalse(Files.exists(directory.resolve("a.json")));
+            assertEquals(List.of(updated), smile.loadAll());
+        }
+    }
+    
+    @Test
+    void latestQueuedSaveWins() throws IOException {
+        try (ConversationStore store = new ConversationStore(directory)) {
+            for (int turns = 1; turns <= 20; turns++) {
+                store.saveLater(conversation("a", turns));
+            }
+            assertEquals(20, store.load("a").getMessages().size());
+        }
+        try (ConversationStore store = new ConversationStore(directory)) {
+            assertEquals(20, store.load("a").getMessages().size());
+            store.delete("a");
+            assertThrows(NoSuchFileException.class, () -> store.load("a"));
+        }
+    }
+    
+    @Test
+    void queuedSaveStaysVisibleUntilWritten() throws IOException {
+        try (ConversationStore store = new ConversationStore(directory)) {
+            for (int i = 0; i < 200; i++) {
+                String id = "c" + i;
+                store.saveLater(conversation(id, 3));
+                // Either the queued copy or the file, never neither
+                assertEquals(3, store.load(id).getMessages().size());
+            }
+        }
+    }
+    
+    @Test
+    void deleteRacingQueuedSaveLeavesNothingBehind() throws IOException {
+        try (ConversationStore store = new ConversationStore(directory)) {
+            for (int i = 0; i < 200; i++) {
+                String id = "c" + i;
+                store.saveLater(conversation(id, 3));
+                store.delete(id);
+            }
+        }
+        try (ConversationStore store = new ConversationStore(directory)) {
+            assertEquals(List.of(), store.loadAll());
+        }
+    }
+    
+    @Test
+    void failedSaveIsNotWritten() throws IOException {
+        ConversationStore store = new ConversationStore(directory);
+        // The temporary file cannot be created where a directory is in the way
+        Path blocker = Files.createDirectory(directory.resolve("a" + store.getFormat().getExtension() + ".tmp"));
+        store.saveLater(conversation("a", 3));
+        assertFalse(store.isWritten("a"));
+        store.close();
+        assertFalse(store.isWritten("a"));
+        
+        Files.delete(blocker);
+        store.save(conversation("a", 3));
+        assertTrue(store.isWritten("a"));
+        assertEquals(3, store.load("a").getMessages().size());
+    }
+    
+    private void write(String name, String content) throws IOException {
+        Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static StoredConversation conversation(String id, int turns) {
+        StoredConversation conversation = StoredConversation.builder()
+                .id(id)
+                .title("Conversation " + id)
+                .createdMillis(1000)
+                .updatedMillis(1000 + turns)
+                .messages(new ArrayList<>())
+                .build();
+        for (int i = 0; i < turns; i++) {
+            conversation.getMessages().add(i % 2 == 0 ? Message.userMessage("question " + i)
+                    : Message.builder().role("assistant").content("answer " + i).build());
+        }
+        return conversation;
+    }
+}
\ No newline at end of file
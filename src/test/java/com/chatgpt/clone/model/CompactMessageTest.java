@@ -0,0 +1,70 @@
+package com.chatgpt.clone.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactMessageTest {
+    private static final String LONG_ANSWER = "Here is an example of how you can read a file in Java. "
+            + "The method returns the lines of the file, or throws an exception if it cannot be read. "
+            + "Let me know if you have any other questions.";
+    
+    @Test
+    void shortContentIsStoredPlain() {
+        Message message = Message.userMessage("Hello there");
+        CompactMessage compact = CompactMessage.of(message);
+        
+        assertFalse(compact.isCompressed());
+        assertEquals(MessageRole.USER, compact.getRole());
+        assertEquals(message, compact.toMessage());
+    }
+    
+    @Test
+    void longContentIsDeflatedWithDictionary() {
+        Message message = Message.builder().role("assistant").content(LONG_ANSWER).build();
+        CompactMessage compact = CompactMessage.of(message);
+        
+        assertTrue(compact.isCompressed());
+        assertTrue(compact.getStoredBytes() < LONG_ANSWER.length());
+        assertEquals(message, compact.toMessage());
+    }
+    
+    @Test
+    void nonAsciiContentSurvivesRoundTrip() {
+        String content = "Grüße, 你好, 🙂 — ".repeat(20);
+        Message message = Message.userMessage(content);
+        
+        assertEquals(message, CompactMessage.of(message).toMessage());
+    }
+    
+    @Test
+    void unknownRoleIsNotEncoded() {
+        assertNull(CompactMessage.of(Message.builder().role("tool").content("output").build()));
+        assertNull(CompactMessage.of(Message.builder().role("user").build()));
+    }
+    
+    @Test
+    void compactedConversationReadsBackTheSameMessages() {
+        List<Message> expected = new ArrayList<>();
+        Conversation conversation = Conversation.empty().compacted(4);
+        for (int i = 0; i < 50; i++) {
+            Message message = Message.builder()
+                    .role(i % 2 == 0 ? "user" : "assistant")
+                    .content(i + ": " + LONG_ANSWER)
+                    .build();
+            expected.add(message);
+            conversation = conversation.append(message);
+        }
+        
+        assertTrue(conversation.isCompact());
+        assertEquals(expected, conversation.toList());
+        assertEquals(expected.get(3), conversation.getTurn(3));
+        assertEquals(expected.subList(0, 20), conversation.fork(20).toList());
+    }
+}
\ No newline at end of file
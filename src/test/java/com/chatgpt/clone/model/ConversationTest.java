@@ -0,0 +1,84 @@
+package com.chatgpt.clone.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationTest {
+    @Test
+    void getTurnMatchesListAtEveryLength() {
+        List<Message> expected = new ArrayList<>();
+        Conversation conversation = Conversation.empty();
+        for (int i = 0; i < 300; i++) {
+            Message message = i % 2 == 0 ? Message.userMessage("question " + i)
+                    : Message.builder().role("assistant").content("answer " + i).build();
+            expected.add(message);
+            conversation = conversation.append(message);
+            
+            assertEquals(expected.size(), conversation.getTurnCount());
+            for (int turn = 0; turn < expected.size(); turn++) {
+                assertSame(expected.get(turn), conversation.getTurn(turn));
+            }
+        }
+    }
+    
+    @Test
+    void forkMatchesListPrefixAndSharesIt() {
+        List<Message> expected = new ArrayList<>();
+        Conversation conversation = Conversation.empty().withSystemMessage("Be brief");
+        for (int i = 0; i < 100; i++) {
+            expected.add(Message.userMessage("message " + i));
+            conversation = conversation.append(expected.get(i));
+        }
+        
+        for (int count = 0; count <= expected.size(); count++) {
+            Conversation fork = conversation.fork(count);
+            assertEquals(count, fork.getTurnCount());
+            assertEquals("Be brief", fork.getSystemMessage().getContent());
+            List<Message> messages = fork.toList();
+            assertEquals(expected.subList(0, count), messages.subList(1, messages.size()));
+        }
+        assertSame(conversation, conversation.fork(expected.size()));
+        assertTrue(conversation.fork(40).appendUser("other").fork(40).hasSameTurns(conversation.fork(40)));
+    }
+    
+    @Test
+    void branchesDoNotAffectEachOther() {
+        Conversation base = Conversation.empty().appendUser("hello").appendAssistant("hi");
+        Conversation left = base.appendUser("left");
+        Conversation right = base.fork(1).appendUser("right");
+        
+        assertEquals(2, base.getTurnCount());
+        assertEquals("left", left.getLastTurn().getContent());
+        assertEquals(2, right.getTurnCount());
+        assertEquals("hello", right.getTurn(0).getContent());
+        assertEquals("right", right.getTurn(1).getContent());
+    }
+    
+    @Test
+    void ofSplitsLeadingSystemMessage() {
+        List<Message> messages = List.of(Message.systemMessage("system"), Message.userMessage("hello"));
+        Conversation conversation = Conversation.of(messages);
+        
+        assertEquals("system", conversation.getSystemMessage().getContent());
+        assertEquals(1, conversation.getTurnCount());
+        assertEquals(messages, conversation.toList());
+        assertNull(conversation.withSystemMessage("").getSystemMessage());
+    }
+    
+    @Test
+    void outOfRangeIndexesAreRejected() {
+        Conversation conversation = Conversation.empty().appendUser("hello");
+        
+        assertThrows(IndexOutOfBoundsException.class, () -> conversation.getTurn(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> conversation.getTurn(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> conversation.fork(2));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+package com.chatgpt.clone.recognition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoiceInputTest {
+    private static final int FRAME_MILLIS = 20;
+    private static final List<String> PROMPTS = List.of(
+            "what is the weather like today",
+            "tell me a joke",
+            "how do I sort a list in Java");
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void fileIsSplitIntoRecognizedUtterances() throws Exception {
+        Path wav = directory.resolve("prompts.wav");
+        writeAudio(wav, PROMPTS.size());
+        Files.write(TranscriptRecognizer.transcriptFile(wav), PROMPTS, StandardCharsets.UTF_8);
+        
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        List<VoiceUtterance> utterances = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(PROMPTS.size());
+        VoiceActivityDetector detector = new VoiceActivityDetector(FRAME_MILLIS, 60, 300, 3.0, 200);
+        try (VoiceInput input = new VoiceInput(new FileAudioSource(wav, false), TranscriptRecognizer.forAudioFile(wav),
+                detector, FRAME_MILLIS, 200, new VoiceInput.Listener() {
+                    @Override
+                    public void onSpeechStart() {
+                        events.add("start");
+                    }
+                    
+                    @Override
+                    public void onPartial(String text) {
+                        events.add("partial");
+                    }
+                    
+                    @Override
+                    public void onUtterance(VoiceUtterance utterance) {
+                        events.add("utterance");
+                        utterances.add(utterance);
+                        done.countDown();
+                    }
+                })) {
+            input.start();
+            assertTrue(done.await(10, TimeUnit.SECONDS), "utterances: " + utterances);
+            
+            List<String> texts = new ArrayList<>();
+            for (VoiceUtterance utterance : utterances) {
+                texts.add(utterance.getText());
+                assertTrue(utterance.getSpeechStartNanos() <= utterance.getLastVoiceNanos());
+                assertTrue(utterance.getLastVoiceNanos() <= utterance.getEndpointNanos());
+                assertTrue(utterance.getEndpointNanos() <= utterance.getRecognizedNanos());
+            }
+            assertEquals(PROMPTS, texts);
+            assertEquals(PROMPTS.size(), Collections.frequency(events, "start"));
+            assertTrue(events.contains("partial"));
+            assertEquals("start", events.get(0));
+            assertEquals("utterance", events.get(events.size() - 1));
+            
+            input.recordSend(utterances.get(0));
+            assertEquals(PROMPTS.size(), input.getStats().getUtterances());
+            assertEquals(1, input.getStats().getSent());
+        }
+    }
+    
+    @Test
+    void utteranceRunningIntoTheEndOfTheFileIsFinished() throws Exception {
+        Path wav = directory.resolve("cut.wav");
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        Random random = new Random(1);
+        noise(pcm, random, 400);
+        tone(pcm, 800);
+        write(wav, pcm.toByteArray());
+        
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> texts = Collections.synchronizedList(new ArrayList<>());
+        VoiceActivityDetector detector = new VoiceActivityDetector(FRAME_MILLIS, 60, 300, 3.0, 200);
+        try (VoiceInput input = new VoiceInput(new FileAudioSource(wav, false),
+                new TranscriptRecognizer(List.of("cut short"), 2.5), detector, FRAME_MILLIS, 200,
+                new VoiceInput.Listener() {
+                    @Override
+                    public void onSpeechStart() {
+                    }
+                    
+                    @Override
+                    public void onPartial(String text) {
+                    }
+                    
+                    @Override
+                    public void onUtterance(VoiceUtterance utterance) {
+                        texts.add(utterance.getText());
+                        done.countDown();
+                    }
+                })) {
+            input.start();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(List.of("cut short"), texts);
+            waitUntilStopped(input);
+            assertFalse(input.isListening());
+        }
+    }
+    
+    @Test
+    void unreadableFileFailsToStart() throws IOException {
+        Path file = directory.resolve("not-audio.wav");
+        Files.write(file, "not audio".getBytes(StandardCharsets.UTF_8));
+        
+        try (FileAudioSource source = new FileAudioSource(file, false)) {
+            assertThrows(IOException.class, source::start);
+        }
+    }
+    
+    /**
+     * Writes tone bursts standing in for speech, separated by quiet noise.
+     */
+    private static void writeAudio(Path wav, int utterances) throws IOException {
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        Random random = new Random(42);
+        noise(pcm, random, 500);
+        for (int i = 0; i < utterances; i++) {
+            tone(pcm, 900);
+            noise(pcm, random, 700);
+        }
+        write(wav, pcm.toByteArray());
+    }
+    
+    private static void write(Path wav, byte[] audio) throws IOException {
+        AudioFormat format = AudioSource.FORMAT;
+        try (AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(audio), format,
+                audio.length / format.getFrameSize())) {
+            AudioSystem.write(in, AudioFileFormat.Type.WAVE, wav.toFile());
+        }
+    }
+    
+    private static void noise(ByteArrayOutputStream pcm, Random random, int millis) {
+        for (int i = 0; i < samples(millis); i++) {
+            sample(pcm, random.nextInt(61) - 30);
+        }
+    }
+    
+    private static void tone(ByteArrayOutputStream pcm, int millis) {
+        for (int i = 0; i < samples(millis); i++) {
+            sample(pcm, (int) (8000 * Math.sin(2 * Math.PI * 220 * i / AudioSource.FORMAT.getSampleRate())));
+        }
+    }
+    
+    private static int samples(int millis) {
+        return (int) (AudioSource.FORMAT.getSampleRate() * millis / 1000);
+    }
+    
+    private static void sample(ByteArrayOutputStream pcm, int value) {
+        pcm.write(value & 0xFF);
+        pcm.write((value >> 8) & 0xFF);
+    }
+    
+    private static void waitUntilStopped(VoiceInput input) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (input.isListening() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
\ No newline at end of file
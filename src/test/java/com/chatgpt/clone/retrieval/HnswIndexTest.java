@@ -0,0 +1,152 @@
+package com.chatgpt.clone.retrieval;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+    private static final String[] WORDS = (
+            "java python thread lock queue cache index vector search graph memory disk file stream socket "
+            + "request response token model prompt answer weather travel recipe garden music movie train "
+            + "budget invoice tax loan school exam essay poem story history planet rocket ocean forest")
+            .split(" ");
+    
+    private final HashingEmbeddingProvider embeddings = new HashingEmbeddingProvider(128);
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void searchFindsMostOfTheExactNeighbours() throws IOException {
+        List<float[]> vectors = vectors(new Random(3), 2000);
+        try (HnswIndex index = open(directory, VectorKernel.scalar())) {
+            for (int i = 0; i < vectors.size(); i++) {
+                assertEquals(i, index.add(vectors.get(i), payload(i)));
+            }
+            double recall = recall(index, vectors, new Random(4));
+            assertTrue(recall >= 0.9, "recall@10 " + recall);
+        }
+    }
+    
+    @Test
+    void reopenedIndexReturnsTheSameResultsAndKeepsGrowing() throws IOException {
+        List<float[]> vectors = vectors(new Random(5), 600);
+        float[] query = embeddings.embed("thread lock queue memory");
+        List<SearchHit> before;
+        try (HnswIndex index = open(directory, VectorKernel.scalar())) {
+            for (int i = 0; i < 500; i++) {
+                index.add(vectors.get(i), payload(i));
+            }
+            before = index.search(query, 10, 64);
+        }
+        
+        try (HnswIndex index = open(directory, VectorKernel.scalar())) {
+            assertEquals(500, index.size());
+            assertEquals(before, index.search(query, 10, 64));
+            assertArrayEquals(payload(123), index.getPayload(123));
+            
+            for (int i = 500; i < vectors.size(); i++) {
+                assertEquals(i, index.add(vectors.get(i), payload(i)));
+            }
+            List<Integer> ids = new ArrayList<>();
+            index.forEachPayload((id, payload) -> {
+                assertArrayEquals(payload(id), payload);
+                ids.add(id);
+            });
+            assertEquals(vectors.size(), ids.size());
+            assertTrue(recall(index, vectors, new Random(6)) >= 0.8);
+        }
+    }
+    
+    @Test
+    void indexBuiltForOtherVectorsIsRejected() throws IOException {
+        try (HnswIndex index = open(directory, VectorKernel.scalar())) {
+            index.add(embeddings.embed("hello world"), payload(0));
+        }
+        
+        assertThrows(IOException.class, () -> HnswIndex.open(directory, "hashing-64", 64, 8, 64, VectorKernel.scalar()));
+        assertThrows(IOException.class, () -> HnswIndex.open(directory, embeddings.getName(), 128, 12, 64,
+                VectorKernel.scalar()));
+    }
+    
+    @Test
+    void bestKernelAgreesWithScalarKernel() {
+        Random random = new Random(7);
+        VectorKernel best = VectorKernel.best();
+        for (int i = 0; i < 100; i++) {
+            float[] a = embeddings.embed(text(random));
+            float[] b = embeddings.embed(text(random));
+            assertEquals(VectorKernel.scalar().dot(a, b), best.dot(a, b), 1e-4, best.getName());
+        }
+    }
+    
+    @Test
+    void emptyIndexFindsNothing() throws IOException {
+        try (HnswIndex index = open(directory, VectorKernel.scalar())) {
+            assertTrue(index.search(embeddings.embed("anything"), 5, 50).isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> index.add(new float[3], payload(0)));
+        }
+    }
+    
+    private HnswIndex open(Path path, VectorKernel kernel) throws IOException {
+        return HnswIndex.open(path, embeddings.getName(), embeddings.getDimensions(), 8, 64, kernel);
+    }
+    
+    /**
+     * Measures recall@10 against an exact scan for random queries.
+     */
+    private double recall(HnswIndex index, List<float[]> vectors, Random random) {
+        int found = 0;
+        int expected = 0;
+        for (int q = 0; q < 50; q++) {
+            float[] query = embeddings.embed(text(random));
+            Integer[] ids = new Integer[index.size()];
+            Arrays.setAll(ids, i -> i);
+            Arrays.sort(ids, Comparator.comparingDouble(id -> -VectorKernel.scalar().dot(query, vectors.get(id))));
+            Set<Integer> exact = new HashSet<>(Arrays.asList(ids).subList(0, 10));
+            for (SearchHit hit : index.search(query, 10, 100)) {
+                if (exact.contains(hit.getId())) {
+                    found++;
+                }
+            }
+            expected += exact.size();
+        }
+        return (double) found / expected;
+    }
+    
+    private List<float[]> vectors(Random random, int count) {
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            vectors.add(embeddings.embed(text(random)));
+        }
+        return vectors;
+    }
+    
+    private static String text(Random random) {
+        StringBuilder text = new StringBuilder();
+        int words = 3 + random.nextInt(8);
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.toString();
+    }
+    
+    private static byte[] payload(int id) {
+        return ("payload " + id).getBytes(StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.chatgpt.clone.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveTimeoutsTest {
+    private static final int MIN_SAMPLES = 5;
+    private static final long DEFAULT_FIRST_BYTE = 5000;
+    private static final long DEFAULT_IDLE = 4000;
+    private static final long MIN_MILLIS = 1000;
+    private static final long MAX_MILLIS = 8000;
+    
+    // The watchdog never runs during a test; the tests check the timers themselves
+    private final AdaptiveTimeouts timeouts = new AdaptiveTimeouts(20, MIN_SAMPLES, 2.0, DEFAULT_FIRST_BYTE,
+            DEFAULT_IDLE, 10.0, MIN_MILLIS, MAX_MILLIS, TimeUnit.HOURS.toMillis(1));
+    
+    @AfterEach
+    void close() {
+        timeouts.close();
+    }
+    
+    @Test
+    void defaultsAreUsedUntilEnoughSamples() {
+        RequestDeadlines deadlines = timeouts.decide("m", 100, true);
+        assertFalse(deadlines.isAdaptive());
+        assertEquals(DEFAULT_FIRST_BYTE, deadlines.getFirstByteMillis());
+        assertEquals(DEFAULT_IDLE, deadlines.getIdleMillis());
+        // First byte plus 100 tokens at 10 ms each, with headroom
+        assertEquals(DEFAULT_FIRST_BYTE + 2000, deadlines.getTotalMillis());
+        
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            assertFalse(timeouts.decide("m", 100, true).isAdaptive(), "after " + i + " samples");
+            completeFastRequest("m");
+        }
+        
+        // Fast answers give short deadlines, but never below the minimum
+        deadlines = timeouts.decide("m", 100, true);
+        assertTrue(deadlines.isAdaptive());
+        assertEquals(MIN_MILLIS, deadlines.getFirstByteMillis());
+        assertEquals(MIN_MILLIS, deadlines.getIdleMillis());
+        assertTrue(deadlines.getTotalMillis() >= deadlines.getFirstByteMillis());
+        
+        TimeoutStats stats = timeouts.getStats("m");
+        assertEquals(2 * MIN_SAMPLES + 2, stats.getDecisions());
+        assertEquals(1, stats.getAdaptiveDecisions());
+        assertEquals(MIN_SAMPLES, stats.getSamples());
+    }
+    
+    @Test
+    void totalDeadlineIsCappedAtMaximum() {
+        assertEquals(MAX_MILLIS, timeouts.decide("m", 100_000, true).getTotalMillis());
+        assertEquals(MAX_MILLIS, timeouts.decide("m", 100_000, false).getTotalMillis());
+    }
+    
+    @Test
+    void missingFirstByteExpires() {
+        AtomicInteger aborted = new AtomicInteger();
+        RequestTimer timer = timeouts.start(timeouts.decide("m", 100, true), aborted::incrementAndGet);
+        long now = System.nanoTime();
+        
+        assertNull(timer.check(now + millis(DEFAULT_FIRST_BYTE - 1000)));
+        assertEquals(TimeoutKind.FIRST_BYTE, timer.check(now + millis(DEFAULT_FIRST_BYTE + 1000)));
+        assertEquals(TimeoutKind.FIRST_BYTE, timer.getExpired());
+        assertEquals(1, aborted.get());
+        
+        // An expired request is only aborted once
+        assertNull(timer.check(now + millis(DEFAULT_FIRST_BYTE + 2000)));
+        assertEquals(1, aborted.get());
+        assertEquals(1, timeouts.getStats("m").getFirstByteTimeouts());
+        timer.close();
+    }
+    
+    @Test
+    void stalledStreamExpiresAfterIdleDeadline() {
+        AtomicInteger aborted = new AtomicInteger();
+        RequestTimer timer = timeouts.start(timeouts.decide("m", 100, true), aborted::incrementAndGet);
+        timer.onChunk();
+        long now = System.nanoTime();
+        
+        // Past the first-byte deadline, but a chunk has arrived
+        assertNull(timer.check(now + millis(DEFAULT_IDLE - 1000)));
+        assertEquals(TimeoutKind.IDLE, timer.check(now + millis(DEFAULT_IDLE + 500)));
+        assertEquals(1, aborted.get());
+        assertEquals(1, timeouts.getStats("m").getIdleTimeouts());
+        timer.close();
+    }
+    
+    @Test
+    void answerWithoutStreamingExpiresAfterTotalDeadline() {
+        RequestDeadlines deadlines = timeouts.decide("m", 100, false);
+        RequestTimer timer = timeouts.start(deadlines, () -> { });
+        long now = System.nanoTime();
+        
+        // No chunks arrive without streaming, so only the total deadline applies
+        assertNull(timer.check(now + millis(DEFAULT_FIRST_BYTE + 1000)));
+        assertEquals(TimeoutKind.TOTAL, timer.check(now + millis(deadlines.getTotalMillis() + 1000)));
+        assertEquals(1, timeouts.getStats("m").getTotalTimeouts());
+        timer.close();
+    }
+    
+    @Test
+    void deadlinesLearnFromThreeTimeoutsInARow() {
+        // Two misses in a row are not learned from, and a completed request starts the count over
+        expireFirstByte("m");
+        expireFirstByte("m");
+        assertEquals(0, timeouts.getStats("m").getSamples());
+        completeFastRequest("m");
+        expireFirstByte("m");
+        expireFirstByte("m");
+        // The one sample is the completed request
+        assertEquals(1, timeouts.getStats("m").getSamples());
+        
+        // From the third miss in a row, each miss counts as a sample at the deadline
+        expireFirstByte("m");
+        assertEquals(2, timeouts.getStats("m").getSamples());
+        for (int i = 2; i < MIN_SAMPLES + 1; i++) {
+            expireFirstByte("m");
+        }
+        
+        // The 99th percentile is a missed deadline; with headroom it would pass the maximum
+        RequestDeadlines deadlines = timeouts.decide("m", 100, true);
+        assertTrue(deadlines.isAdaptive());
+        assertEquals(MAX_MILLIS, deadlines.getFirstByteMillis());
+        assertEquals(MAX_MILLIS, deadlines.getTotalMillis());
+        assertEquals(MIN_SAMPLES + 4, timeouts.getStats("m").getFirstByteTimeouts());
+    }
+    
+    private void completeFastRequest(String model) {
+        try (RequestTimer timer = timeouts.start(timeouts.decide(model, 100, true), () -> { })) {
+            timer.onChunk();
+            timeouts.recordCompleted(timer, 100);
+        }
+    }
+    
+    private void expireFirstByte(String model) {
+        RequestDeadlines deadlines = timeouts.decide(model, 100, true);
+        try (RequestTimer timer = timeouts.start(deadlines, () -> { })) {
+            assertEquals(TimeoutKind.FIRST_BYTE,
+                    timer.check(System.nanoTime() + millis(deadlines.getFirstByteMillis() + 1000)));
+        }
+    }
+    
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.chatgpt.clone.service;
+
+import com.chatgpt.clone.exception.RequestCancelledException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CancellationTokenTest {
+    
+    @Test
+    void cancelRunsCallbacksOnce() {
+        CancellationToken token = new CancellationToken();
+        List<String> ran = new ArrayList<>();
+        token.onCancel(() -> ran.add("call"));
+        token.onCancel(() -> ran.add("speech"));
+        assertFalse(token.isCancelled());
+        assertTrue(ran.isEmpty());
+        
+        token.cancel();
+        token.cancel();
+        assertTrue(token.isCancelled());
+        assertEquals(List.of("call", "speech"), ran);
+    }
+    
+    @Test
+    void onCancelAfterCancelRunsImmediately() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        
+        List<Thread> ran = new ArrayList<>();
+        token.onCancel(() -> ran.add(Thread.currentThread()));
+        assertEquals(1, ran.size());
+        assertSame(Thread.currentThread(), ran.get(0));
+        
+        // Not kept for a second run
+        token.cancel();
+        assertEquals(1, ran.size());
+    }
+    
+    @Test
+    void failingCallbackDoesNotStopOthers() {
+        CancellationToken token = new CancellationToken();
+        List<String> ran = new ArrayList<>();
+        token.onCancel(() -> {
+            throw new IllegalStateException("already closed");
+        });
+        token.onCancel(() -> ran.add("after"));
+        
+        token.cancel();
+        assertEquals(List.of("after"), ran);
+    }
+    
+    @Test
+    void throwIfCancelled() {
+        CancellationToken token = new CancellationToken();
+        token.throwIfCancelled();
+        token.cancel();
+        assertThrows(RequestCancelledException.class, token::throwIfCancelled);
+    }
+    
+    @Test
+    void noneIsNeverCancelled() {
+        List<String> ran = new ArrayList<>();
+        CancellationToken.NONE.onCancel(() -> ran.add("never"));
+        CancellationToken.NONE.cancel();
+        
+        assertFalse(CancellationToken.NONE.isCancelled());
+        assertTrue(ran.isEmpty());
+        CancellationToken.NONE.throwIfCancelled();
+    }
+}
\ No newline at end of file
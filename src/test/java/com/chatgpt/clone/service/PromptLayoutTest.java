@@ -0,0 +1,145 @@
+package com.chatgpt.clone.service;
+
+import com.chatgpt.clone.model.ChatCompletionResponse;
+import com.chatgpt.clone.model.Conversation;
+import com.chatgpt.clone.model.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptLayoutTest {
+    private static final List<Message> PINNED = List.of(Message.systemMessage("Reference notes"));
+    private static final Message CONTEXT = Message.systemMessage("Related excerpt");
+    
+    @Test
+    void partsAreSentInPrefixOrder() {
+        Conversation conversation = Conversation.empty().withSystemMessage("Be brief")
+                .appendUser("first").appendAssistant("answer").appendUser("second");
+        
+        List<Message> messages = new PromptLayout(PINNED, 0, 1).arrange(conversation, List.of(CONTEXT));
+        
+        assertEquals(List.of(conversation.getSystemMessage(), PINNED.get(0), conversation.getTurn(0),
+                conversation.getTurn(1), CONTEXT, conversation.getTurn(2)), messages);
+    }
+    
+    @Test
+    void historyIsCutInStepsAndStartsWithAQuestion() {
+        for (int step : new int[] {1, 3, 10}) {
+            PromptLayout layout = new PromptLayout(PINNED, 300, step);
+            int first = -1;
+            for (List<Message> request : requests(layout, 80)) {
+                List<Message> history = request.subList(2, request.size() - 2);
+                int tokens = 0;
+                for (Message message : history) {
+                    tokens += PromptLayout.estimateTokens(message);
+                }
+                assertTrue(tokens <= 300, "step " + step + ": " + tokens + " tokens of history");
+                
+                // Never an answer whose question was cut off
+                assertEquals("user", history.isEmpty() ? "user" : history.get(0).getRole(), "step " + step);
+                
+                // The start only moves forward, to a multiple of the step or just after it
+                if (!history.isEmpty()) {
+                    int start = turnOf(history.get(0));
+                    assertTrue(start >= first, "step " + step);
+                    assertTrue(start % step == 0 || (start - 1) % step == 0, "step " + step + " started at " + start);
+                    first = start;
+                }
+            }
+        }
+    }
+    
+    @Test
+    void prefixStaysTheSameBetweenSteps() {
+        // Every request repeats the previous one unless the history start moved
+        int stepped = prefixBreaks(new PromptLayout(PINNED, 300, 10));
+        int single = prefixBreaks(new PromptLayout(PINNED, 300, 1));
+        
+        assertTrue(stepped <= 80 * 2 / 10 + 1, stepped + " prefix changes");
+        assertTrue(single > 3 * stepped, single + " prefix changes without steps, " + stepped + " with steps");
+        assertEquals(0, prefixBreaks(PromptLayout.plain()));
+    }
+    
+    @Test
+    void trackerCountsReusedPrefixAndCachedTokens() {
+        PromptCacheTracker tracker = new PromptCacheTracker();
+        List<Message> first = List.of(Message.systemMessage("12345"), Message.userMessage("1234567890"));
+        List<Message> second = List.of(first.get(0), first.get(1),
+                Message.builder().role("assistant").content("12345").build(), Message.userMessage("12345"));
+        
+        tracker.record("m", "a", first, usage(2000, 0));
+        tracker.record("m", "a", second, usage(2010, 1024));
+        // Another conversation is not compared with conversation "a"
+        tracker.record("m", "b", second, usage(2010, 0));
+        
+        PromptCacheStats stats = tracker.getStats().get(0);
+        assertEquals(3, stats.getRequests());
+        assertEquals(1, stats.getCacheHits());
+        assertEquals(6020, stats.getPromptTokens());
+        assertEquals(1024, stats.getCachedTokens());
+        // 15 of the 25 characters of the follow-up repeat the first request
+        assertEquals(15.0 / 25, stats.getPrefixReuse(), 1e-9);
+    }
+    
+    @Test
+    void steppedLayoutReusesMoreOfEachRequest() {
+        // Only the context, the question and the requests after a step are new
+        double stepped = prefixReuse(new PromptLayout(PINNED, 300, 10));
+        double single = prefixReuse(new PromptLayout(PINNED, 300, 1));
+        assertTrue(stepped > 0.6, "prefix reuse " + stepped);
+        assertTrue(stepped > 3 * single, "prefix reuse " + stepped + " with steps, " + single + " without");
+    }
+    
+    /**
+     * Arranges the requests of a conversation that grows by one exchange per request.
+     */
+    private static List<List<Message>> requests(PromptLayout layout, int exchanges) {
+        List<List<Message>> requests = new ArrayList<>();
+        Conversation conversation = Conversation.empty().withSystemMessage("Be brief");
+        for (int i = 0; i < exchanges; i++) {
+            conversation = conversation.appendUser(String.format("question %03d about something", i));
+            requests.add(layout.arrange(conversation, List.of(CONTEXT)));
+            conversation = conversation.appendAssistant(String.format("answer %03d with some detail", i));
+        }
+        return requests;
+    }
+    
+    private static int prefixBreaks(PromptLayout layout) {
+        int breaks = 0;
+        List<Message> previous = null;
+        for (List<Message> request : requests(layout, 80)) {
+            if (previous != null) {
+                // Everything before the per-question context is sent again unchanged
+                List<Message> stable = previous.subList(0, previous.size() - 2);
+                if (request.size() < stable.size() || !request.subList(0, stable.size()).equals(stable)) {
+                    breaks++;
+                }
+            }
+            previous = request;
+        }
+        return breaks;
+    }
+    
+    private static double prefixReuse(PromptLayout layout) {
+        PromptCacheTracker tracker = new PromptCacheTracker();
+        for (List<Message> request : requests(layout, 80)) {
+            tracker.record("m", "a", request, usage(1000, 0));
+        }
+        return tracker.getStats().get(0).getPrefixReuse();
+    }
+    
+    private static int turnOf(Message message) {
+        String content = message.getContent();
+        int turn = Integer.parseInt(content.substring(content.indexOf(' ') + 1, content.indexOf(' ') + 4));
+        return "user".equals(message.getRole()) ? 2 * turn : 2 * turn + 1;
+    }
+    
+    private static ChatCompletionResponse.Usage usage(int promptTokens, int cachedTokens) {
+        return new ChatCompletionResponse.Usage(promptTokens, 10, promptTokens + 10,
+                new ChatCompletionResponse.PromptTokensDetails(cachedTokens));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.chatgpt.clone.service;
+
+import com.chatgpt.clone.benchmark.CompletionStub;
+import com.chatgpt.clone.config.OpenAIConfig;
+import com.chatgpt.clone.model.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCompressionTest {
+    
+    @Test
+    void compressedBodiesMatchPlainBody() throws Exception {
+        List<Message> conversation = new ArrayList<>();
+        conversation.add(Message.systemMessage("You are a helpful assistant."));
+        for (int i = 0; i < 20; i++) {
+            conversation.add(Message.userMessage("Question " + i + ": " + "what about the weather? ".repeat(20)));
+        }
+        
+        try (CompletionStub stub = new CompletionStub(0)) {
+            for (String transport : new String[] {"okhttp", "jdk"}) {
+                byte[] plain = send(stub, transport, RequestCompression.NONE, conversation);
+                assertEquals(plain.length, stub.getWireBytes(), transport);
+                
+                for (RequestCompression compression : new RequestCompression[] {RequestCompression.GZIP,
+                        RequestCompression.DEFLATE}) {
+                    byte[] decoded = send(stub, transport, compression, conversation);
+                    String label = transport + " " + compression;
+                    assertArrayEquals(plain, decoded, label);
+                    assertTrue(stub.getWireBytes() < plain.length / 4, label);
+                }
+            }
+        }
+    }
+    
+    @Test
+    void smallBodiesAreNotCompressed() throws Exception {
+        try (CompletionStub stub = new CompletionStub(0)) {
+            byte[] body = send(stub, "okhttp", RequestCompression.GZIP, List.of(Message.userMessage("Hi")));
+            assertEquals(body.length, stub.getWireBytes());
+        }
+    }
+    
+    private static byte[] send(CompletionStub stub, String transport, RequestCompression compression,
+            List<Message> conversation) {
+        stub.resetCounters();
+        try (GPTService service = new GPTService(new OpenAIConfig(stub.getUrl(), settings(transport, compression)))) {
+            assertEquals("OK", service.sendConversation(conversation, "stub"));
+        }
+        return stub.getLastBody();
+    }
+    
+    private static Properties settings(String transport, RequestCompression compression) {
+        Properties properties = new Properties();
+        properties.setProperty("openai.api.key", "sk-test");
+        properties.setProperty("usage.ledger.enabled", "false");
+        properties.setProperty("http.transport", transport);
+        properties.setProperty("http.compression", compression.getEncoding() != null ? compression.getEncoding() : "none");
+        properties.setProperty("http.compression.threshold.bytes", "1024");
+        return properties;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.chatgpt.clone.service;
+
+import com.chatgpt.clone.exception.RequestCancelledException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class RequestSchedulerTest {
+    private final List<String> admitted = Collections.synchronizedList(new ArrayList<>());
+    private final List<Thread> threads = new ArrayList<>();
+    
+    @Test
+    void higherClassGoesFirst() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1, 0);
+        RequestScheduler.Permit held = scheduler.acquire(RequestPriority.NORMAL, "holder", 1, CancellationToken.NONE);
+        
+        enqueue(scheduler, RequestPriority.BULK, "bulk", "bulk");
+        enqueue(scheduler, RequestPriority.NORMAL, "normal", "normal");
+        enqueue(scheduler, RequestPriority.INTERACTIVE, "chat", "chat");
+        held.close();
+        
+        assertEquals(List.of("chat", "normal", "bulk"), awaitAdmitted());
+    }
+    
+    @Test
+    void singleRequestIsNotStuckBehindBusyTenant() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1, 0);
+        RequestScheduler.Permit held = scheduler.acquire(RequestPriority.NORMAL, "holder", 1, CancellationToken.NONE);
+        
+        for (int i = 0; i < 5; i++) {
+            enqueue(scheduler, RequestPriority.NORMAL, "busy", "busy-" + i);
+        }
+        enqueue(scheduler, RequestPriority.NORMAL, "quiet", "quiet");
+        held.close();
+        
+        List<String> order = awaitAdmitted();
+        assertEquals(List.of("busy-0", "quiet", "busy-1", "busy-2", "busy-3", "busy-4"), order);
+    }
+    
+    @Test
+    void tenantsShareByWeight() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1, 0);
+        scheduler.setTenantWeight("heavy", 3);
+        RequestScheduler.Permit held = scheduler.acquire(RequestPriority.NORMAL, "holder", 1, CancellationToken.NONE);
+        
+        for (int i = 0; i < 8; i++) {
+            enqueue(scheduler, RequestPriority.NORMAL, "light", "light");
+        }
+        for (int i = 0; i < 8; i++) {
+            enqueue(scheduler, RequestPriority.NORMAL, "heavy", "heavy");
+        }
+        held.close();
+        
+        List<String> firstEight = awaitAdmitted().subList(0, 8);
+        assertEquals(6, Collections.frequency(firstEight, "heavy"), firstEight.toString());
+    }
+    
+    @Test
+    void agedClassOvertakesNewerInteractiveRequests() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1, 20);
+        RequestScheduler.Permit held = scheduler.acquire(RequestPriority.INTERACTIVE, "holder", 1, CancellationToken.NONE);
+        
+        enqueue(scheduler, RequestPriority.BULK, "bulk", "bulk");
+        Thread.sleep(100);
+        enqueue(scheduler, RequestPriority.INTERACTIVE, "chat", "chat");
+        held.close();
+        
+        assertEquals(List.of("bulk", "chat"), awaitAdmitted());
+        assertEquals(1, scheduler.getStats(RequestPriority.BULK).getAged());
+    }
+    
+    @Test
+    void withoutAgingLowerClassWaits() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1, 0);
+        RequestScheduler.Permit held = scheduler.acquire(RequestPriority.INTERACTIVE, "holder", 1, CancellationToken.NONE);
+        
+        enqueue(scheduler, RequestPriority.BULK, "bulk", "bulk");
+        Thread.sleep(100);
+        enqueue(scheduler, RequestPriority.INTERACTIVE, "chat", "chat");
+        held.close();
+        
+        assertEquals(List.of("chat", "bulk"), awaitAdmitted());
+        assertEquals(0, scheduler.getStats(RequestPriority.BULK).getAged());
+    }
+    
+    @Test
+    void classLimitLeavesSlotsForOthers() {
+        RequestScheduler scheduler = new RequestScheduler(2, 0);
+        scheduler.setConcurrencyLimit(RequestPriority.BULK, 1);
+        RequestScheduler.Permit bulk = scheduler.acquire(RequestPriority.BULK, "bulk", 1, CancellationToken.NONE);
+        
+        CancellationToken cancellation = new CancellationToken();
+        Thread canceller = new Thread(() -> {
+            waitUntil(() -> scheduler.getStats(RequestPriority.BULK).getWaiting() == 1);
+            cancellation.cancel();
+        });
+        canceller.start();
+        assertThrows(RequestCancelledException.class,
+                () -> scheduler.acquire(RequestPriority.BULK, "bulk", 1, cancellation));
+        assertEquals(1, scheduler.getStats(RequestPriority.BULK).getCancelled());
+        assertEquals(0, scheduler.getStats(RequestPriority.BULK).getWaiting());
+        
+        RequestScheduler.Permit chat = scheduler.acquire(RequestPriority.INTERACTIVE, "chat", 1, CancellationToken.NONE);
+        assertEquals(1, scheduler.getStats(RequestPriority.INTERACTIVE).getRunning());
+        chat.close();
+        bulk.close();
+    }
+    
+    /**
+     * Starts a thread that queues a request and records its label once admitted,
+     * and waits until the request is queued.
+     */
+    private void enqueue(RequestScheduler scheduler, RequestPriority priority, String tenant, String label) {
+        int waiting = scheduler.getStats(priority).getWaiting();
+        Thread thread = new Thread(() -> {
+            RequestScheduler.Permit permit = scheduler.acquire(priority, tenant, 1, CancellationToken.NONE);
+            admitted.add(label);
+            permit.close();
+        });
+        thread.start();
+        threads.add(thread);
+        waitUntil(() -> scheduler.getStats(priority).getWaiting() == waiting + 1);
+    }
+    
+    private List<String> awaitAdmitted() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(thread.isAlive(), "request was never admitted");
+        }
+        return new ArrayList<>(admitted);
+    }
+    
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("timed out");
+            }
+            Thread.onSpinWait();
+            Thread.yield();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.chatgpt.clone.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeywordMatcherTest {
+    @Test
+    void reportsLowestValueOfAllMatches() {
+        KeywordMatcher matcher = KeywordMatcher.builder()
+                .add("error", 2)
+                .add("timeout", 1)
+                .add("hello", 5)
+                .build();
+        
+        assertEquals(5, matcher.match("Hello there"));
+        assertEquals(1, matcher.match("hello, a TIMEOUT error"));
+        assertEquals(-1, matcher.match("nothing to see"));
+    }
+    
+    @Test
+    void overlappingKeywordsAreFoundThroughFailureLinks() {
+        KeywordMatcher matcher = KeywordMatcher.builder()
+                .add("she", 3)
+                .add("hers", 1)
+                .add("his", 2)
+                .build();
+        
+        assertEquals(1, matcher.match("ushers"));
+        assertEquals(3, matcher.match("ushe"));
+    }
+    
+    @Test
+    void anchorsMatchOnlyAtTheEdges() {
+        KeywordMatcher matcher = KeywordMatcher.builder()
+                .add("^hi", 1)
+                .add("bye$", 2)
+                .add("^exact$", 0)
+                .build();
+        
+        assertEquals(1, matcher.match("hi there"));
+        assertEquals(-1, matcher.match("oh hi"));
+        assertEquals(2, matcher.match("ok bye"));
+        assertEquals(-1, matcher.match("bye now"));
+        assertEquals(0, matcher.match("Exact"));
+        assertEquals(-1, matcher.match("exactly"));
+    }
+    
+    @Test
+    void emptyKeywordIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> KeywordMatcher.builder().add("", 1));
+        assertThrows(IllegalArgumentException.class, () -> KeywordMatcher.builder().add("a", -1));
+    }
+    
+    @Test
+    void matchesBruteForceOnRandomInput() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<String> keywords = new ArrayList<>();
+            KeywordMatcher.Builder builder = KeywordMatcher.builder();
+            int count = 1 + random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                String keyword = randomText(random, 1 + random.nextInt(4));
+                if (random.nextInt(5) == 0) {
+                    keyword = "^" + keyword;
+                }
+                if (random.nextInt(5) == 0) {
+                    keyword = keyword + "$";
+                }
+                keywords.add(keyword);
+                builder.add(keyword, i);
+            }
+            KeywordMatcher matcher = builder.build();
+            
+            for (int i = 0; i < 50; i++) {
+                String text = randomText(random, random.nextInt(20));
+                assertEquals(bruteForce(keywords, text), matcher.match(text), keywords + " in " + text);
+            }
+        }
+    }
+    
+    private static String randomText(Random random, int length) {
+        String alphabet = "abcAB";
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+    
+    private static int bruteForce(List<String> keywords, String text) {
+        String lower = text.toLowerCase();
+        for (int i = 0; i < keywords.size(); i++) {
+            String keyword = keywords.get(i).toLowerCase();
+            boolean atStart = keyword.startsWith("^");
+            boolean atEnd = keyword.endsWith("$");
+            String body = keyword.substring(atStart ? 1 : 0, keyword.length() - (atEnd ? 1 : 0));
+            boolean found;
+            if (atStart && atEnd) {
+                found = lower.equals(body);
+            } else if (atStart) {
+                found = lower.startsWith(body);
+            } else if (atEnd) {
+                found = lower.endsWith(body);
+            } else {
+                found = lower.contains(body);
+            }
+            if (found) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.chatgpt.clone.speech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SpeechRenderServiceTest {
+    private static final String TEXT = "Hello there. How are you today?";
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void twoSentencesRenderToAWavFile() throws IOException, ExecutionException, InterruptedException,
+            UnsupportedAudioFileException {
+        Path file = directory.resolve("answer.wav");
+        RenderResult result;
+        try (SpeechRenderService service = new SpeechRenderService(SpeechRenderer.DEFAULT_VOICE, 1, 1, null)) {
+            result = service.renderToFile(TEXT, file).get();
+        }
+        
+        assertEquals(2, result.getSentences());
+        byte[] wav = Files.readAllBytes(file);
+        assertEquals(44 + result.getAudioBytes(), wav.length);
+        assertHeader(wav, result.getAudioFormat(), result.getAudioBytes());
+        
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(file.toFile())) {
+            AudioFormat format = in.getFormat();
+            assertEquals(AudioFormat.Encoding.PCM_SIGNED, format.getEncoding());
+            assertFalse(format.isBigEndian());
+            assertEquals(result.getAudioFormat().getSampleRate(), format.getSampleRate());
+            assertEquals(result.getAudioBytes(), in.getFrameLength() * format.getFrameSize());
+        }
+    }
+    
+    @Test
+    void streamedHeaderHasTheFormatOfTheClips() throws IOException, ExecutionException, InterruptedException {
+        // Cached in another format than the synthesizer produces today
+        AudioFormat cached = new AudioFormat(8000, 16, 1, true, true);
+        SpeechAudioCache cache = new SpeechAudioCache(directory.resolve("cache"), 1 << 20);
+        cache.put(SpeechRenderer.DEFAULT_VOICE, new SpeechClip("Hello there.", cached, new byte[1600]));
+        cache.put(SpeechRenderer.DEFAULT_VOICE, new SpeechClip("How are you today?", cached, new byte[2400]));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RenderResult result;
+        try (SpeechRenderService service = new SpeechRenderService(SpeechRenderer.DEFAULT_VOICE, 1, 1, cache)) {
+            assertNotEquals(cached.getSampleRate(), service.getAudioFormat().getSampleRate());
+            result = service.render(TEXT, out).get();
+        }
+        
+        assertEquals(2, result.getSentences());
+        assertEquals(4000, result.getAudioBytes());
+        byte[] wav = out.toByteArray();
+        assertEquals(44 + 4000, wav.length);
+        // The length is open-ended while streaming
+        assertHeader(wav, cached, 0xFFFFFFFFL - 36);
+    }
+    
+    private static void assertHeader(byte[] wav, AudioFormat format, long dataBytes) {
+        ByteBuffer header = ByteBuffer.wrap(wav, 0, 44).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("RIFF", tag(header));
+        assertEquals(dataBytes + 36, Integer.toUnsignedLong(header.getInt()));
+        assertEquals("WAVE", tag(header));
+        assertEquals("fmt ", tag(header));
+        assertEquals(16, header.getInt());
+        assertEquals(1, header.getShort());
+        assertEquals(format.getChannels(), header.getShort());
+        assertEquals((int) format.getSampleRate(), header.getInt());
+        int blockAlign = format.getChannels() * format.getSampleSizeInBits() / 8;
+        assertEquals((int) format.getSampleRate() * blockAlign, header.getInt());
+        assertEquals(blockAlign, header.getShort());
+        assertEquals(format.getSampleSizeInBits(), header.getShort());
+        assertEquals("data", tag(header));
+        assertEquals(dataBytes, Integer.toUnsignedLong(header.getInt()));
+    }
+    
+    private static String tag(ByteBuffer header) {
+        byte[] tag = new byte[4];
+        header.get(tag);
+        return new String(tag, StandardCharsets.US_ASCII);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.chatgpt.clone.speech;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class SpeechSchedulerTest {
+    @Test
+    void finishedStreamIsSpokenAndCompleted() throws InterruptedException {
+        try (SpeechScheduler scheduler = new SpeechScheduler(new SpeechRenderer(SpeechRenderer.DEFAULT_VOICE))) {
+            SpeechStream stream = scheduler.openStream();
+            stream.append("Hello there. How are");
+            stream.append(" you today?");
+            stream.finish();
+            
+            assertTrue(stream.await(30, TimeUnit.SECONDS));
+            assertFalse(stream.isCancelled());
+            assertEquals(1, scheduler.getStats().getCompleted());
+        }
+    }
+    
+    @Test
+    void cancelWhileSynthesizingReleasesStream() throws InterruptedException {
+        try (SpeechScheduler scheduler = new SpeechScheduler(new SpeechRenderer(SpeechRenderer.DEFAULT_VOICE))) {
+            SpeechStream stream = scheduler.openStream();
+            stream.append("The first sentence is here. ");
+            waitUntilSynthesisStarted(stream);
+            
+            stream.cancel();
+            
+            assertTrue(stream.await(30, TimeUnit.SECONDS));
+            assertTrue(stream.isCancelled());
+            assertEquals(1, scheduler.getStats().getCancelled());
+            assertEquals(0, scheduler.getStats().getCompleted());
+        }
+    }
+    
+    @Test
+    void closeWhileSpeakingReleasesEveryStream() throws InterruptedException {
+        SpeechScheduler scheduler = new SpeechScheduler(new SpeechRenderer(SpeechRenderer.DEFAULT_VOICE));
+        SpeechStream speaking = scheduler.openStream();
+        speaking.append("This stream is still being written. ");
+        SpeechStream queued = scheduler.openStream(SpeechPriority.LOW);
+        queued.append("This one never gets its turn.");
+        queued.finish();
+        waitUntilSynthesisStarted(speaking);
+        
+        scheduler.close();
+        
+        assertTrue(speaking.await(5, TimeUnit.SECONDS), "stream being synthesized was left pending");
+        assertTrue(queued.await(5, TimeUnit.SECONDS), "queued stream was left pending");
+        assertTrue(scheduler.openStream().isRejected());
+    }
+    
+    private static void waitUntilSynthesisStarted(SpeechStream stream) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (stream.getQueueWaitNanos() < 0) {
+            if (System.nanoTime() > deadline) {
+                fail("synthesis never started");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.chatgpt.clone.transport;
+
+import com.chatgpt.clone.benchmark.CompletionStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdkHttpTransportTest {
+    private static final byte[] CHUNK = new byte[16 * 1024];
+    
+    private final JdkHttpTransport transport = new JdkHttpTransport(Duration.ofSeconds(5), Duration.ofSeconds(30));
+    
+    private CompletionStub stub;
+    
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = new CompletionStub(0);
+    }
+    
+    @AfterEach
+    void stop() {
+        transport.close();
+        stub.close();
+    }
+    
+    @Test
+    void streamedBodyIsSent() throws IOException {
+        TransportRequest request = request(out -> {
+            try (out) {
+                for (int i = 0; i < 20; i++) {
+                    out.write(CHUNK);
+                }
+            }
+        });
+        try (TransportResponse response = transport.newCall(request).execute()) {
+            assertEquals(200, response.getStatusCode());
+            assertTrue(response.readBody().contains("\"content\":\"OK\""));
+        }
+        assertEquals(20L * CHUNK.length, stub.getBodyBytes());
+    }
+    
+    @Test
+    void failedBodyWriterFailsRequest() {
+        // Part of the body is already on the wire when the writer fails
+        TransportRequest request = request(out -> {
+            for (int i = 0; i < 10; i++) {
+                out.write(CHUNK);
+            }
+            throw new IOException("Serialization failed");
+        });
+        IOException e = assertThrows(IOException.class, () -> transport.newCall(request).execute());
+        assertTrue(causes(e, "Serialization failed"), "cause: " + e);
+        
+        // A failure right away, before anything was written, too
+        TransportRequest empty = request(out -> {
+            throw new IllegalStateException("No body");
+        });
+        e = assertThrows(IOException.class, () -> transport.newCall(empty).execute());
+        assertTrue(causes(e, "No body"), "cause: " + e);
+    }
+    
+    @Test
+    void cancelAbortsBlockedCall() throws Exception {
+        try (CompletionStub slow = new CompletionStub(16 * 1024)) {
+            // Reading the upload at 16 KB/s would take about a minute
+            TransportRequest request = TransportRequest.builder()
+                    .url(slow.getUrl())
+                    .contentType("application/json")
+                    .body(new byte[1024 * 1024])
+                    .build();
+            TransportCall call = transport.newCall(request);
+            CompletableFuture<TransportResponse> result = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call.execute();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            
+            while (slow.getWireBytes() == 0) {
+                Thread.sleep(10);
+            }
+            call.cancel();
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause().getCause());
+        }
+    }
+    
+    @Test
+    void cancelBeforeExecuteFailsFast() {
+        TransportCall call = transport.newCall(request(out -> out.close()));
+        call.cancel();
+        assertThrows(IOException.class, call::execute);
+        assertEquals(0, stub.getWireBytes());
+    }
+    
+    private TransportRequest request(BodyWriter writer) {
+        return TransportRequest.builder()
+                .url(stub.getUrl())
+                .contentType("application/json")
+                .bodyWriter(writer)
+                .build();
+    }
+    
+    private static boolean causes(Throwable e, String message) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (message.equals(cause.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.chatgpt.clone.transport;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransportRequestTest {
+    private static final byte[] JSON = ("{\"model\":\"gpt-4\",\"messages\":[{\"role\":\"user\",\"content\":\""
+            + "Hello ".repeat(2_000) + "\"}]}").getBytes(StandardCharsets.UTF_8);
+    
+    @Test
+    void plainBodyIsReturnedAsIs() throws IOException {
+        TransportRequest request = request().body(JSON).build();
+        assertArrayEquals(JSON, request.decodedBody());
+    }
+    
+    @Test
+    void compressedBodiesRoundTrip() throws IOException {
+        for (String encoding : new String[] {"gzip", "deflate", "GZIP"}) {
+            byte[] compressed = compress(encoding, JSON);
+            TransportRequest buffered = request().header("Content-Encoding", encoding).body(compressed).build();
+            assertArrayEquals(JSON, buffered.decodedBody(), encoding);
+            
+            TransportRequest streamed = request()
+                    .header("Content-Encoding", encoding)
+                    .bodyWriter(out -> {
+                        try (OutputStream compressor = compressor(encoding, out)) {
+                            compressor.write(JSON);
+                        }
+                    })
+                    .build();
+            assertArrayEquals(JSON, streamed.decodedBody(), encoding);
+            // The writer runs again each time
+            assertArrayEquals(JSON, streamed.decodedBody(), encoding);
+        }
+    }
+    
+    @Test
+    void wrongEncodingFails() {
+        TransportRequest request = request().header("Content-Encoding", "gzip").body(JSON).build();
+        assertThrows(ZipException.class, request::decodedBody);
+    }
+    
+    private static TransportRequest.TransportRequestBuilder request() {
+        return TransportRequest.builder()
+                .url("http://127.0.0.1/v1/chat/completions")
+                .contentType("application/json");
+    }
+    
+    private static byte[] compress(String encoding, byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressor = compressor(encoding, out)) {
+            compressor.write(data);
+        }
+        return out.toByteArray();
+    }
+    
+    private static OutputStream compressor(String encoding, OutputStream out) throws IOException {
+        return encoding.equalsIgnoreCase("gzip") ? new GZIPOutputStream(out) : new DeflaterOutputStream(out);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.chatgpt.clone.usage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UsageLedgerTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void failedFlushKeepsRecordsQueued() throws IOException {
+        long noon = DAY.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        Path file = directory.resolve("usage-" + DAY + ".bin");
+        try (UsageLedger ledger = new UsageLedger(directory, 3_600_000, 0, 0)) {
+            ledger.record(new UsageRecord(noon, "gpt-4", "main", 100, 20, 900));
+            ledger.record(new UsageRecord(noon + 1000, "gpt-4", "main", 200, 30, 800));
+            
+            // A directory in place of the day's file makes the write fail
+            Files.createDirectory(file);
+            assertThrows(IOException.class, ledger::flush);
+            Files.delete(file);
+            // Still queued, so still counted
+            assertEquals(2, calls(ledger));
+            
+            ledger.flush();
+            assertEquals(2, calls(ledger));
+        }
+        
+        List<UsageRecord> written = new ArrayList<>();
+        UsageLedger.read(file, written::add);
+        assertEquals(2, written.size());
+    }
+    
+    private static long calls(UsageLedger ledger) throws IOException {
+        Map<String, UsageTotals> totals = ledger.rollup(UsageDimension.DAY, DAY, DAY);
+        return totals.get(DAY.toString()).getCalls();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.chatgpt.clone.usage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UsageSeriesFileTest {
+    private static final List<UsageRecord> RECORDS = Arrays.asList(
+            new UsageRecord(1_700_000_000_000L, "gpt-3.5-turbo", "main", 120, 40, 900),
+            new UsageRecord(1_700_000_001_500L, "gpt-4", "main", 3000, 500, 12_000),
+            new UsageRecord(1_700_000_001_200L, "gpt-3.5-turbo", "tab-2", 0, 0, 0),
+            new UsageRecord(1_700_000_090_000L, "gpt-4", "tab-2", 70_000, 1, 1));
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void recordsReadBackInOrder() throws IOException {
+        Path path = directory.resolve("usage.bin");
+        UsageSeriesFile.open(path, null).append(RECORDS.subList(0, 2));
+        UsageSeriesFile.open(path, null).append(RECORDS.subList(2, 4));
+        
+        assertEquals(RECORDS, readAll(path));
+    }
+    
+    @Test
+    void tornTailIsTruncatedAtEveryCut() throws IOException {
+        Path complete = directory.resolve("complete.bin");
+        UsageSeriesFile.open(complete, null).append(RECORDS);
+        byte[] data = Files.readAllBytes(complete);
+        
+        for (int cut = 0; cut < data.length; cut++) {
+            Path path = directory.resolve("torn-" + cut + ".bin");
+            Files.write(path, Arrays.copyOf(data, cut));
+            
+            List<UsageRecord> survived = new ArrayList<>();
+            UsageSeriesFile file = UsageSeriesFile.open(path, survived::add);
+            assertEquals(RECORDS.subList(0, survived.size()), survived, "cut at " + cut);
+            assertTrue(Files.size(path) <= cut);
+            
+            // Appending after the repair must leave a readable file
+            UsageRecord extra = new UsageRecord(1_700_000_100_000L, "gpt-4o", "main", 5, 6, 7);
+            file.append(List.of(extra));
+            List<UsageRecord> expected = new ArrayList<>(survived);
+            expected.add(extra);
+            assertEquals(expected, readAll(path), "cut at " + cut);
+        }
+    }
+    
+    @Test
+    void failedAppendCanBeRetried() throws IOException {
+        Path path = directory.resolve("usage.bin");
+        Path aside = directory.resolve("aside.bin");
+        UsageSeriesFile file = UsageSeriesFile.open(path, null);
+        file.append(RECORDS.subList(0, 1));
+        
+        // A directory in place of the file makes the write fail
+        Files.move(path, aside);
+        Files.createDirectory(path);
+        assertThrows(IOException.class, () -> file.append(RECORDS.subList(1, 4)));
+        Files.delete(path);
+        Files.move(aside, path);
+        
+        // The retry defines the names again and continues from the last written timestamp
+        file.append(RECORDS.subList(1, 4));
+        assertEquals(RECORDS, readAll(path));
+    }
+    
+    @Test
+    void foreignFileIsRejected() throws IOException {
+        Path path = directory.resolve("other.bin");
+        Files.write(path, "not usage".getBytes());
+        
+        assertThrows(IOException.class, () -> UsageSeriesFile.open(path, null));
+    }
+    
+    private static List<UsageRecord> readAll(Path path) throws IOException {
+        List<UsageRecord> records = new ArrayList<>();
+        UsageSeriesFile.read(path, records::add);
+        return records;
+    }
+}
\ No newline at end of file